@@ -0,0 +1,49 @@
+-- 첫 실행 때 복사되는 시드 데이터베이스(app/src/main/assets/databases/note_seed.db)의 원본.
+-- 스키마는 NoteDatabase 현재 버전의 Entity와 같아야 하고, user_version도 그 버전으로 둔다.
+-- room_master_table은 넣지 않는다. Room이 처음 열 때 스키마를 검증하고 identity hash를 기록한다.
+--
+-- rm -f app/src/main/assets/databases/note_seed.db
+-- sqlite3 app/src/main/assets/databases/note_seed.db < app/seed/note_seed.sql
+
+PRAGMA user_version = 9;
+-- 테이블을 만들기 전에 정해야 한다. 지운 뒤 빈 페이지는 NoteMaintenance가 incremental_vacuum으로 돌려준다.
+PRAGMA auto_vacuum = INCREMENTAL;
+
+CREATE TABLE IF NOT EXISTS `note_table` (`id` INTEGER PRIMARY KEY AUTOINCREMENT NOT NULL, `title` TEXT, `description` TEXT, `priority` INTEGER NOT NULL, `description_blob` BLOB, `description_format` INTEGER NOT NULL DEFAULT 0, `sync_id` TEXT, `updated_at` INTEGER NOT NULL DEFAULT 0);
+CREATE INDEX IF NOT EXISTS `index_note_table_priority_id` ON `note_table` (`priority`, `id`);
+CREATE UNIQUE INDEX IF NOT EXISTS `index_note_table_sync_id` ON `note_table` (`sync_id`);
+
+CREATE VIRTUAL TABLE IF NOT EXISTS `note_fts` USING FTS4(`title` TEXT, `description` TEXT, content=`note_table`);
+-- UPDATE 트리거는 title/description이 바뀔 때만 색인한다(NoteMigrations.FTS_UPDATE_TRIGGERS).
+CREATE TRIGGER IF NOT EXISTS note_fts_BEFORE_UPDATE BEFORE UPDATE OF `title`, `description` ON `note_table` BEGIN DELETE FROM `note_fts` WHERE `docid`=OLD.`rowid`; END;
+CREATE TRIGGER IF NOT EXISTS room_fts_content_sync_note_fts_BEFORE_DELETE BEFORE DELETE ON `note_table` BEGIN DELETE FROM `note_fts` WHERE `docid`=OLD.`rowid`; END;
+CREATE TRIGGER IF NOT EXISTS note_fts_AFTER_UPDATE AFTER UPDATE OF `title`, `description` ON `note_table` BEGIN INSERT INTO `note_fts`(`docid`, `title`, `description`) VALUES (NEW.`rowid`, NEW.`title`, NEW.`description`); END;
+CREATE TRIGGER IF NOT EXISTS room_fts_content_sync_note_fts_AFTER_INSERT AFTER INSERT ON `note_table` BEGIN INSERT INTO `note_fts`(`docid`, `title`, `description`) VALUES (NEW.`rowid`, NEW.`title`, NEW.`description`); END;
+
+CREATE TABLE IF NOT EXISTS `note_priority_count` (`priority` INTEGER NOT NULL, `note_count` INTEGER NOT NULL, PRIMARY KEY(`priority`));
+CREATE TRIGGER IF NOT EXISTS note_priority_count_AFTER_INSERT AFTER INSERT ON `note_table` BEGIN INSERT OR IGNORE INTO `note_priority_count`(`priority`, `note_count`) VALUES (NEW.`priority`, 0); UPDATE `note_priority_count` SET `note_count` = `note_count` + 1 WHERE `priority` = NEW.`priority`; END;
+CREATE TRIGGER IF NOT EXISTS note_priority_count_AFTER_DELETE AFTER DELETE ON `note_table` BEGIN UPDATE `note_priority_count` SET `note_count` = `note_count` - 1 WHERE `priority` = OLD.`priority`; DELETE FROM `note_priority_count` WHERE `priority` = OLD.`priority` AND `note_count` <= 0; END;
+CREATE TRIGGER IF NOT EXISTS note_priority_count_AFTER_UPDATE AFTER UPDATE OF `priority` ON `note_table` WHEN OLD.`priority` <> NEW.`priority` BEGIN UPDATE `note_priority_count` SET `note_count` = `note_count` - 1 WHERE `priority` = OLD.`priority`; DELETE FROM `note_priority_count` WHERE `priority` = OLD.`priority` AND `note_count` <= 0; INSERT OR IGNORE INTO `note_priority_count`(`priority`, `note_count`) VALUES (NEW.`priority`, 0); UPDATE `note_priority_count` SET `note_count` = `note_count` + 1 WHERE `priority` = NEW.`priority`; END;
+
+CREATE TABLE IF NOT EXISTS `note_sync` (`sync_id` TEXT NOT NULL, `note_id` INTEGER, `version` INTEGER NOT NULL, `revision` INTEGER NOT NULL, `dirty` INTEGER NOT NULL, `deleted` INTEGER NOT NULL, `changed_at` INTEGER NOT NULL, PRIMARY KEY(`sync_id`));
+CREATE INDEX IF NOT EXISTS `index_note_sync_dirty` ON `note_sync` (`dirty`);
+CREATE TRIGGER IF NOT EXISTS note_sync_AFTER_INSERT AFTER INSERT ON `note_table` BEGIN INSERT OR IGNORE INTO `note_sync`(`sync_id`, `note_id`, `version`, `revision`, `dirty`, `deleted`, `changed_at`) VALUES (NEW.`sync_id`, NEW.`id`, 0, 0, 0, 0, 0); UPDATE `note_sync` SET `note_id` = NEW.`id`, `revision` = `revision` + 1, `dirty` = 1, `deleted` = 0, `changed_at` = NEW.`updated_at` WHERE `sync_id` = NEW.`sync_id`; END;
+CREATE TRIGGER IF NOT EXISTS note_sync_AFTER_UPDATE AFTER UPDATE ON `note_table` BEGIN UPDATE `note_sync` SET `revision` = `revision` + 1, `dirty` = 1, `changed_at` = NEW.`updated_at` WHERE `sync_id` = NEW.`sync_id`; END;
+CREATE TRIGGER IF NOT EXISTS note_sync_AFTER_DELETE AFTER DELETE ON `note_table` WHEN NOT EXISTS (SELECT 1 FROM `note_archive` WHERE `id` = OLD.`id`) BEGIN UPDATE `note_sync` SET `note_id` = NULL, `revision` = `revision` + 1, `dirty` = 1, `deleted` = 1, `changed_at` = CAST((julianday('now') - 2440587.5) * 86400000 AS INTEGER) WHERE `sync_id` = OLD.`sync_id`; END;
+
+CREATE TABLE IF NOT EXISTS `note_draft` (`note_id` INTEGER NOT NULL, `title` TEXT, `description` TEXT, `priority` INTEGER NOT NULL, `saved_at` INTEGER NOT NULL, PRIMARY KEY(`note_id`));
+
+CREATE TABLE IF NOT EXISTS `note_archive` (`id` INTEGER NOT NULL, `title` TEXT, `description` TEXT, `priority` INTEGER NOT NULL, `description_blob` BLOB, `description_format` INTEGER NOT NULL, `sync_id` TEXT, `updated_at` INTEGER NOT NULL, `archived_at` INTEGER NOT NULL, PRIMARY KEY(`id`));
+CREATE VIRTUAL TABLE IF NOT EXISTS `note_archive_fts` USING FTS4(`title` TEXT, `description` TEXT, content=`note_archive`);
+CREATE TRIGGER IF NOT EXISTS room_fts_content_sync_note_archive_fts_BEFORE_UPDATE BEFORE UPDATE ON `note_archive` BEGIN DELETE FROM `note_archive_fts` WHERE `docid`=OLD.`rowid`; END;
+CREATE TRIGGER IF NOT EXISTS room_fts_content_sync_note_archive_fts_BEFORE_DELETE BEFORE DELETE ON `note_archive` BEGIN DELETE FROM `note_archive_fts` WHERE `docid`=OLD.`rowid`; END;
+CREATE TRIGGER IF NOT EXISTS room_fts_content_sync_note_archive_fts_AFTER_UPDATE AFTER UPDATE ON `note_archive` BEGIN INSERT INTO `note_archive_fts`(`docid`, `title`, `description`) VALUES (NEW.`rowid`, NEW.`title`, NEW.`description`); END;
+CREATE TRIGGER IF NOT EXISTS room_fts_content_sync_note_archive_fts_AFTER_INSERT AFTER INSERT ON `note_archive` BEGIN INSERT INTO `note_archive_fts`(`docid`, `title`, `description`) VALUES (NEW.`rowid`, NEW.`title`, NEW.`description`); END;
+CREATE TRIGGER IF NOT EXISTS note_archive_sync_AFTER_DELETE AFTER DELETE ON `note_archive` WHEN NOT EXISTS (SELECT 1 FROM `note_table` WHERE `id` = OLD.`id`) BEGIN UPDATE `note_sync` SET `note_id` = NULL, `revision` = `revision` + 1, `dirty` = 1, `deleted` = 1, `changed_at` = CAST((julianday('now') - 2440587.5) * 86400000 AS INTEGER) WHERE `sync_id` = OLD.`sync_id`; END;
+
+-- sync_id는 시드를 만들 때 한 번 정해진다. 시드 Note는 첫 동기화 때 올라간다.
+INSERT INTO `note_table` (`title`, `description`, `priority`, `sync_id`) VALUES ('Title 1', 'Description 1', 1, lower(hex(randomblob(16))));
+INSERT INTO `note_table` (`title`, `description`, `priority`, `sync_id`) VALUES ('Title 2', 'Description 2', 2, lower(hex(randomblob(16))));
+INSERT INTO `note_table` (`title`, `description`, `priority`, `sync_id`) VALUES ('Title 3', 'Description 3', 3, lower(hex(randomblob(16))));
+
+VACUUM;
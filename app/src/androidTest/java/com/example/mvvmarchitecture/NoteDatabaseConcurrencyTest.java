@@ -0,0 +1,111 @@
+package com.example.mvvmarchitecture;
+
+import android.content.Context;
+import android.os.SystemClock;
+import android.util.Log;
+
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+import androidx.test.platform.app.InstrumentationRegistry;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * 큰 배치 쓰기가 진행되는 동안 목록 읽기가 막히지 않는지 확인하는 스트레스 테스트.
+ * WAL 모드에서는 읽기가 쓰기 트랜잭션 시작 전의 스냅샷을 읽으므로 커밋을 기다리지 않는다.
+ */
+@RunWith(AndroidJUnit4.class)
+public class NoteDatabaseConcurrencyTest {
+    private static final String TAG = "NoteDbConcurrency";
+    private static final String DB_NAME = "note-concurrency-test.db";
+    private static final int SEED_ROWS = 1000;
+    private static final int BATCH_ROWS = 200_000;
+    private static final int CHUNK = 1000;
+    // 쓰기 트랜잭션 하나를 통째로 기다리면 수 초가 걸리므로 이보다 오래 걸린 읽기는 막힌 것으로 본다.
+    private static final long MAX_READ_MILLIS = 250;
+
+    private Context context;
+    private NoteDatabase database;
+
+    @Before
+    public void setUp() {
+        context = InstrumentationRegistry.getInstrumentation().getTargetContext();
+        context.deleteDatabase(DB_NAME);
+        database = NoteDatabase.newBuilder(context, DB_NAME, NoteDatabaseConfig.DEFAULT).build();
+        List<Note> seed = new ArrayList<>(SEED_ROWS);
+        for (int i = 0; i < SEED_ROWS; i++) {
+            seed.add(new Note("Seed " + i, "Seed description " + i, 1 + i % 10));
+        }
+        database.noteDao().insertAll(seed);
+    }
+
+    @After
+    public void tearDown() {
+        database.close();
+        context.deleteDatabase(DB_NAME);
+    }
+
+    @Test
+    public void listReadsAreNotBlockedByLargeBatchWrite() throws Exception {
+        final NoteDao noteDao = database.noteDao();
+        final CountDownLatch writeStarted = new CountDownLatch(1);
+        final CountDownLatch writeFinished = new CountDownLatch(1);
+        final AtomicBoolean writing = new AtomicBoolean();
+
+        database.getTransactionExecutor().execute(new Runnable() {
+            @Override
+            public void run() {
+                database.runInTransaction(new Runnable() {
+                    @Override
+                    public void run() {
+                        writing.set(true);
+                        writeStarted.countDown();
+                        List<Note> chunk = new ArrayList<>(CHUNK);
+                        for (int i = 0; i < BATCH_ROWS; i++) {
+                            chunk.add(new Note("Batch " + i, "Batch description " + i, 1 + i % 10));
+                            if (chunk.size() == CHUNK) {
+                                noteDao.insertAll(chunk);
+                                chunk.clear();
+                            }
+                        }
+                        writing.set(false);
+                    }
+                });
+                writeFinished.countDown();
+            }
+        });
+
+        assertTrue(writeStarted.await(10, TimeUnit.SECONDS));
+        int readsDuringWrite = 0;
+        long slowestRead = 0;
+        while (writing.get()) {
+            long start = SystemClock.elapsedRealtime();
+            List<NoteListItem> page = noteDao.getFirstNotes(50);
+            long elapsed = SystemClock.elapsedRealtime() - start;
+            if (writing.get()) {
+                // 아직 커밋 전이므로 새 행은 보이지 않아야 한다.
+                assertEquals(50, page.size());
+                assertTrue(page.get(0).getTitle().startsWith("Seed"));
+                readsDuringWrite++;
+                slowestRead = Math.max(slowestRead, elapsed);
+            }
+        }
+        assertTrue(writeFinished.await(60, TimeUnit.SECONDS));
+
+        Log.i(TAG, "reads during write=" + readsDuringWrite + " slowest=" + slowestRead + "ms");
+        assertTrue("no reads completed while the batch write was open", readsDuringWrite > 0);
+        assertTrue("slowest read took " + slowestRead + "ms", slowestRead < MAX_READ_MILLIS);
+        assertEquals(SEED_ROWS + BATCH_ROWS, noteDao.getFirstNotes(SEED_ROWS + BATCH_ROWS).size());
+    }
+}
@@ -0,0 +1,312 @@
+package com.example.mvvmarchitecture;
+
+import android.content.Context;
+import android.database.Cursor;
+
+import androidx.room.Room;
+import androidx.room.migration.Migration;
+import androidx.room.testing.MigrationTestHelper;
+import androidx.sqlite.db.SupportSQLiteDatabase;
+import androidx.sqlite.db.framework.FrameworkSQLiteOpenHelperFactory;
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+import androidx.test.platform.app.InstrumentationRegistry;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.io.IOException;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * app/schemas에 내보낸 각 버전의 스키마로 데이터베이스를 만들고 NoteMigrations로 한 단계씩 올린다.
+ * MigrationTestHelper가 결과를 다음 버전의 스키마 JSON과 비교하고, 마지막으로 Room으로 열어
+ * 데이터가 남아있고 현재 Entity와 일치하는지 확인한다.
+ */
+@RunWith(AndroidJUnit4.class)
+public class NoteMigrationTest {
+    private static final String DB_NAME = "note-migration-test.db";
+    // NoteDatabase의 version과 같아야 한다.
+    private static final int LATEST_VERSION = 9;
+
+    @Rule
+    public MigrationTestHelper helper = new MigrationTestHelper(InstrumentationRegistry.getInstrumentation(),
+            NoteDatabase.class.getCanonicalName(), new FrameworkSQLiteOpenHelperFactory());
+
+    @Test
+    public void migrateAll_matchesEveryExportedSchema() throws IOException {
+        createDatabase(1,
+                "INSERT INTO note_table (title, description, priority) VALUES ('Groceries', 'milk and eggs', 2)");
+        for (Migration migration : NoteMigrations.ALL) {
+            helper.runMigrationsAndValidate(DB_NAME, migration.endVersion, true, migration).close();
+        }
+
+        NoteDatabase database = openMigrated();
+        assertEquals(1, database.noteDao().searchNow(NoteSearchQuery.toFtsQuery("eggs")).size());
+        assertEquals(LATEST_VERSION, database.getOpenHelper().getReadableDatabase().getVersion());
+    }
+
+    @Test
+    public void migrate1To2_indexesExistingNotes() throws IOException {
+        createDatabase(1,
+                "INSERT INTO note_table (title, description, priority) VALUES ('Groceries', 'milk and eggs', 2)",
+                "INSERT INTO note_table (title, description, priority) VALUES ('Work', 'finish the report', 7)");
+        migrate(2);
+
+        NoteDatabase database = openMigrated();
+        NoteDao noteDao = database.noteDao();
+        List<NoteListItem> notes = noteDao.getFirstNotes(10);
+        assertEquals(2, notes.size());
+        assertEquals("Work", notes.get(0).getTitle());
+
+        // 기존 행도 FTS 색인에 들어가 있어야 한다.
+        List<NoteListItem> found = noteDao.searchNow(NoteSearchQuery.toFtsQuery("eggs"));
+        assertEquals(1, found.size());
+        assertEquals("Groceries", found.get(0).getTitle());
+    }
+
+    @Test
+    public void migrate2To3_addsPriorityIndex() throws IOException {
+        createDatabase(2,
+                "INSERT INTO note_table (title, description, priority) VALUES ('Title', 'Description', 3)");
+        migrate(3);
+
+        NoteDatabase database = openMigrated();
+        database.noteDao().insert(new Note("Another", "Description", 4));
+        assertEquals(2, database.noteDao().getFirstNotes(10).size());
+        assertEquals(1, database.noteDao().searchNow(NoteSearchQuery.toFtsQuery("another")).size());
+        assertTrue(hasIndex(database, "index_note_table_priority_id"));
+    }
+
+    @Test
+    public void migrate3To4_fillsPriorityCountsAndKeepsThemInSync() throws IOException {
+        createDatabase(3,
+                "INSERT INTO note_table (title, description, priority) VALUES ('a', 'd', 2)",
+                "INSERT INTO note_table (title, description, priority) VALUES ('b', 'd', 2)",
+                "INSERT INTO note_table (title, description, priority) VALUES ('c', 'd', 5)");
+        migrate(4);
+
+        NoteDatabase database = openMigrated();
+        NoteDao noteDao = database.noteDao();
+        assertEquals("[5=1, 2=2]", counts(noteDao));
+
+        noteDao.insert(new Note("d", "d", 5));
+        Note moved = new Note("a", "d", 7);
+        moved.setId(1);
+        noteDao.update(moved);
+        noteDao.deleteByIds(Collections.singletonList(2));
+        assertEquals("[7=1, 5=2]", counts(noteDao));
+    }
+
+    @Test
+    public void migrate4To5_keepsPlainDescriptionsReadable() throws IOException {
+        createDatabase(4,
+                "INSERT INTO note_table (title, description, priority) VALUES ('Title', 'Plain description', 3)");
+        migrate(5);
+
+        NoteDatabase database = openMigrated();
+        NoteDao noteDao = database.noteDao();
+        assertEquals("Plain description", noteDao.getById(1).getDescription());
+        assertEquals("Plain description", noteDao.getFirstNotes(1).get(0).getPreview());
+    }
+
+    @Test
+    public void migrate5To6_givesExistingNotesSyncIdsAndMarksThemDirty() throws IOException {
+        createDatabase(5,
+                "INSERT INTO note_table (title, description, priority) VALUES ('a', 'd', 1)",
+                "INSERT INTO note_table (title, description, priority) VALUES ('b', 'd', 2)");
+        migrate(6);
+
+        NoteDatabase database = openMigrated();
+        NoteSyncDao syncDao = database.noteSyncDao();
+        Cursor dirty = syncDao.dirtyCursor(10);
+        try {
+            assertEquals(2, dirty.getCount());
+        } finally {
+            dirty.close();
+        }
+        Note note = database.noteDao().getById(1);
+        assertTrue(note.getSyncId() != null && !note.getSyncId().isEmpty());
+        assertEquals(Integer.valueOf(1), syncDao.getNoteId(note.getSyncId()));
+
+        // 마이그레이션 뒤에 만든 트리거가 지운 Note를 tombstone으로 남긴다.
+        database.noteDao().deleteByIds(Collections.singletonList(1));
+        NoteSync state = syncDao.getState(note.getSyncId());
+        assertTrue(state.isDeleted() && state.isDirty());
+    }
+
+    @Test
+    public void migrate6To7_addsDraftsAndLimitsFtsUpdatesToIndexedColumns() throws IOException {
+        createDatabase(6,
+                "INSERT INTO note_table (title, description, priority, sync_id) VALUES ('Groceries', 'milk and eggs', 2, 's1')");
+        migrate(7);
+
+        NoteDatabase database = openMigrated();
+        NoteDao noteDao = database.noteDao();
+        noteDao.saveDraft(new NoteDraft(1, "Groceries", "milk, eggs and bread", 2, 100));
+        assertEquals("milk, eggs and bread", noteDao.getDraft(1).getDescription());
+
+        // Room이 마이그레이션 뒤에 다시 만든 트리거는 열 때 컬럼을 지정한 트리거로 바뀐다.
+        assertFalse(hasTrigger(database, "room_fts_content_sync_note_fts_BEFORE_UPDATE"));
+        assertTrue(hasTrigger(database, "note_fts_BEFORE_UPDATE"));
+        assertTrue(hasTrigger(database, "note_fts_AFTER_UPDATE"));
+
+        Note retitled = new Note("Shopping", "ignored", 2);
+        retitled.setId(1);
+        retitled.setChangedFields(Note.FIELD_TITLE);
+        noteDao.update(retitled);
+        assertEquals(1, noteDao.searchNow("shopping").size());
+        assertEquals(0, noteDao.searchNow("groceries").size());
+        assertEquals("milk and eggs", noteDao.getById(1).getDescription());
+    }
+
+    @Test
+    public void migrate7To8_addsArchiveWithoutTombstonesForMovedNotes() throws IOException {
+        createDatabase(7,
+                "INSERT INTO note_table (title, description, priority, sync_id) VALUES ('Groceries', 'milk and eggs', 1, 's1')",
+                "INSERT INTO note_table (title, description, priority, sync_id) VALUES ('Work', 'finish the report', 7, 's2')");
+        migrate(8);
+
+        NoteDatabase database = openMigrated();
+        NoteDao noteDao = database.noteDao();
+        // 버전 6 이전의 Note는 updated_at이 0이라 보관하지 않는다. 오래전에 고쳤고 동기화를 마친 것으로 두고 옮긴다.
+        assertEquals(0, noteDao.archiveChunk(2, 2, 1000, 10, false));
+        database.getOpenHelper().getWritableDatabase().execSQL("UPDATE note_table SET updated_at = 1");
+        database.getOpenHelper().getWritableDatabase().execSQL("UPDATE note_sync SET dirty = 0");
+        assertEquals(1, noteDao.archiveChunk(2, 2, 1000, 10, true));
+        assertEquals(1, noteDao.getFirstNotes(10).size());
+        assertEquals(1, noteDao.getArchivedCount());
+        assertEquals("[7=1]", counts(noteDao));
+        assertEquals(0, countDirty(database));
+
+        Cursor cursor = noteDao.searchWithArchiveCursor("milk");
+        try {
+            assertEquals(1, cursor.getCount());
+        } finally {
+            cursor.close();
+        }
+        assertEquals("milk and eggs", noteDao.findById(1).getDescription());
+
+        // 보관된 Note를 지우면 tombstone이 남는다.
+        noteDao.deleteByIds(Collections.singletonList(1));
+        assertEquals(0, noteDao.getArchivedCount());
+        assertEquals(1, countDirty(database));
+    }
+
+    @Test
+    public void migrate8To9_indexesWholeCompressedDescriptions() throws IOException {
+        StringBuilder builder = new StringBuilder();
+        for (int i = 0; builder.length() < NoteCompression.DEFAULT_THRESHOLD * 2; i++) {
+            builder.append("line ").append(i % 50).append(" of a long note ");
+        }
+        String description = builder.append("needle").toString();
+        String prefix = description.substring(0, NoteCompression.INDEXED_PREFIX_LENGTH);
+        SupportSQLiteDatabase db = newDatabase(8);
+        // 버전 8은 압축한 Note의 description 컬럼에 앞부분만 남겼다.
+        db.execSQL("INSERT INTO note_table (title, description, priority, description_blob, description_format, sync_id) " +
+                        "VALUES ('long', ?, 1, ?, " + NoteCompression.FORMAT_DEFLATE + ", 's1')",
+                new Object[]{prefix, NoteCompression.deflate(description, prefix)});
+        db.execSQL("UPDATE note_sync SET dirty = 0");
+        assertEquals(0, db.query("SELECT docid FROM note_fts WHERE note_fts MATCH 'needle'").getCount());
+        db.close();
+        migrate(9);
+
+        NoteDatabase database = openMigrated();
+        NoteDao noteDao = database.noteDao();
+        assertEquals(1, noteDao.searchNow(NoteSearchQuery.toFtsQuery("needle")).size());
+        assertEquals(description, noteDao.getById(1).getDescription());
+        // 내용은 그대로이므로 다시 올라가지 않는다.
+        assertEquals(0, countDirty(database));
+    }
+
+    // version의 스키마 JSON으로 데이터베이스를 만들고 inserts를 실행한다.
+    private void createDatabase(int version, String... inserts) throws IOException {
+        SupportSQLiteDatabase db = newDatabase(version);
+        for (String insert : inserts) {
+            db.execSQL(insert);
+        }
+        db.close();
+    }
+
+    // JSON에는 Entity만 있으므로, 그 버전의 앱이 마이그레이션이나 NoteDatabase.CALLBACK으로 만들어 두었을
+    // 트리거를 같이 만든다. 호출하는 쪽에서 닫아야 한다.
+    private SupportSQLiteDatabase newDatabase(int version) throws IOException {
+        SupportSQLiteDatabase db = helper.createDatabase(DB_NAME, version);
+        if (version >= 4) {
+            NoteMigrations.createPriorityCountTriggers(db);
+        }
+        if (version >= 6) {
+            NoteMigrations.createSyncTriggers(db);
+        }
+        if (version >= 7) {
+            NoteMigrations.replaceFtsUpdateTriggers(db);
+        }
+        if (version >= 8) {
+            NoteMigrations.createArchiveSyncTriggers(db);
+        }
+        return db;
+    }
+
+    // version까지 올라가는 Migration 하나를 실행하고 결과가 그 버전의 스키마 JSON과 같은지 확인한다.
+    private void migrate(int version) throws IOException {
+        Migration migration = NoteMigrations.ALL[version - 2];
+        assertEquals(version, migration.endVersion);
+        helper.runMigrationsAndValidate(DB_NAME, version, true, migration).close();
+    }
+
+    // 나머지 버전까지 올려 Room으로 연다. Room은 스키마가 Entity와 다르면 IllegalStateException을 던진다.
+    // 앱처럼 NoteDatabase.CALLBACK도 붙인다. 테스트가 끝나면 helper가 닫는다.
+    private NoteDatabase openMigrated() {
+        Context context = InstrumentationRegistry.getInstrumentation().getTargetContext();
+        NoteDatabase database = Room.databaseBuilder(context, NoteDatabase.class, DB_NAME)
+                .addMigrations(NoteMigrations.ALL)
+                .addCallback(NoteDatabase.CALLBACK)
+                .build();
+        helper.closeWhenFinished(database);
+        database.getOpenHelper().getWritableDatabase();
+        return database;
+    }
+
+    private static int countDirty(NoteDatabase database) {
+        Cursor cursor = database.query("SELECT count(*) FROM note_sync WHERE dirty = 1", null);
+        try {
+            return cursor.moveToFirst() ? cursor.getInt(0) : 0;
+        } finally {
+            cursor.close();
+        }
+    }
+
+    private static String counts(NoteDao noteDao) {
+        StringBuilder builder = new StringBuilder("[");
+        for (NotePriorityCount count : noteDao.getPriorityCountsNow()) {
+            if (builder.length() > 1) {
+                builder.append(", ");
+            }
+            builder.append(count.getPriority()).append('=').append(count.getCount());
+        }
+        return builder.append(']').toString();
+    }
+
+    private static boolean hasIndex(NoteDatabase database, String name) {
+        return hasSchemaObject(database, "index", name);
+    }
+
+    private static boolean hasTrigger(NoteDatabase database, String name) {
+        return hasSchemaObject(database, "trigger", name);
+    }
+
+    private static boolean hasSchemaObject(NoteDatabase database, String type, String name) {
+        Cursor cursor = database.query("SELECT name FROM sqlite_master WHERE type = ? AND name = ?",
+                new Object[]{type, name});
+        try {
+            return cursor.moveToFirst();
+        } finally {
+            cursor.close();
+        }
+    }
+}
@@ -0,0 +1,107 @@
+package com.example.mvvmarchitecture;
+
+import android.database.Cursor;
+
+import androidx.room.Room;
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+import androidx.test.platform.app.InstrumentationRegistry;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.regex.Pattern;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * 목록에서 자주 쓰는 쿼리의 EXPLAIN QUERY PLAN을 검사한다.
+ * 인덱스를 타지 않는 전체 스캔이나 임시 B-tree 정렬이 다시 생기면 실패한다.
+ * SQL은 NoteDao와 같아야 한다.
+ */
+@RunWith(AndroidJUnit4.class)
+public class NoteQueryPlanTest {
+    // SQLite 버전에 따라 "SCAN TABLE note_table" 또는 "SCAN note_table"로 출력된다.
+    private static final Pattern FULL_SCAN = Pattern.compile("SCAN (TABLE )?note_table(?! USING)");
+
+    private static final String LIST_COLUMNS = "note_table.id, note_table.title, note_table.priority, " +
+            "substr(note_table.description, 1, 200) AS preview";
+
+    private NoteDatabase database;
+
+    @Before
+    public void setUp() {
+        database = Room.inMemoryDatabaseBuilder(
+                InstrumentationRegistry.getInstrumentation().getTargetContext(), NoteDatabase.class).build();
+    }
+
+    @After
+    public void tearDown() {
+        database.close();
+    }
+
+    @Test
+    public void allNotes_readsIndexInOrder() {
+        assertIndexedWithoutSort("SELECT * FROM note_table ORDER BY priority DESC, id DESC");
+    }
+
+    @Test
+    public void firstNotes_seeksIndexInOrder() {
+        List<String> plan = assertIndexedWithoutSort(
+                "SELECT " + LIST_COLUMNS + " FROM note_table WHERE priority BETWEEN ? AND ? " +
+                        "ORDER BY priority DESC, id DESC LIMIT ?", 3, 7, 50);
+        assertTrue(plan.toString(), plan.get(0).startsWith("SEARCH"));
+    }
+
+    @Test
+    public void notesAfter_seeksIndex() {
+        List<String> plan = assertIndexedWithoutSort(
+                "SELECT " + LIST_COLUMNS + " FROM note_table WHERE priority BETWEEN ? AND ? " +
+                        "AND priority <= ? AND (priority < ? OR id < ?) " +
+                        "ORDER BY priority DESC, id DESC LIMIT ?", 3, 7, 5, 5, 100, 50);
+        assertTrue(plan.toString(), plan.get(0).startsWith("SEARCH"));
+    }
+
+    @Test
+    public void notesBefore_seeksIndex() {
+        List<String> plan = assertIndexedWithoutSort(
+                "SELECT " + LIST_COLUMNS + " FROM note_table WHERE priority BETWEEN ? AND ? " +
+                        "AND priority >= ? AND (priority > ? OR id > ?) " +
+                        "ORDER BY priority ASC, id ASC LIMIT ?", 3, 7, 5, 5, 100, 50);
+        assertTrue(plan.toString(), plan.get(0).startsWith("SEARCH"));
+    }
+
+    @Test
+    public void priorityCountTrigger_updatesByPrimaryKey() {
+        List<String> plan = explain("UPDATE note_priority_count SET note_count = note_count + 1 WHERE priority = ?",
+                new Object[]{5});
+        assertTrue(plan.toString(), plan.get(0).startsWith("SEARCH"));
+    }
+
+    private List<String> assertIndexedWithoutSort(String sql, Object... args) {
+        List<String> plan = explain(sql, args);
+        for (String detail : plan) {
+            assertFalse("full table scan: " + plan, FULL_SCAN.matcher(detail).find());
+            assertFalse("temp b-tree sort: " + plan, detail.contains("TEMP B-TREE"));
+        }
+        return plan;
+    }
+
+    private List<String> explain(String sql, Object[] args) {
+        List<String> details = new ArrayList<>();
+        Cursor cursor = database.query("EXPLAIN QUERY PLAN " + sql, args);
+        try {
+            int detailIndex = cursor.getColumnIndexOrThrow("detail");
+            while (cursor.moveToNext()) {
+                details.add(cursor.getString(detailIndex));
+            }
+        } finally {
+            cursor.close();
+        }
+        return details;
+    }
+}
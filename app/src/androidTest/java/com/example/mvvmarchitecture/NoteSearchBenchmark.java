@@ -0,0 +1,148 @@
+package com.example.mvvmarchitecture;
+
+import android.content.Context;
+import android.os.SystemClock;
+import android.util.Log;
+
+import androidx.room.Room;
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+import androidx.test.platform.app.InstrumentationRegistry;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * FTS4 검색과 LIKE '%x%' 전체 스캔을 10k, 100k, 1M 행에서 비교하는 벤치마크.
+ * 결과는 logcat의 NoteSearchBenchmark 태그로 출력된다.
+ */
+@RunWith(AndroidJUnit4.class)
+public class NoteSearchBenchmark {
+    private static final String TAG = "NoteSearchBenchmark";
+    private static final String DB_NAME = "note-search-benchmark.db";
+    private static final String[] WORDS = {
+            "room", "livedata", "paging", "adapter", "viewmodel", "repository", "sqlite", "index",
+            "query", "cursor", "thread", "layout", "recycler", "holder", "dao", "entity"
+    };
+    // 데이터셋마다 몇 건만 들어가는 드문 단어를 찾는다.
+    private static final String RARE_WORD = "zeppelin";
+    private static final int RARE_EVERY = 5000;
+    private static final int INSERT_CHUNK = 5000;
+    private static final int RUNS = 5;
+
+    private Context context;
+    private NoteDatabase database;
+    private NoteDao noteDao;
+
+    @Before
+    public void setUp() {
+        context = InstrumentationRegistry.getInstrumentation().getTargetContext();
+        context.deleteDatabase(DB_NAME);
+        database = Room.databaseBuilder(context, NoteDatabase.class, DB_NAME).build();
+        noteDao = database.noteDao();
+    }
+
+    @After
+    public void tearDown() {
+        database.close();
+        context.deleteDatabase(DB_NAME);
+    }
+
+    @Test
+    public void search_10k() {
+        compare(10_000);
+    }
+
+    @Test
+    public void search_100k() {
+        compare(100_000);
+    }
+
+    @Test
+    public void search_1m() {
+        compare(1_000_000);
+    }
+
+    private void compare(int rows) {
+        populate(rows);
+
+        int expected = rows / RARE_EVERY;
+        long ftsNanos = median(new Runnable() {
+            @Override
+            public void run() {
+                noteDao.searchNow(NoteSearchQuery.toFtsQuery(RARE_WORD));
+            }
+        });
+        long likeNanos = median(new Runnable() {
+            @Override
+            public void run() {
+                noteDao.searchLikeNow("%" + RARE_WORD + "%");
+            }
+        });
+        assertEquals(expected, noteDao.searchNow(NoteSearchQuery.toFtsQuery(RARE_WORD)).size());
+        assertEquals(expected, noteDao.searchLikeNow("%" + RARE_WORD + "%").size());
+
+        Log.i(TAG, String.format("rows=%d fts=%.2fms like=%.2fms", rows, ftsNanos / 1e6, likeNanos / 1e6));
+        if (rows >= 100_000) {
+            assertTrue("FTS should beat a LIKE scan at " + rows + " rows", ftsNanos < likeNanos);
+        }
+    }
+
+    private void populate(final int rows) {
+        final Random random = new Random(42);
+        database.runInTransaction(new Runnable() {
+            @Override
+            public void run() {
+                List<Note> chunk = new ArrayList<>(INSERT_CHUNK);
+                for (int i = 0; i < rows; i++) {
+                    String title = sentence(random, 4);
+                    String description = sentence(random, 20);
+                    if (i % RARE_EVERY == 0) {
+                        description = description + " " + RARE_WORD;
+                    }
+                    chunk.add(new Note(title, description, 1 + random.nextInt(10)));
+                    if (chunk.size() == INSERT_CHUNK) {
+                        noteDao.insertAll(chunk);
+                        chunk.clear();
+                    }
+                }
+                if (!chunk.isEmpty()) {
+                    noteDao.insertAll(chunk);
+                }
+            }
+        });
+    }
+
+    private static String sentence(Random random, int words) {
+        StringBuilder builder = new StringBuilder();
+        for (int i = 0; i < words; i++) {
+            if (i > 0) {
+                builder.append(' ');
+            }
+            builder.append(WORDS[random.nextInt(WORDS.length)]);
+        }
+        return builder.toString();
+    }
+
+    // 첫 실행은 캐시를 데우는 용도로 버리고 나머지의 중앙값을 쓴다.
+    private static long median(Runnable query) {
+        query.run();
+        long[] samples = new long[RUNS];
+        for (int i = 0; i < RUNS; i++) {
+            long start = SystemClock.elapsedRealtimeNanos();
+            query.run();
+            samples[i] = SystemClock.elapsedRealtimeNanos() - start;
+        }
+        Arrays.sort(samples);
+        return samples[RUNS / 2];
+    }
+}
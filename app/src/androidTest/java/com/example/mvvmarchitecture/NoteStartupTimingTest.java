@@ -0,0 +1,89 @@
+package com.example.mvvmarchitecture;
+
+import android.content.Context;
+import android.os.Bundle;
+import android.os.SystemClock;
+import android.util.Log;
+
+import androidx.test.core.app.ActivityScenario;
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+import androidx.test.platform.app.InstrumentationRegistry;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assume.assumeTrue;
+
+/**
+ * 시작 경로의 시간을 잰다.
+ * 1. 시드 데이터베이스를 복사해 여는 비용(행 삽입, 마이그레이션 없이 스키마 검증만 한다)
+ * 2. MainActivity.onCreate부터 첫 목록 프레임까지(time-to-first-list-frame)
+ *
+ * 예산은 -e firstListFrameBudgetMs 1000 처럼 instrumentation 인자로 바꿀 수 있다.
+ */
+@RunWith(AndroidJUnit4.class)
+public class NoteStartupTimingTest {
+    private static final String TAG = "NoteStartupTiming";
+    private static final String DB_NAME = "note-seed-test.db";
+    private static final long DEFAULT_FIRST_LIST_FRAME_BUDGET_MS = 1500;
+    private static final long WAIT_TIMEOUT_MS = 10_000;
+
+    @Test
+    public void seedDatabaseOpensFromAsset() {
+        Context context = InstrumentationRegistry.getInstrumentation().getTargetContext();
+        context.deleteDatabase(DB_NAME);
+        NoteDatabase database = NoteDatabase.newBuilder(context, DB_NAME, NoteDatabaseConfig.DEFAULT)
+                .createFromAsset(NoteDatabase.SEED_ASSET)
+                .build();
+        try {
+            long start = SystemClock.elapsedRealtime();
+            // 스키마가 Entity와 다르면 Room이 여기서 IllegalStateException을 던진다.
+            database.getOpenHelper().getWritableDatabase();
+            long openMillis = SystemClock.elapsedRealtime() - start;
+            Log.i(TAG, "seed open: " + openMillis + "ms");
+
+            assertEquals(3, database.noteDao().getFirstNotes(10).size());
+            assertEquals(3, database.noteDao().searchNow(NoteSearchQuery.toFtsQuery("desc")).size());
+            // 시드에는 요약 테이블의 값과 트리거도 들어 있어야 한다.
+            assertEquals(3, database.noteDao().getPriorityCountsNow().size());
+            database.noteDao().insert(new Note("Title 4", "Description 4", 1));
+            assertEquals(2, database.noteDao().getPriorityCountsNow().get(2).getCount());
+        } finally {
+            database.close();
+            context.deleteDatabase(DB_NAME);
+        }
+    }
+
+    @Test
+    public void timeToFirstListFrame() {
+        // 디버그 빌드에서는 NoteApplication이 InMemoryNoteMetrics를 설치한다.
+        assumeTrue(NoteMetrics.get() instanceof InMemoryNoteMetrics);
+        InMemoryNoteMetrics metrics = (InMemoryNoteMetrics) NoteMetrics.get();
+        metrics.reset();
+
+        ActivityScenario<MainActivity> scenario = ActivityScenario.launch(MainActivity.class);
+        try {
+            long deadline = SystemClock.elapsedRealtime() + WAIT_TIMEOUT_MS;
+            while (metrics.getHistogram(NoteMetrics.FIRST_LIST_FRAME).getCount() == 0) {
+                assertTrue("first list frame was never drawn", SystemClock.elapsedRealtime() < deadline);
+                SystemClock.sleep(10);
+            }
+        } finally {
+            scenario.close();
+        }
+
+        long firstFrameMillis = metrics.getHistogram(NoteMetrics.FIRST_LIST_FRAME).getMax() / 1_000_000;
+        long budgetMillis = budgetMillis();
+        Log.i(TAG, "time-to-first-list-frame: " + firstFrameMillis + "ms (budget " + budgetMillis + "ms)");
+        assertTrue("time-to-first-list-frame " + firstFrameMillis + "ms exceeds " + budgetMillis + "ms",
+                firstFrameMillis <= budgetMillis);
+    }
+
+    private static long budgetMillis() {
+        Bundle arguments = InstrumentationRegistry.getArguments();
+        String value = arguments.getString("firstListFrameBudgetMs");
+        return value != null ? Long.parseLong(value) : DEFAULT_FIRST_LIST_FRAME_BUDGET_MS;
+    }
+}
@@ -2,9 +2,15 @@ package com.example.mvvmarchitecture;
 
 import androidx.annotation.NonNull;
 import androidx.appcompat.app.AppCompatActivity;
+import androidx.lifecycle.Observer;
+import androidx.lifecycle.ViewModelProvider;
 
 import android.content.Intent;
 import android.os.Bundle;
+import android.os.Handler;
+import android.os.Looper;
+import android.text.Editable;
+import android.text.TextWatcher;
 import android.view.Menu;
 import android.view.MenuInflater;
 import android.view.MenuItem;
@@ -15,15 +21,33 @@ import android.widget.Toast;
 import com.google.android.material.floatingactionbutton.FloatingActionButton;
 
 public class AddEditNoteActivity extends AppCompatActivity {
+    // Intent에는 id만 담는다. 제목/내용을 Extra로 주고받으면 긴 내용에서 Binder 트랜잭션이 커지기 때문이다.
     public static final String EXTRA_ID = "com.example.mvvmarchitecture.EXTRA_ID";
-    public static final String EXTRA_TITLE = "com.example.mvvmarchitecture.EXTRA_TITLE";
-    public static final String EXTRA_DESCRIPTION = "com.example.mvvmarchitecture.EXTRA_DESCRIPTION";
-    public static final String EXTRA_PRIORITY = "com.example.mvvmarchitecture.EXTRA_PRIORITY";
-
+    // 결과에 담긴다. 수정 화면에서 아무것도 바꾸지 않고 저장했으면 false다.
+    public static final String EXTRA_CHANGED = "com.example.mvvmarchitecture.EXTRA_CHANGED";
+    // 마지막 입력 후 이 시간이 지나면 초안을 저장한다.
+    private static final long DRAFT_DELAY_MS = 1000;
+    private static final int DEFAULT_PRIORITY = 1;
 
+    private NoteViewModel noteViewModel;
     private EditText editTextTitle;
     private EditText editTextDescription;
     private NumberPicker numberPickerPriority;
+    private int noteId;
+
+    // *초안 자동 저장*
+    // 입력할 때마다 예약만 다시 하고, 입력이 멈추면 한 번 내용을 읽어 ViewModel에 넘긴다.
+    // 화면이 멈출 때(onStop) 예약이 남아 있으면 바로 저장해서 프로세스가 종료되어도 남게 한다.
+    private final Handler handler = new Handler(Looper.getMainLooper());
+    private boolean draftScheduled;
+    private final Runnable autosaveDraft = new Runnable() {
+        @Override
+        public void run() {
+            draftScheduled = false;
+            noteViewModel.autosaveDraft(editTextTitle.getText().toString(),
+                    editTextDescription.getText().toString(), numberPickerPriority.getValue());
+        }
+    };
 
     @Override
     protected void onCreate(Bundle savedInstanceState) {
@@ -39,17 +63,86 @@ public class AddEditNoteActivity extends AppCompatActivity {
 
         getSupportActionBar().setHomeAsUpIndicator(R.drawable.ic_close);
 
+        noteViewModel = new ViewModelProvider(this,
+                ViewModelProvider.AndroidViewModelFactory.getInstance(getApplication())).get(NoteViewModel.class);
+
         Intent intent = getIntent();
+        noteId = intent.getIntExtra(EXTRA_ID, NoteDraft.NEW_NOTE_ID);
+        setTitle(noteId == NoteDraft.NEW_NOTE_ID ? "Add Note" : "Edit Note");
+
+        // 목록에서 열었다면 NoteRepository 캐시에 이미 있어 바로 채워진다. 저장하지 않은 초안이 있으면 초안으로 채운다.
+        // 회전이나 프로세스 재시작으로 다시 만들어진 경우에는 EditText가 입력 중이던 내용을 복원하므로 다시 채우지 않는다.
+        final boolean restored = savedInstanceState != null;
+        noteViewModel.openEditor(noteId, DEFAULT_PRIORITY).observe(this, new Observer<NoteEditor>() {
+            @Override
+            public void onChanged(NoteEditor editor) {
+                if (editor == null) {
+                    Toast.makeText(AddEditNoteActivity.this, "Note not found", Toast.LENGTH_SHORT).show();
+                    finish();
+                    return;
+                }
+                if (restored) {
+                    return;
+                }
+                editTextTitle.setText(editor.getTitle());
+                editTextDescription.setText(editor.getDescription());
+                numberPickerPriority.setValue(editor.getPriority());
+                if (editor.isDraftRestored()) {
+                    Toast.makeText(AddEditNoteActivity.this, "Unsaved draft restored", Toast.LENGTH_SHORT).show();
+                }
+            }
+        });
+
+        TextWatcher watcher = new TextWatcher() {
+            @Override
+            public void beforeTextChanged(CharSequence s, int start, int count, int after) {
+            }
+
+            @Override
+            public void onTextChanged(CharSequence s, int start, int before, int count) {
+            }
+
+            @Override
+            public void afterTextChanged(Editable s) {
+                scheduleDraft();
+            }
+        };
+        editTextTitle.addTextChangedListener(watcher);
+        editTextDescription.addTextChangedListener(watcher);
+        numberPickerPriority.setOnValueChangedListener(new NumberPicker.OnValueChangeListener() {
+            @Override
+            public void onValueChange(NumberPicker picker, int oldVal, int newVal) {
+                scheduleDraft();
+            }
+        });
+    }
 
-        if (intent.hasExtra(EXTRA_ID)) {
-            setTitle("Edit Note");
-            editTextTitle.setText(intent.getStringExtra(EXTRA_TITLE));
-            editTextDescription.setText(intent.getStringExtra(EXTRA_DESCRIPTION));
-            numberPickerPriority.setValue(intent.getIntExtra(EXTRA_PRIORITY, 1));
-        } else {
-            setTitle("Add Note");
+    private void scheduleDraft() {
+        handler.removeCallbacks(autosaveDraft);
+        handler.postDelayed(autosaveDraft, DRAFT_DELAY_MS);
+        draftScheduled = true;
+    }
+
+    @Override
+    protected void onStop() {
+        super.onStop();
+        if (draftScheduled) {
+            handler.removeCallbacks(autosaveDraft);
+            autosaveDraft.run();
         }
+    }
+
+    // 저장하지 않고 닫으면 초안도 버린다.
+    @Override
+    public void onBackPressed() {
+        cancelDraft();
+        super.onBackPressed();
+    }
 
+    private void cancelDraft() {
+        handler.removeCallbacks(autosaveDraft);
+        draftScheduled = false;
+        noteViewModel.discardDraft();
     }
 
     private void saveNote() {
@@ -62,17 +155,17 @@ public class AddEditNoteActivity extends AppCompatActivity {
             return;
         }
 
+        // 저장은 여기서 ViewModel -> Repository로 바로 보내고, 목록 화면에는 결과만 알린다.
+        // 수정이면 바뀐 컬럼만 쓰고, 바뀐 것이 없으면 쓰지 않는다.
+        handler.removeCallbacks(autosaveDraft);
+        draftScheduled = false;
+        boolean changed = noteViewModel.saveEditor(noteId, title, description, priority);
         Intent data = new Intent();
-        data.putExtra(EXTRA_TITLE, title);
-        data.putExtra(EXTRA_DESCRIPTION, description);
-        data.putExtra(EXTRA_PRIORITY, priority);
-
-        int id = getIntent().getIntExtra(EXTRA_ID, -1);
-        if(id != -1) {
-            data.putExtra(EXTRA_ID, id);
+        data.putExtra(EXTRA_CHANGED, changed);
+        if (noteId != NoteDraft.NEW_NOTE_ID) {
+            data.putExtra(EXTRA_ID, noteId);
         }
 
-        // 화면 전환할 때 데이터 추가한 data 객체를 같이 전달한다.
         setResult(RESULT_OK, data);
         finish();
     }
@@ -90,6 +183,9 @@ public class AddEditNoteActivity extends AppCompatActivity {
             case R.id.save_note:
                 saveNote();
                 return true;
+            case android.R.id.home:
+                cancelDraft();
+                return super.onOptionsItemSelected(item);
             default:
                 return super.onOptionsItemSelected(item);
         }
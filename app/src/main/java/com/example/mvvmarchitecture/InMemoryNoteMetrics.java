@@ -0,0 +1,142 @@
+package com.example.mvvmarchitecture;
+
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+
+// *메모리 히스토그램 구현*
+// 1. 이름마다 2의 거듭제곱 구간(bucket)으로 나눈 히스토그램을 유지하므로 기록 횟수와 상관없이 메모리가 일정하다.
+// 2. 백분위수는 구간의 상한값으로 근사한다.
+// 3. recordDuration과 recordValue로 기록한 지표를 따로 모아, 시간 지표(나노초)만 ms로 출력한다.
+// 4. 테스트는 getHistogram()으로 값을 확인하고, 디버그 화면은 dump()한 문자열을 보여준다.
+public class InMemoryNoteMetrics extends NoteMetrics {
+    private final Map<String, Histogram> durations = new TreeMap<>();
+    private final Map<String, Histogram> values = new TreeMap<>();
+
+    @Override
+    public void recordDuration(String name, long nanos) {
+        record(durations, name, nanos);
+    }
+
+    @Override
+    public void recordValue(String name, long value) {
+        record(values, name, value);
+    }
+
+    private synchronized void record(Map<String, Histogram> histograms, String name, long value) {
+        Histogram histogram = histograms.get(name);
+        if (histogram == null) {
+            histogram = new Histogram();
+            histograms.put(name, histogram);
+        }
+        histogram.add(value);
+    }
+
+    // 같은 이름이 시간과 값 양쪽에 기록되었다면 시간 지표를 준다.
+    public synchronized Histogram getHistogram(String name) {
+        Histogram histogram = durations.get(name);
+        if (histogram == null) {
+            histogram = values.get(name);
+        }
+        return histogram != null ? histogram.copy() : new Histogram();
+    }
+
+    public synchronized void reset() {
+        durations.clear();
+        values.clear();
+    }
+
+    // 이름 순으로 출력한다.
+    public synchronized String dump() {
+        Set<String> names = new TreeSet<>(durations.keySet());
+        names.addAll(values.keySet());
+        StringBuilder builder = new StringBuilder();
+        for (String name : names) {
+            if (durations.containsKey(name)) {
+                append(builder, name, durations.get(name), true);
+            }
+            if (values.containsKey(name)) {
+                append(builder, name, values.get(name), false);
+            }
+        }
+        return builder.toString();
+    }
+
+    private static void append(StringBuilder builder, String name, Histogram h, boolean duration) {
+        builder.append(name)
+                .append("  n=").append(h.getCount())
+                .append(" mean=").append(format(h.getMean(), duration))
+                .append(" p50=").append(format(h.getPercentile(50), duration))
+                .append(" p90=").append(format(h.getPercentile(90), duration))
+                .append(" p99=").append(format(h.getPercentile(99), duration))
+                .append(" max=").append(format(h.getMax(), duration))
+                .append('\n');
+    }
+
+    private static String format(double value, boolean duration) {
+        return duration
+                ? String.format(Locale.ROOT, "%.2fms", value / 1e6)
+                : String.format(Locale.ROOT, "%.0f", value);
+    }
+
+    public static class Histogram {
+        // bucket[i]에는 [2^(i-1), 2^i) 범위의 값이 들어간다. bucket[0]은 0 이하.
+        private final long[] buckets = new long[64];
+        private long count;
+        private long sum;
+        private long max;
+
+        void add(long value) {
+            buckets[bucketOf(value)]++;
+            count++;
+            sum += value;
+            max = Math.max(max, value);
+        }
+
+        Histogram copy() {
+            Histogram copy = new Histogram();
+            System.arraycopy(buckets, 0, copy.buckets, 0, buckets.length);
+            copy.count = count;
+            copy.sum = sum;
+            copy.max = max;
+            return copy;
+        }
+
+        public long getCount() {
+            return count;
+        }
+
+        public double getMean() {
+            return count == 0 ? 0 : (double) sum / count;
+        }
+
+        public long getMax() {
+            return max;
+        }
+
+        public long getPercentile(double percentile) {
+            if (count == 0) {
+                return 0;
+            }
+            long target = (long) Math.ceil(count * percentile / 100.0);
+            long seen = 0;
+            for (int i = 0; i < buckets.length; i++) {
+                seen += buckets[i];
+                if (seen >= target) {
+                    return Math.min(upperBound(i), max);
+                }
+            }
+            return max;
+        }
+
+        private static int bucketOf(long value) {
+            return value <= 0 ? 0 : 64 - Long.numberOfLeadingZeros(value);
+        }
+
+        private static long upperBound(int bucket) {
+            return bucket == 0 ? 0 : (bucket >= 63 ? Long.MAX_VALUE : (1L << bucket) - 1);
+        }
+    }
+}
@@ -2,35 +2,73 @@ package com.example.mvvmarchitecture;
 
 import androidx.annotation.NonNull;
 import androidx.annotation.Nullable;
+import androidx.appcompat.app.AlertDialog;
 import androidx.appcompat.app.AppCompatActivity;
+import androidx.appcompat.view.ActionMode;
+import androidx.appcompat.widget.SearchView;
 import androidx.lifecycle.Observer;
 import androidx.lifecycle.ViewModelProvider;
+import androidx.paging.PagedList;
+import androidx.recyclerview.selection.SelectionTracker;
+import androidx.recyclerview.selection.StableIdKeyProvider;
+import androidx.recyclerview.selection.StorageStrategy;
 import androidx.recyclerview.widget.ItemTouchHelper;
 import androidx.recyclerview.widget.LinearLayoutManager;
 import androidx.recyclerview.widget.RecyclerView;
 
+import android.content.DialogInterface;
 import android.content.Intent;
+import android.net.Uri;
 import android.os.Bundle;
+import android.util.DisplayMetrics;
 import android.view.Menu;
 import android.view.MenuInflater;
 import android.view.MenuItem;
 import android.view.View;
+import android.view.ViewTreeObserver;
+import android.widget.NumberPicker;
+import android.widget.TextView;
 import android.widget.Toast;
 
 import com.google.android.material.floatingactionbutton.FloatingActionButton;
 
+import java.io.FileNotFoundException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
+import java.util.Locale;
 
 public class MainActivity extends AppCompatActivity {
     public static final int ADD_NOTE_REQUEST = 1;
     public static final int EDIT_NOTE_REQUEST = 2;
+    public static final int EXPORT_NOTES_REQUEST = 3;
+    public static final int IMPORT_NOTES_REQUEST = 4;
+    // AddEditNoteActivity의 NumberPicker와 같은 priority 범위.
+    private static final int MIN_PRIORITY = 1;
+    private static final int MAX_PRIORITY = 10;
+    // 화면 높이를 이 높이로 나눠 한 화면에 보이는 항목 수를 어림한다. 제목 한 줄과 설명 한 줄인 note_item 정도다.
+    private static final int ITEM_MIN_HEIGHT_DP = 64;
 
     private ViewModelProvider.AndroidViewModelFactory viewModelFactory;
     private NoteViewModel noteViewModel;
+    private RecyclerView recyclerView;
+    private NotePagedAdapter adapter;
+    // 검색 중에는 페이징 목록 대신 검색 결과 목록을 보여준다.
+    private NoteAdapter searchAdapter;
+    // 목록에서 고른 Note id. 고른 것이 있는 동안 actionMode가 떠 있다.
+    private SelectionTracker<Long> selectionTracker;
+    private ActionMode actionMode;
+    private boolean firstListDrawn;
+    // 제목에 보여줄 Note 개수를 계산하기 위한 마지막 값.
+    private List<NotePriorityCount> priorityCounts = Collections.emptyList();
+    private NotePriorityRange priorityRange = NotePriorityRange.ALL;
     @Override
     protected void onCreate(Bundle savedInstanceState) {
         super.onCreate(savedInstanceState);
         setContentView(R.layout.activity_main);
+        final long createdAtNanos = System.nanoTime();
 
         FloatingActionButton buttonAddNote = findViewById(R.id.button_add_note);
         buttonAddNote.setOnClickListener(new View.OnClickListener() {
@@ -51,14 +89,32 @@ public class MainActivity extends AppCompatActivity {
         //    그리고 이를 위해 기본적으로 ViewHolder 패턴을 사용하도록 만들어 놓아야 합니다. ViewHolder는 필수 구현 사항
         // 4. ViewHolder를 통해 RecyclerView가 유연해집니다.
         // 5. DataList(ex. item1,item2,item3 ...) -> Adapter -> Recycler View(뿌려줌)
-        RecyclerView recyclerView = findViewById(R.id.recycler_view);
+        recyclerView = findViewById(R.id.recycler_view);
         // LayoutManager를 통해 DataList(item1, item2, item3 ...)를 수직으로 Layout 배치를 해줍니다.
-        recyclerView.setLayoutManager(new LinearLayoutManager(this));
+        LinearLayoutManager layoutManager = new LinearLayoutManager(this);
+        recyclerView.setLayoutManager(layoutManager);
         recyclerView.setHasFixedSize(true);
 
+        // *항목 뷰 미리 만들기*
+        // 1. 첫 목록은 Room이 백그라운드에서 읽어오는 동안 기다리므로, 그 사이에 한 화면 분량의 note_item을
+        //    백그라운드 스레드에서 inflate해 둔다. 첫 프레임과 빠른 스크롤에서는 바인딩만 한다.
+        // 2. RecycledViewPool의 기본 크기(뷰 타입마다 5개)로는 검색 목록으로 바꾸거나 목록 전체가 바뀔 때
+        //    화면에서 내려온 뷰홀더 대부분이 버려지고 다시 inflate된다. 한 화면 분량을 담을 수 있게 늘린다.
+        // 3. 스크롤 중에는 GapWorker가 다음 프레임에 들어올 항목을 프레임 사이에 미리 만들고 바인딩한다(item prefetch).
+        //    미리 만든 뷰가 있으면 그 작업도 바인딩만 남는다.
+        int itemsPerScreen = itemsPerScreen();
+        NoteItemViews itemViews = new NoteItemViews();
+        itemViews.prefetch(recyclerView, itemsPerScreen + 2);
+        recyclerView.getRecycledViewPool().setMaxRecycledViews(0, itemsPerScreen + 2);
+        layoutManager.setItemPrefetchEnabled(true);
+
         // ViewHolder를 위해 adapter를 만듬.
-        final NoteAdapter adapter = new NoteAdapter();
+        // 전체 목록을 한 번에 들고 있지 않도록 PagedList를 받는 adapter를 사용한다.
+        adapter = new NotePagedAdapter();
+        adapter.setItemViews(itemViews);
         recyclerView.setAdapter(adapter);
+        searchAdapter = new NoteAdapter();
+        searchAdapter.setItemViews(itemViews);
 
         // Activity에서는 시스템이 ViewModelProviders를 호출하여 올바른 ViewModel 인스턴스를 제공하도록 하고, 여기서 우리는 이 ViewModel의 라이프사이클의 범위를 지정해야 하는 Activity 또는 Fragment를 통과시킨다.
         // Activity/Fragment가 파괴되면, ViewModel은 OnCleared 방법을 통해 메모리에서 제거될 것이다.
@@ -68,13 +124,62 @@ public class MainActivity extends AppCompatActivity {
         noteViewModel = new ViewModelProvider(this, viewModelFactory).get(NoteViewModel.class);
 
         // onCreate 메서드에서 ViewModel에 저장된 LiveData를 검색하고 관찰을 호출하여 LifecycleOwner 및 Observer를 통과해야한다.
-        noteViewModel.getAllNotes().observe(this, new Observer<List<Note>>() {
+        noteViewModel.getPagedNotes().observe(this, new Observer<PagedList<NoteListItem>>() {
             @Override
-            public void onChanged(List<Note> notes) {
+            public void onChanged(PagedList<NoteListItem> notes) {
                 // onChange 콜백에서는 해당 데이터베이스 테이블의 무언가가 변경될 때마다 데이터에 대한 업데이트를 받는다.
                 // LiveData는 라이프사이클에서 적절한 시점에 자동으로 업데이트 전송을 시작 및 중지하고 사용되지 않는 참조를 정리한다.
                 // update RecyclerView
                 adapter.submitList(notes);
+                if (!firstListDrawn) {
+                    firstListDrawn = true;
+                    recordFirstListFrame(createdAtNanos);
+                }
+            }
+        });
+        // 내보내기/가져오기 중에는 처리한 개수를 부제목에 보여주고, 끝나면 결과를 한 번 알린다.
+        noteViewModel.getTransferProgress().observe(this, new Observer<Long>() {
+            @Override
+            public void onChanged(Long count) {
+                if (getSupportActionBar() != null) {
+                    getSupportActionBar().setSubtitle(count != null ? count + " notes…" : null);
+                }
+            }
+        });
+        noteViewModel.getTransferResult().observe(this, new Observer<String>() {
+            @Override
+            public void onChanged(String message) {
+                if (message != null) {
+                    Toast.makeText(MainActivity.this, message, Toast.LENGTH_SHORT).show();
+                    noteViewModel.consumeTransferResult();
+                }
+            }
+        });
+        noteViewModel.getWriteErrors().observe(this, new Observer<Integer>() {
+            @Override
+            public void onChanged(Integer count) {
+                Toast.makeText(MainActivity.this, "Could not save " + count + " changes", Toast.LENGTH_SHORT).show();
+            }
+        });
+        // priority별 개수는 요약 테이블에서 오므로 Note가 많아도 제목 갱신 비용이 일정하다.
+        noteViewModel.getPriorityCounts().observe(this, new Observer<List<NotePriorityCount>>() {
+            @Override
+            public void onChanged(List<NotePriorityCount> counts) {
+                priorityCounts = counts;
+                updateTitle();
+            }
+        });
+        noteViewModel.getPriorityRange().observe(this, new Observer<NotePriorityRange>() {
+            @Override
+            public void onChanged(NotePriorityRange range) {
+                priorityRange = range;
+                updateTitle();
+            }
+        });
+        noteViewModel.getSearchResults().observe(this, new Observer<NoteColumns>() {
+            @Override
+            public void onChanged(NoteColumns notes) {
+                searchAdapter.submitList(notes);
             }
         });
 
@@ -87,58 +192,183 @@ public class MainActivity extends AppCompatActivity {
 
             @Override
             public void onSwiped(@NonNull RecyclerView.ViewHolder viewHolder, int direction) {
-                noteViewModel.delete(adapter.getNoteAt(viewHolder.getAdapterPosition()));
+                int position = viewHolder.getAdapterPosition();
+                NoteListItem note = recyclerView.getAdapter() == searchAdapter
+                        ? searchAdapter.getNoteAt(position) : adapter.getNoteAt(position);
+                if (note == null) {
+                    return;
+                }
+                if (NoteOverlay.isTemporary(note.getId())) {
+                    // 아직 저장 중인 Note는 지울 수 없으므로 스와이프를 되돌린다.
+                    recyclerView.getAdapter().notifyItemChanged(position);
+                    Toast.makeText(MainActivity.this, "Still saving", Toast.LENGTH_SHORT).show();
+                    return;
+                }
+                noteViewModel.deleteById(note.getId());
                 Toast.makeText(MainActivity.this, "Note deleted", Toast.LENGTH_SHORT).show();
             }
         }).attachToRecyclerView(recyclerView);
 
         // 아이템 편집을 위한 아이템 클릭 시 편집 Activity 창 전환 이벤트 처리
-        adapter.setOnItemClickListener(new NoteAdapter.OnItemClickListener() {
+        NoteAdapter.OnItemClickListener onItemClickListener = new NoteAdapter.OnItemClickListener() {
             @Override
-            public void onItemClick(Note note) {
+            public void onItemClick(NoteListItem note) {
+                if (NoteOverlay.isTemporary(note.getId())) {
+                    Toast.makeText(MainActivity.this, "Still saving", Toast.LENGTH_SHORT).show();
+                    return;
+                }
+                // 편집 화면에는 id만 넘기고, 화면이 뜨는 동안 전체 Note를 미리 읽어 캐시에 넣는다.
+                noteViewModel.prefetchNote(note.getId());
                 Intent intent = new Intent(MainActivity.this, AddEditNoteActivity.class);
                 intent.putExtra(AddEditNoteActivity.EXTRA_ID, note.getId());
-                intent.putExtra(AddEditNoteActivity.EXTRA_TITLE, note.getTitle());
-                intent.putExtra(AddEditNoteActivity.EXTRA_DESCRIPTION, note.getDescription());
-                intent.putExtra(AddEditNoteActivity.EXTRA_PRIORITY, note.getPriority());
                 startActivityForResult(intent, EDIT_NOTE_REQUEST);
             }
+        };
+        adapter.setOnItemClickListener(onItemClickListener);
+        searchAdapter.setOnItemClickListener(onItemClickListener);
+
+        // *여러 Note 고르기*
+        // 1. 길게 누르면 고르기 시작하고, 그 뒤의 탭으로 더 고른다. key는 Note id라 페이지가 바뀌어도 유지된다.
+        // 2. 저장 중인 Note(임시 id)와 검색 결과는 고를 수 없다.
+        // 3. 고른 Note는 ActionMode 메뉴에서 한 번에 지우거나 priority를 바꾼다. 몇 개를 골라도 트랜잭션 하나로 커밋된다.
+        selectionTracker = new SelectionTracker.Builder<Long>("note-selection", recyclerView,
+                new StableIdKeyProvider(recyclerView), new NoteAdapter.DetailsLookup(recyclerView),
+                StorageStrategy.createLongStorage())
+                .withSelectionPredicate(new SelectionTracker.SelectionPredicate<Long>() {
+                    @Override
+                    public boolean canSetStateForKey(@NonNull Long key, boolean nextState) {
+                        return !nextState
+                                || (recyclerView.getAdapter() == adapter && !NoteOverlay.isTemporary(key.intValue()));
+                    }
+
+                    @Override
+                    public boolean canSetStateAtPosition(int position, boolean nextState) {
+                        return true;
+                    }
+
+                    @Override
+                    public boolean canSelectMultiple() {
+                        return true;
+                    }
+                })
+                .build();
+        adapter.setSelectionTracker(selectionTracker);
+        selectionTracker.addObserver(new SelectionTracker.SelectionObserver<Long>() {
+            @Override
+            public void onSelectionChanged() {
+                updateActionMode();
+            }
+
+            @Override
+            public void onSelectionRestored() {
+                updateActionMode();
+            }
         });
+        selectionTracker.onRestoreInstanceState(savedInstanceState);
     }
 
     @Override
-    protected void onActivityResult(int requestCode, int resultCode, @Nullable Intent data) {
-        super.onActivityResult(requestCode, resultCode, data);
+    protected void onSaveInstanceState(@NonNull Bundle outState) {
+        super.onSaveInstanceState(outState);
+        selectionTracker.onSaveInstanceState(outState);
+    }
 
-        if (requestCode == ADD_NOTE_REQUEST && resultCode == RESULT_OK) {
-            // AddNoteActivity에서 putExtra로 보낸 데이터들을 getExtra로 받는다.
-            String title = data.getStringExtra(AddEditNoteActivity.EXTRA_TITLE);
-            String description = data.getStringExtra(AddEditNoteActivity.EXTRA_DESCRIPTION);
-            int priority = data.getIntExtra(AddEditNoteActivity.EXTRA_PRIORITY, 1);
+    private final ActionMode.Callback selectionActionMode = new ActionMode.Callback() {
+        @Override
+        public boolean onCreateActionMode(ActionMode mode, Menu menu) {
+            mode.getMenuInflater().inflate(R.menu.note_selection_menu, menu);
+            return true;
+        }
 
-            // getExtra로 받은 데이터들을 Note Model에 최신화 시켜주고
-            // note 객체를 Viewmodel을 통해 repository -> noteDao 로 보내 데이터 베이스인 Room에 insert한다.
-            Note note = new Note(title, description, priority);
-            noteViewModel.insert(note);
+        @Override
+        public boolean onPrepareActionMode(ActionMode mode, Menu menu) {
+            return false;
+        }
 
-            Toast.makeText(this, "Note Saved", Toast.LENGTH_SHORT).show();
-        } else if (requestCode == EDIT_NOTE_REQUEST && resultCode == RESULT_OK) {
-            int id = data.getIntExtra(AddEditNoteActivity.EXTRA_ID, -1);
+        @Override
+        public boolean onActionItemClicked(ActionMode mode, MenuItem item) {
+            List<Integer> ids = getSelectedIds();
+            switch (item.getItemId()) {
+                case R.id.delete_selected:
+                    // 결과 메시지는 커밋된 뒤 getTransferResult로 온다.
+                    noteViewModel.deleteByIds(ids);
+                    selectionTracker.clearSelection();
+                    return true;
+                case R.id.change_priority_selected:
+                    showBulkPriority(ids);
+                    return true;
+                default:
+                    return false;
+            }
+        }
 
-            if (id == -1) {
-                Toast.makeText(this, "Note can't be updated", Toast.LENGTH_SHORT).show();
-                return;
+        @Override
+        public void onDestroyActionMode(ActionMode mode) {
+            // 뒤로 가기나 닫기 버튼으로 끝내면 선택도 푼다.
+            actionMode = null;
+            selectionTracker.clearSelection();
+        }
+    };
+
+    private void updateActionMode() {
+        int selected = selectionTracker.getSelection().size();
+        if (selected == 0) {
+            if (actionMode != null) {
+                actionMode.finish();
             }
+            return;
+        }
+        if (actionMode == null) {
+            actionMode = startSupportActionMode(selectionActionMode);
+        }
+        if (actionMode != null) {
+            actionMode.setTitle(selected + " selected");
+        }
+    }
+
+    private List<Integer> getSelectedIds() {
+        List<Integer> ids = new ArrayList<>(selectionTracker.getSelection().size());
+        for (Long key : selectionTracker.getSelection()) {
+            ids.add(key.intValue());
+        }
+        return ids;
+    }
 
-            String title = data.getStringExtra(AddEditNoteActivity.EXTRA_TITLE);
-            String description = data.getStringExtra(AddEditNoteActivity.EXTRA_DESCRIPTION);
-            int priority = data.getIntExtra(AddEditNoteActivity.EXTRA_PRIORITY, 1);
+    private void showBulkPriority(final List<Integer> ids) {
+        final NumberPicker picker = new NumberPicker(this);
+        picker.setMinValue(MIN_PRIORITY);
+        picker.setMaxValue(MAX_PRIORITY);
+        new AlertDialog.Builder(this)
+                .setTitle("Priority of " + ids.size() + " notes")
+                .setView(picker)
+                .setPositiveButton(android.R.string.ok, new DialogInterface.OnClickListener() {
+                    @Override
+                    public void onClick(DialogInterface dialog, int which) {
+                        noteViewModel.updatePriority(ids, picker.getValue());
+                        selectionTracker.clearSelection();
+                    }
+                })
+                .setNegativeButton(android.R.string.cancel, null)
+                .show();
+    }
 
-            Note note = new Note(title, description, priority);
-            note.setId(id);
-            noteViewModel.update(note);
+    @Override
+    protected void onActivityResult(int requestCode, int resultCode, @Nullable Intent data) {
+        super.onActivityResult(requestCode, resultCode, data);
 
-            Toast.makeText(this, "Note updated", Toast.LENGTH_SHORT).show();
+        if (requestCode == EXPORT_NOTES_REQUEST || requestCode == IMPORT_NOTES_REQUEST) {
+            if (resultCode == RESULT_OK && data != null && data.getData() != null) {
+                startTransfer(requestCode, data.getData());
+            }
+            return;
+        }
+
+        // 저장은 AddEditNoteActivity가 ViewModel을 통해 이미 마쳤으므로 결과만 알려준다.
+        if (requestCode == ADD_NOTE_REQUEST && resultCode == RESULT_OK) {
+            Toast.makeText(this, "Note Saved", Toast.LENGTH_SHORT).show();
+        } else if (requestCode == EDIT_NOTE_REQUEST && resultCode == RESULT_OK) {
+            boolean changed = data == null || data.getBooleanExtra(AddEditNoteActivity.EXTRA_CHANGED, true);
+            Toast.makeText(this, changed ? "Note updated" : "No changes", Toast.LENGTH_SHORT).show();
         } else {
             Toast.makeText(this, "Note Not Saved", Toast.LENGTH_SHORT).show();
         }
@@ -148,18 +378,203 @@ public class MainActivity extends AppCompatActivity {
     public boolean onCreateOptionsMenu(Menu menu) {
         MenuInflater menuInflater = getMenuInflater();
         menuInflater.inflate(R.menu.main_menu, menu);
+        menu.findItem(R.id.debug_metrics).setVisible(NoteMetrics.get() instanceof InMemoryNoteMetrics);
+        menu.findItem(R.id.sync_notes).setVisible(noteViewModel.isSyncEnabled());
+        menu.findItem(R.id.debug_generate_notes).setVisible(BuildConfig.DEBUG);
+        menu.findItem(R.id.search_archive).setChecked(noteViewModel.isSearchArchive());
+
+        // 검색어가 바뀔 때마다 ViewModel에 넘기고, ViewModel이 입력이 멈출 때까지 기다렸다가 검색한다.
+        SearchView searchView = (SearchView) menu.findItem(R.id.search_notes).getActionView();
+        searchView.setOnQueryTextListener(new SearchView.OnQueryTextListener() {
+            @Override
+            public boolean onQueryTextSubmit(String query) {
+                return false;
+            }
+
+            @Override
+            public boolean onQueryTextChange(String newText) {
+                boolean searching = !newText.trim().isEmpty();
+                RecyclerView.Adapter<?> target = searching ? searchAdapter : adapter;
+                if (recyclerView.getAdapter() != target) {
+                    // 고른 Note는 목록에 있을 때만 보이므로 검색을 시작하면 선택을 푼다.
+                    selectionTracker.clearSelection();
+                    recyclerView.setAdapter(target);
+                }
+                noteViewModel.setSearchQuery(newText);
+                return true;
+            }
+        });
         return true;
     }
 
     @Override
     public boolean onOptionsItemSelected(@NonNull MenuItem item) {
         switch (item.getItemId()) {
+            case R.id.filter_priority:
+                showPriorityFilter();
+                return true;
+            case R.id.search_archive:
+                item.setChecked(!item.isChecked());
+                noteViewModel.setSearchArchive(item.isChecked());
+                return true;
             case R.id.delete_all_notes:
                 noteViewModel.deleteAllNotes();
                 Toast.makeText(this, "All notes deleted", Toast.LENGTH_SHORT).show();
                 return true;
+            case R.id.export_notes:
+                // 저장 위치는 사용자가 고르고, 형식은 JSON Lines로 내보낸다.
+                Intent exportIntent = new Intent(Intent.ACTION_CREATE_DOCUMENT)
+                        .addCategory(Intent.CATEGORY_OPENABLE)
+                        .setType("application/json")
+                        .putExtra(Intent.EXTRA_TITLE, "notes.jsonl");
+                startActivityForResult(exportIntent, EXPORT_NOTES_REQUEST);
+                return true;
+            case R.id.import_notes:
+                // JSON Lines와 CSV 모두 받는다.
+                Intent importIntent = new Intent(Intent.ACTION_OPEN_DOCUMENT)
+                        .addCategory(Intent.CATEGORY_OPENABLE)
+                        .setType("*/*");
+                startActivityForResult(importIntent, IMPORT_NOTES_REQUEST);
+                return true;
+            case R.id.sync_notes:
+                noteViewModel.sync();
+                return true;
+            case R.id.debug_generate_notes:
+                showGenerateNotes();
+                return true;
+            case R.id.debug_metrics:
+                showMetrics();
+                return true;
             default:
                 return super.onOptionsItemSelected(item);
         }
     }
+
+    private void startTransfer(int requestCode, Uri uri) {
+        try {
+            if (requestCode == EXPORT_NOTES_REQUEST) {
+                OutputStream out = getContentResolver().openOutputStream(uri);
+                if (out != null) {
+                    noteViewModel.exportNotes(out, NoteTransfer.Format.JSON_LINES);
+                }
+            } else {
+                InputStream in = getContentResolver().openInputStream(uri);
+                if (in != null) {
+                    noteViewModel.importNotes(in);
+                }
+            }
+        } catch (FileNotFoundException e) {
+            Toast.makeText(this, "Cannot open " + uri, Toast.LENGTH_SHORT).show();
+        }
+    }
+
+    private void updateTitle() {
+        int total = NotePriorityCount.sum(priorityCounts, NotePriorityRange.ALL);
+        if (priorityRange.isAll()) {
+            setTitle(total + " notes");
+        } else {
+            setTitle(NotePriorityCount.sum(priorityCounts, priorityRange) + " of " + total
+                    + " notes (priority " + priorityRange.getMin() + "-" + priorityRange.getMax() + ")");
+        }
+    }
+
+    // 두 NumberPicker로 구간을 고르는 동안 그 구간의 Note 개수를 요약 테이블 값으로 바로 보여준다.
+    private void showPriorityFilter() {
+        View view = getLayoutInflater().inflate(R.layout.dialog_priority_filter, null);
+        final NumberPicker minPicker = view.findViewById(R.id.number_picker_min_priority);
+        final NumberPicker maxPicker = view.findViewById(R.id.number_picker_max_priority);
+        final TextView countText = view.findViewById(R.id.text_view_filter_count);
+        minPicker.setMinValue(MIN_PRIORITY);
+        minPicker.setMaxValue(MAX_PRIORITY);
+        maxPicker.setMinValue(MIN_PRIORITY);
+        maxPicker.setMaxValue(MAX_PRIORITY);
+        minPicker.setValue(Math.max(MIN_PRIORITY, Math.min(MAX_PRIORITY, priorityRange.getMin())));
+        maxPicker.setValue(Math.max(MIN_PRIORITY, Math.min(MAX_PRIORITY, priorityRange.getMax())));
+
+        NumberPicker.OnValueChangeListener onChange = new NumberPicker.OnValueChangeListener() {
+            @Override
+            public void onValueChange(NumberPicker picker, int oldVal, int newVal) {
+                // 최소값이 최대값을 넘지 않도록 반대쪽을 따라 움직인다.
+                if (picker == minPicker && newVal > maxPicker.getValue()) {
+                    maxPicker.setValue(newVal);
+                } else if (picker == maxPicker && newVal < minPicker.getValue()) {
+                    minPicker.setValue(newVal);
+                }
+                NotePriorityRange range = new NotePriorityRange(minPicker.getValue(), maxPicker.getValue());
+                countText.setText(NotePriorityCount.sum(priorityCounts, range) + " notes");
+            }
+        };
+        minPicker.setOnValueChangedListener(onChange);
+        maxPicker.setOnValueChangedListener(onChange);
+        onChange.onValueChange(minPicker, minPicker.getValue(), minPicker.getValue());
+
+        new AlertDialog.Builder(this)
+                .setTitle("Filter by priority")
+                .setView(view)
+                .setPositiveButton(android.R.string.ok, new DialogInterface.OnClickListener() {
+                    @Override
+                    public void onClick(DialogInterface dialog, int which) {
+                        noteViewModel.setPriorityRange(new NotePriorityRange(minPicker.getValue(), maxPicker.getValue()));
+                    }
+                })
+                .setNeutralButton("Show all", new DialogInterface.OnClickListener() {
+                    @Override
+                    public void onClick(DialogInterface dialog, int which) {
+                        noteViewModel.setPriorityRange(NotePriorityRange.ALL);
+                    }
+                })
+                .setNegativeButton(android.R.string.cancel, null)
+                .show();
+    }
+
+    private int itemsPerScreen() {
+        DisplayMetrics metrics = getResources().getDisplayMetrics();
+        return (int) Math.ceil(metrics.heightPixels / (ITEM_MIN_HEIGHT_DP * metrics.density));
+    }
+
+    // 첫 목록을 받은 뒤 실제로 그려지는 프레임까지의 시간을 시작 지표로 남긴다.
+    private void recordFirstListFrame(final long createdAtNanos) {
+        recyclerView.getViewTreeObserver().addOnPreDrawListener(new ViewTreeObserver.OnPreDrawListener() {
+            @Override
+            public boolean onPreDraw() {
+                recyclerView.getViewTreeObserver().removeOnPreDrawListener(this);
+                NoteMetrics.recordSince(NoteMetrics.FIRST_LIST_FRAME, createdAtNanos);
+                return true;
+            }
+        });
+    }
+
+    private void showGenerateNotes() {
+        final int[] counts = {1_000, 10_000, 100_000, 1_000_000};
+        String[] labels = new String[counts.length];
+        for (int i = 0; i < counts.length; i++) {
+            labels[i] = String.format(Locale.ROOT, "%,d notes", counts[i]);
+        }
+        new AlertDialog.Builder(this)
+                .setTitle("Generate notes")
+                .setItems(labels, new DialogInterface.OnClickListener() {
+                    @Override
+                    public void onClick(DialogInterface dialog, int which) {
+                        noteViewModel.generateNotes(counts[which]);
+                    }
+                })
+                .setNegativeButton(android.R.string.cancel, null)
+                .show();
+    }
+
+    private void showMetrics() {
+        final InMemoryNoteMetrics metrics = (InMemoryNoteMetrics) NoteMetrics.get();
+        String dump = metrics.dump();
+        new AlertDialog.Builder(this)
+                .setTitle("Metrics")
+                .setMessage(dump.isEmpty() ? "No samples yet" : dump)
+                .setPositiveButton(android.R.string.ok, null)
+                .setNeutralButton("Reset", new DialogInterface.OnClickListener() {
+                    @Override
+                    public void onClick(DialogInterface dialog, int which) {
+                        metrics.reset();
+                    }
+                })
+                .show();
+    }
 }
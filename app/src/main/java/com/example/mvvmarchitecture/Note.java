@@ -2,28 +2,93 @@ package com.example.mvvmarchitecture;
 
 import androidx.room.ColumnInfo;
 import androidx.room.Entity;
+import androidx.room.Ignore;
+import androidx.room.Index;
 import androidx.room.PrimaryKey;
 
+import java.util.UUID;
+
 // Room(Note.class)
 // SQLite(데이터 베이스)를 사용하기 위해 Room을 추가.
-@Entity(tableName = "note_table")
+// (priority, id) 인덱스를 거꾸로 읽으면 목록의 ORDER BY priority DESC, id DESC를 정렬 없이 처리할 수 있다.
+// 긴 description은 NoteCompression으로 압축해서 저장한다. 앱의 나머지 부분은 getDescription()만 쓰면 된다.
+// - 저장할 때: NoteDao가 그 데이터베이스의 압축 기준으로 encode할 때(쓰기 스레드) 한 번 압축한다.
+// - 읽을 때: getDescription()을 처음 부를 때 한 번 푼다.
+// sync_id와 updated_at은 동기화(NoteSyncEngine)에 쓴다. 새로 만드는 Note는 생성자에서 둘 다 정해진다.
+@Entity(tableName = "note_table", indices = {@Index(value = {"priority", "id"}), @Index(value = {"sync_id"}, unique = true)})
 public class Note {
+    // *바뀐 컬럼*
+    // update할 때 어떤 컬럼을 쓸지 나타낸다. NoteDao는 표시된 컬럼만 UPDATE한다.
+    static final int FIELD_TITLE = 1;
+    static final int FIELD_DESCRIPTION = 1 << 1;
+    static final int FIELD_PRIORITY = 1 << 2;
+    static final int FIELD_ALL = FIELD_TITLE | FIELD_DESCRIPTION | FIELD_PRIORITY;
+
     // Room에서 id에 자동 ID를 할당하기 위해 autoGenerate를 true로 설정.
     @PrimaryKey(autoGenerate = true)
     private int id;
 
     private String title;
 
-    private String description;
+    // 압축하지 않은 description 전체, 또는 압축한 경우 검색/미리보기용 앞부분.
+    @ColumnInfo(name = "description")
+    private String storedDescription;
 
     private int priority;
 
+    @ColumnInfo(name = "description_blob")
+    private byte[] descriptionBlob;
+
+    @ColumnInfo(name = "description_format", defaultValue = "0")
+    private int descriptionFormat;
+
+    // 기기와 서버 사이에서 같은 Note를 가리키는 id. 로컬 id와 달리 바뀌지 않는다.
+    @ColumnInfo(name = "sync_id")
+    private String syncId;
+
+    // 내용을 마지막으로 바꾼 시각(ms). 동기화 충돌을 풀 때 비교한다.
+    @ColumnInfo(name = "updated_at", defaultValue = "0")
+    private long updatedAt;
+
+    // 아래 필드는 DB 컬럼이 아니다. lock(this)으로 보호한다.
+    @Ignore
+    private String description;
+    @Ignore
+    private boolean encoded;
+    // Repository에 넘기기 전에 정하고, 그 뒤에는 NoteWriteQueue가 lock 안에서만 바꾼다.
+    @Ignore
+    private int changedFields = FIELD_ALL;
+
+    // 수정할 때도 새 Note를 만들어 setId하므로, 만든 시각이 곧 마지막으로 바꾼 시각이다.
+    @Ignore
     public Note(String title, String description, int priority) {
+        this(UUID.randomUUID().toString(), System.currentTimeMillis(), title, description, priority);
+    }
+
+    // 서버에서 받은 Note처럼 sync_id와 시각이 이미 정해진 경우.
+    @Ignore
+    Note(String syncId, long updatedAt, String title, String description, int priority) {
+        this.syncId = syncId;
+        this.updatedAt = updatedAt;
         this.title = title;
         this.description = description;
         this.priority = priority;
     }
 
+    // Room이 행을 읽을 때 쓰는 생성자.
+    Note(int id, String title, String storedDescription, int priority, byte[] descriptionBlob, int descriptionFormat,
+         String syncId, long updatedAt) {
+        this.id = id;
+        this.title = title;
+        this.storedDescription = storedDescription;
+        this.priority = priority;
+        this.descriptionBlob = descriptionBlob;
+        this.descriptionFormat = descriptionFormat;
+        this.syncId = syncId;
+        this.updatedAt = updatedAt;
+        encoded = true;
+    }
+
     public void setId(int id) {
         this.id = id;
     }
@@ -36,11 +101,75 @@ public class Note {
         return title;
     }
 
-    public String getDescription() {
+    public synchronized String getDescription() {
+        if (description == null) {
+            description = NoteCompression.decode(storedDescription, descriptionBlob, descriptionFormat);
+        }
         return description;
     }
 
     public int getPriority() {
         return priority;
     }
+
+    int getChangedFields() {
+        return changedFields;
+    }
+
+    // 편집 화면처럼 바뀐 컬럼을 아는 곳에서 정한다. 기본값은 FIELD_ALL이다.
+    void setChangedFields(int changedFields) {
+        this.changedFields = changedFields;
+    }
+
+    String getSyncId() {
+        return syncId;
+    }
+
+    long getUpdatedAt() {
+        return updatedAt;
+    }
+
+    // *저장용 getter*
+    // Room이 INSERT/UPDATE에 바인딩할 값을 읽을 때만 쓴다. NoteDao가 먼저 encode해 둔다.
+    synchronized String getStoredDescription() {
+        checkEncoded();
+        return storedDescription;
+    }
+
+    synchronized byte[] getDescriptionBlob() {
+        checkEncoded();
+        return descriptionBlob;
+    }
+
+    synchronized int getDescriptionFormat() {
+        checkEncoded();
+        return descriptionFormat;
+    }
+
+    private void checkEncoded() {
+        if (!encoded) {
+            throw new IllegalStateException("Note " + id + " was not encoded before it was written");
+        }
+    }
+
+    // NoteDao가 저장하기 전에(쓰기 스레드) 그 데이터베이스의 압축 기준으로 한 번 부른다.
+    // 이미 저장할 값이 정해진 Note(읽어 온 Note, 이미 한 번 저장한 Note)는 그대로 둔다.
+    synchronized void encode(int compressionThreshold) {
+        if (encoded) {
+            return;
+        }
+        encoded = true;
+        String indexed = NoteCompression.shouldCompress(description, compressionThreshold)
+                ? NoteCompression.indexedText(description) : null;
+        byte[] compressed = indexed != null ? NoteCompression.deflate(description, indexed) : null;
+        if (compressed != null) {
+            storedDescription = indexed;
+            descriptionBlob = compressed;
+            descriptionFormat = NoteCompression.FORMAT_DEFLATE;
+        } else {
+            storedDescription = description;
+            descriptionBlob = null;
+            descriptionFormat = NoteCompression.FORMAT_PLAIN;
+        }
+    }
 }
@@ -1,17 +1,27 @@
 package com.example.mvvmarchitecture;
 
-import android.view.LayoutInflater;
+import android.os.Handler;
+import android.os.Looper;
+import android.text.TextUtils;
+import android.view.MotionEvent;
 import android.view.View;
 import android.view.ViewGroup;
 import android.widget.TextView;
 
 import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import androidx.appcompat.widget.AppCompatTextView;
+import androidx.core.text.PrecomputedTextCompat;
+import androidx.recyclerview.selection.ItemDetailsLookup;
+import androidx.recyclerview.selection.SelectionTracker;
 import androidx.recyclerview.widget.DiffUtil;
-import androidx.recyclerview.widget.ListAdapter;
 import androidx.recyclerview.widget.RecyclerView;
 
-import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
 
 // 1. Recycler View 아이템 추가, 수정, 삭제하기 위해 Adapter를 만들었습니다.
 // 2. 사용자 데이터 리스트로부터 아이템 뷰를 만드는 것이 어댑터가 하는 역할입니다.
@@ -20,12 +30,45 @@ import java.util.List;
 // 5. 어댑터에 의해 관리되며 필요에 따라 어댑터에서 생성.
 //    물론, 미리 생성된 뷰홀더 객체가 있는 경우에는 새로 생성하지 않고 이미 만들어져 있는 뷰홀더를 재활용하는데,
 //    이 때는 단순히 데이터가 뷰홀더의 아이템 뷰에 바인딩(Binding) 됩니다.
+// 6. 검색 결과는 NoteColumns로 받는다. DiffUtil은 열을 직접 비교하고(ColumnDiff), NoteListItem은 바인딩할 때만 만든다.
+//    ListAdapter처럼 diff는 백그라운드에서 계산하고, 그 사이 새 목록이 오면 이전 계산 결과는 버린다.
+
+public class NoteAdapter extends RecyclerView.Adapter<NoteAdapter.NoteHolder> {
+    // getChangePayload가 돌려주는 바뀐 필드 비트. onBindViewHolder는 해당 뷰만 다시 설정한다.
+    static final int CHANGED_TITLE = 1;
+    static final int CHANGED_PREVIEW = 1 << 1;
+    static final int CHANGED_PRIORITY = 1 << 2;
+    static final int CHANGED_ALL = CHANGED_TITLE | CHANGED_PREVIEW | CHANGED_PRIORITY;
+
+    // description의 줄바꿈/글자 폭 계산(PrecomputedText)을 하는 백그라운드 스레드. 두 adapter가 함께 쓴다.
+    static final Executor TEXT_LAYOUT_EXECUTOR = Executors.newSingleThreadExecutor(new ThreadFactory() {
+        @Override
+        public Thread newThread(@NonNull Runnable runnable) {
+            Thread thread = new Thread(runnable, "note-text-layout");
+            thread.setPriority(Thread.NORM_PRIORITY - 1);
+            return thread;
+        }
+    });
+
+    // 검색 결과의 diff를 계산하는 백그라운드 스레드.
+    private static final Executor DIFF_EXECUTOR = Executors.newSingleThreadExecutor(new ThreadFactory() {
+        @Override
+        public Thread newThread(@NonNull Runnable runnable) {
+            return new Thread(runnable, "note-diff");
+        }
+    });
 
-public class NoteAdapter extends ListAdapter<Note, NoteAdapter.NoteHolder> {
     private OnItemClickListener listener;
+    private NoteItemViews itemViews = new NoteItemViews();
+    private final Handler handler = new Handler(Looper.getMainLooper());
+    // 지금 화면에 보이는 목록. 메인 스레드에서만 바꾼다.
+    private NoteColumns notes = NoteColumns.EMPTY;
+    // submitList마다 늘어난다. 계산이 끝났을 때 값이 달라져 있으면 더 새로운 목록이 온 것이다.
+    private int generation;
 
     public NoteAdapter() {
-        super(DIFF_CALLBACK);
+        // id가 같은 항목은 같은 뷰홀더를 다시 쓰게 해, 목록이 바뀌어도 바뀐 항목만 다시 바인딩한다.
+        setHasStableIds(true);
     }
 
     // DiffUtil?
@@ -33,49 +76,206 @@ public class NoteAdapter extends ListAdapter<Note, NoteAdapter.NoteHolder> {
     // 이 클래스는 두 목록간의 차이점을 찾고 업데이트 되어야 할 목록을 반환해줍니다.
     // RecyclerView 어댑터에 대한 업데이트를 알리는데 사용됩니다.
     //Eugene W. Myers’s의 차이 알고리즘을 이용하여 최소한의 업데이트 수를 계산합니다.
-    private static final DiffUtil.ItemCallback<Note> DIFF_CALLBACK = new DiffUtil.ItemCallback<Note>() {
+    static final DiffUtil.ItemCallback<NoteListItem> DIFF_CALLBACK = new DiffUtil.ItemCallback<NoteListItem>() {
         // getOldListSize(): 이전 목록의 개수를 반환합니다.
         // getNewListSize(): 새로운 목록의 개수를 반환합니다.
         // areItemsTheSame(int oldItemPosition, int newItemPosition): 두 객체가 같은 항목인지 여부를 결정합니다.
         // areContentsTheSame(int oldItemPosition, int newItemPosition): 두 항목의 데이터가 같은지 여부를 결정합니다. areItemsTheSame()이 true를 반환하는 경우에만 호출됩니다.
         // getChangePayload(int oldItemPosition, int newItemPosition): 만약 areItemTheSame()이 true를 반환하고 areContentsTheSame()이 false를 반환하면 이 메서드가 호출되어 변경 내용에 대한 페이로드를 가져옵니다.
         @Override
-        public boolean areItemsTheSame(@NonNull Note oldItem, @NonNull Note newItem) {
+        public boolean areItemsTheSame(@NonNull NoteListItem oldItem, @NonNull NoteListItem newItem) {
             return oldItem.getId() == newItem.getId();
         }
 
         @Override
-        public boolean areContentsTheSame(@NonNull Note oldItem, @NonNull Note newItem) {
-            return oldItem.getTitle().equals(newItem.getTitle()) &&
-                    oldItem.getDescription().equals(newItem.getDescription()) &&
+        public boolean areContentsTheSame(@NonNull NoteListItem oldItem, @NonNull NoteListItem newItem) {
+            return TextUtils.equals(oldItem.getTitle(), newItem.getTitle()) &&
+                    TextUtils.equals(oldItem.getPreview(), newItem.getPreview()) &&
                     oldItem.getPriority() == newItem.getPriority();
         }
+
+        // 바뀐 필드만 비트로 알려준다. 이 값이 있으면 RecyclerView는 뷰홀더를 교체하는 애니메이션 없이 그대로 다시 바인딩한다.
+        @Nullable
+        @Override
+        public Object getChangePayload(@NonNull NoteListItem oldItem, @NonNull NoteListItem newItem) {
+            int changes = 0;
+            if (!TextUtils.equals(oldItem.getTitle(), newItem.getTitle())) {
+                changes |= CHANGED_TITLE;
+            }
+            if (!TextUtils.equals(oldItem.getPreview(), newItem.getPreview())) {
+                changes |= CHANGED_PREVIEW;
+            }
+            if (oldItem.getPriority() != newItem.getPriority()) {
+                changes |= CHANGED_PRIORITY;
+            }
+            return changes;
+        }
     };
 
+    // NoteColumns 두 개를 열 단위로 비교한다. 비교하는 동안 NoteListItem이나 String을 만들지 않는다.
+    // 바뀐 필드 비트는 DIFF_CALLBACK과 같다.
+    static final class ColumnDiff extends DiffUtil.Callback {
+        private final NoteColumns oldNotes;
+        private final NoteColumns newNotes;
+
+        ColumnDiff(NoteColumns oldNotes, NoteColumns newNotes) {
+            this.oldNotes = oldNotes;
+            this.newNotes = newNotes;
+        }
+
+        @Override
+        public int getOldListSize() {
+            return oldNotes.size();
+        }
+
+        @Override
+        public int getNewListSize() {
+            return newNotes.size();
+        }
+
+        @Override
+        public boolean areItemsTheSame(int oldPosition, int newPosition) {
+            return oldNotes.getId(oldPosition) == newNotes.getId(newPosition);
+        }
+
+        @Override
+        public boolean areContentsTheSame(int oldPosition, int newPosition) {
+            return (Integer) getChangePayload(oldPosition, newPosition) == 0;
+        }
+
+        @NonNull
+        @Override
+        public Object getChangePayload(int oldPosition, int newPosition) {
+            int changes = 0;
+            if (!oldNotes.sameTitle(oldPosition, newNotes, newPosition)) {
+                changes |= CHANGED_TITLE;
+            }
+            if (!oldNotes.samePreview(oldPosition, newNotes, newPosition)) {
+                changes |= CHANGED_PREVIEW;
+            }
+            if (oldNotes.getPriority(oldPosition) != newNotes.getPriority(newPosition)) {
+                changes |= CHANGED_PRIORITY;
+            }
+            return changes;
+        }
+    }
+
+    // 여러 번의 diff가 합쳐져 payload가 여러 개 올 수 있으므로 모두 합친다. 없으면 전체를 바인딩한다.
+    // 선택 상태만 바뀐 경우(SelectionTracker의 payload)는 내용을 다시 설정하지 않는다. 선택 표시는 바인딩마다 맞춘다.
+    static int changes(List<Object> payloads) {
+        if (payloads.isEmpty()) {
+            return CHANGED_ALL;
+        }
+        int changes = 0;
+        for (Object payload : payloads) {
+            if (payload instanceof Integer) {
+                changes |= (Integer) payload;
+            } else if (payload != SelectionTracker.SELECTION_CHANGED_MARKER) {
+                changes |= CHANGED_ALL;
+            }
+        }
+        return changes;
+    }
+
+    // 미리 inflate한 항목 뷰를 쓰게 한다. 기본값은 필요할 때 메인 스레드에서 inflate한다.
+    public void setItemViews(@NonNull NoteItemViews itemViews) {
+        this.itemViews = itemViews;
+    }
+
     @NonNull
     @Override
     public NoteHolder onCreateViewHolder(@NonNull ViewGroup parent, int viewType) {
-        View itemView = LayoutInflater.from(parent.getContext())
-                .inflate(R.layout.note_item, parent, false);
-        return new NoteHolder(itemView);
+        View itemView = itemViews.obtain(parent);
+        final NoteHolder holder = new NoteHolder(itemView);
+        itemView.setOnClickListener(new View.OnClickListener() {
+            @Override
+            public void onClick(View v) {
+                // position이 없으면 -1을 반환함.
+                int position = holder.getAdapterPosition();
+                if (listener != null && position != RecyclerView.NO_POSITION) {
+                    listener.onItemClick(notes.get(position));
+                }
+            }
+        });
+        return holder;
     }
 
     @Override
     public void onBindViewHolder(@NonNull NoteHolder holder, int position) {
+        onBindViewHolder(holder, position, Collections.<Object>emptyList());
+    }
+
+    @Override
+    public void onBindViewHolder(@NonNull NoteHolder holder, int position, @NonNull List<Object> payloads) {
         // 생성된 뷰홀더에 데이터를 바인딩 해주는 함수이다.
-        Note currentNote = getItem(position);
-        holder.textviewTitle.setText(currentNote.getTitle());
-        holder.textViewDescription.setText(currentNote.getDescription());
-        holder.textViewPriority.setText(String.valueOf(currentNote.getPriority()));
+        long start = System.nanoTime();
+        holder.bind(notes.get(position), changes(payloads));
+        // 검색 결과에서는 고를 수 없다. 목록에서 고른 뷰홀더가 재활용되어도 선택 표시가 남지 않게 한다.
+        holder.bindSelection(false);
+        NoteMetrics.recordSince(NoteMetrics.BIND, start);
     }
 
-    public Note getNoteAt(int position) {
-        return getItem(position);
+    @Override
+    public long getItemId(int position) {
+        // 저장 중인 Note의 임시 id(음수)도 실제 id와 겹치지 않는다.
+        return notes.getId(position);
+    }
+
+    @Override
+    public int getItemCount() {
+        return notes.size();
     }
 
-    class NoteHolder extends RecyclerView.ViewHolder {
+    // 메인 스레드에서 부른다. 비어 있는 쪽이 있으면 diff 없이 바로 바꾼다. null은 빈 목록으로 본다.
+    public void submitList(@Nullable NoteColumns submittedList) {
+        final NoteColumns list = submittedList != null ? submittedList : NoteColumns.EMPTY;
+        final NoteColumns previous = notes;
+        if (list == previous) {
+            return;
+        }
+        final int submitted = ++generation;
+        // DiffUtil 계산이 끝나 목록이 바뀌면 걸린 시간을 기록한다.
+        final long start = System.nanoTime();
+        if (previous.isEmpty() || list.isEmpty()) {
+            notes = list;
+            if (!previous.isEmpty()) {
+                notifyItemRangeRemoved(0, previous.size());
+            }
+            if (!list.isEmpty()) {
+                notifyItemRangeInserted(0, list.size());
+            }
+            NoteMetrics.recordSince(NoteMetrics.DIFF, start);
+            return;
+        }
+        DIFF_EXECUTOR.execute(new Runnable() {
+            @Override
+            public void run() {
+                final DiffUtil.DiffResult result = DiffUtil.calculateDiff(new ColumnDiff(previous, list));
+                handler.post(new Runnable() {
+                    @Override
+                    public void run() {
+                        if (generation != submitted) {
+                            return;
+                        }
+                        notes = list;
+                        result.dispatchUpdatesTo(NoteAdapter.this);
+                        NoteMetrics.recordSince(NoteMetrics.DIFF, start);
+                    }
+                });
+            }
+        });
+    }
+
+    public NoteListItem getNoteAt(int position) {
+        return notes.get(position);
+    }
+
+    // NotePagedAdapter와 같은 뷰홀더를 공유하기 위해 static 클래스로 둔다.
+    // description은 setTextFuture로 넘겨 TEXT_LAYOUT_EXECUTOR에서 글자 폭과 줄바꿈을 미리 계산한다.
+    // RecyclerView는 화면에 나오기 전에 미리 바인딩(prefetch)하므로, measure 때는 대개 계산이 끝나 있다.
+    static class NoteHolder extends RecyclerView.ViewHolder {
         private TextView textviewTitle;
-        private TextView textViewDescription;
+        private AppCompatTextView textViewDescription;
         private TextView textViewPriority;
 
         public NoteHolder(View itemView) {
@@ -83,23 +283,81 @@ public class NoteAdapter extends ListAdapter<Note, NoteAdapter.NoteHolder> {
             textviewTitle = itemView.findViewById(R.id.text_view_title);
             textViewDescription = itemView.findViewById(R.id.text_view_description);
             textViewPriority = itemView.findViewById(R.id.text_view_priority);
+        }
 
-            itemView.setOnClickListener(new View.OnClickListener() {
+        // SelectionTracker가 이 뷰홀더의 Note를 알아볼 수 있게 한다. key는 Note id(getItemId)다.
+        ItemDetailsLookup.ItemDetails<Long> getItemDetails() {
+            final int position = getAdapterPosition();
+            final long id = getItemId();
+            return new ItemDetailsLookup.ItemDetails<Long>() {
                 @Override
-                public void onClick(View v) {
-                    // position이 없으면 -1을 반환함.
-                    int position = getAdapterPosition();
-                    if (listener != null && position != RecyclerView.NO_POSITION) {
-                        listener.onItemClick(getItem(position));
-                    }
+                public int getPosition() {
+                    return position;
                 }
-            });
+
+                @Override
+                public Long getSelectionKey() {
+                    return id;
+                }
+            };
+        }
+
+        // 선택된 항목은 activated 상태로 표시한다(note_item의 foreground).
+        void bindSelection(boolean selected) {
+            itemView.setActivated(selected);
+        }
+
+        // changes에 있는 필드의 뷰만 다시 설정한다.
+        void bind(NoteListItem note, int changes) {
+            if ((changes & CHANGED_TITLE) != 0) {
+                textviewTitle.setText(note.getTitle());
+            }
+            if ((changes & CHANGED_PREVIEW) != 0) {
+                bindPreview(note.getPreview());
+            }
+            if ((changes & CHANGED_PRIORITY) != 0) {
+                textViewPriority.setText(String.valueOf(note.getPriority()));
+            }
+        }
+
+        private void bindPreview(String preview) {
+            if (TextUtils.isEmpty(preview)) {
+                textViewDescription.setText(preview);
+                return;
+            }
+            // Params는 글꼴과 줄바꿈 설정으로, TextView 너비와는 상관없어 바인딩 시점에 바로 만들 수 있다.
+            PrecomputedTextCompat.Params params = textViewDescription.getTextMetricsParamsCompat();
+            textViewDescription.setTextFuture(
+                    PrecomputedTextCompat.getTextFuture(preview, params, TEXT_LAYOUT_EXECUTOR));
+        }
+    }
+
+    // 터치한 위치의 뷰홀더를 찾아 SelectionTracker에 넘긴다. 두 adapter의 뷰홀더가 같으므로 함께 쓴다.
+    static class DetailsLookup extends ItemDetailsLookup<Long> {
+        private final RecyclerView recyclerView;
+
+        DetailsLookup(RecyclerView recyclerView) {
+            this.recyclerView = recyclerView;
+        }
+
+        @Nullable
+        @Override
+        public ItemDetails<Long> getItemDetails(@NonNull MotionEvent e) {
+            View view = recyclerView.findChildViewUnder(e.getX(), e.getY());
+            if (view == null) {
+                return null;
+            }
+            RecyclerView.ViewHolder holder = recyclerView.getChildViewHolder(view);
+            if (!(holder instanceof NoteHolder) || holder.getAdapterPosition() == RecyclerView.NO_POSITION) {
+                return null;
+            }
+            return ((NoteHolder) holder).getItemDetails();
         }
     }
 
     // 편집기능 추가하기 -Adapter
     public interface OnItemClickListener {
-        void onItemClick(Note note);
+        void onItemClick(NoteListItem note);
     }
 
     public void setOnItemClickListener(OnItemClickListener listener) {
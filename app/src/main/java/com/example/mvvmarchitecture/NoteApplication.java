@@ -0,0 +1,60 @@
+package com.example.mvvmarchitecture;
+
+import android.app.Activity;
+import android.app.Application;
+import android.os.Bundle;
+
+// 1. 프로세스가 뜰 때 Activity보다 먼저 한 번 실행된다.
+// 2. 데이터베이스 열기처럼 첫 화면에 필요한 무거운 준비 작업을 여기서 백그라운드로 시작한다.
+// 3. 보이는 Activity가 하나도 없으면 NoteMaintenance에 알려, 사용자가 앱을 쓰지 않는 동안 DB를 정리하게 한다.
+public class NoteApplication extends Application {
+    private NoteMaintenance maintenance;
+    private int startedActivities;
+
+    @Override
+    public void onCreate() {
+        super.onCreate();
+        // 디버그 빌드에서만 hot path 지표를 메모리에 모아 메뉴에서 볼 수 있게 한다.
+        if (BuildConfig.DEBUG) {
+            NoteMetrics.install(new InMemoryNoteMetrics());
+        }
+        NoteDatabase.warmUp(this, NoteDatabaseConfig.DEFAULT);
+
+        maintenance = new NoteMaintenance(this);
+        registerActivityLifecycleCallbacks(new ActivityLifecycleCallbacks() {
+            @Override
+            public void onActivityStarted(Activity activity) {
+                if (startedActivities++ == 0) {
+                    maintenance.onAppForegrounded();
+                }
+            }
+
+            @Override
+            public void onActivityStopped(Activity activity) {
+                if (--startedActivities == 0) {
+                    maintenance.onAppBackgrounded();
+                }
+            }
+
+            @Override
+            public void onActivityCreated(Activity activity, Bundle savedInstanceState) {
+            }
+
+            @Override
+            public void onActivityResumed(Activity activity) {
+            }
+
+            @Override
+            public void onActivityPaused(Activity activity) {
+            }
+
+            @Override
+            public void onActivitySaveInstanceState(Activity activity, Bundle outState) {
+            }
+
+            @Override
+            public void onActivityDestroyed(Activity activity) {
+            }
+        });
+    }
+}
@@ -0,0 +1,88 @@
+package com.example.mvvmarchitecture;
+
+import androidx.room.ColumnInfo;
+import androidx.room.Entity;
+import androidx.room.PrimaryKey;
+
+// *보관된 Note*
+// 1. 오래되고 priority가 낮은 Note(NoteArchivePolicy)를 note_table에서 옮겨 둔다.
+//    목록 정렬, keyset 페이징, (priority, id) 인덱스, InvalidationTracker는 note_table만 보므로 기록이 쌓여도 가볍다.
+// 2. 컬럼은 note_table과 같고 옮긴 시각(archived_at)만 더 있다. id와 sync_id는 그대로 가져간다.
+// 3. 보관된 Note를 고치면 NoteDao가 먼저 note_table로 되돌린 뒤 UPDATE한다. 이 테이블의 행은 고치지 않는다.
+// 4. 전문 검색은 note_archive_fts(NoteArchiveFts)로 하고, 사용자가 보관함까지 검색할 때만 note_fts와 함께 읽는다.
+@Entity(tableName = "note_archive")
+public class NoteArchive {
+    @PrimaryKey
+    private final int id;
+
+    private final String title;
+
+    @ColumnInfo(name = "description")
+    private final String storedDescription;
+
+    private final int priority;
+
+    @ColumnInfo(name = "description_blob")
+    private final byte[] descriptionBlob;
+
+    @ColumnInfo(name = "description_format")
+    private final int descriptionFormat;
+
+    @ColumnInfo(name = "sync_id")
+    private final String syncId;
+
+    @ColumnInfo(name = "updated_at")
+    private final long updatedAt;
+
+    @ColumnInfo(name = "archived_at")
+    private final long archivedAt;
+
+    public NoteArchive(int id, String title, String storedDescription, int priority, byte[] descriptionBlob,
+                       int descriptionFormat, String syncId, long updatedAt, long archivedAt) {
+        this.id = id;
+        this.title = title;
+        this.storedDescription = storedDescription;
+        this.priority = priority;
+        this.descriptionBlob = descriptionBlob;
+        this.descriptionFormat = descriptionFormat;
+        this.syncId = syncId;
+        this.updatedAt = updatedAt;
+        this.archivedAt = archivedAt;
+    }
+
+    public int getId() {
+        return id;
+    }
+
+    public String getTitle() {
+        return title;
+    }
+
+    public String getStoredDescription() {
+        return storedDescription;
+    }
+
+    public int getPriority() {
+        return priority;
+    }
+
+    public byte[] getDescriptionBlob() {
+        return descriptionBlob;
+    }
+
+    public int getDescriptionFormat() {
+        return descriptionFormat;
+    }
+
+    public String getSyncId() {
+        return syncId;
+    }
+
+    public long getUpdatedAt() {
+        return updatedAt;
+    }
+
+    public long getArchivedAt() {
+        return archivedAt;
+    }
+}
@@ -0,0 +1,27 @@
+package com.example.mvvmarchitecture;
+
+import androidx.room.Entity;
+import androidx.room.Fts4;
+
+// 보관된 Note의 FTS4 색인. NoteFts와 같은 방식으로 note_archive의 본문을 따로 저장하지 않는다.
+// rowid(docid)는 note_archive의 id와 같다.
+@Fts4(contentEntity = NoteArchive.class)
+@Entity(tableName = "note_archive_fts")
+public class NoteArchiveFts {
+    private String title;
+
+    private String description;
+
+    public NoteArchiveFts(String title, String description) {
+        this.title = title;
+        this.description = description;
+    }
+
+    public String getTitle() {
+        return title;
+    }
+
+    public String getDescription() {
+        return description;
+    }
+}
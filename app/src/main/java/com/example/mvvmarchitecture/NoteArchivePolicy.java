@@ -0,0 +1,34 @@
+package com.example.mvvmarchitecture;
+
+import java.util.concurrent.TimeUnit;
+
+// 보관할 Note를 고르는 기준. priority가 maxPriority 이하이고, 마지막으로 고친 지 minAgeMs가 지난 Note를 옮긴다.
+// 동기화하지 않은 변경(note_sync.dirty)이 있는 Note는 올라갈 때까지 옮기지 않는다.
+// updated_at이 0인 Note(버전 6 이전에 만들어진 Note)는 아주 오래된 Note로 본다.
+public final class NoteArchivePolicy {
+    public static final NoteArchivePolicy DEFAULT = new NoteArchivePolicy(2, TimeUnit.DAYS.toMillis(365));
+
+    private final int maxPriority;
+    private final long minAgeMs;
+
+    public NoteArchivePolicy(int maxPriority, long minAgeMs) {
+        if (minAgeMs < 0) {
+            throw new IllegalArgumentException("minAgeMs must not be negative: " + minAgeMs);
+        }
+        this.maxPriority = maxPriority;
+        this.minAgeMs = minAgeMs;
+    }
+
+    public int getMaxPriority() {
+        return maxPriority;
+    }
+
+    public long getMinAgeMs() {
+        return minAgeMs;
+    }
+
+    // now 기준으로 이 시각보다 먼저 고친 Note가 대상이다.
+    long getUpdatedBefore(long now) {
+        return now - minAgeMs;
+    }
+}
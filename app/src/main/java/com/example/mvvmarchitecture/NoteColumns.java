@@ -0,0 +1,168 @@
+package com.example.mvvmarchitecture;
+
+import android.database.Cursor;
+
+import java.util.AbstractList;
+import java.util.Arrays;
+
+// *열 단위 목록 스냅샷*
+// 1. NoteListItem 객체와 String 두 개를 행마다 만드는 대신, id와 priority는 int[]에,
+//    제목과 미리보기는 char[] 하나에 이어 붙이고 끝 위치만 int[]에 둔다. 행마다 드는 메모리가 원래 데이터 크기에 가깝다.
+// 2. NoteListItem은 get(position)을 부를 때(바인딩, 클릭, 스와이프)만 만든다.
+// 3. DiffUtil은 getId/getPriority/sameTitle/samePreview로 열을 직접 비교하므로 비교 중에 객체를 만들지 않는다.
+// 4. 만든 뒤에는 바뀌지 않는다. NoteSnapshotStore가 여러 관찰자에게 그대로 나눠준다.
+// 5. null인 제목/미리보기는 빈 문자열로 저장한다. 화면에는 같게 보인다.
+final class NoteColumns extends AbstractList<NoteListItem> {
+    static final NoteColumns EMPTY = new Builder(0).build();
+
+    private final int size;
+    private final int[] ids;
+    private final int[] priorities;
+    // 행 i의 제목은 text[textEnds[2i-1] .. textEnds[2i]), 미리보기는 text[textEnds[2i] .. textEnds[2i+1]).
+    private final int[] textEnds;
+    private final char[] text;
+
+    private NoteColumns(int size, int[] ids, int[] priorities, int[] textEnds, char[] text) {
+        this.size = size;
+        this.ids = ids;
+        this.priorities = priorities;
+        this.textEnds = textEnds;
+        this.text = text;
+    }
+
+    // NoteDao.LIST_COLUMNS로 읽은 Cursor를 처음부터 끝까지 읽는다. Cursor는 호출하는 쪽에서 닫아야 한다.
+    static NoteColumns read(Cursor cursor) {
+        int idColumn = cursor.getColumnIndexOrThrow("id");
+        int titleColumn = cursor.getColumnIndexOrThrow("title");
+        int priorityColumn = cursor.getColumnIndexOrThrow("priority");
+        int previewColumn = cursor.getColumnIndexOrThrow("preview");
+        Builder builder = new Builder(cursor.getCount());
+        while (cursor.moveToNext()) {
+            builder.add(cursor.getInt(idColumn), cursor.getString(titleColumn),
+                    cursor.getInt(priorityColumn), cursor.getString(previewColumn));
+        }
+        return builder.build();
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public NoteListItem get(int position) {
+        checkPosition(position);
+        return new NoteListItem(ids[position], getTitle(position), priorities[position], getPreview(position));
+    }
+
+    int getId(int position) {
+        checkPosition(position);
+        return ids[position];
+    }
+
+    int getPriority(int position) {
+        checkPosition(position);
+        return priorities[position];
+    }
+
+    String getTitle(int position) {
+        checkPosition(position);
+        return field(2 * position);
+    }
+
+    String getPreview(int position) {
+        checkPosition(position);
+        return field(2 * position + 1);
+    }
+
+    boolean sameTitle(int position, NoteColumns other, int otherPosition) {
+        checkPosition(position);
+        other.checkPosition(otherPosition);
+        return sameField(2 * position, other, 2 * otherPosition);
+    }
+
+    boolean samePreview(int position, NoteColumns other, int otherPosition) {
+        checkPosition(position);
+        other.checkPosition(otherPosition);
+        return sameField(2 * position + 1, other, 2 * otherPosition + 1);
+    }
+
+    private String field(int field) {
+        int start = start(field);
+        return new String(text, start, textEnds[field] - start);
+    }
+
+    private int start(int field) {
+        return field == 0 ? 0 : textEnds[field - 1];
+    }
+
+    private boolean sameField(int field, NoteColumns other, int otherField) {
+        int start = start(field);
+        int otherStart = other.start(otherField);
+        int length = textEnds[field] - start;
+        if (length != other.textEnds[otherField] - otherStart) {
+            return false;
+        }
+        for (int i = 0; i < length; i++) {
+            if (text[start + i] != other.text[otherStart + i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private void checkPosition(int position) {
+        if (position < 0 || position >= size) {
+            throw new IndexOutOfBoundsException("position " + position + ", size " + size);
+        }
+    }
+
+    // 행 수를 미리 알면 capacity로 넘겨 배열을 다시 만들지 않게 한다.
+    static final class Builder {
+        private int size;
+        private int[] ids;
+        private int[] priorities;
+        private int[] textEnds;
+        private final StringBuilder text = new StringBuilder();
+
+        Builder(int capacity) {
+            ids = new int[capacity];
+            priorities = new int[capacity];
+            textEnds = new int[capacity * 2];
+        }
+
+        Builder add(int id, String title, int priority, String preview) {
+            if (size == ids.length) {
+                int capacity = Math.max(16, size * 2);
+                ids = Arrays.copyOf(ids, capacity);
+                priorities = Arrays.copyOf(priorities, capacity);
+                textEnds = Arrays.copyOf(textEnds, capacity * 2);
+            }
+            ids[size] = id;
+            priorities[size] = priority;
+            textEnds[2 * size] = append(title);
+            textEnds[2 * size + 1] = append(preview);
+            size++;
+            return this;
+        }
+
+        private int append(String value) {
+            if (value != null) {
+                text.append(value);
+            }
+            return text.length();
+        }
+
+        // 남는 칸은 잘라내 행 수만큼만 들고 있게 한다.
+        NoteColumns build() {
+            if (ids.length != size) {
+                ids = Arrays.copyOf(ids, size);
+                priorities = Arrays.copyOf(priorities, size);
+                textEnds = Arrays.copyOf(textEnds, size * 2);
+            }
+            char[] chars = new char[text.length()];
+            text.getChars(0, chars.length, chars, 0);
+            return new NoteColumns(size, ids, priorities, textEnds, chars);
+        }
+    }
+}
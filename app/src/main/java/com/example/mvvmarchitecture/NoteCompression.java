@@ -0,0 +1,138 @@
+package com.example.mvvmarchitecture;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.Charset;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+// *description 압축*
+// 1. threshold(문자 수)보다 긴 description은 Deflate로 압축해 description_blob에 넣고,
+//    description 컬럼에는 indexedText()만 남긴다. 앞부분 INDEXED_PREFIX_LENGTH 글자 뒤에 나머지 본문의 단어를 한 번씩 붙인 것이다.
+// 2. 목록 쿼리의 substr(description)은 앞부분만 읽으므로 큰 본문이 CursorWindow로 복사되지 않는다.
+//    FTS 색인과 LIKE 검색은 단어 목록까지 읽으므로 압축된 Note도 본문 어디에 있는 단어로든 찾을 수 있다.
+//    앞부분 뒤의 단어는 한 번씩만 들어가므로 검색 순위(offsets 개수)에는 한 번만 센다.
+// 3. 행마다 description_format을 두어, 압축 전에 저장된 행(FORMAT_PLAIN)도 그대로 읽힌다.
+// 4. 압축한 blob과 description 컬럼의 indexedText를 합쳐도 원문보다 작아지지 않는 내용은 그대로 둔다.
+//    단어가 거의 겹치지 않는 글은 단어 목록이 원문만큼 길어지므로 blob만 보고 판단하면 오히려 커진다.
+// 5. threshold는 데이터베이스마다 NoteDatabaseConfig로 정한다(NoteDatabase.getCompressionThreshold).
+final class NoteCompression {
+    static final int FORMAT_PLAIN = 0;
+    static final int FORMAT_DEFLATE = 1;
+    static final int DEFAULT_THRESHOLD = 4096;
+    // NoteDao.PREVIEW_LENGTH보다 길어야 목록 미리보기가 잘리지 않는다.
+    static final int INDEXED_PREFIX_LENGTH = 1024;
+
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+    private NoteCompression() {
+    }
+
+    static boolean shouldCompress(String description, int threshold) {
+        return description != null && description.length() > threshold;
+    }
+
+    // 압축한 Note의 description 컬럼에 넣을 값. 앞부분 뒤에 나머지 본문의 단어를 처음 나온 순서로 한 번씩 붙인다.
+    // 앞부분 끝에서 잘린 단어는 온전한 단어로 다시 넣는다.
+    static String indexedText(String description) {
+        int prefixLength = Math.min(description.length(), INDEXED_PREFIX_LENGTH);
+        StringBuilder builder = new StringBuilder(description.substring(0, prefixLength));
+        Set<String> terms = new HashSet<>();
+        collectTerms(builder, 0, prefixLength, terms, null);
+        int start = prefixLength;
+        while (start > 0 && start < description.length() && isTermChar(description.charAt(start))
+                && isTermChar(description.charAt(start - 1))) {
+            start--;
+        }
+        collectTerms(description, start, description.length(), terms, builder);
+        return builder.toString();
+    }
+
+    // FTS4의 simple 토크나이저처럼 ASCII 영문자와 숫자, ASCII가 아닌 문자를 단어 글자로 보고,
+    // ASCII 대문자만 소문자로 바꿔 같은 단어인지 비교한다. 새 단어는 out에 공백 뒤에 붙인다.
+    private static void collectTerms(CharSequence text, int from, int to, Set<String> terms, StringBuilder out) {
+        int start = -1;
+        for (int i = from; i <= to; i++) {
+            boolean termChar = i < to && isTermChar(text.charAt(i));
+            if (termChar && start < 0) {
+                start = i;
+            } else if (!termChar && start >= 0) {
+                String term = text.subSequence(start, i).toString();
+                if (terms.add(asciiLowerCase(term)) && out != null) {
+                    out.append(' ').append(term);
+                }
+                start = -1;
+            }
+        }
+    }
+
+    private static boolean isTermChar(char c) {
+        return c >= 0x80 || (c >= '0' && c <= '9') || (c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z');
+    }
+
+    private static String asciiLowerCase(String term) {
+        char[] chars = term.toCharArray();
+        for (int i = 0; i < chars.length; i++) {
+            if (chars[i] >= 'A' && chars[i] <= 'Z') {
+                chars[i] = (char) (chars[i] + ('a' - 'A'));
+            }
+        }
+        return new String(chars);
+    }
+
+    // 저장된 세 컬럼에서 원래 description을 되살린다. 모르는 형식이면 남아 있는 앞부분이라도 보여준다.
+    static String decode(String storedDescription, byte[] blob, int format) {
+        if (format == FORMAT_DEFLATE && blob != null) {
+            return inflate(blob);
+        }
+        return storedDescription;
+    }
+
+    // storedDescription(description 컬럼에 함께 남길 값)과 압축한 text를 합쳐도 원문보다 줄지 않으면 null을 반환한다.
+    static byte[] deflate(String text, String storedDescription) {
+        byte[] input = text.getBytes(UTF_8);
+        int limit = input.length - storedDescription.getBytes(UTF_8).length;
+        if (limit <= 0) {
+            return null;
+        }
+        Deflater deflater = new Deflater(Deflater.DEFAULT_COMPRESSION);
+        try {
+            deflater.setInput(input);
+            deflater.finish();
+            ByteArrayOutputStream out = new ByteArrayOutputStream(limit / 2);
+            byte[] buffer = new byte[8192];
+            while (!deflater.finished()) {
+                out.write(buffer, 0, deflater.deflate(buffer));
+                if (out.size() >= limit) {
+                    return null;
+                }
+            }
+            return out.toByteArray();
+        } finally {
+            deflater.end();
+        }
+    }
+
+    static String inflate(byte[] data) {
+        Inflater inflater = new Inflater();
+        try {
+            inflater.setInput(data);
+            ByteArrayOutputStream out = new ByteArrayOutputStream(data.length * 4);
+            byte[] buffer = new byte[8192];
+            while (!inflater.finished()) {
+                int count = inflater.inflate(buffer);
+                if (count == 0 && (inflater.needsInput() || inflater.needsDictionary())) {
+                    throw new IllegalStateException("Truncated compressed description");
+                }
+                out.write(buffer, 0, count);
+            }
+            return new String(out.toByteArray(), UTF_8);
+        } catch (DataFormatException e) {
+            throw new IllegalStateException("Corrupt compressed description", e);
+        } finally {
+            inflater.end();
+        }
+    }
+}
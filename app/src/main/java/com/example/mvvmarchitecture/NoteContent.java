@@ -0,0 +1,67 @@
+package com.example.mvvmarchitecture;
+
+import androidx.room.ColumnInfo;
+import androidx.room.Ignore;
+
+// *수정용 부분 Entity*
+// 1. note_table에서 sync_id를 뺀 컬럼이다. NoteDao.update는 이것으로 UPDATE한다.
+// 2. 앱은 수정할 때도 new Note(...)에 setId해서 넘기므로 그 Note의 sync_id는 새로 만든 값이다.
+//    그대로 쓰면 서버가 아는 Note와 연결이 끊어진다.
+class NoteContent {
+    private final int id;
+    private final String title;
+    @ColumnInfo(name = "description")
+    private final String storedDescription;
+    private final int priority;
+    @ColumnInfo(name = "description_blob")
+    private final byte[] descriptionBlob;
+    @ColumnInfo(name = "description_format")
+    private final int descriptionFormat;
+    @ColumnInfo(name = "updated_at")
+    private final long updatedAt;
+
+    NoteContent(int id, String title, String storedDescription, int priority, byte[] descriptionBlob,
+                int descriptionFormat, long updatedAt) {
+        this.id = id;
+        this.title = title;
+        this.storedDescription = storedDescription;
+        this.priority = priority;
+        this.descriptionBlob = descriptionBlob;
+        this.descriptionFormat = descriptionFormat;
+        this.updatedAt = updatedAt;
+    }
+
+    @Ignore
+    NoteContent(Note note) {
+        this(note.getId(), note.getTitle(), note.getStoredDescription(), note.getPriority(),
+                note.getDescriptionBlob(), note.getDescriptionFormat(), note.getUpdatedAt());
+    }
+
+    int getId() {
+        return id;
+    }
+
+    String getTitle() {
+        return title;
+    }
+
+    String getStoredDescription() {
+        return storedDescription;
+    }
+
+    int getPriority() {
+        return priority;
+    }
+
+    byte[] getDescriptionBlob() {
+        return descriptionBlob;
+    }
+
+    int getDescriptionFormat() {
+        return descriptionFormat;
+    }
+
+    long getUpdatedAt() {
+        return updatedAt;
+    }
+}
@@ -1,12 +1,18 @@
 package com.example.mvvmarchitecture;
 
-import androidx.lifecycle.LiveData;
+import android.database.Cursor;
+
 import androidx.room.Dao;
 import androidx.room.Delete;
 import androidx.room.Insert;
+import androidx.room.OnConflictStrategy;
 import androidx.room.Query;
+import androidx.room.RoomDatabase;
+import androidx.room.Transaction;
 import androidx.room.Update;
 
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 
 // DAO(Data Access Object)
@@ -14,21 +20,382 @@ import java.util.List;
 // 여기서는 SQLite와 데이터를 서로 접근하기 위해 사용. 그리고 우리가 하고 싶은 모든 데이터베이스 운영을 정의하는 인터페이스.
 // NoteDao는 데이터베이스 테이블의 행 or row or 레코드가 변경되는 즉시 (View)Activity나 Fragment에 알려준다.
 
+// @Transaction 메서드를 직접 구현하기 위해 interface 대신 abstract class로 선언한다.
 @Dao
-public interface NoteDao {
+public abstract class NoteDao {
+    // SQLite가 한 문장에 바인딩할 수 있는 변수 개수의 기본 상한(SQLITE_MAX_VARIABLE_NUMBER).
+    static final int MAX_BIND_ARGS = 999;
+    // 목록에 보여줄 description 앞부분의 최대 길이.
+    static final int PREVIEW_LENGTH = 200;
+    // NoteListItem으로 읽을 때 쓰는 컬럼 목록.
+    static final String LIST_COLUMNS = "note_table.id, note_table.title, note_table.priority, " +
+            "substr(note_table.description, 1, " + PREVIEW_LENGTH + ") AS preview";
+    // note_table과 note_archive에 함께 있는 컬럼. 보관하고 되돌릴 때 그대로 복사한다.
+    static final String ARCHIVE_COLUMNS = "id, title, description, priority, description_blob, description_format, " +
+            "sync_id, updated_at";
+
+    private final NoteDatabase database;
+
+    // Room이 생성한 구현이 자신을 만든 데이터베이스를 넘긴다. 압축 기준을 그 데이터베이스에서 읽는다.
+    NoteDao(RoomDatabase database) {
+        this.database = (NoteDatabase) database;
+    }
+
+    // 저장하기 전에 이 데이터베이스의 압축 기준(NoteDatabaseConfig)으로 description을 정한다.
+    private void encode(Note note) {
+        note.encode(database.getCompressionThreshold());
+    }
+
+    public void insert(Note note) {
+        encode(note);
+        insertEncoded(note);
+    }
 
     @Insert
-    void insert(Note note);
+    abstract void insertEncoded(Note note);
+
+    // 수정은 NoteContent로 해서 sync_id를 건드리지 않는다.
+    // Note.getChangedFields()가 일부 컬럼만 가리키면 그 컬럼만 UPDATE한다.
+    // 보관된 Note면 먼저 note_table로 되돌린다.
+    @Transaction
+    public void update(Note note) {
+        encode(note);
+        if (note.getChangedFields() != 0) {
+            restoreArchived(Collections.singletonList(note.getId()));
+        }
+        if (!updateChangedColumns(note)) {
+            updateContent(new NoteContent(note));
+        }
+    }
 
-    @Update
-    void update(Note note);
+    @Update(entity = Note.class)
+    abstract void updateContent(NoteContent content);
 
     @Delete
-    void delete(Note note);
+    public abstract void delete(Note note);
+
+    // 보관된 Note도 함께 지운다.
+    @Transaction
+    public void deleteAllNotes() {
+        deleteAllHot();
+        deleteAllArchived();
+    }
 
     @Query("DELETE FROM note_table")
-    void deleteAllNotes();
+    abstract void deleteAllHot();
+
+    @Query("DELETE FROM note_archive")
+    abstract void deleteAllArchived();
+
+    // *Bulk 메서드*
+    // 여러 행을 한 문장/한 트랜잭션에서 처리해 fsync와 LiveData 재조회를 한 번으로 줄인다.
+    public void insertAll(List<Note> notes) {
+        for (Note note : notes) {
+            encode(note);
+        }
+        insertAllEncoded(notes);
+    }
+
+    @Insert
+    abstract void insertAllEncoded(List<Note> notes);
+
+    @Transaction
+    public void updateAll(List<Note> notes) {
+        List<Integer> changedIds = new ArrayList<>(notes.size());
+        for (Note note : notes) {
+            encode(note);
+            if (note.getChangedFields() != 0) {
+                changedIds.add(note.getId());
+            }
+        }
+        for (int start = 0; start < changedIds.size(); start += MAX_BIND_ARGS) {
+            restoreArchived(changedIds.subList(start, Math.min(start + MAX_BIND_ARGS, changedIds.size())));
+        }
+        List<NoteContent> contents = new ArrayList<>(notes.size());
+        for (Note note : notes) {
+            if (!updateChangedColumns(note)) {
+                contents.add(new NoteContent(note));
+            }
+        }
+        if (!contents.isEmpty()) {
+            updateContents(contents);
+        }
+    }
+
+    @Update(entity = Note.class)
+    abstract void updateContents(List<NoteContent> contents);
+
+    // *바뀐 컬럼만 UPDATE*
+    // 1. priority만 바꿨다면 description(압축된 본문 포함)을 다시 만들거나 바인딩하지 않는다.
+    // 2. SQLite는 SET에 없는 컬럼의 인덱스와 UPDATE OF 트리거를 건너뛴다. 제목만 바꾸면 (priority, id) 인덱스와
+    //    priority 개수 트리거가, priority만 바꾸면 FTS 색인이 그대로 남는다.
+    // 3. 제목과 내용처럼 여러 컬럼이 함께 바뀌면 updateContent로 모든 내용 컬럼을 쓴다.
+    // 처리했으면 true, updateContent로 써야 하면 false를 반환한다.
+    private boolean updateChangedColumns(Note note) {
+        switch (note.getChangedFields()) {
+            case 0:
+                return true;
+            case Note.FIELD_TITLE:
+                updateTitle(note.getId(), note.getTitle(), note.getUpdatedAt());
+                return true;
+            case Note.FIELD_PRIORITY:
+                updatePriority(note.getId(), note.getPriority(), note.getUpdatedAt());
+                return true;
+            case Note.FIELD_TITLE | Note.FIELD_PRIORITY:
+                updateTitleAndPriority(note.getId(), note.getTitle(), note.getPriority(), note.getUpdatedAt());
+                return true;
+            case Note.FIELD_DESCRIPTION:
+                updateDescription(note.getId(), note.getStoredDescription(), note.getDescriptionBlob(),
+                        note.getDescriptionFormat(), note.getUpdatedAt());
+                return true;
+            default:
+                return false;
+        }
+    }
+
+    @Query("UPDATE note_table SET title = :title, updated_at = :updatedAt WHERE id = :id")
+    abstract void updateTitle(int id, String title, long updatedAt);
+
+    @Query("UPDATE note_table SET priority = :priority, updated_at = :updatedAt WHERE id = :id")
+    abstract void updatePriority(int id, int priority, long updatedAt);
+
+    @Query("UPDATE note_table SET title = :title, priority = :priority, updated_at = :updatedAt WHERE id = :id")
+    abstract void updateTitleAndPriority(int id, String title, int priority, long updatedAt);
+
+    @Query("UPDATE note_table SET description = :storedDescription, description_blob = :descriptionBlob, " +
+            "description_format = :descriptionFormat, updated_at = :updatedAt WHERE id = :id")
+    abstract void updateDescription(int id, String storedDescription, byte[] descriptionBlob, int descriptionFormat,
+                                    long updatedAt);
+
+    // 보관된 Note도 함께 지운다. ids가 MAX_BIND_ARGS보다 많으면 호출하는 쪽에서 나눠서 불러야 한다.
+    @Transaction
+    public void deleteByIds(List<Integer> ids) {
+        deleteHotByIds(ids);
+        deleteArchivedByIds(ids);
+    }
+
+    @Query("DELETE FROM note_table WHERE id IN (:ids)")
+    abstract void deleteHotByIds(List<Integer> ids);
+
+    @Query("DELETE FROM note_archive WHERE id IN (:ids)")
+    abstract void deleteArchivedByIds(List<Integer> ids);
+
+    // *여러 Note의 priority 바꾸기*
+    // 목록에서 고른 Note들을 Note 객체 없이 id 목록으로 바꾼다. MAX_BIND_ARGS에 맞춰 나눈 UPDATE ... WHERE id IN
+    // 몇 문장을 트랜잭션 하나로 커밋한다. 보관된 Note는 먼저 note_table로 되돌린다.
+    // updatePriority처럼 priority 컬럼만 SET하므로 FTS 색인 트리거는 실행되지 않는다.
+    @Transaction
+    public void updatePriorityByIds(List<Integer> ids, int priority, long updatedAt) {
+        // priority와 updatedAt도 바인딩 변수다.
+        int chunkSize = MAX_BIND_ARGS - 2;
+        for (int start = 0; start < ids.size(); start += chunkSize) {
+            List<Integer> chunk = ids.subList(start, Math.min(start + chunkSize, ids.size()));
+            restoreArchived(chunk);
+            updatePriorityChunk(chunk, priority, updatedAt);
+        }
+    }
+
+    @Query("UPDATE note_table SET priority = :priority, updated_at = :updatedAt WHERE id IN (:ids)")
+    abstract void updatePriorityChunk(List<Integer> ids, int priority, long updatedAt);
+
+    // NoteWriteQueue가 모아둔 변경 사항을 하나의 트랜잭션으로 반영한다.
+    // 트랜잭션이 끝날 때 InvalidationTracker가 한 번만 알리므로 목록도 한 번만 다시 읽힌다.
+    @Transaction
+    public void applyBatch(boolean deleteAll, List<Note> inserts, List<Note> updates, List<Integer> deleteIds) {
+        if (deleteAll) {
+            deleteAllNotes();
+        }
+        if (!deleteIds.isEmpty()) {
+            for (int start = 0; start < deleteIds.size(); start += MAX_BIND_ARGS) {
+                deleteByIds(deleteIds.subList(start, Math.min(start + MAX_BIND_ARGS, deleteIds.size())));
+            }
+        }
+        if (!updates.isEmpty()) {
+            updateAll(updates);
+        }
+        if (!inserts.isEmpty()) {
+            insertAll(inserts);
+        }
+    }
+
+    // *나눠서 지우기*
+    // DELETE FROM note_table 한 문장은 FTS 트리거 때문에 행마다 지우면서 끝날 때까지 쓰기 잠금을 잡고 있다.
+    // deleteAll은 지금 있는 가장 큰 id까지만 지우기로 정해 두고, purgeChunk로 조금씩 나눠 지운다.
+    // AUTOINCREMENT라 그 뒤에 넣은 Note는 항상 더 큰 id를 받으므로 함께 지워지지 않는다.
+    // 보관된 Note는 id를 그대로 가져가므로 두 테이블에서 가장 큰 id를 쓴다. note_table을 먼저 비운다.
+    @Query("SELECT max(IFNULL((SELECT MAX(id) FROM note_table), 0), IFNULL((SELECT MAX(id) FROM note_archive), 0))")
+    public abstract int getMaxId();
+
+    public int purgeChunk(int maxId, int limit) {
+        int deleted = purgeHotChunk(maxId, limit);
+        if (deleted < limit) {
+            deleted += purgeArchiveChunk(maxId, limit - deleted);
+        }
+        return deleted;
+    }
+
+    @Query("DELETE FROM note_table WHERE id IN (SELECT id FROM note_table WHERE id <= :maxId ORDER BY id LIMIT :limit)")
+    abstract int purgeHotChunk(int maxId, int limit);
+
+    @Query("DELETE FROM note_archive WHERE id IN (SELECT id FROM note_archive WHERE id <= :maxId ORDER BY id LIMIT :limit)")
+    abstract int purgeArchiveChunk(int maxId, int limit);
+
+    // deleteAll이 들어 있는 배치: 지울 범위를 정하고 deleteAll 뒤에 온 변경을 반영한다.
+    @Transaction
+    public int beginDeleteAll(List<Note> inserts, List<Note> updates, List<Integer> deleteIds) {
+        int maxId = getMaxId();
+        applyBatch(false, inserts, updates, deleteIds);
+        return maxId;
+    }
+
+    @Query("SELECT * FROM note_table ORDER BY priority DESC, id DESC")
+    public abstract List<Note> getAllNotesNow();
+
+    // 편집 화면처럼 Note 하나만 필요할 때 id로 읽는다.
+    @Query("SELECT * FROM note_table WHERE id = :id")
+    public abstract Note getById(int id);
+
+    // getById와 같지만 note_table에 없으면 note_archive에서 찾는다. 편집 화면과 동기화가 쓴다.
+    public Note findById(int id) {
+        Note note = getById(id);
+        return note != null ? note : getArchivedById(id);
+    }
+
+    @Query("SELECT " + ARCHIVE_COLUMNS + " FROM note_archive WHERE id = :id")
+    abstract Note getArchivedById(int id);
+
+    // ids가 MAX_BIND_ARGS보다 많으면 호출하는 쪽에서 나눠서 불러야 한다.
+    @Query("SELECT * FROM note_table WHERE id IN (:ids)")
+    public abstract List<Note> getByIds(List<Integer> ids);
+
+    // NoteTransfer가 Note 객체 없이 행을 바로 써 내려갈 수 있도록 id 순서의 구간을 Cursor로 읽는다.
+    // 호출하는 쪽에서 Cursor를 닫아야 한다.
+    // 압축된 description은 description_blob, description_format으로 NoteCompression.decode해야 한다.
+    @Query("SELECT id, title, description, priority, description_blob, description_format FROM note_table " +
+            "WHERE id > :afterId ORDER BY id LIMIT :limit")
+    public abstract Cursor exportCursor(int afterId, int limit);
+
+    // exportCursor와 같은 열 순서로 note_archive를 읽는다.
+    @Query("SELECT id, title, description, priority, description_blob, description_format FROM note_archive " +
+            "WHERE id > :afterId ORDER BY id LIMIT :limit")
+    public abstract Cursor exportArchiveCursor(int afterId, int limit);
+
+    // *전문 검색*
+    // note_fts에서 MATCH로 찾은 docid를 note_table과 조인한다.
+    // offsets()는 일치한 단어마다 위치 정보를 덧붙이므로 그 길이가 길수록 많이 일치한 Note다.
+    @Query("SELECT " + LIST_COLUMNS + " FROM note_table JOIN note_fts ON note_table.id = note_fts.rowid " +
+            "WHERE note_fts MATCH :ftsQuery " +
+            "ORDER BY length(offsets(note_fts)) DESC, note_table.priority DESC")
+    public abstract List<NoteListItem> searchNow(String ftsQuery);
+
+    // 검색 결과를 NoteColumns로 바로 읽기 위한 Cursor. 호출하는 쪽에서 닫아야 한다.
+    @Query("SELECT " + LIST_COLUMNS + " FROM note_table JOIN note_fts ON note_table.id = note_fts.rowid " +
+            "WHERE note_fts MATCH :ftsQuery " +
+            "ORDER BY length(offsets(note_fts)) DESC, note_table.priority DESC")
+    public abstract Cursor searchCursor(String ftsQuery);
+
+    // searchCursor에 보관된 Note를 더한다. 사용자가 보관함까지 검색할 때만 쓴다.
+    // 두 FTS 테이블에서 따로 찾고 UNION ALL로 합친 뒤 같은 기준으로 정렬한다. id는 두 테이블에서 겹치지 않는다.
+    @Query("SELECT " + LIST_COLUMNS + ", length(offsets(note_fts)) AS rank " +
+            "FROM note_table JOIN note_fts ON note_table.id = note_fts.rowid WHERE note_fts MATCH :ftsQuery " +
+            "UNION ALL " +
+            "SELECT note_archive.id, note_archive.title, note_archive.priority, " +
+            "substr(note_archive.description, 1, " + PREVIEW_LENGTH + ") AS preview, " +
+            "length(offsets(note_archive_fts)) AS rank " +
+            "FROM note_archive JOIN note_archive_fts ON note_archive.id = note_archive_fts.rowid " +
+            "WHERE note_archive_fts MATCH :ftsQuery " +
+            "ORDER BY rank DESC, priority DESC")
+    public abstract Cursor searchWithArchiveCursor(String ftsQuery);
+
+    // 색인 없이 전체 행을 훑는 LIKE 검색. FTS와 비교하는 벤치마크에서만 사용한다.
+    @Query("SELECT " + LIST_COLUMNS + " FROM note_table WHERE title LIKE :pattern OR description LIKE :pattern " +
+            "ORDER BY priority DESC")
+    public abstract List<NoteListItem> searchLikeNow(String pattern);
+
+    // *priority별 개수*
+    // note_priority_count는 트리거가 맞추므로 note_table을 세지 않는다. priority 종류만큼의 행만 읽는다.
+    @Query("SELECT * FROM note_priority_count ORDER BY priority DESC")
+    public abstract List<NotePriorityCount> getPriorityCountsNow();
+
+    // *Keyset 페이징*
+    // OFFSET은 건너뛸 행을 모두 읽어야 하므로 페이지가 뒤로 갈수록 느려진다.
+    // 대신 마지막으로 읽은 (priority, id)를 기준으로 다음 구간을 바로 찾는다.
+    // priority <= :priority 조건을 먼저 둬야 SQLite가 범위 검색으로 시작 위치를 잡을 수 있다.
+    // priority 필터(:min ~ :max)도 같은 인덱스의 범위 조건이므로 걸러낼 행을 읽지 않는다.
+    // 목록에는 전체 Note 대신 NoteListItem만 읽는다.
+    @Query("SELECT " + LIST_COLUMNS + " FROM note_table WHERE priority BETWEEN :min AND :max " +
+            "ORDER BY priority DESC, id DESC LIMIT :limit")
+    public abstract List<NoteListItem> getFirstNotes(int min, int max, int limit);
+
+    @Query("SELECT " + LIST_COLUMNS + " FROM note_table WHERE priority BETWEEN :min AND :max " +
+            "AND priority <= :priority AND (priority < :priority OR id < :id) " +
+            "ORDER BY priority DESC, id DESC LIMIT :limit")
+    public abstract List<NoteListItem> getNotesAfter(int min, int max, int priority, int id, int limit);
+
+    // 정렬 방향을 뒤집어 기준점에서 가까운 순서로 가져온다. 호출하는 쪽에서 다시 뒤집어야 한다.
+    @Query("SELECT " + LIST_COLUMNS + " FROM note_table WHERE priority BETWEEN :min AND :max " +
+            "AND priority >= :priority AND (priority > :priority OR id > :id) " +
+            "ORDER BY priority ASC, id ASC LIMIT :limit")
+    public abstract List<NoteListItem> getNotesBefore(int min, int max, int priority, int id, int limit);
+
+    // 필터 없이 읽는 경우.
+    public List<NoteListItem> getFirstNotes(int limit) {
+        return getFirstNotes(Integer.MIN_VALUE, Integer.MAX_VALUE, limit);
+    }
+
+    public List<NoteListItem> getNotesAfter(int priority, int id, int limit) {
+        return getNotesAfter(Integer.MIN_VALUE, Integer.MAX_VALUE, priority, id, limit);
+    }
+
+    // *보관*
+    // 1. NoteArchivePolicy에 맞는 Note를 note_archive로 옮겨 note_table과 그 인덱스, note_fts를 작게 유지한다.
+    // 2. 한 번에 limit개씩 옮기고 커밋한다(NoteMaintenance). 옮긴 행 수를 반환하며 limit보다 적으면 끝난 것이다.
+    // 3. 복사한 뒤에 지우므로 sync 트리거(NoteMigrations.ARCHIVE_SYNC_TRIGGERS)는 tombstone을 남기지 않는다.
+    // 4. 동기화 중이면(syncEnabled) 올리지 않은 변경이 있는 Note는 NoteSyncDao.dirtyCursor가 note_table에서 읽어야 하므로 옮기지 않는다.
+    //    동기화하지 않으면 dirty는 내려가지 않으므로 보지 않는다.
+    // 5. updated_at이 0인 Note는 언제 고쳤는지 모른다(버전 6 이전에 만든 Note와 시드 Note). 오래된 것으로 보지 않고 남긴다.
+    @Transaction
+    public int archiveChunk(int maxPriority, long updatedBefore, long archivedAt, int limit, boolean syncEnabled) {
+        List<Integer> ids = getArchivableIds(maxPriority, updatedBefore, limit, syncEnabled);
+        if (!ids.isEmpty()) {
+            copyToArchive(ids, archivedAt);
+            deleteHotByIds(ids);
+        }
+        return ids.size();
+    }
+
+    // limit은 MAX_BIND_ARGS를 넘지 않아야 한다.
+    @Query("SELECT id FROM note_table WHERE priority <= :maxPriority AND updated_at > 0 AND updated_at < :updatedBefore " +
+            "AND (NOT :syncEnabled OR sync_id NOT IN (SELECT sync_id FROM note_sync WHERE dirty = 1)) " +
+            "ORDER BY id LIMIT :limit")
+    abstract List<Integer> getArchivableIds(int maxPriority, long updatedBefore, int limit, boolean syncEnabled);
+
+    @Query("INSERT INTO note_archive(" + ARCHIVE_COLUMNS + ", archived_at) " +
+            "SELECT " + ARCHIVE_COLUMNS + ", :archivedAt FROM note_table WHERE id IN (:ids)")
+    abstract void copyToArchive(List<Integer> ids, long archivedAt);
+
+    // 보관된 Note를 같은 id와 sync_id로 note_table에 되돌린다. 보관되지 않은 id는 건너뛴다.
+    // 두 문장 모두 기본 키로 찾으므로 보관되지 않은 Note를 고칠 때 드는 비용은 작다.
+    // ids가 MAX_BIND_ARGS보다 많으면 호출하는 쪽에서 나눠서 불러야 한다.
+    void restoreArchived(List<Integer> ids) {
+        copyFromArchive(ids);
+        deleteArchivedByIds(ids);
+    }
+
+    @Query("INSERT INTO note_table(" + ARCHIVE_COLUMNS + ") SELECT " + ARCHIVE_COLUMNS + " FROM note_archive WHERE id IN (:ids)")
+    abstract void copyFromArchive(List<Integer> ids);
+
+    @Query("SELECT count(*) FROM note_archive")
+    public abstract int getArchivedCount();
+
+    // *편집 초안*
+    // 편집 화면이 저장하지 않은 내용. Note마다(새 Note는 NoteDraft.NEW_NOTE_ID) 하나만 둔다.
+    @Query("SELECT * FROM note_draft WHERE note_id = :noteId")
+    abstract NoteDraft getDraft(int noteId);
+
+    @Insert(onConflict = OnConflictStrategy.REPLACE)
+    abstract void saveDraft(NoteDraft draft);
 
-    @Query("SELECT * FROM note_table ORDER BY priority DESC")
-    LiveData<List<Note>> getAllNotes();
-}
\ No newline at end of file
+    @Query("DELETE FROM note_draft WHERE note_id = :noteId")
+    abstract void deleteDraft(int noteId);
+}
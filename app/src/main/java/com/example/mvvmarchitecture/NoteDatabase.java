@@ -1,67 +1,161 @@
 package com.example.mvvmarchitecture;
 
 import android.content.Context;
-import android.os.AsyncTask;
 
 import androidx.annotation.NonNull;
 import androidx.room.Database;
+import androidx.room.DatabaseConfiguration;
 import androidx.room.Room;
 import androidx.room.RoomDatabase;
 import androidx.sqlite.db.SupportSQLiteDatabase;
 
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
 // RoomDatabase는 모든 조각을 하나로 묶고 Entity들을 해당 DAO에 연결하는 추상 클래스이다.
-@Database(entities = {Note.class}, version = 1)
+// 스키마는 app/schemas에 버전별로 내보내지고, 버전을 올릴 때는 NoteMigrations에 마이그레이션을 추가한다.
+@Database(entities = {Note.class, NoteFts.class, NotePriorityCount.class, NoteSync.class, NoteDraft.class,
+        NoteArchive.class, NoteArchiveFts.class}, version = 9, exportSchema = true)
 public abstract class NoteDatabase extends RoomDatabase {
+    static final String SEED_ASSET = "databases/note_seed.db";
+
+    // Room이 만들지 않는 트리거를 새 데이터베이스에도 만든다. 마이그레이션으로 올라온 경우는 NoteMigrations가 만든다.
+    // FTS UPDATE 트리거는 Room이 마이그레이션 뒤에 다시 만들기 때문에 열 때마다 바꾼다.
+    // Room.inMemoryDatabaseBuilder처럼 newBuilder를 거치지 않는 곳에서는 직접 addCallback해야 한다.
+    static final Callback CALLBACK = new Callback() {
+        @Override
+        public void onCreate(@NonNull SupportSQLiteDatabase db) {
+            NoteMigrations.createPriorityCountTriggers(db);
+            NoteMigrations.createSyncTriggers(db);
+            NoteMigrations.createArchiveSyncTriggers(db);
+        }
+
+        @Override
+        public void onOpen(@NonNull SupportSQLiteDatabase db) {
+            NoteMigrations.replaceFtsUpdateTriggers(db);
+        }
+    };
+
+    // newBuilder가 붙이는 설정 전달용 Callback. init()이 찾아 이 데이터베이스의 설정으로 쓴다.
+    private static final class ConfigCallback extends Callback {
+        private final NoteDatabaseConfig config;
+
+        private ConfigCallback(NoteDatabaseConfig config) {
+            this.config = config;
+        }
+    }
+
     private static NoteDatabase instance;
+    private static NoteTaskExecutor writeExecutor;
+    private static NoteDatabaseConfig config = NoteDatabaseConfig.DEFAULT;
+
+    // 이 데이터베이스에 저장할 때 쓰는 압축 기준(NoteDatabaseConfig.getCompressionThreshold).
+    // configCallback 없이 만든 데이터베이스(테스트의 inMemoryDatabaseBuilder 등)는 기본값을 쓴다.
+    private int compressionThreshold = NoteCompression.DEFAULT_THRESHOLD;
 
     public abstract NoteDao noteDao();
 
+    public abstract NoteSyncDao noteSyncDao();
+
     public static synchronized NoteDatabase getInstance(Context context) {
         if(instance == null) {
             // databaseBuilder를 사용하여 정적 싱글톤 형태로 database를 생성하며, 여기서 database 클래스와 파일 이름을 전달 해야함.
-            // 버전을 올린다면 fallbackToDestructiveMigration를 통해 database를 재생성할 수 있음.
-            instance = Room.databaseBuilder(context.getApplicationContext(),
-                    NoteDatabase.class, "note_database")
-                    .fallbackToDestructiveMigration()
-                    .addCallback(roomCallback)
+            // 버전을 올릴 때 사용자 데이터가 지워지지 않도록 fallbackToDestructiveMigration 대신 마이그레이션을 등록한다.
+            // 첫 실행 때는 행을 하나씩 넣는 대신 미리 만들어 둔 시드 데이터베이스(app/seed/note_seed.sql)를 복사한다.
+            // 시드의 버전이 현재 버전보다 낮으면 복사한 뒤 NoteMigrations로 올린다.
+            writeExecutor = new PriorityTaskExecutor("note-db-write");
+            instance = newBuilder(context, "note_database", config, writeExecutor)
+                    .createFromAsset(SEED_ASSET)
                     .build();
         }
         return instance;
     }
 
-    // Repository를 정의하고 RoomDatabase에 RoomDatabase.Callback 메서드, PopulateDbAsyncTask 클래스를 정의하고 databaseBuilder에 roomCallback 객체 추가.
-    private static RoomDatabase.Callback roomCallback = new RoomDatabase.Callback() {
-        // 1. 빈 테이블로 시작하지 않도록 데이터베이스를 onCreate 방법으로 채워넣어(populate) databaseBuilder로의 콜백을 추가한다.
-        // 2. 또한 RoomDatabase가 열릴 때마다 코드를 실행하길 원한다면 onOpen을 override할 수 있다.
-        @Override
-        public void onCreate(@NonNull SupportSQLiteDatabase db) {
-            super.onCreate(db);
-            new PopulateDbAsyncTask(instance).execute();
+    // getInstance의 쓰기 스레드. Room의 transaction executor와 같은 스레드지만, Room은 작업을 한 줄로
+    // 세워 하나씩 넘기므로 Priority가 필요한 쓰기는 이 executor에 직접 제출해야 한다.
+    static synchronized NoteTaskExecutor getWriteExecutor(Context context) {
+        getInstance(context);
+        return writeExecutor;
+    }
+
+    // *시작 시 미리 열기*
+    // 1. Room은 첫 쿼리 때 파일 복사, 마이그레이션, 스키마 검증을 한꺼번에 한다.
+    // 2. Application.onCreate에서 백그라운드 스레드로 이 과정을 먼저 끝내 두면
+    //    MainActivity의 첫 목록 쿼리는 이미 열린 연결을 바로 사용한다.
+    // 3. getInstance가 쓸 설정은 여기서만 정한다. 데이터베이스를 열기 전에 정해야 하므로,
+    //    NoteApplication.onCreate가 다른 코드보다 먼저 한 번 부른다.
+    static void warmUp(final Context context, NoteDatabaseConfig databaseConfig) {
+        synchronized (NoteDatabase.class) {
+            if (instance != null) {
+                throw new IllegalStateException("NoteDatabase is already open; warm it up before getInstance()");
+            }
+            config = databaseConfig;
         }
-    };
+        final Context appContext = context.getApplicationContext();
+        new Thread(new Runnable() {
+            @Override
+            public void run() {
+                long start = System.nanoTime();
+                getInstance(appContext).getOpenHelper().getWritableDatabase();
+                NoteMetrics.recordSince(NoteMetrics.DB_WARMUP, start);
+            }
+        }, "note-db-warmup").start();
+    }
 
-    private static class PopulateDbAsyncTask extends AsyncTask<Void, Void, Void> {
-        // 1. 안드로이드에서의 일처리는 메인스레드(UI 스레드)가 담당한다. 특히 UI와 관련된( ex) TextView,ImageView )
-        // 2. 일처리는 메인스레드만 담당 하게끔 보통 설계를 한다. 그래서 메인스레드를 UI스레드라고도 불린다.
-        // 3. 따라서 복잡한 계산은 백그라운드 스레드( 메인 스레드가 아닌 다른 스레드의 총칭)에 맡긴후
-        // 계산된 결과값을 UI스레드에게 일을 시켜야 하므로 AsyncTask 클래스를 만들어 이를 처리한다.
+    // *동시성 모델*
+    // 1. WAL 모드로 열어 큰 쓰기 트랜잭션 중에도 목록 읽기가 이전 스냅샷을 바로 읽을 수 있게 한다.
+    // 2. 읽기는 여러 스레드의 query executor, 쓰기는 단일 스레드의 transaction executor로 나눈다.
+    //    쓰기 스레드가 하나뿐이라 쓰기끼리 잠금을 두고 다투지 않고, 읽기는 쓰기 뒤에 줄 서지 않는다.
+    // 3. 쓰기 스레드는 NoteTaskExecutor라서 편집이 가져오기 같은 긴 작업보다 먼저 실행된다.
+    // 테스트에서 다른 파일 이름으로 같은 구성을 만들 수 있도록 builder를 따로 둔다.
+    static RoomDatabase.Builder<NoteDatabase> newBuilder(Context context, String name, NoteDatabaseConfig config) {
+        return newBuilder(context, name, config, new PriorityTaskExecutor("note-db-write"));
+    }
 
-        private NoteDao noteDao;
+    static RoomDatabase.Builder<NoteDatabase> newBuilder(Context context, String name, NoteDatabaseConfig config,
+                                                         NoteTaskExecutor writeExecutor) {
+        return Room.databaseBuilder(context.getApplicationContext(), NoteDatabase.class, name)
+                .addMigrations(NoteMigrations.ALL)
+                .addCallback(CALLBACK)
+                .addCallback(configCallback(config))
+                .setJournalMode(config.isWriteAheadLogging()
+                        ? JournalMode.WRITE_AHEAD_LOGGING : JournalMode.TRUNCATE)
+                .setQueryExecutor(newExecutor("note-db-read", config.getReadPoolSize()))
+                .setTransactionExecutor(writeExecutor);
+    }
 
-        private PopulateDbAsyncTask(NoteDatabase db) {
-            noteDao = db.noteDao();
-        }
-        @Override
-        protected Void doInBackground(Void... voids) {
-            // 1. 해당 메서드가 background 스레드로 일처리를 해주는 곳이다.
-            // 2. 보통 네트워크, 병행 일처리등을 이 공간에 작성한다.
-            // 3. 중요한건 스레드 이므로 UI스레드가 어떤 일을 하고 있는지 상관없이
-            //    별개의 일을 진행한다는 점이다. 따라서 AysncTask는 비동기적으로 작동한다.
-            noteDao.insert(new Note("Title 1", "Description 1", 1));
-            noteDao.insert(new Note("Title 2", "Description 2", 2));
-            noteDao.insert(new Note("Title 3", "Description 3", 3));
-
-            return null;
+    // builder에 붙이면 그 builder로 만든 데이터베이스가 config의 압축 기준을 쓴다.
+    // 다른 데이터베이스나 이미 저장된 행에는 영향이 없다.
+    static Callback configCallback(NoteDatabaseConfig config) {
+        return new ConfigCallback(config);
+    }
+
+    @Override
+    public void init(@NonNull DatabaseConfiguration configuration) {
+        super.init(configuration);
+        if (configuration.callbacks != null) {
+            for (Callback callback : configuration.callbacks) {
+                if (callback instanceof ConfigCallback) {
+                    compressionThreshold = ((ConfigCallback) callback).config.getCompressionThreshold();
+                }
+            }
         }
     }
-}
\ No newline at end of file
+
+    int getCompressionThreshold() {
+        return compressionThreshold;
+    }
+
+    private static ExecutorService newExecutor(final String name, int threads) {
+        return Executors.newFixedThreadPool(threads, new ThreadFactory() {
+            private final AtomicInteger count = new AtomicInteger();
+
+            @Override
+            public Thread newThread(@NonNull Runnable runnable) {
+                return new Thread(runnable, name + "-" + count.incrementAndGet());
+            }
+        });
+    }
+}
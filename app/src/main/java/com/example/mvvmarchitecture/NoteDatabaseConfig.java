@@ -0,0 +1,45 @@
+package com.example.mvvmarchitecture;
+
+// *NoteDatabase 동시성 설정*
+// 1. writeAheadLogging: WAL 모드에서는 쓰기 트랜잭션이 진행 중이어도 다른 연결의 읽기가 막히지 않는다.
+// 2. readPoolSize: Room의 query executor(LiveData, 페이징, getById 등 읽기) 스레드 수.
+//    Android의 WAL 연결 풀 크기는 플랫폼이 정하므로, 그보다 크게 잡아도 동시에 실행되는 읽기는 늘지 않는다.
+// 3. 쓰기는 항상 전용 스레드 하나(Room의 transaction executor)에서 순서대로 실행한다.
+// 4. compressionThreshold: 이 글자 수보다 긴 description은 압축해서 저장한다(NoteCompression).
+//    Integer.MAX_VALUE면 압축하지 않는다.
+public final class NoteDatabaseConfig {
+    public static final NoteDatabaseConfig DEFAULT = new NoteDatabaseConfig(true, 4);
+
+    private final boolean writeAheadLogging;
+    private final int readPoolSize;
+    private final int compressionThreshold;
+
+    public NoteDatabaseConfig(boolean writeAheadLogging, int readPoolSize) {
+        this(writeAheadLogging, readPoolSize, NoteCompression.DEFAULT_THRESHOLD);
+    }
+
+    public NoteDatabaseConfig(boolean writeAheadLogging, int readPoolSize, int compressionThreshold) {
+        if (readPoolSize < 1) {
+            throw new IllegalArgumentException("readPoolSize must be at least 1: " + readPoolSize);
+        }
+        if (compressionThreshold < NoteCompression.INDEXED_PREFIX_LENGTH) {
+            throw new IllegalArgumentException("compressionThreshold must be at least "
+                    + NoteCompression.INDEXED_PREFIX_LENGTH + ": " + compressionThreshold);
+        }
+        this.writeAheadLogging = writeAheadLogging;
+        this.readPoolSize = readPoolSize;
+        this.compressionThreshold = compressionThreshold;
+    }
+
+    public boolean isWriteAheadLogging() {
+        return writeAheadLogging;
+    }
+
+    public int getReadPoolSize() {
+        return readPoolSize;
+    }
+
+    public int getCompressionThreshold() {
+        return compressionThreshold;
+    }
+}
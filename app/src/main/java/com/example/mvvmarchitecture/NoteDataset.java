@@ -0,0 +1,292 @@
+package com.example.mvvmarchitecture;
+
+import androidx.annotation.Nullable;
+import androidx.sqlite.db.SupportSQLiteStatement;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Random;
+import java.util.UUID;
+
+// *합성 데이터셋*
+// 1. 운영 환경 크기의 데이터베이스를 테스트, 벤치마크, 디버그 메뉴에서 똑같이 만들기 위해 쓴다.
+// 2. 같은 seed와 설정이면 제목, 내용, priority, sync_id까지 매번 같은 Note가 만들어진다.
+// 3. priority는 가중치 비율대로, 제목과 내용 길이는 Length 분포대로 뽑는다.
+//    내용이 압축 기준보다 길면 Note를 저장할 때처럼 NoteCompression으로 압축해서 넣는다.
+// 4. Note 객체와 Room의 insert를 거치지 않고, 한 번 컴파일한 INSERT 문에 값만 바꿔 실행한다.
+//    transactionSize개마다 트랜잭션 하나로 커밋하므로 fsync와 Room 무효화도 그만큼만 일어난다.
+// 5. 트리거(FTS 색인, priority별 개수, 동기화 상태)는 평소처럼 행마다 실행된다.
+final class NoteDataset {
+    static final int DEFAULT_TRANSACTION_SIZE = 50_000;
+
+    private static final String INSERT = "INSERT INTO note_table"
+            + " (title, description, priority, description_blob, description_format, sync_id, updated_at)"
+            + " VALUES (?, ?, ?, ?, ?, ?, ?)";
+    private static final String[] WORDS = {"meeting", "follow", "up", "with", "the", "team", "about", "release",
+            "notes", "draft", "review", "budget", "and", "schedule", "next", "week", "ideas", "todo", "call",
+            "plan", "groceries", "book", "trip", "fix", "bug", "report", "read", "chapter", "idea", "project"};
+
+    // 글자 수 분포. Random만 써야 같은 seed에서 같은 길이가 나온다.
+    interface Length {
+        int next(Random random);
+    }
+
+    private final long seed;
+    private final int count;
+    private final int minPriority;
+    // cumulativeWeights[i]는 priority minPriority..minPriority + i의 가중치 합이다.
+    private final int[] cumulativeWeights;
+    private final Length titleLength;
+    private final Length descriptionLength;
+    private final long updatedAt;
+    private final int transactionSize;
+
+    private NoteDataset(Builder builder) {
+        seed = builder.seed;
+        count = builder.count;
+        minPriority = builder.minPriority;
+        cumulativeWeights = new int[builder.priorityWeights.length];
+        int total = 0;
+        for (int i = 0; i < builder.priorityWeights.length; i++) {
+            total += builder.priorityWeights[i];
+            cumulativeWeights[i] = total;
+        }
+        titleLength = builder.titleLength;
+        descriptionLength = builder.descriptionLength;
+        updatedAt = builder.updatedAt;
+        transactionSize = builder.transactionSize;
+    }
+
+    int getCount() {
+        return count;
+    }
+
+    // *길이 분포*
+    static Length fixed(final int length) {
+        return uniform(length, length);
+    }
+
+    // min 이상 max 이하에서 고르게 뽑는다.
+    static Length uniform(final int min, final int max) {
+        if (min < 0 || max < min) {
+            throw new IllegalArgumentException("Invalid length range " + min + ".." + max);
+        }
+        return new Length() {
+            @Override
+            public int next(Random random) {
+                return min + random.nextInt(max - min + 1);
+            }
+        };
+    }
+
+    // percent%는 rare에서, 나머지는 common에서 뽑는다. 대부분 짧고 가끔 아주 긴 본문 같은 분포를 만든다.
+    static Length mixed(final int percent, final Length rare, final Length common) {
+        if (percent < 0 || percent > 100) {
+            throw new IllegalArgumentException("percent must be 0..100: " + percent);
+        }
+        return new Length() {
+            @Override
+            public int next(Random random) {
+                return random.nextInt(100) < percent ? rare.next(random) : common.next(random);
+            }
+        };
+    }
+
+    // database에 이 데이터셋을 넣기 시작한다. step()을 false가 나올 때까지 쓰기 스레드에서 호출해야 한다.
+    Generation begin(NoteDatabase database, @Nullable NoteTransfer.ProgressListener listener) {
+        return new Generation(database, listener);
+    }
+
+    // 한 번에 모두 넣고 넣은 개수를 반환한다. 테스트와 벤치마크용.
+    long generate(NoteDatabase database) {
+        Generation generation = begin(database, null);
+        while (generation.step()) {
+            // 다음 트랜잭션으로 넘어간다.
+        }
+        return generation.count();
+    }
+
+    // transactionSize개씩 나눠 넣는 진행 상태. NoteTransfer.Import처럼 한 step이 트랜잭션 하나다.
+    final class Generation {
+        private final NoteDatabase database;
+        private final NoteTransfer.ProgressListener listener;
+        private final Random random = new Random(seed);
+        private final StringBuilder text = new StringBuilder();
+        private SupportSQLiteStatement insert;
+        private long inserted;
+
+        private Generation(NoteDatabase database, NoteTransfer.ProgressListener listener) {
+            this.database = database;
+            this.listener = listener;
+        }
+
+        // 트랜잭션 하나만큼 넣는다. 더 넣을 것이 남았으면 true를 반환한다.
+        // 실패하면 그 트랜잭션만 되돌리고 예외를 던진다. 이미 커밋한 행은 남는다.
+        boolean step() {
+            if (inserted >= count) {
+                return false;
+            }
+            if (insert == null) {
+                insert = database.compileStatement(INSERT);
+            }
+            int rows = (int) Math.min(transactionSize, count - inserted);
+            database.beginTransaction();
+            try {
+                for (int i = 0; i < rows; i++) {
+                    insertNext();
+                }
+                database.setTransactionSuccessful();
+            } catch (RuntimeException e) {
+                close();
+                throw e;
+            } finally {
+                database.endTransaction();
+            }
+            inserted += rows;
+            if (listener != null) {
+                listener.onProgress(inserted);
+            }
+            if (inserted >= count) {
+                close();
+                return false;
+            }
+            return true;
+        }
+
+        long count() {
+            return inserted;
+        }
+
+        private void insertNext() {
+            String title = text(titleLength.next(random));
+            String description = text(descriptionLength.next(random));
+            int priority = nextPriority();
+            UUID syncId = new UUID(random.nextLong(), random.nextLong());
+
+            insert.bindString(1, title);
+            String indexed = NoteCompression.shouldCompress(description, database.getCompressionThreshold())
+                    ? NoteCompression.indexedText(description) : null;
+            byte[] compressed = indexed != null ? NoteCompression.deflate(description, indexed) : null;
+            if (compressed != null) {
+                insert.bindString(2, indexed);
+                insert.bindBlob(4, compressed);
+                insert.bindLong(5, NoteCompression.FORMAT_DEFLATE);
+            } else {
+                insert.bindString(2, description);
+                insert.bindNull(4);
+                insert.bindLong(5, NoteCompression.FORMAT_PLAIN);
+            }
+            insert.bindLong(3, priority);
+            insert.bindString(6, syncId.toString());
+            insert.bindLong(7, updatedAt);
+            insert.executeInsert();
+        }
+
+        private int nextPriority() {
+            int total = cumulativeWeights[cumulativeWeights.length - 1];
+            int index = Arrays.binarySearch(cumulativeWeights, random.nextInt(total) + 1);
+            if (index < 0) {
+                index = -index - 1;
+            } else {
+                // 가중치가 0인 priority가 앞에 있으면 합이 같은 칸이 여러 개다. 처음으로 합에 닿은 칸을 쓴다.
+                while (index > 0 && cumulativeWeights[index - 1] == cumulativeWeights[index]) {
+                    index--;
+                }
+            }
+            return minPriority + index;
+        }
+
+        // 단어를 이어 붙여 정확히 length 글자로 자른다.
+        private String text(int length) {
+            text.setLength(0);
+            while (text.length() < length) {
+                if (text.length() > 0) {
+                    text.append(random.nextInt(8) == 0 ? ".\n" : " ");
+                }
+                text.append(WORDS[random.nextInt(WORDS.length)]);
+            }
+            text.setLength(length);
+            return text.toString();
+        }
+
+        private void close() {
+            if (insert == null) {
+                return;
+            }
+            try {
+                insert.close();
+            } catch (IOException ignored) {
+            }
+            insert = null;
+        }
+    }
+
+    // 기본값은 priority 1..10 고르게, 제목 10..40자, 내용은 대부분 50..300자이고 2%는 8..32KB다.
+    static final class Builder {
+        private long seed = 42;
+        private final int count;
+        private int minPriority = 1;
+        private int[] priorityWeights = {1, 1, 1, 1, 1, 1, 1, 1, 1, 1};
+        private Length titleLength = uniform(10, 40);
+        private Length descriptionLength = mixed(2, uniform(8 * 1024, 32 * 1024), uniform(50, 300));
+        private long updatedAt;
+        private int transactionSize = DEFAULT_TRANSACTION_SIZE;
+
+        Builder(int count) {
+            if (count < 0) {
+                throw new IllegalArgumentException("count must not be negative: " + count);
+            }
+            this.count = count;
+        }
+
+        Builder seed(long seed) {
+            this.seed = seed;
+            return this;
+        }
+
+        // weights[i]는 priority minPriority + i가 나올 비율이다. 0이면 그 priority는 나오지 않는다.
+        Builder priorityWeights(int minPriority, int... weights) {
+            int total = 0;
+            for (int weight : weights) {
+                if (weight < 0) {
+                    throw new IllegalArgumentException("Negative priority weight: " + weight);
+                }
+                total += weight;
+            }
+            if (total == 0) {
+                throw new IllegalArgumentException("At least one priority weight must be positive");
+            }
+            this.minPriority = minPriority;
+            this.priorityWeights = weights.clone();
+            return this;
+        }
+
+        Builder titleLength(Length length) {
+            titleLength = length;
+            return this;
+        }
+
+        Builder descriptionLength(Length length) {
+            descriptionLength = length;
+            return this;
+        }
+
+        // 모든 행의 updated_at. 기본값 0은 어느 기기의 편집보다도 오래된 것으로 취급된다.
+        Builder updatedAt(long updatedAt) {
+            this.updatedAt = updatedAt;
+            return this;
+        }
+
+        Builder transactionSize(int transactionSize) {
+            if (transactionSize < 1) {
+                throw new IllegalArgumentException("transactionSize must be at least 1: " + transactionSize);
+            }
+            this.transactionSize = transactionSize;
+            return this;
+        }
+
+        NoteDataset build() {
+            return new NoteDataset(this);
+        }
+    }
+}
@@ -0,0 +1,65 @@
+package com.example.mvvmarchitecture;
+
+import androidx.room.ColumnInfo;
+import androidx.room.Entity;
+import androidx.room.PrimaryKey;
+
+// *편집 초안*
+// 1. 편집 화면에서 저장하지 않은 내용을 남겨 프로세스가 종료되어도 다음에 열 때 되살린다.
+// 2. Note마다 하나뿐이고, 아직 id가 없는 새 Note의 초안은 NEW_NOTE_ID에 둔다.
+// 3. 입력이 멈춘 뒤 내용이 실제로 바뀌었을 때만 저장한다(NoteEditor). 저장하거나 닫으면 지운다.
+// 4. 잠깐 쓰고 지우는 데이터라 description을 압축하지 않는다.
+@Entity(tableName = "note_draft")
+public class NoteDraft {
+    // AUTOINCREMENT id는 1부터 시작하므로 실제 Note와 겹치지 않는다.
+    static final int NEW_NOTE_ID = 0;
+
+    @PrimaryKey
+    @ColumnInfo(name = "note_id")
+    private final int noteId;
+
+    private final String title;
+
+    private final String description;
+
+    private final int priority;
+
+    @ColumnInfo(name = "saved_at")
+    private final long savedAt;
+
+    public NoteDraft(int noteId, String title, String description, int priority, long savedAt) {
+        this.noteId = noteId;
+        this.title = title;
+        this.description = description;
+        this.priority = priority;
+        this.savedAt = savedAt;
+    }
+
+    public int getNoteId() {
+        return noteId;
+    }
+
+    public String getTitle() {
+        return title;
+    }
+
+    public String getDescription() {
+        return description;
+    }
+
+    public int getPriority() {
+        return priority;
+    }
+
+    public long getSavedAt() {
+        return savedAt;
+    }
+
+    boolean hasContent(String title, String description, int priority) {
+        return this.priority == priority && equal(this.title, title) && equal(this.description, description);
+    }
+
+    private static boolean equal(String a, String b) {
+        return a == null ? b == null : a.equals(b);
+    }
+}
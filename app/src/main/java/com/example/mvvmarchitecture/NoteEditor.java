@@ -0,0 +1,95 @@
+package com.example.mvvmarchitecture;
+
+import androidx.annotation.Nullable;
+
+// *편집 상태*
+// 1. 편집 화면을 열 때 DB에 있던 값(original)과 지금 값을 비교해 바뀐 컬럼(Note.FIELD_*)을 계산한다.
+//    저장할 때 바뀐 컬럼만 UPDATE하고, 아무것도 바뀌지 않았으면 쓰지 않는다.
+// 2. 초안은 마지막으로 저장한 내용을 기억해 두고, 입력이 멈췄을 때 그와 다를 때만 다시 쓴다.
+//    되돌려서 original과 같아지면 초안을 지운다.
+// 3. 메인 스레드에서만 사용한다.
+final class NoteEditor {
+    enum DraftAction {
+        NONE,
+        SAVE,
+        DISCARD
+    }
+
+    private final int noteId;
+    private final String originalTitle;
+    private final String originalDescription;
+    private final int originalPriority;
+    // 지금 DB에 있는 초안. 없으면 null.
+    private NoteDraft draft;
+
+    // note가 null이면 새 Note를 쓰는 화면이다.
+    NoteEditor(@Nullable Note note, @Nullable NoteDraft draft, int defaultPriority) {
+        noteId = note == null ? NoteDraft.NEW_NOTE_ID : note.getId();
+        originalTitle = note == null ? "" : note.getTitle();
+        originalDescription = note == null ? "" : note.getDescription();
+        originalPriority = note == null ? defaultPriority : note.getPriority();
+        this.draft = draft;
+    }
+
+    boolean isNewNote() {
+        return noteId == NoteDraft.NEW_NOTE_ID;
+    }
+
+    int getNoteId() {
+        return noteId;
+    }
+
+    // 화면을 처음 채울 때 쓸 값. 저장하지 않은 초안이 있으면 초안이 우선이다.
+    boolean isDraftRestored() {
+        return draft != null;
+    }
+
+    String getTitle() {
+        return draft != null ? draft.getTitle() : originalTitle;
+    }
+
+    String getDescription() {
+        return draft != null ? draft.getDescription() : originalDescription;
+    }
+
+    int getPriority() {
+        return draft != null ? draft.getPriority() : originalPriority;
+    }
+
+    int getChangedFields(String title, String description, int priority) {
+        int fields = 0;
+        if (!originalTitle.equals(title)) {
+            fields |= Note.FIELD_TITLE;
+        }
+        if (!originalDescription.equals(description)) {
+            fields |= Note.FIELD_DESCRIPTION;
+        }
+        if (originalPriority != priority) {
+            fields |= Note.FIELD_PRIORITY;
+        }
+        return fields;
+    }
+
+    // 지금 내용을 초안으로 남기려면 무엇을 해야 하는지 정한다. SAVE면 getDraft()를 저장하면 된다.
+    DraftAction updateDraft(String title, String description, int priority, long now) {
+        if (getChangedFields(title, description, priority) == 0) {
+            return clearDraft() ? DraftAction.DISCARD : DraftAction.NONE;
+        }
+        if (draft != null && draft.hasContent(title, description, priority)) {
+            return DraftAction.NONE;
+        }
+        draft = new NoteDraft(noteId, title, description, priority, now);
+        return DraftAction.SAVE;
+    }
+
+    NoteDraft getDraft() {
+        return draft;
+    }
+
+    // 저장했거나 편집을 그만둘 때 부른다. 지울 초안이 있었으면 true를 반환한다.
+    boolean clearDraft() {
+        boolean had = draft != null;
+        draft = null;
+        return had;
+    }
+}
@@ -0,0 +1,29 @@
+package com.example.mvvmarchitecture;
+
+import androidx.room.Entity;
+import androidx.room.Fts4;
+
+// *FTS4 전문 검색 테이블*
+// 1. contentEntity로 note_table을 지정하면 note_fts는 본문을 따로 저장하지 않고 색인만 가진다.
+// 2. Room이 note_table의 INSERT/UPDATE/DELETE 트리거를 만들어 색인을 자동으로 맞춰준다.
+// 3. note_fts의 rowid(docid)는 note_table의 id와 같다.
+@Fts4(contentEntity = Note.class)
+@Entity(tableName = "note_fts")
+public class NoteFts {
+    private String title;
+
+    private String description;
+
+    public NoteFts(String title, String description) {
+        this.title = title;
+        this.description = description;
+    }
+
+    public String getTitle() {
+        return title;
+    }
+
+    public String getDescription() {
+        return description;
+    }
+}
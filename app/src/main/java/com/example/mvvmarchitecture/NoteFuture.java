@@ -0,0 +1,137 @@
+package com.example.mvvmarchitecture;
+
+import androidx.annotation.Nullable;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+// *작업 결과*
+// 1. NoteTaskExecutor에 제출한 작업과 Repository의 쓰기 요청이 끝났는지 알려준다.
+// 2. get()으로 기다리거나 addCallback으로 끝났을 때 알림을 받는다. callback은 작업을 끝낸 스레드에서,
+//    이미 끝났으면 addCallback을 호출한 스레드에서 바로 호출된다.
+// 3. cancel()은 아직 시작하지 않은 작업을 건너뛰게 한다. 여러 단계로 나뉜 작업은 단계 사이에 멈춘다.
+public final class NoteFuture<T> implements Future<T> {
+    public interface Callback<T> {
+        void onSuccess(@Nullable T result);
+
+        // 실패했거나 취소되었다. 취소되면 CancellationException이 전달된다.
+        void onFailure(Throwable error);
+    }
+
+    private static final int PENDING = 0;
+    private static final int SUCCEEDED = 1;
+    private static final int FAILED = 2;
+    private static final int CANCELLED = 3;
+
+    // 아래 필드는 모두 lock(this)으로 보호한다.
+    private int state = PENDING;
+    private T result;
+    private Throwable error;
+    private List<Callback<? super T>> callbacks = new ArrayList<>();
+
+    static <T> NoteFuture<T> failed(Throwable error) {
+        NoteFuture<T> future = new NoteFuture<>();
+        future.setException(error);
+        return future;
+    }
+
+    // 이미 끝났으면 false를 반환하고 아무것도 바꾸지 않는다.
+    boolean set(@Nullable T value) {
+        return complete(SUCCEEDED, value, null);
+    }
+
+    boolean setException(Throwable throwable) {
+        return complete(FAILED, null, throwable);
+    }
+
+    @Override
+    public boolean cancel(boolean mayInterruptIfRunning) {
+        // 실행 중인 작업을 끊지 않는다. 작업이 다음 단계 전에 isCancelled()를 확인한다.
+        return complete(CANCELLED, null, new CancellationException());
+    }
+
+    private boolean complete(int newState, T value, Throwable throwable) {
+        List<Callback<? super T>> toNotify;
+        synchronized (this) {
+            if (state != PENDING) {
+                return false;
+            }
+            state = newState;
+            result = value;
+            error = throwable;
+            toNotify = callbacks;
+            callbacks = null;
+            notifyAll();
+        }
+        for (Callback<? super T> callback : toNotify) {
+            notify(callback, newState, value, throwable);
+        }
+        return true;
+    }
+
+    public void addCallback(Callback<? super T> callback) {
+        int doneState;
+        synchronized (this) {
+            if (state == PENDING) {
+                callbacks.add(callback);
+                return;
+            }
+            doneState = state;
+        }
+        notify(callback, doneState, result, error);
+    }
+
+    private static <T> void notify(Callback<? super T> callback, int state, T value, Throwable throwable) {
+        if (state == SUCCEEDED) {
+            callback.onSuccess(value);
+        } else {
+            callback.onFailure(throwable);
+        }
+    }
+
+    @Override
+    public synchronized boolean isCancelled() {
+        return state == CANCELLED;
+    }
+
+    @Override
+    public synchronized boolean isDone() {
+        return state != PENDING;
+    }
+
+    @Override
+    public synchronized T get() throws InterruptedException, ExecutionException {
+        while (state == PENDING) {
+            wait();
+        }
+        return report();
+    }
+
+    @Override
+    public synchronized T get(long timeout, TimeUnit unit) throws InterruptedException, ExecutionException, TimeoutException {
+        long deadline = System.nanoTime() + unit.toNanos(timeout);
+        while (state == PENDING) {
+            long remaining = deadline - System.nanoTime();
+            if (remaining <= 0) {
+                throw new TimeoutException();
+            }
+            TimeUnit.NANOSECONDS.timedWait(this, remaining);
+        }
+        return report();
+    }
+
+    private T report() throws ExecutionException {
+        if (state == CANCELLED) {
+            throw (CancellationException) error;
+        }
+        if (state == FAILED) {
+            throw new ExecutionException(error);
+        }
+        return result;
+    }
+}
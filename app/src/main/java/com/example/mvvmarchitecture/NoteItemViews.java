@@ -0,0 +1,68 @@
+package com.example.mvvmarchitecture;
+
+import android.view.LayoutInflater;
+import android.view.View;
+import android.view.ViewGroup;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import androidx.asynclayoutinflater.view.AsyncLayoutInflater;
+
+import java.util.ArrayDeque;
+
+// *미리 만든 Note 항목 뷰*
+// 1. 첫 화면과 빠른 스크롤에서 note_item을 메인 스레드에서 inflate하지 않도록, 시작할 때 몇 개를
+//    AsyncLayoutInflater로 백그라운드 스레드에서 미리 만들어 둔다.
+// 2. 어댑터의 onCreateViewHolder는 obtain()으로 뷰를 꺼내 쓰고, 남은 것이 없을 때만 직접 inflate한다.
+//    직접 inflate한 시간만 NoteMetrics.ITEM_INFLATE로 남기므로, 미리 만든 뷰가 충분하면 아무것도 기록되지 않는다.
+// 3. 미리 만든 뷰는 prefetch()에 넘긴 RecyclerView를 parent로 LayoutParams를 받았다. 다른 parent에는 내주지 않는다.
+// 4. 메인 스레드에서만 쓴다. AsyncLayoutInflater는 inflate가 끝나면 메인 스레드에서 onInflateFinished를 부른다.
+final class NoteItemViews implements AsyncLayoutInflater.OnInflateFinishedListener {
+    private final ArrayDeque<View> views = new ArrayDeque<>();
+    @Nullable
+    private ViewGroup parent;
+    // 백그라운드에서 만드는 중인 뷰 개수.
+    private int pending;
+
+    // 만들어 둔 뷰와 만드는 중인 뷰가 합쳐서 count개가 되도록 모자란 만큼만 요청한다.
+    void prefetch(@NonNull ViewGroup parent, int count) {
+        if (this.parent != parent) {
+            views.clear();
+            this.parent = parent;
+        }
+        int missing = count - views.size() - pending;
+        if (missing <= 0) {
+            return;
+        }
+        AsyncLayoutInflater inflater = new AsyncLayoutInflater(parent.getContext());
+        for (int i = 0; i < missing; i++) {
+            pending++;
+            inflater.inflate(R.layout.note_item, parent, this);
+        }
+    }
+
+    @Override
+    public void onInflateFinished(@NonNull View view, int resid, @Nullable ViewGroup parent) {
+        pending = Math.max(0, pending - 1);
+        // prefetch()가 다른 RecyclerView로 바뀌기 전에 요청한 뷰는 버린다.
+        if (parent != null && parent == this.parent) {
+            views.add(view);
+        }
+    }
+
+    @NonNull
+    View obtain(@NonNull ViewGroup parent) {
+        View view = parent == this.parent ? views.poll() : null;
+        if (view != null) {
+            return view;
+        }
+        long start = System.nanoTime();
+        view = LayoutInflater.from(parent.getContext()).inflate(R.layout.note_item, parent, false);
+        NoteMetrics.recordSince(NoteMetrics.ITEM_INFLATE, start);
+        return view;
+    }
+
+    int size() {
+        return views.size();
+    }
+}
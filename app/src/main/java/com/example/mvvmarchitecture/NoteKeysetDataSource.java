@@ -0,0 +1,190 @@
+package com.example.mvvmarchitecture;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import androidx.paging.DataSource;
+import androidx.paging.ItemKeyedDataSource;
+import androidx.room.InvalidationTracker;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Executor;
+
+// *Keyset 페이징 DataSource*
+// 1. (priority DESC, id DESC) 순서에서 마지막으로 읽은 NoteListItem 자체를 다음 페이지의 Key로 사용한다.
+// 2. RecyclerView가 스크롤되는 만큼만 구간을 읽어오므로 테이블이 커져도 메모리 사용량은 일정하다.
+// 3. note_table이 바뀌면 DataSource를 무효화하고, 새 DataSource는 마지막 위치 주변의 구간만 다시 읽는다.
+// 4. 읽은 구간에는 NoteOverlay의 커밋 전 변경을 덧씌운다. Overlay가 바뀌어도 무효화한다.
+// 5. priority 필터는 쿼리의 범위 조건으로 내려보내고, 덧씌운 변경 중 필터 밖의 것만 여기서 걸러낸다.
+public class NoteKeysetDataSource extends ItemKeyedDataSource<NoteListItem, NoteListItem> {
+    private final NoteDao noteDao;
+    private final NoteOverlay overlay;
+    private final NotePriorityRange range;
+    private final InvalidationTracker invalidationTracker;
+    private final InvalidationTracker.Observer observer;
+    private final NoteOverlay.Listener overlayListener;
+
+    private NoteKeysetDataSource(NoteDatabase database, NoteOverlay overlay, NotePriorityRange range) {
+        noteDao = database.noteDao();
+        this.overlay = overlay;
+        this.range = range;
+        invalidationTracker = database.getInvalidationTracker();
+        observer = new InvalidationTracker.Observer("note_table") {
+            @Override
+            public void onInvalidated(@NonNull Set<String> tables) {
+                invalidate();
+            }
+        };
+        overlayListener = new NoteOverlay.Listener() {
+            @Override
+            public void onOverlayChanged() {
+                invalidate();
+            }
+        };
+        invalidationTracker.addObserver(observer);
+        overlay.addListener(overlayListener);
+        // 무효화된 DataSource는 다시 쓰이지 않으므로 Observer를 바로 해제한다.
+        // invalidate()는 NoteOverlay가 바뀔 때 메인 스레드에서도 불린다. removeObserver는 임시 트리거를 지우는
+        // 쓰기 트랜잭션이라 쓰기 스레드를 기다릴 수 있으므로 query executor에서 한다.
+        final Executor queryExecutor = database.getQueryExecutor();
+        addInvalidatedCallback(new InvalidatedCallback() {
+            @Override
+            public void onInvalidated() {
+                NoteKeysetDataSource.this.overlay.removeListener(overlayListener);
+                queryExecutor.execute(new Runnable() {
+                    @Override
+                    public void run() {
+                        invalidationTracker.removeObserver(observer);
+                    }
+                });
+            }
+        });
+    }
+
+    @Override
+    public void loadInitial(@NonNull LoadInitialParams<NoteListItem> params, @NonNull LoadInitialCallback<NoteListItem> callback) {
+        long start = System.nanoTime();
+        NoteListItem key = params.requestedInitialKey;
+        if (key == null) {
+            List<NoteListItem> notes = loadForward(null, false, params.requestedLoadSize);
+            NoteMetrics.recordSince(NoteMetrics.DAO_PREFIX + "getFirstNotes", start);
+            callback.onResult(notes);
+            return;
+        }
+        // 무효화 후 다시 만들어진 경우 마지막으로 보던 Note를 가운데에 두고 앞뒤 구간을 함께 읽는다.
+        List<NoteListItem> before = loadBackward(key, params.requestedLoadSize / 2);
+        // Key로 쓴 Note 자신도 포함해서 읽는다.
+        List<NoteListItem> after = loadForward(key, true, params.requestedLoadSize - before.size());
+
+        List<NoteListItem> notes = new ArrayList<>(before.size() + after.size());
+        notes.addAll(before);
+        notes.addAll(after);
+        NoteMetrics.recordSince(NoteMetrics.DAO_PREFIX + "getNotesAround", start);
+        callback.onResult(notes);
+    }
+
+    @Override
+    public void loadAfter(@NonNull LoadParams<NoteListItem> params, @NonNull LoadCallback<NoteListItem> callback) {
+        long start = System.nanoTime();
+        List<NoteListItem> notes = loadForward(params.key, false, params.requestedLoadSize);
+        NoteMetrics.recordSince(NoteMetrics.DAO_PREFIX + "getNotesAfter", start);
+        callback.onResult(notes);
+    }
+
+    @Override
+    public void loadBefore(@NonNull LoadParams<NoteListItem> params, @NonNull LoadCallback<NoteListItem> callback) {
+        long start = System.nanoTime();
+        List<NoteListItem> notes = loadBackward(params.key, params.requestedLoadSize);
+        NoteMetrics.recordSince(NoteMetrics.DAO_PREFIX + "getNotesBefore", start);
+        callback.onResult(notes);
+    }
+
+    // key 다음 구간을 읽는다(key가 null이면 처음부터).
+    // 빈 목록은 끝에 닿았다는 뜻이므로, 읽은 행이 모두 삭제 대기 중이면 다음 구간을 이어서 읽는다.
+    private List<NoteListItem> loadForward(@Nullable NoteListItem key, boolean includeKey, int limit) {
+        if (overlay.hidesAllRows()) {
+            return range.retain(overlay.apply(Collections.<NoteListItem>emptyList(), key, includeKey, null, false));
+        }
+        NoteListItem from = key;
+        boolean fromInclusive = includeKey;
+        while (true) {
+            List<NoteListItem> rows;
+            if (from == null) {
+                rows = noteDao.getFirstNotes(range.getMin(), range.getMax(), limit);
+            } else {
+                int id = NoteOverlay.queryId(from);
+                // id + 1을 기준으로 하면 기준 Note 자신도 포함된다.
+                rows = noteDao.getNotesAfter(range.getMin(), range.getMax(), from.getPriority(),
+                        fromInclusive && id != Integer.MAX_VALUE ? id + 1 : id, limit);
+            }
+            boolean reachedEnd = rows.size() < limit;
+            NoteListItem to = reachedEnd ? null : rows.get(rows.size() - 1);
+            List<NoteListItem> notes = range.retain(overlay.apply(rows, from, fromInclusive, to, true));
+            if (!notes.isEmpty() || reachedEnd) {
+                return notes;
+            }
+            from = to;
+            fromInclusive = false;
+        }
+    }
+
+    // key 앞 구간을 목록 순서로 읽는다.
+    private List<NoteListItem> loadBackward(NoteListItem key, int limit) {
+        if (overlay.hidesAllRows()) {
+            return range.retain(overlay.apply(Collections.<NoteListItem>emptyList(), null, false, key, false));
+        }
+        NoteListItem to = key;
+        while (true) {
+            List<NoteListItem> rows = noteDao.getNotesBefore(range.getMin(), range.getMax(),
+                    to.getPriority(), NoteOverlay.queryId(to), limit);
+            Collections.reverse(rows);
+            boolean reachedStart = rows.size() < limit;
+            NoteListItem from = reachedStart ? null : rows.get(0);
+            List<NoteListItem> notes = range.retain(overlay.apply(rows, from, true, to, false));
+            if (!notes.isEmpty() || reachedStart) {
+                return notes;
+            }
+            to = from;
+        }
+    }
+
+    @NonNull
+    @Override
+    public NoteListItem getKey(@NonNull NoteListItem item) {
+        return item;
+    }
+
+    // LivePagedListBuilder는 무효화될 때마다 Factory를 통해 새 DataSource를 만든다.
+    // 필터를 바꾸면 지금 DataSource를 무효화해 새 구간으로 다시 읽게 한다.
+    public static class Factory extends DataSource.Factory<NoteListItem, NoteListItem> {
+        private final NoteDatabase database;
+        private final NoteOverlay overlay;
+        private volatile NotePriorityRange range = NotePriorityRange.ALL;
+        private volatile NoteKeysetDataSource current;
+
+        Factory(NoteDatabase database, NoteOverlay overlay) {
+            this.database = database;
+            this.overlay = overlay;
+        }
+
+        void setPriorityRange(NotePriorityRange range) {
+            if (this.range.equals(range)) {
+                return;
+            }
+            this.range = range;
+            NoteKeysetDataSource dataSource = current;
+            if (dataSource != null) {
+                dataSource.invalidate();
+            }
+        }
+
+        @NonNull
+        @Override
+        public DataSource<NoteListItem, NoteListItem> create() {
+            current = new NoteKeysetDataSource(database, overlay, range);
+            return current;
+        }
+    }
+}
@@ -0,0 +1,38 @@
+package com.example.mvvmarchitecture;
+
+// *목록 전용 Projection*
+// 1. 목록의 note_item은 제목, 우선순위, 내용 앞부분만 보여주므로 description 전체를 읽을 필요가 없다.
+// 2. preview는 SQL의 substr()로 잘라서 가져오므로 CursorWindow에도 잘린 문자열만 복사된다.
+// 3. 전체 내용은 편집 화면에서 NoteRepository.getNote(id)로 열 때만 읽는다.
+public class NoteListItem {
+    private final int id;
+
+    private final String title;
+
+    private final int priority;
+
+    private final String preview;
+
+    public NoteListItem(int id, String title, int priority, String preview) {
+        this.id = id;
+        this.title = title;
+        this.priority = priority;
+        this.preview = preview;
+    }
+
+    public int getId() {
+        return id;
+    }
+
+    public String getTitle() {
+        return title;
+    }
+
+    public int getPriority() {
+        return priority;
+    }
+
+    public String getPreview() {
+        return preview;
+    }
+}
@@ -0,0 +1,240 @@
+package com.example.mvvmarchitecture;
+
+import android.app.Application;
+import android.content.Context;
+import android.content.SharedPreferences;
+import android.database.Cursor;
+import android.os.Handler;
+import android.os.Looper;
+import android.util.Log;
+
+import androidx.sqlite.db.SupportSQLiteDatabase;
+
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+
+// *DB 유지보수*
+// 1. 앱이 백그라운드로 가고 IDLE_DELAY_MS 동안 돌아오지 않으면, 마지막 실행 후 INTERVAL_MS가 지났을 때만 실행한다.
+// 2. 모든 작업은 NoteDatabase의 쓰기 스레드에서 BULK로 하므로 사용자의 쓰기와 잠금을 두고 다투지 않고,
+//    단계 사이에 들어온 편집이 먼저 실행된다.
+// 3. 하는 일
+//    - 동기화하지 않으면(NoteRepository.isSyncEnabled) 올릴 곳이 없는 tombstone을 note_sync에서 지운다.
+//    - NoteArchivePolicy에 맞는 Note를 ARCHIVE_STEP_ROWS씩 note_archive로 옮긴다. 옮기며 비운 페이지는 아래 vacuum이 돌려준다.
+//      동기화 중일 때만 올리지 않은 변경이 있는 Note를 남겨 둔다(NoteDao.archiveChunk).
+//    - auto_vacuum을 INCREMENTAL로 바꾼다. 기존 파일은 한 번 VACUUM해야 바뀐다.
+//    - 통계가 없으면 ANALYZE, 있으면 PRAGMA optimize로 쿼리 플래너 통계를 새로 고친다.
+//    - 빈 페이지가 MAX_FREE_RATIO를 넘으면 incremental_vacuum으로 VACUUM_STEP_PAGES씩 파일에 돌려주고,
+//      단계 사이에 쓰기 스레드를 다른 작업에 양보한다.
+//    - 크기/단편화 통계를 NoteMetrics에 남긴다.
+class NoteMaintenance {
+    private static final String TAG = "NoteMaintenance";
+    static final long INTERVAL_MS = TimeUnit.HOURS.toMillis(24);
+    static final long IDLE_DELAY_MS = TimeUnit.SECONDS.toMillis(5);
+    static final double MAX_FREE_RATIO = 0.1;
+    static final int VACUUM_STEP_PAGES = 256;
+    // 한 트랜잭션에서 옮길 Note 수. NoteDao.MAX_BIND_ARGS를 넘지 않아야 한다.
+    static final int ARCHIVE_STEP_ROWS = 200;
+    // sqlite의 PRAGMA auto_vacuum 값. 0 = NONE, 1 = FULL, 2 = INCREMENTAL
+    static final int AUTO_VACUUM_INCREMENTAL = 2;
+
+    private static final String PREFS = "note_maintenance";
+    private static final String KEY_LAST_RUN = "last_run";
+
+    private final Context context;
+    private final SharedPreferences prefs;
+    private final Handler handler = new Handler(Looper.getMainLooper());
+    private final Runnable runIfDue = new Runnable() {
+        @Override
+        public void run() {
+            if (System.currentTimeMillis() - prefs.getLong(KEY_LAST_RUN, 0) >= INTERVAL_MS) {
+                runNow();
+            }
+        }
+    };
+
+    NoteMaintenance(Context context) {
+        this.context = context.getApplicationContext();
+        prefs = this.context.getSharedPreferences(PREFS, Context.MODE_PRIVATE);
+    }
+
+    void onAppBackgrounded() {
+        handler.removeCallbacks(runIfDue);
+        handler.postDelayed(runIfDue, IDLE_DELAY_MS);
+    }
+
+    void onAppForegrounded() {
+        handler.removeCallbacks(runIfDue);
+    }
+
+    void runNow() {
+        prefs.edit().putLong(KEY_LAST_RUN, System.currentTimeMillis()).apply();
+        final NoteDatabase database = NoteDatabase.getInstance(context);
+        final NoteTaskExecutor writeExecutor = NoteDatabase.getWriteExecutor(context);
+        final boolean syncEnabled = NoteRepository.getInstance((Application) context).isSyncEnabled();
+        Runnable optimizeStep = new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    if (!syncEnabled) {
+                        database.noteSyncDao().deleteTombstones();
+                    }
+                    SupportSQLiteDatabase db = database.getOpenHelper().getWritableDatabase();
+                    long start = System.nanoTime();
+                    optimize(db);
+                    NoteMetrics.recordSince(NoteMetrics.MAINTENANCE_OPTIMIZE, start);
+                    writeExecutor.execute(NoteTaskExecutor.Priority.BULK, new VacuumStep(db, writeExecutor));
+                } catch (RuntimeException e) {
+                    Log.w(TAG, "Maintenance failed", e);
+                }
+            }
+        };
+        writeExecutor.execute(NoteTaskExecutor.Priority.BULK, new ArchiveStep(database.noteDao(),
+                NoteArchivePolicy.DEFAULT, System.currentTimeMillis(), syncEnabled, writeExecutor, optimizeStep));
+    }
+
+    // 보관할 Note를 조금씩 옮긴다. 남았으면 자신을 쓰기 큐 뒤에 다시 넣고, 다 옮기면 next를 넣는다.
+    // 기준 시각은 처음에 정해 두어 실행 중에 대상이 바뀌지 않게 한다.
+    static class ArchiveStep implements Runnable {
+        private final NoteDao noteDao;
+        private final NoteArchivePolicy policy;
+        private final long now;
+        private final boolean syncEnabled;
+        private final NoteTaskExecutor writeExecutor;
+        private final Runnable next;
+
+        ArchiveStep(NoteDao noteDao, NoteArchivePolicy policy, long now, boolean syncEnabled,
+                    NoteTaskExecutor writeExecutor, Runnable next) {
+            this.noteDao = noteDao;
+            this.policy = policy;
+            this.now = now;
+            this.syncEnabled = syncEnabled;
+            this.writeExecutor = writeExecutor;
+            this.next = next;
+        }
+
+        @Override
+        public void run() {
+            try {
+                long start = System.nanoTime();
+                int moved = noteDao.archiveChunk(policy.getMaxPriority(), policy.getUpdatedBefore(now), now,
+                        ARCHIVE_STEP_ROWS, syncEnabled);
+                NoteMetrics.recordSince(NoteMetrics.MAINTENANCE_ARCHIVE_STEP, start);
+                if (moved == ARCHIVE_STEP_ROWS) {
+                    writeExecutor.execute(NoteTaskExecutor.Priority.BULK, this);
+                    return;
+                }
+            } catch (RuntimeException e) {
+                Log.w(TAG, "Archive failed", e);
+            }
+            writeExecutor.execute(NoteTaskExecutor.Priority.BULK, next);
+        }
+    }
+
+    // auto_vacuum 전환과 플래너 통계 갱신. 쓰기 스레드에서, 트랜잭션 밖에서 호출해야 한다.
+    static void optimize(SupportSQLiteDatabase db) {
+        if (queryLong(db, "PRAGMA auto_vacuum") != AUTO_VACUUM_INCREMENTAL) {
+            // auto_vacuum은 VACUUM으로 파일을 다시 써야 적용된다. 한 번만 한다.
+            db.execSQL("PRAGMA auto_vacuum = INCREMENTAL");
+            db.execSQL("VACUUM");
+        }
+        if (queryLong(db, "SELECT count(*) FROM sqlite_master WHERE name = 'sqlite_stat1'") == 0) {
+            db.execSQL("ANALYZE");
+        } else {
+            // SQLite 3.18 미만에서는 알 수 없는 PRAGMA라 아무 일도 하지 않는다.
+            queryLong(db, "PRAGMA optimize");
+        }
+    }
+
+    // 빈 페이지를 조금씩 파일에 돌려준다. 남았으면 자신을 쓰기 큐 뒤에 다시 넣는다.
+    private static class VacuumStep implements Runnable {
+        private final SupportSQLiteDatabase db;
+        private final NoteTaskExecutor writeExecutor;
+
+        private VacuumStep(SupportSQLiteDatabase db, NoteTaskExecutor writeExecutor) {
+            this.db = db;
+            this.writeExecutor = writeExecutor;
+        }
+
+        @Override
+        public void run() {
+            try {
+                Stats stats = readStats(db);
+                if (stats.getFreeRatio() > MAX_FREE_RATIO && stats.autoVacuum == AUTO_VACUUM_INCREMENTAL) {
+                    long start = System.nanoTime();
+                    incrementalVacuum(db, VACUUM_STEP_PAGES);
+                    NoteMetrics.recordSince(NoteMetrics.MAINTENANCE_VACUUM_STEP, start);
+                    writeExecutor.execute(NoteTaskExecutor.Priority.BULK, this);
+                    return;
+                }
+                // WAL 파일도 비워 실제 디스크 사용량을 줄인다.
+                queryLong(db, "PRAGMA wal_checkpoint(TRUNCATE)");
+                stats.record();
+                Log.i(TAG, "Maintenance done: " + stats);
+            } catch (RuntimeException e) {
+                Log.w(TAG, "Vacuum failed", e);
+            }
+        }
+    }
+
+    static void incrementalVacuum(SupportSQLiteDatabase db, int pages) {
+        queryLong(db, "PRAGMA incremental_vacuum(" + pages + ")");
+    }
+
+    static Stats readStats(SupportSQLiteDatabase db) {
+        return new Stats(queryLong(db, "PRAGMA page_size"),
+                queryLong(db, "PRAGMA page_count"),
+                queryLong(db, "PRAGMA freelist_count"),
+                (int) queryLong(db, "PRAGMA auto_vacuum"));
+    }
+
+    // PRAGMA는 결과 행이 없을 수도 있으므로 끝까지 읽고 첫 값을 돌려준다. 없으면 -1.
+    private static long queryLong(SupportSQLiteDatabase db, String sql) {
+        Cursor cursor = db.query(sql);
+        try {
+            long value = -1;
+            if (cursor.moveToFirst()) {
+                value = cursor.getLong(0);
+                while (cursor.moveToNext()) {
+                    // incremental_vacuum처럼 한 단계씩 진행되는 PRAGMA는 끝까지 읽어야 완료된다.
+                }
+            }
+            return value;
+        } finally {
+            cursor.close();
+        }
+    }
+
+    static final class Stats {
+        final long pageSize;
+        final long pageCount;
+        final long freePages;
+        final int autoVacuum;
+
+        Stats(long pageSize, long pageCount, long freePages, int autoVacuum) {
+            this.pageSize = pageSize;
+            this.pageCount = pageCount;
+            this.freePages = freePages;
+            this.autoVacuum = autoVacuum;
+        }
+
+        long getFileBytes() {
+            return pageSize * pageCount;
+        }
+
+        double getFreeRatio() {
+            return pageCount == 0 ? 0 : (double) freePages / pageCount;
+        }
+
+        void record() {
+            NoteMetrics metrics = NoteMetrics.get();
+            metrics.recordValue(NoteMetrics.DB_PAGES, pageCount);
+            metrics.recordValue(NoteMetrics.DB_FREE_PAGES, freePages);
+        }
+
+        @Override
+        public String toString() {
+            return String.format(Locale.ROOT, "%d pages x %d B = %d KiB, %d free (%.1f%%), auto_vacuum=%d",
+                    pageCount, pageSize, getFileBytes() / 1024, freePages, getFreeRatio() * 100, autoVacuum);
+        }
+    }
+}
@@ -0,0 +1,67 @@
+package com.example.mvvmarchitecture;
+
+// *성능 지표 수집 API*
+// 1. 데이터 계층과 UI 계층의 hot path에서 걸린 시간과 값을 이름별로 기록한다.
+// 2. 기본값은 아무것도 하지 않는 NO_OP이므로 릴리스 빌드에서는 비용이 거의 없다.
+// 3. 디버그 빌드나 테스트에서는 install()로 InMemoryNoteMetrics 같은 구현을 끼워 넣는다.
+public abstract class NoteMetrics {
+    // DAO 호출 지연 시간은 이 접두어 뒤에 메서드 이름을 붙인다. 예) dao.getNotesAfter
+    public static final String DAO_PREFIX = "dao.";
+    // NoteSnapshotStore 쿼리(목록, 개수, 검색) 한 번. 이 접두어 뒤에 key의 ':' 앞부분을 붙인다. 예) snapshot.search
+    public static final String SNAPSHOT_PREFIX = "snapshot.";
+    // NoteWriteQueue에 쌓인 변경 개수(enqueue 직후)와 한 번에 커밋한 배치 크기.
+    public static final String WRITE_QUEUE_DEPTH = "writeQueue.depth";
+    public static final String WRITE_BATCH_SIZE = "writeQueue.batchSize";
+    // note_table 무효화부터 새 목록이 메인 스레드에 전달될 때까지.
+    public static final String INVALIDATION_TO_DELIVERY = "list.invalidationToDelivery";
+    // submitList부터 DiffUtil 계산과 반영이 끝날 때까지.
+    public static final String DIFF = "list.diff";
+    // onBindViewHolder 한 번.
+    public static final String BIND = "adapter.bind";
+    // 미리 만든 뷰가 없어 onCreateViewHolder에서 note_item을 메인 스레드로 inflate한 한 번.
+    public static final String ITEM_INFLATE = "adapter.inflate";
+    // Application 시작 시 백그라운드에서 데이터베이스를 열고 검증하는 데 걸린 시간.
+    public static final String DB_WARMUP = "startup.dbWarmup";
+    // MainActivity.onCreate부터 첫 목록이 그려진 프레임까지.
+    public static final String FIRST_LIST_FRAME = "startup.firstListFrame";
+    // NoteMaintenance의 auto_vacuum 전환/ANALYZE와 incremental_vacuum 한 단계, 보관 한 단계, 그리고 끝난 뒤의 파일 크기(페이지 수).
+    public static final String MAINTENANCE_OPTIMIZE = "maintenance.optimize";
+    public static final String MAINTENANCE_VACUUM_STEP = "maintenance.vacuumStep";
+    public static final String MAINTENANCE_ARCHIVE_STEP = "maintenance.archiveStep";
+    public static final String DB_PAGES = "db.pages";
+    public static final String DB_FREE_PAGES = "db.freePages";
+    // NoteSyncEngine.sync 한 번에 걸린 시간, 주고받은 변경 수, 압축된 전송 크기(바이트).
+    public static final String SYNC = "sync.duration";
+    public static final String SYNC_CHANGES = "sync.changes";
+    public static final String SYNC_BYTES_SENT = "sync.bytesSent";
+    public static final String SYNC_BYTES_RECEIVED = "sync.bytesReceived";
+
+    public static final NoteMetrics NO_OP = new NoteMetrics() {
+        @Override
+        public void recordDuration(String name, long nanos) {
+        }
+
+        @Override
+        public void recordValue(String name, long value) {
+        }
+    };
+
+    private static volatile NoteMetrics current = NO_OP;
+
+    public static void install(NoteMetrics metrics) {
+        current = metrics != null ? metrics : NO_OP;
+    }
+
+    public static NoteMetrics get() {
+        return current;
+    }
+
+    // DAO 호출처럼 시작 시각만 들고 있다가 끝날 때 한 줄로 기록할 수 있게 한다.
+    public static void recordSince(String name, long startNanos) {
+        current.recordDuration(name, System.nanoTime() - startNanos);
+    }
+
+    public abstract void recordDuration(String name, long nanos);
+
+    public abstract void recordValue(String name, long value);
+}
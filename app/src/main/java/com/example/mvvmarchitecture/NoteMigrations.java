@@ -0,0 +1,239 @@
+package com.example.mvvmarchitecture;
+
+import android.database.Cursor;
+
+import androidx.annotation.NonNull;
+import androidx.room.migration.Migration;
+import androidx.sqlite.db.SupportSQLiteDatabase;
+
+// *스키마 마이그레이션*
+// 1. NoteDatabase의 version을 올릴 때마다 이전 버전에서 올라오는 Migration을 여기에 추가하고 ALL에 등록한다.
+// 2. Room은 등록된 Migration을 이어서 실행한 뒤, 결과 스키마가 Entity와 일치하는지 검증한다.
+// 3. 각 버전의 스키마는 app/schemas에 JSON으로 남으므로 변경 내용을 리뷰에서 확인할 수 있다.
+final class NoteMigrations {
+    private NoteMigrations() {
+    }
+
+    // 버전 2: 전문 검색용 note_fts 테이블과 note_table과의 동기화 트리거를 추가한다.
+    // 기존 Note들은 'rebuild' 명령으로 한 번에 색인한다.
+    static final Migration MIGRATION_1_2 = new Migration(1, 2) {
+        @Override
+        public void migrate(@NonNull SupportSQLiteDatabase database) {
+            database.execSQL("CREATE VIRTUAL TABLE IF NOT EXISTS `note_fts` USING FTS4(`title` TEXT, `description` TEXT, content=`note_table`)");
+            database.execSQL("CREATE TRIGGER IF NOT EXISTS room_fts_content_sync_note_fts_BEFORE_UPDATE BEFORE UPDATE ON `note_table` BEGIN DELETE FROM `note_fts` WHERE `docid`=OLD.`rowid`; END");
+            database.execSQL("CREATE TRIGGER IF NOT EXISTS room_fts_content_sync_note_fts_BEFORE_DELETE BEFORE DELETE ON `note_table` BEGIN DELETE FROM `note_fts` WHERE `docid`=OLD.`rowid`; END");
+            database.execSQL("CREATE TRIGGER IF NOT EXISTS room_fts_content_sync_note_fts_AFTER_UPDATE AFTER UPDATE ON `note_table` BEGIN INSERT INTO `note_fts`(`docid`, `title`, `description`) VALUES (NEW.`rowid`, NEW.`title`, NEW.`description`); END");
+            database.execSQL("CREATE TRIGGER IF NOT EXISTS room_fts_content_sync_note_fts_AFTER_INSERT AFTER INSERT ON `note_table` BEGIN INSERT INTO `note_fts`(`docid`, `title`, `description`) VALUES (NEW.`rowid`, NEW.`title`, NEW.`description`); END");
+            database.execSQL("INSERT INTO `note_fts`(`note_fts`) VALUES('rebuild')");
+        }
+    };
+
+    // 버전 3: 목록 정렬(priority DESC, id DESC)과 keyset 페이징이 사용할 (priority, id) 인덱스를 추가한다.
+    // 인덱스가 없으면 목록을 읽을 때마다 임시 B-tree로 전체 테이블을 정렬한다.
+    static final Migration MIGRATION_2_3 = new Migration(2, 3) {
+        @Override
+        public void migrate(@NonNull SupportSQLiteDatabase database) {
+            database.execSQL("CREATE INDEX IF NOT EXISTS `index_note_table_priority_id` ON `note_table` (`priority`, `id`)");
+        }
+    };
+
+    // NotePriorityCount를 맞추는 트리거. Room은 이 트리거를 모르므로 마이그레이션과 새로 만드는 경우
+    // (NoteDatabase.CALLBACK, app/seed/note_seed.sql) 모두에서 직접 만든다.
+    // 오래된 기기의 SQLite에는 UPSERT가 없어 INSERT OR IGNORE 후 UPDATE한다. 모두 기본 키로 찾는다.
+    static final String[] PRIORITY_COUNT_TRIGGERS = {
+            "CREATE TRIGGER IF NOT EXISTS note_priority_count_AFTER_INSERT AFTER INSERT ON `note_table` BEGIN " +
+                    "INSERT OR IGNORE INTO `note_priority_count`(`priority`, `note_count`) VALUES (NEW.`priority`, 0); " +
+                    "UPDATE `note_priority_count` SET `note_count` = `note_count` + 1 WHERE `priority` = NEW.`priority`; END",
+            "CREATE TRIGGER IF NOT EXISTS note_priority_count_AFTER_DELETE AFTER DELETE ON `note_table` BEGIN " +
+                    "UPDATE `note_priority_count` SET `note_count` = `note_count` - 1 WHERE `priority` = OLD.`priority`; " +
+                    "DELETE FROM `note_priority_count` WHERE `priority` = OLD.`priority` AND `note_count` <= 0; END",
+            "CREATE TRIGGER IF NOT EXISTS note_priority_count_AFTER_UPDATE AFTER UPDATE OF `priority` ON `note_table` " +
+                    "WHEN OLD.`priority` <> NEW.`priority` BEGIN " +
+                    "UPDATE `note_priority_count` SET `note_count` = `note_count` - 1 WHERE `priority` = OLD.`priority`; " +
+                    "DELETE FROM `note_priority_count` WHERE `priority` = OLD.`priority` AND `note_count` <= 0; " +
+                    "INSERT OR IGNORE INTO `note_priority_count`(`priority`, `note_count`) VALUES (NEW.`priority`, 0); " +
+                    "UPDATE `note_priority_count` SET `note_count` = `note_count` + 1 WHERE `priority` = NEW.`priority`; END"
+    };
+
+    static void createPriorityCountTriggers(SupportSQLiteDatabase database) {
+        for (String sql : PRIORITY_COUNT_TRIGGERS) {
+            database.execSQL(sql);
+        }
+    }
+
+    // 버전 4: priority별 개수 요약 테이블과 트리거를 추가하고 기존 Note로 한 번 채운다.
+    static final Migration MIGRATION_3_4 = new Migration(3, 4) {
+        @Override
+        public void migrate(@NonNull SupportSQLiteDatabase database) {
+            database.execSQL("CREATE TABLE IF NOT EXISTS `note_priority_count` (`priority` INTEGER NOT NULL, `note_count` INTEGER NOT NULL, PRIMARY KEY(`priority`))");
+            database.execSQL("INSERT INTO `note_priority_count`(`priority`, `note_count`) " +
+                    "SELECT `priority`, count(*) FROM `note_table` GROUP BY `priority`");
+            createPriorityCountTriggers(database);
+        }
+    };
+
+    // 버전 5: 긴 description을 압축해 둘 컬럼을 추가한다(NoteCompression).
+    // 기존 행은 description_format이 0(FORMAT_PLAIN)이 되어 그대로 읽히고, 다음에 수정될 때 압축된다.
+    static final Migration MIGRATION_4_5 = new Migration(4, 5) {
+        @Override
+        public void migrate(@NonNull SupportSQLiteDatabase database) {
+            database.execSQL("ALTER TABLE `note_table` ADD COLUMN `description_blob` BLOB");
+            database.execSQL("ALTER TABLE `note_table` ADD COLUMN `description_format` INTEGER NOT NULL DEFAULT 0");
+        }
+    };
+
+    // NoteSync를 맞추는 트리거. PRIORITY_COUNT_TRIGGERS처럼 새로 만드는 경우에도 직접 만든다.
+    // 모두 sync_id(기본 키)로 찾는다. 지울 때의 시각은 SQLite의 현재 시각을 ms로 바꿔 남긴다.
+    static final String[] SYNC_TRIGGERS = {
+            "CREATE TRIGGER IF NOT EXISTS note_sync_AFTER_INSERT AFTER INSERT ON `note_table` BEGIN " +
+                    "INSERT OR IGNORE INTO `note_sync`(`sync_id`, `note_id`, `version`, `revision`, `dirty`, `deleted`, `changed_at`) " +
+                    "VALUES (NEW.`sync_id`, NEW.`id`, 0, 0, 0, 0, 0); " +
+                    "UPDATE `note_sync` SET `note_id` = NEW.`id`, `revision` = `revision` + 1, `dirty` = 1, `deleted` = 0, " +
+                    "`changed_at` = NEW.`updated_at` WHERE `sync_id` = NEW.`sync_id`; END",
+            "CREATE TRIGGER IF NOT EXISTS note_sync_AFTER_UPDATE AFTER UPDATE ON `note_table` BEGIN " +
+                    "UPDATE `note_sync` SET `revision` = `revision` + 1, `dirty` = 1, `changed_at` = NEW.`updated_at` " +
+                    "WHERE `sync_id` = NEW.`sync_id`; END",
+            "CREATE TRIGGER IF NOT EXISTS note_sync_AFTER_DELETE AFTER DELETE ON `note_table` BEGIN " +
+                    "UPDATE `note_sync` SET `note_id` = NULL, `revision` = `revision` + 1, `dirty` = 1, `deleted` = 1, " +
+                    "`changed_at` = CAST((julianday('now') - 2440587.5) * 86400000 AS INTEGER) " +
+                    "WHERE `sync_id` = OLD.`sync_id`; END"
+    };
+
+    static void createSyncTriggers(SupportSQLiteDatabase database) {
+        for (String sql : SYNC_TRIGGERS) {
+            database.execSQL(sql);
+        }
+    }
+
+    // 버전 6: 동기화용 sync_id/updated_at 컬럼과 note_sync 테이블, 트리거를 추가한다.
+    // 기존 Note는 sync_id를 새로 받고, 첫 동기화 때 모두 올라가도록 dirty로 표시한다.
+    static final Migration MIGRATION_5_6 = new Migration(5, 6) {
+        @Override
+        public void migrate(@NonNull SupportSQLiteDatabase database) {
+            database.execSQL("ALTER TABLE `note_table` ADD COLUMN `sync_id` TEXT");
+            database.execSQL("ALTER TABLE `note_table` ADD COLUMN `updated_at` INTEGER NOT NULL DEFAULT 0");
+            database.execSQL("UPDATE `note_table` SET `sync_id` = lower(hex(randomblob(16)))");
+            database.execSQL("CREATE UNIQUE INDEX IF NOT EXISTS `index_note_table_sync_id` ON `note_table` (`sync_id`)");
+            database.execSQL("CREATE TABLE IF NOT EXISTS `note_sync` (`sync_id` TEXT NOT NULL, `note_id` INTEGER, " +
+                    "`version` INTEGER NOT NULL, `revision` INTEGER NOT NULL, `dirty` INTEGER NOT NULL, " +
+                    "`deleted` INTEGER NOT NULL, `changed_at` INTEGER NOT NULL, PRIMARY KEY(`sync_id`))");
+            database.execSQL("CREATE INDEX IF NOT EXISTS `index_note_sync_dirty` ON `note_sync` (`dirty`)");
+            database.execSQL("INSERT INTO `note_sync`(`sync_id`, `note_id`, `version`, `revision`, `dirty`, `deleted`, `changed_at`) " +
+                    "SELECT `sync_id`, `id`, 0, 1, 1, 0, 0 FROM `note_table`");
+            createSyncTriggers(database);
+        }
+    };
+
+    // *FTS 색인 트리거*
+    // 1. note_fts는 title과 description만 담는다. Room이 만드는 UPDATE 트리거는 어떤 컬럼을 바꿔도
+    //    색인을 지웠다가 다시 넣으므로, priority만 바꿔도 FTS 페이지를 쓴다.
+    // 2. 두 컬럼이 SET에 있을 때만 실행되는 트리거로 바꾼다(NoteDao.updateChangedColumns와 함께 쓴다).
+    // 3. Room은 마이그레이션이 끝날 때마다 자기 트리거(room_fts_content_sync_*)를 다시 만들므로,
+    //    마이그레이션이 아니라 데이터베이스를 열 때마다(NoteDatabase.CALLBACK.onOpen) 바꾼다.
+    //    이미 바꿔 둔 경우에는 DROP IF EXISTS와 CREATE IF NOT EXISTS라 아무것도 쓰지 않는다.
+    static final String[] FTS_UPDATE_TRIGGERS = {
+            "DROP TRIGGER IF EXISTS room_fts_content_sync_note_fts_BEFORE_UPDATE",
+            "DROP TRIGGER IF EXISTS room_fts_content_sync_note_fts_AFTER_UPDATE",
+            "CREATE TRIGGER IF NOT EXISTS note_fts_BEFORE_UPDATE BEFORE UPDATE OF `title`, `description` ON `note_table` " +
+                    "BEGIN DELETE FROM `note_fts` WHERE `docid`=OLD.`rowid`; END",
+            "CREATE TRIGGER IF NOT EXISTS note_fts_AFTER_UPDATE AFTER UPDATE OF `title`, `description` ON `note_table` " +
+                    "BEGIN INSERT INTO `note_fts`(`docid`, `title`, `description`) VALUES (NEW.`rowid`, NEW.`title`, NEW.`description`); END"
+    };
+
+    static void replaceFtsUpdateTriggers(SupportSQLiteDatabase database) {
+        for (String sql : FTS_UPDATE_TRIGGERS) {
+            database.execSQL(sql);
+        }
+    }
+
+    // 버전 7: 편집 화면의 저장하지 않은 초안을 담는 note_draft 테이블을 추가한다.
+    static final Migration MIGRATION_6_7 = new Migration(6, 7) {
+        @Override
+        public void migrate(@NonNull SupportSQLiteDatabase database) {
+            database.execSQL("CREATE TABLE IF NOT EXISTS `note_draft` (`note_id` INTEGER NOT NULL, `title` TEXT, " +
+                    "`description` TEXT, `priority` INTEGER NOT NULL, `saved_at` INTEGER NOT NULL, PRIMARY KEY(`note_id`))");
+        }
+    };
+
+    // 보관(NoteDao.archiveChunk)과 되돌리기(NoteDao.restoreArchived)는 한쪽 테이블에 복사한 뒤 다른 쪽에서 지운다.
+    // 1. note_table에서 지울 때 같은 id가 note_archive에 있으면 옮긴 것이므로 tombstone을 남기지 않는다.
+    // 2. note_archive에서 지울 때 같은 id가 note_table에 없으면 보관된 Note를 지운 것이므로 tombstone을 남긴다.
+    // 두 테이블 모두 id(기본 키)로 찾는다. 버전 6의 SYNC_TRIGGERS는 MIGRATION_5_6이 그대로 쓰고, 그 뒤에 이것으로 바꾼다.
+    static final String[] ARCHIVE_SYNC_TRIGGERS = {
+            "DROP TRIGGER IF EXISTS note_sync_AFTER_DELETE",
+            "CREATE TRIGGER IF NOT EXISTS note_sync_AFTER_DELETE AFTER DELETE ON `note_table` " +
+                    "WHEN NOT EXISTS (SELECT 1 FROM `note_archive` WHERE `id` = OLD.`id`) BEGIN " +
+                    "UPDATE `note_sync` SET `note_id` = NULL, `revision` = `revision` + 1, `dirty` = 1, `deleted` = 1, " +
+                    "`changed_at` = CAST((julianday('now') - 2440587.5) * 86400000 AS INTEGER) " +
+                    "WHERE `sync_id` = OLD.`sync_id`; END",
+            "CREATE TRIGGER IF NOT EXISTS note_archive_sync_AFTER_DELETE AFTER DELETE ON `note_archive` " +
+                    "WHEN NOT EXISTS (SELECT 1 FROM `note_table` WHERE `id` = OLD.`id`) BEGIN " +
+                    "UPDATE `note_sync` SET `note_id` = NULL, `revision` = `revision` + 1, `dirty` = 1, `deleted` = 1, " +
+                    "`changed_at` = CAST((julianday('now') - 2440587.5) * 86400000 AS INTEGER) " +
+                    "WHERE `sync_id` = OLD.`sync_id`; END"
+    };
+
+    static void createArchiveSyncTriggers(SupportSQLiteDatabase database) {
+        for (String sql : ARCHIVE_SYNC_TRIGGERS) {
+            database.execSQL(sql);
+        }
+    }
+
+    // 버전 8: 오래된 Note를 옮겨 둘 note_archive와 그 FTS 색인, sync 트리거를 추가한다.
+    // 기존 Note는 모두 note_table에 남고, 다음 유지 보수(NoteMaintenance) 때 NoteArchivePolicy에 따라 옮겨진다.
+    static final Migration MIGRATION_7_8 = new Migration(7, 8) {
+        @Override
+        public void migrate(@NonNull SupportSQLiteDatabase database) {
+            database.execSQL("CREATE TABLE IF NOT EXISTS `note_archive` (`id` INTEGER NOT NULL, `title` TEXT, " +
+                    "`description` TEXT, `priority` INTEGER NOT NULL, `description_blob` BLOB, " +
+                    "`description_format` INTEGER NOT NULL, `sync_id` TEXT, `updated_at` INTEGER NOT NULL, " +
+                    "`archived_at` INTEGER NOT NULL, PRIMARY KEY(`id`))");
+            database.execSQL("CREATE VIRTUAL TABLE IF NOT EXISTS `note_archive_fts` USING FTS4(`title` TEXT, `description` TEXT, content=`note_archive`)");
+            database.execSQL("CREATE TRIGGER IF NOT EXISTS room_fts_content_sync_note_archive_fts_BEFORE_UPDATE BEFORE UPDATE ON `note_archive` BEGIN DELETE FROM `note_archive_fts` WHERE `docid`=OLD.`rowid`; END");
+            database.execSQL("CREATE TRIGGER IF NOT EXISTS room_fts_content_sync_note_archive_fts_BEFORE_DELETE BEFORE DELETE ON `note_archive` BEGIN DELETE FROM `note_archive_fts` WHERE `docid`=OLD.`rowid`; END");
+            database.execSQL("CREATE TRIGGER IF NOT EXISTS room_fts_content_sync_note_archive_fts_AFTER_UPDATE AFTER UPDATE ON `note_archive` BEGIN INSERT INTO `note_archive_fts`(`docid`, `title`, `description`) VALUES (NEW.`rowid`, NEW.`title`, NEW.`description`); END");
+            database.execSQL("CREATE TRIGGER IF NOT EXISTS room_fts_content_sync_note_archive_fts_AFTER_INSERT AFTER INSERT ON `note_archive` BEGIN INSERT INTO `note_archive_fts`(`docid`, `title`, `description`) VALUES (NEW.`rowid`, NEW.`title`, NEW.`description`); END");
+            createArchiveSyncTriggers(database);
+        }
+    };
+
+    // 버전 9: 압축된 Note의 description 컬럼을 앞부분만이 아니라 NoteCompression.indexedText로 다시 채운다.
+    // 스키마는 그대로이고, FTS 트리거가 새 값으로 다시 색인해 앞부분 뒤의 단어로도 검색된다.
+    // 내용은 바뀌지 않았으므로 동기화 UPDATE 트리거를 잠시 빼 두어 Note가 다시 올라가지 않게 한다.
+    static final Migration MIGRATION_8_9 = new Migration(8, 9) {
+        @Override
+        public void migrate(@NonNull SupportSQLiteDatabase database) {
+            database.execSQL("DROP TRIGGER IF EXISTS note_sync_AFTER_UPDATE");
+            reindexCompressed(database, "note_table");
+            reindexCompressed(database, "note_archive");
+            // SYNC_TRIGGERS의 note_sync_AFTER_UPDATE를 되살린다.
+            database.execSQL(SYNC_TRIGGERS[1]);
+        }
+    };
+
+    // WHERE 조건(description_format)은 바꾸지 않으므로 읽는 도중에 UPDATE해도 건너뛰거나 두 번 읽는 행이 없다.
+    private static void reindexCompressed(SupportSQLiteDatabase database, String table) {
+        Cursor cursor = database.query("SELECT id, description_blob FROM `" + table + "` WHERE description_format = "
+                + NoteCompression.FORMAT_DEFLATE);
+        try {
+            while (cursor.moveToNext()) {
+                String text = NoteCompression.indexedText(NoteCompression.inflate(cursor.getBlob(1)));
+                database.execSQL("UPDATE `" + table + "` SET description = ? WHERE id = ?",
+                        new Object[]{text, cursor.getInt(0)});
+            }
+        } finally {
+            cursor.close();
+        }
+    }
+
+    static final Migration[] ALL = {
+            MIGRATION_1_2,
+            MIGRATION_2_3,
+            MIGRATION_3_4,
+            MIGRATION_4_5,
+            MIGRATION_5_6,
+            MIGRATION_6_7,
+            MIGRATION_7_8,
+            MIGRATION_8_9
+    };
+}
@@ -0,0 +1,290 @@
+package com.example.mvvmarchitecture;
+
+import androidx.annotation.Nullable;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+// *낙관적 반영(Optimistic Update)*
+// 1. NoteRepository는 쓰기를 NoteWriteQueue에 넣는 순간 여기에도 기록하고, 목록 DataSource를 바로 무효화한다.
+// 2. 새 DataSource는 DB에서 읽은 페이지에 아직 커밋되지 않은 변경을 덧씌워 보여준다.
+//    다시 읽는 양은 페이지 하나뿐이라 테이블이 커져도 변경이 바로 화면에 보인다.
+// 3. 배치가 커밋되면 그 변경은 이제 DB에 있으므로 지우고, 실패하면 지운 뒤 다시 읽어 DB 상태로 되돌린다.
+// 4. 아직 id가 없는 새 Note는 음수 임시 id로 보여주고, 같은 priority 안에서 맨 위(가장 큰 id 자리)에 둔다.
+//    커밋되면 실제 id를 가진 행으로 바뀐다.
+// 5. 여러 Note의 priority 바꾸기는 쓰기 큐를 거치지 않으므로 id별 새 priority와 요청 token으로 따로 기록한다.
+//    목록 행 전체를 모르므로 DB에서 읽힌 행의 priority를 바꿔 새 자리에 두고, 그 행을 기억해 다른 페이지에도 끼워 넣는다.
+class NoteOverlay {
+    interface Listener {
+        void onOverlayChanged();
+    }
+
+    // 목록 순서(priority DESC, id DESC). 임시 id는 어떤 실제 id보다도 큰 값으로 본다.
+    static final Comparator<NoteListItem> LIST_ORDER = new Comparator<NoteListItem>() {
+        @Override
+        public int compare(NoteListItem a, NoteListItem b) {
+            if (a.getPriority() != b.getPriority()) {
+                return a.getPriority() > b.getPriority() ? -1 : 1;
+            }
+            long keyA = sortKey(a.getId());
+            long keyB = sortKey(b.getId());
+            return keyA == keyB ? 0 : (keyA > keyB ? -1 : 1);
+        }
+    };
+
+    private final List<Listener> listeners = new CopyOnWriteArrayList<>();
+
+    // 아래 필드는 모두 lock(this)으로 보호한다.
+    // 아직 커밋되지 않은 insert. Note는 equals를 재정의하지 않으므로 객체 자체로 찾는다.
+    private final Map<Note, NoteListItem> inserts = new LinkedHashMap<>();
+    // id별 마지막 update와 그 Note. 배치에 같은 Note 객체가 들어 있을 때만 지운다.
+    private final Map<Integer, Note> updates = new HashMap<>();
+    private final Map<Integer, NoteListItem> updatedItems = new HashMap<>();
+    private final Set<Integer> deletes = new HashSet<>();
+    // 커밋되지 않은 priority 바꾸기. 같은 id를 다시 바꾸면 나중 요청의 token만 남는다.
+    private final Map<Integer, Integer> priorities = new HashMap<>();
+    private final Map<Integer, Object> priorityTokens = new HashMap<>();
+    // priority를 바꿔 덧씌운 DB 행. 처음 읽힌 뒤로는 어느 페이지를 읽든 새 자리에 둔다.
+    private final Map<Integer, NoteListItem> movedItems = new HashMap<>();
+    // 아직 커밋되지 않은 deleteAll 개수. 0보다 크면 DB의 행은 모두 숨긴다.
+    private int pendingDeleteAll;
+    private int nextTemporaryId = -1;
+
+    static boolean isTemporary(int id) {
+        return id < 0;
+    }
+
+    // DB 쿼리의 keyset 기준으로 쓸 id. 임시 id는 그 priority의 모든 실제 행보다 앞에 있다.
+    static int queryId(NoteListItem item) {
+        return isTemporary(item.getId()) ? Integer.MAX_VALUE : item.getId();
+    }
+
+    private static long sortKey(int id) {
+        // -1, -2, ... 순으로 만들어지므로 나중에 넣은 Note가 더 위에 온다.
+        return isTemporary(id) ? (long) Integer.MAX_VALUE - id : id;
+    }
+
+    void addListener(Listener listener) {
+        listeners.add(listener);
+    }
+
+    void removeListener(Listener listener) {
+        listeners.remove(listener);
+    }
+
+    void insert(Note note) {
+        synchronized (this) {
+            inserts.put(note, toItem(nextTemporaryId--, note));
+        }
+        notifyChanged();
+    }
+
+    void update(Note note) {
+        synchronized (this) {
+            if (deletes.contains(note.getId())) {
+                return;
+            }
+            updates.put(note.getId(), note);
+            updatedItems.put(note.getId(), toItem(note.getId(), note));
+            // 편집에 담긴 priority가 더 나중 값이다.
+            clearPriority(note.getId());
+        }
+        notifyChanged();
+    }
+
+    // token은 resolvePriority에 같은 것을 넘겨 이 요청이 기록한 것만 지우게 한다.
+    void updatePriority(Collection<Integer> ids, int priority, Object token) {
+        synchronized (this) {
+            for (Integer id : ids) {
+                if (deletes.contains(id)) {
+                    continue;
+                }
+                priorities.put(id, priority);
+                priorityTokens.put(id, token);
+                movedItems.remove(id);
+                NoteListItem updated = updatedItems.get(id);
+                if (updated != null) {
+                    updatedItems.put(id, withPriority(updated, priority));
+                }
+            }
+        }
+        notifyChanged();
+    }
+
+    // priority 바꾸기가 커밋되었거나 실패했을 때 부른다.
+    void resolvePriority(Collection<Integer> ids, Object token) {
+        synchronized (this) {
+            for (Integer id : ids) {
+                if (priorityTokens.get(id) == token) {
+                    priorities.remove(id);
+                    priorityTokens.remove(id);
+                    movedItems.remove(id);
+                }
+            }
+        }
+        notifyChanged();
+    }
+
+    void delete(int id) {
+        synchronized (this) {
+            updates.remove(id);
+            updatedItems.remove(id);
+            clearPriority(id);
+            deletes.add(id);
+        }
+        notifyChanged();
+    }
+
+    // 여러 Note를 지워도 목록은 한 번만 다시 읽는다.
+    void delete(Collection<Integer> ids) {
+        synchronized (this) {
+            for (Integer id : ids) {
+                updates.remove(id);
+                updatedItems.remove(id);
+                clearPriority(id);
+            }
+            deletes.addAll(ids);
+        }
+        notifyChanged();
+    }
+
+    // NoteWriteQueue.deleteAll처럼 커밋 전 변경은 버린다. 이미 커밋 중인 배치는 끝나면 알아서 빠진다.
+    void deleteAll() {
+        synchronized (this) {
+            pendingDeleteAll++;
+            inserts.clear();
+            updates.clear();
+            updatedItems.clear();
+            deletes.clear();
+            priorities.clear();
+            priorityTokens.clear();
+            movedItems.clear();
+        }
+        notifyChanged();
+    }
+
+    // 배치가 커밋되었거나 실패했을 때 그 배치가 가져간 변경을 지우고 목록을 다시 읽게 한다.
+    void resolve(NoteWriteQueue.Batch batch) {
+        synchronized (this) {
+            if (batch.deleteAll && pendingDeleteAll > 0) {
+                pendingDeleteAll--;
+            }
+            for (Note note : batch.inserts) {
+                inserts.remove(note);
+            }
+            for (Note note : batch.updates) {
+                if (updates.get(note.getId()) == note) {
+                    updates.remove(note.getId());
+                    updatedItems.remove(note.getId());
+                }
+            }
+            deletes.removeAll(batch.deleteIds);
+        }
+        notifyChanged();
+    }
+
+    synchronized boolean isEmpty() {
+        return pendingDeleteAll == 0 && inserts.isEmpty() && updates.isEmpty() && deletes.isEmpty()
+                && priorities.isEmpty();
+    }
+
+    // deleteAll이 커밋 전이면 DB를 읽을 필요가 없다.
+    synchronized boolean hidesAllRows() {
+        return pendingDeleteAll > 0;
+    }
+
+    // DB에서 읽은 한 구간(목록 순서)에 변경을 덧씌운다.
+    // from/to는 이 구간의 앞뒤 경계이고 null이면 목록의 처음/끝까지 열려 있다.
+    // 경계 안에 들어오는 insert, update만 끼워 넣으므로 같은 변경이 두 페이지에 중복되지 않는다.
+    List<NoteListItem> apply(List<NoteListItem> rows,
+                             @Nullable NoteListItem from, boolean fromInclusive,
+                             @Nullable NoteListItem to, boolean toInclusive) {
+        synchronized (this) {
+            if (isEmpty()) {
+                return rows;
+            }
+            List<NoteListItem> result = new ArrayList<>(rows.size() + inserts.size() + updatedItems.size());
+            if (pendingDeleteAll == 0) {
+                for (NoteListItem row : rows) {
+                    Integer priority = priorities.get(row.getId());
+                    if (deletes.contains(row.getId()) || updatedItems.containsKey(row.getId())) {
+                        continue;
+                    }
+                    if (priority != null) {
+                        movedItems.put(row.getId(), withPriority(row, priority));
+                    } else {
+                        result.add(row);
+                    }
+                }
+            }
+            for (NoteListItem item : movedItems.values()) {
+                if (!updatedItems.containsKey(item.getId()) && within(item, from, fromInclusive, to, toInclusive)) {
+                    result.add(item);
+                }
+            }
+            for (NoteListItem item : updatedItems.values()) {
+                if (within(item, from, fromInclusive, to, toInclusive)) {
+                    result.add(item);
+                }
+            }
+            for (NoteListItem item : inserts.values()) {
+                if (within(item, from, fromInclusive, to, toInclusive)) {
+                    result.add(item);
+                }
+            }
+            Collections.sort(result, LIST_ORDER);
+            return result;
+        }
+    }
+
+    private static boolean within(NoteListItem item,
+                                  @Nullable NoteListItem from, boolean fromInclusive,
+                                  @Nullable NoteListItem to, boolean toInclusive) {
+        if (from != null) {
+            int c = LIST_ORDER.compare(from, item);
+            if (c > 0 || (c == 0 && !fromInclusive)) {
+                return false;
+            }
+        }
+        if (to != null) {
+            int c = LIST_ORDER.compare(item, to);
+            if (c > 0 || (c == 0 && !toInclusive)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    // lock(this) 안에서 부른다.
+    private void clearPriority(int id) {
+        priorities.remove(id);
+        priorityTokens.remove(id);
+        movedItems.remove(id);
+    }
+
+    private static NoteListItem withPriority(NoteListItem item, int priority) {
+        return new NoteListItem(item.getId(), item.getTitle(), priority, item.getPreview());
+    }
+
+    private static NoteListItem toItem(int id, Note note) {
+        String description = note.getDescription();
+        String preview = description != null && description.length() > NoteDao.PREVIEW_LENGTH
+                ? description.substring(0, NoteDao.PREVIEW_LENGTH) : description;
+        return new NoteListItem(id, note.getTitle(), note.getPriority(), preview);
+    }
+
+    private void notifyChanged() {
+        for (Listener listener : listeners) {
+            listener.onOverlayChanged();
+        }
+    }
+}
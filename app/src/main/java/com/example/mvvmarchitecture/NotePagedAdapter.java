@@ -0,0 +1,112 @@
+package com.example.mvvmarchitecture;
+
+import android.view.View;
+import android.view.ViewGroup;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import androidx.paging.PagedList;
+import androidx.paging.PagedListAdapter;
+import androidx.recyclerview.selection.SelectionTracker;
+import androidx.recyclerview.widget.RecyclerView;
+
+import java.util.Collections;
+import java.util.List;
+
+// 1. NoteAdapter와 같은 뷰홀더, DiffUtil을 사용하지만 List 대신 PagedList를 받는다.
+// 2. PagedList는 RecyclerView가 끝에 가까워지면 다음 페이지를 DataSource에서 알아서 읽어온다.
+// 3. placeholder를 끄고 있으므로 getItem()은 항상 이미 읽어온 NoteListItem을 반환한다.
+// 4. SelectionTracker로 여러 Note를 고를 수 있다. key는 stable id(Note id)라 페이지가 바뀌어도 선택이 유지된다.
+// 5. 항목 뷰는 NoteItemViews에서 받는다. MainActivity가 시작할 때 백그라운드에서 미리 inflate해 둔다.
+public class NotePagedAdapter extends PagedListAdapter<NoteListItem, NoteAdapter.NoteHolder> {
+    private NoteAdapter.OnItemClickListener listener;
+    private NoteItemViews itemViews = new NoteItemViews();
+    @Nullable
+    private SelectionTracker<Long> selectionTracker;
+    private long submittedAtNanos;
+
+    public NotePagedAdapter() {
+        super(NoteAdapter.DIFF_CALLBACK);
+        setHasStableIds(true);
+    }
+
+    public void setItemViews(@NonNull NoteItemViews itemViews) {
+        this.itemViews = itemViews;
+    }
+
+    @NonNull
+    @Override
+    public NoteAdapter.NoteHolder onCreateViewHolder(@NonNull ViewGroup parent, int viewType) {
+        View itemView = itemViews.obtain(parent);
+        final NoteAdapter.NoteHolder holder = new NoteAdapter.NoteHolder(itemView);
+        itemView.setOnClickListener(new View.OnClickListener() {
+            @Override
+            public void onClick(View v) {
+                int position = holder.getAdapterPosition();
+                // 고르는 중의 탭은 SelectionTracker가 선택을 바꾸는 데 쓴다.
+                if (selectionTracker != null && selectionTracker.hasSelection()) {
+                    return;
+                }
+                if (listener != null && position != RecyclerView.NO_POSITION) {
+                    NoteListItem note = getItem(position);
+                    if (note != null) {
+                        listener.onItemClick(note);
+                    }
+                }
+            }
+        });
+        return holder;
+    }
+
+    @Override
+    public void onBindViewHolder(@NonNull NoteAdapter.NoteHolder holder, int position) {
+        onBindViewHolder(holder, position, Collections.<Object>emptyList());
+    }
+
+    // payload가 있으면 NoteAdapter.getChangePayload가 알려준 필드만 다시 설정한다.
+    @Override
+    public void onBindViewHolder(@NonNull NoteAdapter.NoteHolder holder, int position, @NonNull List<Object> payloads) {
+        NoteListItem currentNote = getItem(position);
+        if (currentNote != null) {
+            long start = System.nanoTime();
+            holder.bind(currentNote, NoteAdapter.changes(payloads));
+            holder.bindSelection(selectionTracker != null && selectionTracker.isSelected((long) currentNote.getId()));
+            NoteMetrics.recordSince(NoteMetrics.BIND, start);
+        }
+    }
+
+    // getItem()과 달리 다음 페이지 로드를 일으키지 않도록 PagedList에서 바로 읽는다.
+    @Override
+    public long getItemId(int position) {
+        PagedList<NoteListItem> list = getCurrentList();
+        NoteListItem note = list != null ? list.get(position) : null;
+        return note != null ? note.getId() : RecyclerView.NO_ID;
+    }
+
+    @Override
+    public void submitList(@Nullable PagedList<NoteListItem> pagedList) {
+        submittedAtNanos = System.nanoTime();
+        super.submitList(pagedList);
+    }
+
+    // 페이지가 이어 붙을 때는 호출되지 않고, 무효화로 새 PagedList가 들어와 diff가 끝났을 때만 호출된다.
+    @Override
+    public void onCurrentListChanged(@Nullable PagedList<NoteListItem> previousList, @Nullable PagedList<NoteListItem> currentList) {
+        if (submittedAtNanos != 0) {
+            NoteMetrics.recordSince(NoteMetrics.DIFF, submittedAtNanos);
+            submittedAtNanos = 0;
+        }
+    }
+
+    public NoteListItem getNoteAt(int position) {
+        return getItem(position);
+    }
+
+    public void setSelectionTracker(@Nullable SelectionTracker<Long> selectionTracker) {
+        this.selectionTracker = selectionTracker;
+    }
+
+    public void setOnItemClickListener(NoteAdapter.OnItemClickListener listener) {
+        this.listener = listener;
+    }
+}
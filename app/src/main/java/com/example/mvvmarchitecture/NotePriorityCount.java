@@ -0,0 +1,43 @@
+package com.example.mvvmarchitecture;
+
+import androidx.room.ColumnInfo;
+import androidx.room.Entity;
+import androidx.room.PrimaryKey;
+
+// *priority별 개수 요약 테이블*
+// 1. note_table의 INSERT/UPDATE/DELETE 트리거(NoteMigrations.PRIORITY_COUNT_TRIGGERS)가 행마다 값을 맞춘다.
+//    쓰기 한 번에 priority 행 한두 개만 고치므로 Note가 많아져도 비용이 일정하다.
+// 2. 목록 헤더와 priority 필터는 전체 Note를 세지 않고 이 테이블만 읽는다.
+// 3. 개수가 0이 된 priority의 행은 지운다.
+@Entity(tableName = "note_priority_count")
+public class NotePriorityCount {
+    @PrimaryKey
+    private int priority;
+
+    @ColumnInfo(name = "note_count")
+    private int count;
+
+    public NotePriorityCount(int priority, int count) {
+        this.priority = priority;
+        this.count = count;
+    }
+
+    public int getPriority() {
+        return priority;
+    }
+
+    public int getCount() {
+        return count;
+    }
+
+    // counts 중 range에 들어가는 Note 개수. priority 종류만큼만 더하면 된다.
+    static int sum(Iterable<NotePriorityCount> counts, NotePriorityRange range) {
+        int total = 0;
+        for (NotePriorityCount count : counts) {
+            if (range.contains(count.getPriority())) {
+                total += count.getCount();
+            }
+        }
+        return total;
+    }
+}
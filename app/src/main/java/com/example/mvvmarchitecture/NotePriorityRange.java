@@ -0,0 +1,72 @@
+package com.example.mvvmarchitecture;
+
+import java.util.ArrayList;
+import java.util.List;
+
+// 목록에 보여줄 priority 구간(양끝 포함). 목록 쿼리의 WHERE priority BETWEEN :min AND :max로 그대로 내려간다.
+public final class NotePriorityRange {
+    public static final NotePriorityRange ALL = new NotePriorityRange(Integer.MIN_VALUE, Integer.MAX_VALUE);
+
+    private final int min;
+    private final int max;
+
+    public NotePriorityRange(int min, int max) {
+        if (min > max) {
+            throw new IllegalArgumentException("min > max: " + min + " > " + max);
+        }
+        this.min = min;
+        this.max = max;
+    }
+
+    public int getMin() {
+        return min;
+    }
+
+    public int getMax() {
+        return max;
+    }
+
+    public boolean isAll() {
+        return min == Integer.MIN_VALUE && max == Integer.MAX_VALUE;
+    }
+
+    public boolean contains(int priority) {
+        return priority >= min && priority <= max;
+    }
+
+    // NoteOverlay가 덧씌운 커밋 전 Note 중 구간 밖의 것을 걸러낸다. DB에서 읽은 행은 이미 구간 안에 있다.
+    List<NoteListItem> retain(List<NoteListItem> items) {
+        if (isAll()) {
+            return items;
+        }
+        List<NoteListItem> result = new ArrayList<>(items.size());
+        for (NoteListItem item : items) {
+            if (contains(item.getPriority())) {
+                result.add(item);
+            }
+        }
+        return result;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (!(o instanceof NotePriorityRange)) {
+            return false;
+        }
+        NotePriorityRange other = (NotePriorityRange) o;
+        return min == other.min && max == other.max;
+    }
+
+    @Override
+    public int hashCode() {
+        return 31 * min + max;
+    }
+
+    @Override
+    public String toString() {
+        return isAll() ? "all" : min + "-" + max;
+    }
+}
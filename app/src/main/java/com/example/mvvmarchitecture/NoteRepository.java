@@ -1,97 +1,637 @@
 package com.example.mvvmarchitecture;
 
 import android.app.Application;
-import android.os.AsyncTask;
+import android.content.Context;
+import android.database.Cursor;
+import android.util.Log;
+import android.util.LruCache;
 
+import androidx.annotation.NonNull;
 import androidx.lifecycle.LiveData;
+import androidx.lifecycle.MediatorLiveData;
+import androidx.lifecycle.MutableLiveData;
+import androidx.lifecycle.Observer;
+import androidx.paging.LivePagedListBuilder;
+import androidx.paging.PagedList;
+import androidx.room.InvalidationTracker;
 
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.MalformedURLException;
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicLong;
 
 // *Repository 패턴*
 // 1. Repository는 앱의 나머지 부분으로부터 데이터 계층을 추상화하고 웹 서비스나 로컬 캐시와 같은 서로
 //    다른 데이터 소스 간에 매개하는 Java 클래스다.
 // 2. 다른 데이터베이스 작업(ex: SQLite Query)을 숨기고 ViewModel에 깨끗한 API를 제공한다.
-// 3. Room은 메인 스레드에 대한 데이터베이스 Query를 허용하지 않으므로 비동기식으로 실행하기 위해 AsyncTasks를 사용한다.
+// 3. Room은 메인 스레드에 대한 데이터베이스 Query를 허용하지 않으므로 읽기는 NoteDatabase의 query executor,
+//    쓰기는 NoteWriteQueue를 거쳐 NoteDatabase의 쓰기 스레드(NoteTaskExecutor)에서 비동기로 실행한다.
+//    편집은 INTERACTIVE, 가져오기는 chunk마다 BULK로 제출하므로 편집이 가져오기 뒤에 줄 서지 않는다.
+//    쓰기 요청은 모두 NoteFuture를 돌려주므로 끝났는지 기다리거나 callback으로 알 수 있다.
 // 4. LiveData는 Worker Thread에서 자동으로 가져오기 때문에 이것을 건드릴 필요는 없다.
 // 5. Repository가 Room Database에서 가져온 데이터를 객체형식으로 보유한다.
 public class NoteRepository {
+    private static final String TAG = "NoteRepository";
+    // 한 번에 읽어오는 페이지 크기. 화면 몇 개 분량이면 충분하다.
+    private static final int PAGE_SIZE = 50;
+    // 최근에 연 Note를 몇 개까지 메모리에 들고 있을지.
+    private static final int NOTE_CACHE_SIZE = 64;
+
+    // 편집 화면과 목록 화면이 같은 캐시와 쓰기 큐를 쓰도록 프로세스에 하나만 만든다.
+    private static NoteRepository instance;
+
     // Room에 있는 데이터를 삽입, 삭제, 수정하기 위함.
+    private NoteDatabase database;
     private NoteDao noteDao;
-    private LiveData<List<Note>> allNotes;
+    private Executor readExecutor;
+    private NoteTaskExecutor writeExecutor;
+    private NoteWriteQueue writeQueue;
+    private NoteTransfer transfer;
+    // 목록, 개수, 검색 결과는 key별로 한 번만 조회해 모든 화면이 같은 스냅샷을 본다.
+    private NoteSnapshotStore snapshots;
+    private PagedList.Config pagedListConfig;
+    // BuildConfig.SYNC_ENDPOINT가 비어 있으면 null이고 동기화를 하지 않는다.
+    private NoteSyncEngine syncEngine;
+    private ExecutorService syncExecutor;
+    // 진행 중인 동기화. 메인 스레드에서만 접근한다.
+    private NoteFuture<NoteSyncEngine.Result> pendingSync;
+    // id로 여는 Note의 LRU 캐시. 쓰기가 일어나면 해당 항목을 갱신하거나 지운다.
+    private final LruCache<Integer, Note> noteCache = new LruCache<>(NOTE_CACHE_SIZE);
+    // 읽는 중인 Note. 같은 id를 다시 요청하면 새로 읽지 않고 같은 LiveData를 돌려준다. lock(pendingLoads)로 보호한다.
+    // 읽는 동안 그 Note가 바뀌거나 지워지면 여기서 빠진다. 빠진 읽기의 결과는 캐시에 넣지 않는다.
+    private final Map<Integer, MutableLiveData<Note>> pendingLoads = new HashMap<>();
+    // 커밋 전인 쓰기를 목록에 바로 보여주기 위한 변경 목록.
+    private final NoteOverlay overlay = new NoteOverlay();
+    // 커밋에 실패한 배치의 변경 개수.
+    private final MutableLiveData<Integer> writeErrors = new MutableLiveData<>();
+    // 아직 화면에 전달되지 않은 첫 무효화 시각. 0이면 대기 중인 무효화가 없다.
+    private final AtomicLong pendingInvalidationNanos = new AtomicLong();
+
+    public static synchronized NoteRepository getInstance(Application application) {
+        if (instance == null) {
+            instance = new NoteRepository(application);
+        }
+        return instance;
+    }
 
-    public NoteRepository(Application application) {
-        NoteDatabase database = NoteDatabase.getInstance(application);
+    private NoteRepository(Application application) {
+        this(NoteDatabase.getInstance(application), NoteDatabase.getInstance(application).getQueryExecutor(),
+                NoteDatabase.getWriteExecutor(application));
+        if (!BuildConfig.SYNC_ENDPOINT.isEmpty()) {
+            try {
+                setSyncEngine(new NoteSyncEngine(NoteDatabase.getInstance(application), writeExecutor,
+                        new NoteSyncClient(new URL(BuildConfig.SYNC_ENDPOINT)),
+                        application.getSharedPreferences(NoteSyncEngine.PREFS, Context.MODE_PRIVATE)));
+            } catch (MalformedURLException e) {
+                Log.e(TAG, "Invalid sync endpoint " + BuildConfig.SYNC_ENDPOINT, e);
+            }
+        }
+    }
+
+    // 테스트는 여기로 인메모리 데이터베이스와 직접 실행 순서를 정하는 executor를 넘긴다.
+    NoteRepository(NoteDatabase database, Executor readExecutor, NoteTaskExecutor writeExecutor) {
+        this.database = database;
         noteDao = database.noteDao();
-        // Repository에서 Room에 있는 LiveData를 내림차순으로 가져온다.
-        allNotes = noteDao.getAllNotes();
+        this.readExecutor = readExecutor;
+        this.writeExecutor = writeExecutor;
+        writeQueue = new NoteWriteQueue(noteDao, writeExecutor, new NoteWriteQueue.BatchListener() {
+            @Override
+            public void onBatchCommitted(NoteWriteQueue.Batch batch) {
+                // 쓰기 스레드에서 불린다. 동기화하지 않으면 모두 지우며 남긴 tombstone을 바로 치운다.
+                if (batch.deleteAll && !isSyncEnabled()) {
+                    database.noteSyncDao().deleteTombstones();
+                }
+                // 커밋 전에 읽어 캐시에 들어간 내용은 낡았으므로 지운다.
+                for (Note note : batch.updates) {
+                    invalidateNote(note.getId());
+                }
+                overlay.resolve(batch);
+            }
+
+            @Override
+            public void onBatchFailed(NoteWriteQueue.Batch batch, RuntimeException error) {
+                Log.e(TAG, "Failed to write " + batch.size() + " changes", error);
+                // 낙관적으로 보여준 변경을 걷어내 DB 상태로 되돌리고, 캐시도 다시 읽게 한다.
+                invalidateAllNotes();
+                overlay.resolve(batch);
+                writeErrors.postValue(batch.size());
+            }
+        });
+        transfer = new NoteTransfer(noteDao);
+        snapshots = new NoteSnapshotStore(database.getInvalidationTracker(), readExecutor);
+
+        // 전체 목록 대신 스크롤 위치 주변의 구간만 keyset 페이징으로 가져온다.
+        pagedListConfig = new PagedList.Config.Builder()
+                .setPageSize(PAGE_SIZE)
+                .setInitialLoadSizeHint(PAGE_SIZE * 2)
+                .setPrefetchDistance(PAGE_SIZE / 2)
+                .setEnablePlaceholders(false)
+                .build();
+
+        // 무효화 시각을 남겨두었다가 새 목록이 전달될 때 걸린 시간을 기록한다.
+        // addObserver는 임시 트리거를 만드는 쓰기 트랜잭션이므로, ViewModel이 처음 만들 때의 메인 스레드 대신 읽기 스레드에서 한다.
+        final InvalidationTracker invalidationTracker = database.getInvalidationTracker();
+        readExecutor.execute(new Runnable() {
+            @Override
+            public void run() {
+                invalidationTracker.addObserver(new InvalidationTracker.Observer("note_table") {
+                    @Override
+                    public void onInvalidated(@NonNull Set<String> tables) {
+                        pendingInvalidationNanos.compareAndSet(0, System.nanoTime());
+                    }
+                });
+            }
+        });
+    }
+
+    private <T> LiveData<T> timeDelivery(LiveData<T> source) {
+        final MediatorLiveData<T> delivered = new MediatorLiveData<>();
+        delivered.addSource(source, new Observer<T>() {
+            @Override
+            public void onChanged(T value) {
+                long invalidatedAt = pendingInvalidationNanos.getAndSet(0);
+                if (invalidatedAt != 0) {
+                    NoteMetrics.recordSince(NoteMetrics.INVALIDATION_TO_DELIVERY, invalidatedAt);
+                }
+                delivered.setValue(value);
+            }
+        });
+        return delivered;
+    }
+    // 쓰기는 NoteWriteQueue에 모았다가 배치 트랜잭션 하나로 커밋한다.
+    // NoteOverlay는 쓰기 큐에 넣는 시점에 맞춰 두어 커밋되기 전에도 목록에 최신 내용이 보인다. 캐시는 비운다.
+    // 임시 id를 가진 Note는 아직 DB에 없으므로 커밋될 때까지 수정/삭제할 수 없다. 이때는 실패한 NoteFuture를 돌려준다.
+    public NoteFuture<Void> insert(Note note) {
+        overlay.insert(note);
+        return writeQueue.insert(note);
+    }
+    public NoteFuture<Void> update(Note note) {
+        if (NoteOverlay.isTemporary(note.getId())) {
+            return NoteFuture.failed(new IllegalStateException("Note " + note.getId() + " is not committed yet"));
+        }
+        // 넘겨받은 Note는 sync_id와 바뀐 필드만 담고 쓰기 큐가 고쳐 쓰므로 캐시에 넣지 않는다. 다음 getNote는 새로 읽는다.
+        invalidateNote(note.getId());
+        overlay.update(note);
+        return writeQueue.update(note);
+    }
+    public NoteFuture<Void> delete(Note note) {
+        return deleteById(note.getId());
+    }
+    public NoteFuture<Void> deleteById(int id) {
+        if (NoteOverlay.isTemporary(id)) {
+            return NoteFuture.failed(new IllegalStateException("Note " + id + " is not committed yet"));
+        }
+        invalidateNote(id);
+        overlay.delete(id);
+        return writeQueue.delete(id);
     }
-    public void insert(Note note) {
-        new InsertNoteAsyncTask(noteDao).execute(note);
+    // *여러 Note 한 번에 바꾸기*
+    // 1. 목록에서 고른 Note들을 Note 객체를 읽지 않고 id 목록으로 바꾼다.
+    // 2. 지우기는 쓰기 큐에 한 번에 넣어 배치 하나(트랜잭션 하나)로 커밋되고, 목록에서는 바로 사라진다.
+    // 3. priority 바꾸기는 쓰기 큐를 먼저 비운 뒤 UPDATE ... WHERE id IN 트랜잭션 하나로 커밋한다.
+    //    앞서 요청한 편집이 먼저 커밋되므로 그 뒤에 바꾼 priority가 남는다. 새 priority는 NoteOverlay에 먼저 기록해 목록에 바로 보인다.
+    public NoteFuture<Void> deleteByIds(List<Integer> ids) {
+        if (containsTemporary(ids)) {
+            return NoteFuture.failed(new IllegalStateException("Some notes are not committed yet"));
+        }
+        for (Integer id : ids) {
+            invalidateNote(id);
+        }
+        overlay.delete(ids);
+        return writeQueue.delete(ids);
     }
-    public void update(Note note) {
-        new UpdateNoteAsyncTask(noteDao).execute(note);
+
+    public NoteFuture<Void> updatePriority(List<Integer> ids, final int priority) {
+        if (containsTemporary(ids)) {
+            return NoteFuture.failed(new IllegalStateException("Some notes are not committed yet"));
+        }
+        for (Integer id : ids) {
+            invalidateNote(id);
+        }
+        final List<Integer> targets = new ArrayList<>(ids);
+        final long updatedAt = System.currentTimeMillis();
+        final Object token = new Object();
+        overlay.updatePriority(targets, priority, token);
+        writeQueue.flush();
+        return writeExecutor.submit(NoteTaskExecutor.Priority.INTERACTIVE, new Callable<Void>() {
+            @Override
+            public Void call() {
+                long start = System.nanoTime();
+                try {
+                    noteDao.updatePriorityByIds(targets, priority, updatedAt);
+                } catch (RuntimeException e) {
+                    Log.e(TAG, "Failed to change priority of " + targets.size() + " notes", e);
+                    writeErrors.postValue(targets.size());
+                    throw e;
+                } finally {
+                    // 커밋되었으면 DB에 있고, 실패했으면 DB 상태로 되돌린다.
+                    overlay.resolvePriority(targets, token);
+                }
+                NoteMetrics.recordSince(NoteMetrics.DAO_PREFIX + "updatePriorityByIds", start);
+                return null;
+            }
+        });
+    }
+
+    private static boolean containsTemporary(List<Integer> ids) {
+        for (Integer id : ids) {
+            if (NoteOverlay.isTemporary(id)) {
+                return true;
+            }
+        }
+        return false;
     }
-    public void delete(Note note) {
-        new DeleteNoteAsyncTask(noteDao).execute(note);
+
+    public NoteFuture<Void> deleteAllNotes() {
+        invalidateAllNotes();
+        overlay.deleteAll();
+        return writeQueue.deleteAll();
     }
-    public void deleteAllNotes() {
-        new DeleteAllNoteAsyncTask(noteDao).execute();
+
+    public LiveData<Integer> getWriteErrors() {
+        return writeErrors;
     }
-    public LiveData<List<Note>> getAllNotes() {
-        return allNotes;
+
+    // *동기화*
+    // 1. 네트워크는 동기화 전용 스레드에서, 받은 변경은 쓰기 스레드에서 BULK로 반영한다(NoteSyncEngine).
+    // 2. 동기화 중에 다시 요청하면 진행 중인 것을 돌려준다.
+    // 3. 받은 변경은 NoteWriteQueue를 거치지 않으므로 끝나면 Note 캐시를 비운다. 목록은 무효화로 다시 읽힌다.
+    void setSyncEngine(NoteSyncEngine engine) {
+        syncEngine = engine;
+        syncExecutor = Executors.newSingleThreadExecutor(new ThreadFactory() {
+            @Override
+            public Thread newThread(@NonNull Runnable runnable) {
+                return new Thread(runnable, "note-sync");
+            }
+        });
     }
 
-    // Background Thread에서 비동기적으로 Room에 삽입, 삭제 , 수정을 해주는 부분.
-    private static class InsertNoteAsyncTask extends AsyncTask<Note, Void, Void> {
-        private NoteDao noteDao;
+    public boolean isSyncEnabled() {
+        return syncEngine != null;
+    }
 
-        private InsertNoteAsyncTask(NoteDao noteDao) {
-            this.noteDao = noteDao;
+    public NoteFuture<NoteSyncEngine.Result> sync() {
+        if (syncEngine == null) {
+            return NoteFuture.failed(new IllegalStateException("Sync is not configured"));
+        }
+        if (pendingSync != null && !pendingSync.isDone()) {
+            return pendingSync;
         }
+        final NoteFuture<NoteSyncEngine.Result> result = new NoteFuture<>();
+        syncExecutor.execute(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    NoteSyncEngine.Result done = syncEngine.sync();
+                    invalidateAllNotes();
+                    result.set(done);
+                } catch (IOException | RuntimeException e) {
+                    Log.w(TAG, "Sync failed", e);
+                    invalidateAllNotes();
+                    result.setException(e);
+                }
+            }
+        });
+        pendingSync = result;
+        return result;
+    }
 
-        @Override
-        protected Void doInBackground(Note... notes) {
-            noteDao.insert(notes[0]);
-            return null;
+    // 캐시에서 지울 때 같은 id를 읽는 중이면 그 읽기도 pendingLoads에서 떼어 낸다.
+    // 바뀌기 전에 읽은 내용이 캐시에 다시 들어가지 않고, 다음 getNote는 새로 읽는다.
+    private void invalidateNote(int id) {
+        synchronized (pendingLoads) {
+            noteCache.remove(id);
+            pendingLoads.remove(id);
+        }
+    }
+
+    private void invalidateAllNotes() {
+        synchronized (pendingLoads) {
+            noteCache.evictAll();
+            pendingLoads.clear();
+        }
+    }
+
+    // 목록의 NoteListItem에는 전체 내용이 없으므로, 편집 화면을 띄우기 전에 미리 읽기 시작해 캐시를 데운다.
+    public void prefetchNote(int id) {
+        getNote(id);
+    }
+
+    // 캐시에 있으면 바로 값을 주고, 없으면 백그라운드에서 getById로 읽어 캐시에 넣는다.
+    // Note가 없으면 null이 전달된다.
+    public LiveData<Note> getNote(int id) {
+        Note cached = noteCache.get(id);
+        if (cached != null) {
+            MutableLiveData<Note> result = new MutableLiveData<>();
+            result.setValue(cached);
+            return result;
+        }
+        synchronized (pendingLoads) {
+            MutableLiveData<Note> pending = pendingLoads.get(id);
+            if (pending == null) {
+                pending = new MutableLiveData<>();
+                pendingLoads.put(id, pending);
+                readExecutor.execute(new LoadNoteRunnable(id, pending));
+            }
+            return pending;
+        }
+    }
+    // *편집 화면*
+    // 1. Note와 저장해 둔 초안을 함께 읽어 NoteEditor로 준다. id가 NoteDraft.NEW_NOTE_ID면 새 Note다.
+    // 2. Note가 지워졌으면 null을 전달하고, 남아 있던 초안도 지운다.
+    // 3. 초안 저장/삭제는 쓰기 스레드에서 NORMAL로 실행한다. 같은 Priority끼리는 요청한 순서대로 실행된다.
+    public LiveData<NoteEditor> openEditor(final int id, final int defaultPriority) {
+        final MutableLiveData<NoteEditor> result = new MutableLiveData<>();
+        readExecutor.execute(new Runnable() {
+            @Override
+            public void run() {
+                NoteDraft draft = noteDao.getDraft(id);
+                if (id == NoteDraft.NEW_NOTE_ID) {
+                    result.postValue(new NoteEditor(null, draft, defaultPriority));
+                    return;
+                }
+                Note note = noteCache.get(id);
+                if (note == null) {
+                    note = noteDao.findById(id);
+                }
+                if (note == null) {
+                    if (draft != null) {
+                        discardDraft(id);
+                    }
+                    result.postValue(null);
+                    return;
+                }
+                // 비교와 화면 채우기에 쓰므로 압축된 description을 여기서 푼다.
+                note.getDescription();
+                result.postValue(new NoteEditor(note, draft, defaultPriority));
+            }
+        });
+        return result;
+    }
+
+    NoteFuture<Void> saveDraft(final NoteDraft draft) {
+        return writeExecutor.submit(NoteTaskExecutor.Priority.NORMAL, new Callable<Void>() {
+            @Override
+            public Void call() {
+                noteDao.saveDraft(draft);
+                return null;
+            }
+        });
+    }
+
+    NoteFuture<Void> discardDraft(final int noteId) {
+        return writeExecutor.submit(NoteTaskExecutor.Priority.NORMAL, new Callable<Void>() {
+            @Override
+            public Void call() {
+                noteDao.deleteDraft(noteId);
+                return null;
+            }
+        });
+    }
+
+    // 목록마다 따로 쓰는 DataSource Factory. priority 구간은 이 Factory에 정하므로 다른 화면의 목록에 번지지 않는다.
+    NoteKeysetDataSource.Factory newPagedNotesFactory() {
+        return new NoteKeysetDataSource.Factory(database, overlay);
+    }
+    // factory가 만드는 DataSource를 페이지 단위로 읽는 목록. 관찰자가 생길 때 처음 읽는다.
+    public LiveData<PagedList<NoteListItem>> getPagedNotes(NoteKeysetDataSource.Factory factory) {
+        return timeDelivery(new LivePagedListBuilder<>(factory, pagedListConfig)
+                .setFetchExecutor(readExecutor)
+                .build());
+    }
+    // priority별 Note 개수. 트리거가 맞춰 두는 요약 테이블을 읽으므로 전체 목록을 세지 않는다.
+    public LiveData<List<NotePriorityCount>> getPriorityCounts() {
+        return snapshots.get("priorityCounts", new String[]{"note_priority_count"},
+                new NoteSnapshotStore.Query<List<NotePriorityCount>>() {
+                    @Override
+                    public List<NotePriorityCount> load() {
+                        return Collections.unmodifiableList(noteDao.getPriorityCountsNow());
+                    }
+                });
+    }
+    // 검색어를 FTS 구문으로 바꿔 note_fts에서 찾는다. 찾을 단어가 없으면 빈 목록을 준다.
+    // 같은 FTS 구문을 여러 화면에서 검색하면 쿼리 하나의 결과를 함께 본다.
+    // 결과가 많을 수 있으므로 행마다 객체를 만들지 않고 Cursor에서 바로 NoteColumns로 읽는다.
+    // includeArchive면 보관된 Note(note_archive_fts)도 함께 찾는다. 그때만 보관 테이블을 읽고 관찰한다.
+    public LiveData<NoteColumns> search(String query, boolean includeArchive) {
+        final String ftsQuery = NoteSearchQuery.toFtsQuery(query);
+        if (ftsQuery.isEmpty()) {
+            MutableLiveData<NoteColumns> empty = new MutableLiveData<>();
+            empty.setValue(NoteColumns.EMPTY);
+            return empty;
         }
+        if (includeArchive) {
+            return snapshots.get("searchAll:" + ftsQuery,
+                    new String[]{"note_table", "note_fts", "note_archive", "note_archive_fts"},
+                    new NoteSnapshotStore.Query<NoteColumns>() {
+                        @Override
+                        public NoteColumns load() {
+                            Cursor cursor = noteDao.searchWithArchiveCursor(ftsQuery);
+                            try {
+                                return NoteColumns.read(cursor);
+                            } finally {
+                                cursor.close();
+                            }
+                        }
+                    });
+        }
+        return snapshots.get("search:" + ftsQuery, new String[]{"note_table", "note_fts"},
+                new NoteSnapshotStore.Query<NoteColumns>() {
+                    @Override
+                    public NoteColumns load() {
+                        Cursor cursor = noteDao.searchCursor(ftsQuery);
+                        try {
+                            return NoteColumns.read(cursor);
+                        } finally {
+                            cursor.close();
+                        }
+                    }
+                });
+    }
+
+    // *내보내기/가져오기*
+    // 1. 내보내기는 읽기 스레드, 가져오기는 쓰기 스레드에서 실행하고 끝나면 스트림을 닫는다.
+    // 2. 가져오기 전에 쓰기 큐를 먼저 비워, 앞서 요청한 변경이 가져온 Note보다 먼저 커밋되게 한다.
+    // 3. 가져오기는 chunk 하나씩 BULK로 실행하고, chunk 사이에 먼저 온 편집 배치를 커밋한다.
+    //    돌려받은 NoteFuture를 cancel하면 다음 chunk부터 가져오지 않는다. 이미 커밋한 chunk는 남는다.
+    // 4. callback은 모두 작업 스레드에서 호출된다. 취소되면 호출되지 않는다.
+    public void exportNotes(final OutputStream out, final NoteTransfer.Format format, final TransferCallback callback) {
+        readExecutor.execute(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    callback.onComplete(transfer.exportNotes(out, format, callback));
+                } catch (IOException e) {
+                    callback.onError(e);
+                } finally {
+                    closeQuietly(out);
+                }
+            }
+        });
+    }
+
+    public NoteFuture<Long> importNotes(InputStream in, NoteTransfer.Format format, TransferCallback callback) {
+        writeQueue.flush();
+        NoteFuture<Long> result = new NoteFuture<>();
+        writeExecutor.execute(NoteTaskExecutor.Priority.BULK, new ImportStep(in, format, callback, result));
+        return result;
+    }
+
+    // 디버그 메뉴에서 합성 데이터셋을 넣는다. 가져오기처럼 트랜잭션 하나씩 BULK로 실행하고 같은 callback으로 알린다.
+    NoteFuture<Long> generateNotes(NoteDataset dataset, TransferCallback callback) {
+        writeQueue.flush();
+        NoteFuture<Long> result = new NoteFuture<>();
+        writeExecutor.execute(NoteTaskExecutor.Priority.BULK, new GenerateStep(dataset, callback, result));
+        return result;
+    }
+
+    public interface TransferCallback extends NoteTransfer.ProgressListener {
+        void onComplete(long count);
+
+        void onError(IOException e);
     }
-    private static class UpdateNoteAsyncTask extends AsyncTask<Note, Void, Void> {
-        private NoteDao noteDao;
 
-        private UpdateNoteAsyncTask(NoteDao noteDao) {
-            this.noteDao = noteDao;
+    private static void closeQuietly(Closeable closeable) {
+        try {
+            closeable.close();
+        } catch (IOException ignored) {
+        }
+    }
+
+    // 가져오기 chunk 하나를 커밋하고, 남았으면 자신을 쓰기 큐 뒤에 다시 넣는다.
+    private class ImportStep implements Runnable {
+        private final InputStream in;
+        private final NoteTransfer.Format format;
+        private final TransferCallback callback;
+        private final NoteFuture<Long> result;
+        private NoteTransfer.Import task;
+
+        private ImportStep(InputStream in, NoteTransfer.Format format, TransferCallback callback, NoteFuture<Long> result) {
+            this.in = in;
+            this.format = format;
+            this.callback = callback;
+            this.result = result;
         }
 
         @Override
-        protected Void doInBackground(Note... notes) {
-            noteDao.update(notes[0]);
-            return null;
+        public void run() {
+            if (result.isCancelled()) {
+                closeQuietly(in);
+                return;
+            }
+            try {
+                if (task == null) {
+                    task = transfer.beginImport(in, format, callback);
+                }
+                if (task.step()) {
+                    writeExecutor.execute(NoteTaskExecutor.Priority.BULK, this);
+                    return;
+                }
+            } catch (IOException e) {
+                fail(e);
+                return;
+            } catch (RuntimeException e) {
+                // 쓰기 스레드가 죽지 않도록 여기서 받는다.
+                Log.e(TAG, "Import failed", e);
+                fail(new IOException(e));
+                return;
+            }
+            closeQuietly(in);
+            callback.onComplete(task.count());
+            result.set(task.count());
+        }
+
+        private void fail(IOException e) {
+            closeQuietly(in);
+            callback.onError(e);
+            result.setException(e);
         }
     }
-    private static class DeleteNoteAsyncTask extends AsyncTask<Note, Void, Void> {
-        private NoteDao noteDao;
 
-        private DeleteNoteAsyncTask(NoteDao noteDao) {
-            this.noteDao = noteDao;
+    private class GenerateStep implements Runnable {
+        private final NoteDataset dataset;
+        private final TransferCallback callback;
+        private final NoteFuture<Long> result;
+        private NoteDataset.Generation task;
+
+        private GenerateStep(NoteDataset dataset, TransferCallback callback, NoteFuture<Long> result) {
+            this.dataset = dataset;
+            this.callback = callback;
+            this.result = result;
         }
 
         @Override
-        protected Void doInBackground(Note... notes) {
-            noteDao.delete(notes[0]);
-            return null;
+        public void run() {
+            if (result.isCancelled()) {
+                return;
+            }
+            try {
+                if (task == null) {
+                    task = dataset.begin(database, callback);
+                }
+                if (task.step()) {
+                    writeExecutor.execute(NoteTaskExecutor.Priority.BULK, this);
+                    return;
+                }
+            } catch (RuntimeException e) {
+                Log.e(TAG, "Generating notes failed", e);
+                IOException error = new IOException(e);
+                callback.onError(error);
+                result.setException(error);
+                return;
+            }
+            callback.onComplete(task.count());
+            result.set(task.count());
         }
     }
-    private static class DeleteAllNoteAsyncTask extends AsyncTask<Void, Void, Void> {
-        private NoteDao noteDao;
 
-        private DeleteAllNoteAsyncTask(NoteDao noteDao) {
-            this.noteDao = noteDao;
+    private class LoadNoteRunnable implements Runnable {
+        private final int id;
+        private final MutableLiveData<Note> result;
+
+        private LoadNoteRunnable(int id, MutableLiveData<Note> result) {
+            this.id = id;
+            this.result = result;
         }
 
         @Override
-        protected Void doInBackground(Void... voids) {
-            noteDao.deleteAllNotes();
-            return null;
+        public void run() {
+            long start = System.nanoTime();
+            Note note = noteDao.findById(id);
+            if (note != null) {
+                // 압축된 description은 편집 화면이 메인 스레드에서 풀지 않도록 여기서 미리 푼다.
+                note.getDescription();
+            }
+            NoteMetrics.recordSince(NoteMetrics.DAO_PREFIX + "getById", start);
+            synchronized (pendingLoads) {
+                // 읽는 동안 다시 시작한 읽기가 캐시에 더 새로운 내용을 넣었다면 그쪽을 쓴다.
+                Note cached = noteCache.get(id);
+                if (cached != null) {
+                    note = cached;
+                }
+                // 읽는 동안 pendingLoads에서 빠졌다면(invalidateNote) 읽은 내용이 이미 낡았을 수 있으므로 캐시에 넣지 않는다.
+                if (pendingLoads.get(id) == result) {
+                    pendingLoads.remove(id);
+                    if (cached == null && note != null) {
+                        noteCache.put(id, note);
+                    }
+                }
+            }
+            result.postValue(note);
         }
     }
 }
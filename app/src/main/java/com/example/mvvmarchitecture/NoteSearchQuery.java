@@ -0,0 +1,35 @@
+package com.example.mvvmarchitecture;
+
+import java.util.Locale;
+
+// 사용자가 입력한 검색어를 FTS MATCH 구문으로 바꿔준다.
+// 따옴표, 괄호, -, * 같은 FTS 연산자가 그대로 들어가면 구문 오류가 나므로
+// 글자와 숫자만 남겨 단어로 나누고, 각 단어는 접두어 검색(word*)으로 만든다.
+// 예) "Room  db!" -> "room* db*"
+final class NoteSearchQuery {
+    private NoteSearchQuery() {
+    }
+
+    // 검색할 단어가 없으면 빈 문자열을 반환한다.
+    static String toFtsQuery(String input) {
+        if (input == null) {
+            return "";
+        }
+        StringBuilder query = new StringBuilder();
+        StringBuilder token = new StringBuilder();
+        String lower = input.toLowerCase(Locale.ROOT);
+        for (int i = 0; i <= lower.length(); i++) {
+            char c = i < lower.length() ? lower.charAt(i) : ' ';
+            if (Character.isLetterOrDigit(c)) {
+                token.append(c);
+            } else if (token.length() > 0) {
+                if (query.length() > 0) {
+                    query.append(' ');
+                }
+                query.append(token).append('*');
+                token.setLength(0);
+            }
+        }
+        return query.toString();
+    }
+}
@@ -0,0 +1,163 @@
+package com.example.mvvmarchitecture;
+
+import androidx.annotation.NonNull;
+import androidx.lifecycle.LiveData;
+import androidx.room.InvalidationTracker;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+// *공유 스냅샷*
+// 1. 같은 key의 쿼리는 프로세스에서 한 번만 실행하고, 결과 스냅샷 하나를 모든 관찰자에게 나눠준다.
+//    목록 화면, 위젯, 태블릿의 두 번째 창처럼 관찰자가 늘어도 쓰기마다 다시 실행하는 쿼리 수는 그대로다.
+// 2. 스냅샷은 읽기 전용 목록(Collections.unmodifiableList)이나 NoteColumns처럼 바뀌지 않는 객체다.
+//    받은 쪽에서 고칠 수 없으므로 복사하지 않고 같은 객체를 넘긴다.
+// 3. 첫 관찰자가 붙으면 InvalidationTracker에 등록하고 쿼리를 실행한다.
+//    마지막 관찰자가 떠나면 등록을 풀고 key를 지운다. 그 뒤로는 쓰기가 일어나도 이 쿼리를 실행하지 않는다.
+// 4. 쿼리가 도는 동안 또 무효화되면 끝난 뒤 한 번만 더 실행한다. 무효화가 몰려도 쿼리가 쌓이지 않는다.
+// 5. get()과 관찰 시작/끝은 메인 스레드에서, 쿼리는 executor에서 실행된다.
+//    InvalidationTracker 등록과 해제도 executor에서 한다. 둘 다 임시 트리거를 만드는 쓰기 트랜잭션이라
+//    메인 스레드에서 하면 쓰기 스레드의 긴 작업이 끝날 때까지 기다린다.
+// 6. 쿼리마다 걸린 시간을 NoteMetrics.SNAPSHOT_PREFIX + key의 ':' 앞부분 이름으로 기록한다.
+//    검색어처럼 key마다 다른 부분은 ':' 뒤에 두어 지표 이름이 늘어나지 않게 한다.
+final class NoteSnapshotStore {
+    // executor 스레드에서 실행된다. 돌려준 값은 그대로 스냅샷이 되므로 바뀌지 않는 객체여야 한다.
+    interface Query<S> {
+        S load();
+    }
+
+    private final InvalidationTracker invalidationTracker;
+    private final Executor executor;
+    // 관찰 중인 스냅샷. lock(snapshots)로 보호한다.
+    private final Map<String, Snapshot<?>> snapshots = new HashMap<>();
+
+    NoteSnapshotStore(InvalidationTracker invalidationTracker, Executor executor) {
+        this.invalidationTracker = invalidationTracker;
+        this.executor = executor;
+    }
+
+    // key가 같으면 tables와 query도 같아야 한다. 이미 있는 스냅샷을 돌려주고 새 query는 쓰지 않는다.
+    @SuppressWarnings("unchecked")
+    <S> LiveData<S> get(String key, String[] tables, Query<S> query) {
+        synchronized (snapshots) {
+            Snapshot<S> snapshot = (Snapshot<S>) snapshots.get(key);
+            if (snapshot == null) {
+                snapshot = new Snapshot<>(key, tables, query);
+                snapshots.put(key, snapshot);
+            }
+            return snapshot;
+        }
+    }
+
+    // 관찰자가 있거나 막 만들어져 곧 관찰될 스냅샷의 개수.
+    int size() {
+        synchronized (snapshots) {
+            return snapshots.size();
+        }
+    }
+
+    private final class Snapshot<S> extends LiveData<S> {
+        private final String key;
+        private final String metric;
+        private final Query<S> query;
+        private final InvalidationTracker.Observer observer;
+        private final AtomicBoolean invalid = new AtomicBoolean(true);
+        private final AtomicBoolean loading = new AtomicBoolean();
+        // 메인 스레드가 정하는 관찰 여부와 실제 등록 여부. registered는 lock(observer)로 보호한다.
+        private volatile boolean observed;
+        private boolean registered;
+        // executor는 여러 스레드라 등록과 해제가 요청한 순서대로 실행된다는 보장이 없다.
+        // 그래서 실행할 때의 observed에 맞추기만 한다. 늦게 실행된 해제가 다음 등록을 되돌리지 않는다.
+        private final Runnable updateRegistration = new Runnable() {
+            @Override
+            public void run() {
+                synchronized (observer) {
+                    if (observed && !registered) {
+                        invalidationTracker.addObserver(observer);
+                        registered = true;
+                    } else if (!observed && registered) {
+                        invalidationTracker.removeObserver(observer);
+                        registered = false;
+                    }
+                }
+            }
+        };
+        private final Runnable refresh = new Runnable() {
+            @Override
+            public void run() {
+                boolean loaded;
+                do {
+                    loaded = false;
+                    if (loading.compareAndSet(false, true)) {
+                        try {
+                            S value = null;
+                            while (invalid.compareAndSet(true, false)) {
+                                loaded = true;
+                                long start = System.nanoTime();
+                                value = query.load();
+                                NoteMetrics.recordSince(metric, start);
+                            }
+                            if (loaded) {
+                                postValue(value);
+                            }
+                        } finally {
+                            loading.set(false);
+                        }
+                    }
+                    // 다른 스레드가 loading을 놓기 직전에 무효화됐으면 여기서 이어서 읽는다.
+                } while (loaded && invalid.get());
+            }
+        };
+        // 등록한 뒤에 읽어야 그 사이의 변경을 놓치지 않는다.
+        private final Runnable activate = new Runnable() {
+            @Override
+            public void run() {
+                updateRegistration.run();
+                refresh.run();
+            }
+        };
+
+        private Snapshot(String key, String[] tables, Query<S> query) {
+            this.key = key;
+            int colon = key.indexOf(':');
+            metric = NoteMetrics.SNAPSHOT_PREFIX + (colon >= 0 ? key.substring(0, colon) : key);
+            this.query = query;
+            observer = new InvalidationTracker.Observer(tables) {
+                @Override
+                public void onInvalidated(@NonNull Set<String> tables) {
+                    if (invalid.compareAndSet(false, true)) {
+                        executor.execute(refresh);
+                    }
+                }
+            };
+        }
+
+        @Override
+        protected void onActive() {
+            synchronized (snapshots) {
+                // 관찰자가 모두 떠나 지워진 뒤 같은 객체를 다시 관찰하는 경우 다시 등록한다.
+                if (!snapshots.containsKey(key)) {
+                    snapshots.put(key, this);
+                }
+            }
+            observed = true;
+            // 관찰하지 않는 동안의 변경은 알 수 없으므로 다시 읽는다. 그동안은 마지막 스냅샷을 보여준다.
+            invalid.set(true);
+            executor.execute(activate);
+        }
+
+        @Override
+        protected void onInactive() {
+            observed = false;
+            executor.execute(updateRegistration);
+            synchronized (snapshots) {
+                if (snapshots.get(key) == this) {
+                    snapshots.remove(key);
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,78 @@
+package com.example.mvvmarchitecture;
+
+import androidx.annotation.NonNull;
+import androidx.room.ColumnInfo;
+import androidx.room.Entity;
+import androidx.room.Index;
+import androidx.room.PrimaryKey;
+
+// *동기화 상태 테이블*
+// 1. 서버와 주고받은 Note마다, 그리고 아직 올리지 않은 로컬 변경마다 행이 하나 있다.
+// 2. note_table의 INSERT/UPDATE/DELETE 트리거(NoteMigrations.SYNC_TRIGGERS)가 dirty와 revision을 맞춘다.
+//    앱의 쓰기 경로는 동기화를 몰라도 되고, 올릴 변경은 dirty 인덱스로 바뀐 행만 찾는다.
+// 3. version은 마지막으로 서버에서 확인한 버전이다. 올릴 때 이 버전을 기준으로 충돌을 판단한다.
+// 4. revision은 로컬에서 바뀔 때마다 올라간다. 올리는 동안 또 바뀐 행은 응답을 받아도 dirty로 남는다.
+// 5. 지운 Note는 서버에 올릴 때까지 deleted 행(tombstone)으로 남는다.
+@Entity(tableName = "note_sync", indices = {@Index(value = {"dirty"})})
+public class NoteSync {
+    @PrimaryKey
+    @NonNull
+    @ColumnInfo(name = "sync_id")
+    private String syncId;
+
+    // 지운 Note는 null.
+    @ColumnInfo(name = "note_id")
+    private Integer noteId;
+
+    private int version;
+
+    private int revision;
+
+    private boolean dirty;
+
+    private boolean deleted;
+
+    // 로컬에서 마지막으로 바뀐 시각(ms). 지운 Note는 지운 시각이다.
+    @ColumnInfo(name = "changed_at")
+    private long changedAt;
+
+    public NoteSync(@NonNull String syncId, Integer noteId, int version, int revision, boolean dirty, boolean deleted,
+                    long changedAt) {
+        this.syncId = syncId;
+        this.noteId = noteId;
+        this.version = version;
+        this.revision = revision;
+        this.dirty = dirty;
+        this.deleted = deleted;
+        this.changedAt = changedAt;
+    }
+
+    @NonNull
+    public String getSyncId() {
+        return syncId;
+    }
+
+    public Integer getNoteId() {
+        return noteId;
+    }
+
+    public int getVersion() {
+        return version;
+    }
+
+    public int getRevision() {
+        return revision;
+    }
+
+    public boolean isDirty() {
+        return dirty;
+    }
+
+    public boolean isDeleted() {
+        return deleted;
+    }
+
+    public long getChangedAt() {
+        return changedAt;
+    }
+}
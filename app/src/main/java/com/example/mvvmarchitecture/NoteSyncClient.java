@@ -0,0 +1,108 @@
+package com.example.mvvmarchitecture;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+// *동기화 HTTP 클라이언트*
+// 1. NoteSyncProtocol의 요청을 gzip으로 압축해 POST하고 응답을 읽는다.
+// 2. Accept-Encoding을 직접 붙였으므로 gzip 응답도 직접 푼다. 서버가 압축하지 않으면 그대로 읽는다.
+// 3. 주고받은 바이트 수(압축된 크기)를 세어 NoteSyncEngine이 기록한다.
+class NoteSyncClient {
+    private static final int CONNECT_TIMEOUT_MS = 15000;
+    private static final int READ_TIMEOUT_MS = 30000;
+
+    private final URL endpoint;
+    // 아래 필드는 exchange를 호출하는 동기화 스레드에서만 쓴다.
+    private long bytesSent;
+    private long bytesReceived;
+
+    NoteSyncClient(URL endpoint) {
+        this.endpoint = endpoint;
+    }
+
+    NoteSyncProtocol.Response exchange(NoteSyncProtocol.Request request) throws IOException {
+        ByteArrayOutputStream body = new ByteArrayOutputStream();
+        GZIPOutputStream gzip = new GZIPOutputStream(body);
+        NoteSyncProtocol.writeRequest(gzip, request);
+        gzip.finish();
+
+        HttpURLConnection connection = (HttpURLConnection) endpoint.openConnection();
+        try {
+            connection.setRequestMethod("POST");
+            connection.setDoOutput(true);
+            connection.setConnectTimeout(CONNECT_TIMEOUT_MS);
+            connection.setReadTimeout(READ_TIMEOUT_MS);
+            connection.setRequestProperty("Content-Type", "application/json; charset=utf-8");
+            connection.setRequestProperty("Content-Encoding", "gzip");
+            connection.setRequestProperty("Accept-Encoding", "gzip");
+            connection.setFixedLengthStreamingMode(body.size());
+            OutputStream out = connection.getOutputStream();
+            try {
+                body.writeTo(out);
+            } finally {
+                out.close();
+            }
+            bytesSent += body.size();
+
+            int code = connection.getResponseCode();
+            if (code != HttpURLConnection.HTTP_OK) {
+                throw new IOException("Sync failed: HTTP " + code);
+            }
+            CountingInputStream counting = new CountingInputStream(connection.getInputStream());
+            InputStream in = new BufferedInputStream(counting);
+            if ("gzip".equalsIgnoreCase(connection.getContentEncoding())) {
+                in = new GZIPInputStream(in);
+            }
+            try {
+                return NoteSyncProtocol.readResponse(in);
+            } finally {
+                in.close();
+                bytesReceived += counting.count;
+            }
+        } finally {
+            connection.disconnect();
+        }
+    }
+
+    long getBytesSent() {
+        return bytesSent;
+    }
+
+    long getBytesReceived() {
+        return bytesReceived;
+    }
+
+    private static final class CountingInputStream extends FilterInputStream {
+        private long count;
+
+        CountingInputStream(InputStream in) {
+            super(in);
+        }
+
+        @Override
+        public int read() throws IOException {
+            int b = super.read();
+            if (b != -1) {
+                count++;
+            }
+            return b;
+        }
+
+        @Override
+        public int read(byte[] buffer, int offset, int length) throws IOException {
+            int n = super.read(buffer, offset, length);
+            if (n > 0) {
+                count += n;
+            }
+            return n;
+        }
+    }
+}
@@ -0,0 +1,51 @@
+package com.example.mvvmarchitecture;
+
+import android.database.Cursor;
+
+import androidx.lifecycle.LiveData;
+import androidx.room.Dao;
+import androidx.room.Query;
+
+// note_sync를 읽고 고치는 DAO. note_table 쪽 변경은 NoteDao로 하고, 그때 트리거가 note_sync도 맞춘다.
+@Dao
+public abstract class NoteSyncDao {
+    // 올릴 변경. 열 순서는 NoteSyncEngine.readDirty가 읽는 순서와 같다.
+    // dirty 인덱스로 바뀐 행만 읽고, 지운 Note는 note_table에 없으므로 LEFT JOIN한다.
+    @Query("SELECT s.sync_id, s.version, s.revision, s.deleted, s.changed_at, " +
+            "n.title, n.description, n.description_blob, n.description_format, n.priority " +
+            "FROM note_sync s LEFT JOIN note_table n ON n.id = s.note_id WHERE s.dirty = 1 LIMIT :limit")
+    public abstract Cursor dirtyCursor(int limit);
+
+    @Query("SELECT count(*) FROM note_sync WHERE dirty = 1")
+    public abstract LiveData<Integer> getDirtyCount();
+
+    @Query("SELECT * FROM note_sync WHERE sync_id = :syncId")
+    public abstract NoteSync getState(String syncId);
+
+    @Query("SELECT id FROM note_table WHERE sync_id = :syncId")
+    public abstract Integer getNoteId(String syncId);
+
+    // 서버가 받은 변경. 올리는 동안 다시 바뀌지 않았을 때만(revision이 그대로일 때만) dirty를 내린다.
+    @Query("UPDATE note_sync SET version = :version, dirty = CASE WHEN revision = :revision THEN 0 ELSE dirty END " +
+            "WHERE sync_id = :syncId")
+    public abstract void acknowledge(String syncId, int version, int revision);
+
+    // 서버에 올린 삭제는 더 기억할 필요가 없다.
+    @Query("DELETE FROM note_sync WHERE sync_id = :syncId AND deleted = 1 AND dirty = 0")
+    public abstract void dropTombstone(String syncId);
+
+    // 동기화를 하지 않으면 tombstone을 올릴 곳이 없으므로 모두 지운다(NoteRepository, NoteMaintenance).
+    @Query("DELETE FROM note_sync WHERE deleted = 1")
+    public abstract int deleteTombstones();
+
+    // 충돌에서 로컬이 이겼다. 서버 버전을 기준으로 삼아 다음에 다시 올린다.
+    @Query("UPDATE note_sync SET version = :version WHERE sync_id = :syncId")
+    public abstract void rebase(String syncId, int version);
+
+    // 서버의 Note를 반영했다. 반영하면서 트리거가 세운 dirty를 내린다.
+    @Query("UPDATE note_sync SET note_id = :noteId, version = :version, dirty = 0, deleted = 0 WHERE sync_id = :syncId")
+    public abstract void markApplied(String syncId, int noteId, int version);
+
+    @Query("DELETE FROM note_sync WHERE sync_id = :syncId")
+    public abstract void deleteState(String syncId);
+}
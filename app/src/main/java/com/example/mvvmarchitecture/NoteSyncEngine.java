@@ -0,0 +1,247 @@
+package com.example.mvvmarchitecture;
+
+import android.content.SharedPreferences;
+import android.database.Cursor;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+
+// *델타 동기화*
+// 1. note_sync에서 dirty인 행만 BATCH_SIZE개씩 올리고, 마지막 토큰 이후 서버에서 바뀐 Note만 받는다.
+//    주고받는 양과 걸리는 시간이 전체 Note 수가 아니라 바뀐 Note 수에 비례한다.
+// 2. 네트워크는 sync()를 호출한 스레드에서 하고, 응답은 쓰기 스레드에서 BULK 트랜잭션 하나로 반영한다.
+//    동기화하는 동안에도 편집은 기다리지 않는다.
+// 3. 충돌(서버 버전이 로컬이 알던 버전과 다름)은 remoteWins로 푼다. 모든 기기가 같은 규칙을 쓰므로 같은 결과로 모인다.
+//    로컬이 이기면 서버 버전을 기준으로 삼아 다음 라운드에 다시 올린다.
+// 4. 토큰은 반영한 뒤에 저장한다. 저장하기 전에 죽으면 같은 변경을 다시 받지만, 버전을 비교해 이미 반영한 것은 건너뛴다.
+class NoteSyncEngine {
+    static final int BATCH_SIZE = 200;
+    // 충돌이 계속 나면(다른 기기가 계속 고치면) 여기서 멈추고 다음 동기화에 맡긴다.
+    static final int MAX_ROUNDS = 50;
+    static final String PREFS = "note_sync";
+    private static final String KEY_TOKEN = "token";
+
+    private final NoteDatabase database;
+    private final NoteDao noteDao;
+    private final NoteSyncDao syncDao;
+    private final NoteTaskExecutor writeExecutor;
+    private final NoteSyncClient client;
+    private final SharedPreferences prefs;
+
+    NoteSyncEngine(NoteDatabase database, NoteTaskExecutor writeExecutor, NoteSyncClient client, SharedPreferences prefs) {
+        this.database = database;
+        this.noteDao = database.noteDao();
+        this.syncDao = database.noteSyncDao();
+        this.writeExecutor = writeExecutor;
+        this.client = client;
+        this.prefs = prefs;
+    }
+
+    // 올릴 것과 받을 것이 없을 때까지 라운드를 반복한다. 메인 스레드가 아닌 곳에서 호출해야 한다.
+    Result sync() throws IOException {
+        long start = System.nanoTime();
+        long sentBefore = client.getBytesSent();
+        long receivedBefore = client.getBytesReceived();
+        final Result result = new Result();
+        long token = prefs.getLong(KEY_TOKEN, 0);
+        boolean again = true;
+        while (again) {
+            if (result.rounds == MAX_ROUNDS) {
+                throw new IOException("Sync did not settle after " + MAX_ROUNDS + " rounds");
+            }
+            final List<NoteSyncProtocol.Record> changes = readDirty(BATCH_SIZE);
+            final NoteSyncProtocol.Response response = client.exchange(new NoteSyncProtocol.Request(token, BATCH_SIZE, changes));
+            int conflicts = await(writeExecutor.submit(NoteTaskExecutor.Priority.BULK, new Callable<Integer>() {
+                @Override
+                public Integer call() {
+                    final int[] conflicts = new int[1];
+                    database.runInTransaction(new Runnable() {
+                        @Override
+                        public void run() {
+                            conflicts[0] = apply(changes, response, result);
+                        }
+                    });
+                    return conflicts[0];
+                }
+            }));
+            token = response.token;
+            prefs.edit().putLong(KEY_TOKEN, token).apply();
+            result.rounds++;
+            again = changes.size() == BATCH_SIZE || response.more || conflicts > 0;
+        }
+        result.bytesSent = client.getBytesSent() - sentBefore;
+        result.bytesReceived = client.getBytesReceived() - receivedBefore;
+        NoteMetrics metrics = NoteMetrics.get();
+        NoteMetrics.recordSince(NoteMetrics.SYNC, start);
+        metrics.recordValue(NoteMetrics.SYNC_CHANGES, result.pushed + result.pulled);
+        metrics.recordValue(NoteMetrics.SYNC_BYTES_SENT, result.bytesSent);
+        metrics.recordValue(NoteMetrics.SYNC_BYTES_RECEIVED, result.bytesReceived);
+        return result;
+    }
+
+    private List<NoteSyncProtocol.Record> readDirty(int limit) {
+        List<NoteSyncProtocol.Record> records = new ArrayList<>();
+        Cursor cursor = syncDao.dirtyCursor(limit);
+        try {
+            while (cursor.moveToNext()) {
+                boolean deleted = cursor.getInt(3) != 0;
+                records.add(new NoteSyncProtocol.Record(cursor.getString(0), cursor.getInt(1), deleted, cursor.getLong(4),
+                        deleted ? null : cursor.getString(5),
+                        deleted ? null : NoteCompression.decode(cursor.getString(6), cursor.getBlob(7), cursor.getInt(8)),
+                        deleted ? 0 : cursor.getInt(9), cursor.getInt(2)));
+            }
+        } finally {
+            cursor.close();
+        }
+        return records;
+    }
+
+    // 쓰기 스레드의 트랜잭션 안에서 실행된다. 충돌 개수를 반환한다.
+    private int apply(List<NoteSyncProtocol.Record> sent, NoteSyncProtocol.Response response, Result result) {
+        Map<String, NoteSyncProtocol.Record> sentById = new HashMap<>();
+        for (NoteSyncProtocol.Record record : sent) {
+            sentById.put(record.syncId, record);
+        }
+        int conflicts = 0;
+        for (NoteSyncProtocol.Result pushed : response.results) {
+            NoteSyncProtocol.Record mine = sentById.get(pushed.syncId);
+            if (mine == null) {
+                continue;
+            }
+            if (pushed.applied) {
+                syncDao.acknowledge(pushed.syncId, pushed.version, mine.revision);
+                if (mine.deleted) {
+                    syncDao.dropTombstone(pushed.syncId);
+                }
+                result.pushed++;
+            } else {
+                // 서버의 현재 Record가 changes에 함께 오므로 아래에서 푼다.
+                conflicts++;
+            }
+        }
+        for (NoteSyncProtocol.Record remote : response.changes) {
+            if (applyRemote(remote)) {
+                result.pulled++;
+            }
+        }
+        result.conflicts += conflicts;
+        return conflicts;
+    }
+
+    // 서버의 Record를 반영했으면 true. 이미 반영했거나 충돌에서 로컬이 이기면 false.
+    private boolean applyRemote(NoteSyncProtocol.Record remote) {
+        NoteSync state = syncDao.getState(remote.syncId);
+        if (state != null && state.getVersion() >= remote.version) {
+            return false;
+        }
+        if (state != null && state.isDirty() && !remoteWins(localRecord(state), remote)) {
+            syncDao.rebase(remote.syncId, remote.version);
+            return false;
+        }
+        if (remote.deleted && state == null) {
+            // 이 기기에 없는 Note이거나, 방금 올린 삭제가 돌아왔다.
+            return false;
+        }
+        Integer noteId = state != null ? state.getNoteId() : null;
+        if (remote.deleted) {
+            if (noteId != null) {
+                noteDao.deleteByIds(Collections.singletonList(noteId));
+            }
+            // 트리거가 남긴 tombstone도 필요 없다.
+            syncDao.deleteState(remote.syncId);
+            return true;
+        }
+        Note note = remote.toNote();
+        if (noteId != null) {
+            note.setId(noteId);
+            noteDao.update(note);
+        } else {
+            noteDao.insert(note);
+            noteId = syncDao.getNoteId(remote.syncId);
+        }
+        syncDao.markApplied(remote.syncId, noteId, remote.version);
+        return true;
+    }
+
+    private NoteSyncProtocol.Record localRecord(NoteSync state) {
+        Note note = state.getNoteId() != null ? noteDao.findById(state.getNoteId()) : null;
+        if (note == null) {
+            return new NoteSyncProtocol.Record(state.getSyncId(), state.getVersion(), true, state.getChangedAt(),
+                    null, null, 0, state.getRevision());
+        }
+        return new NoteSyncProtocol.Record(state.getSyncId(), state.getVersion(), false, note.getUpdatedAt(),
+                note.getTitle(), note.getDescription(), note.getPriority(), state.getRevision());
+    }
+
+    // *충돌 규칙*
+    // 1. 나중에 바꾼 쪽이 이긴다.
+    // 2. 시각이 같으면 지운 쪽이 이긴다.
+    // 3. 그래도 같으면 내용(title, description, priority)을 비교해 큰 쪽이 이긴다. 내용까지 같으면 서버 쪽을 쓴다.
+    // 어느 기기에서 계산해도 같은 쪽이 이기도록 기기마다 다른 값(로컬 id, 받은 순서)은 쓰지 않는다.
+    static boolean remoteWins(NoteSyncProtocol.Record local, NoteSyncProtocol.Record remote) {
+        if (local.updatedAt != remote.updatedAt) {
+            return remote.updatedAt > local.updatedAt;
+        }
+        if (local.deleted != remote.deleted) {
+            return remote.deleted;
+        }
+        int byTitle = compare(remote.title, local.title);
+        if (byTitle != 0) {
+            return byTitle > 0;
+        }
+        int byDescription = compare(remote.description, local.description);
+        if (byDescription != 0) {
+            return byDescription > 0;
+        }
+        return remote.priority >= local.priority;
+    }
+
+    private static int compare(String a, String b) {
+        if (a == null) {
+            return b == null ? 0 : -1;
+        }
+        return b == null ? 1 : a.compareTo(b);
+    }
+
+    private static <T> T await(NoteFuture<T> future) throws IOException {
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Sync interrupted");
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            throw new IOException(cause);
+        }
+    }
+
+    // 동기화 한 번의 결과. 바이트 수는 압축된 전송 크기다.
+    static final class Result {
+        int rounds;
+        int pushed;
+        int pulled;
+        int conflicts;
+        long bytesSent;
+        long bytesReceived;
+
+        int getChanges() {
+            return pushed + pulled;
+        }
+
+        @Override
+        public String toString() {
+            return "rounds=" + rounds + " pushed=" + pushed + " pulled=" + pulled + " conflicts=" + conflicts
+                    + " sent=" + bytesSent + "B received=" + bytesReceived + "B";
+        }
+    }
+}
@@ -0,0 +1,277 @@
+package com.example.mvvmarchitecture;
+
+import android.util.JsonReader;
+import android.util.JsonToken;
+import android.util.JsonWriter;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+// *동기화 프로토콜*
+// 1. POST 한 번에 올리기와 내려받기를 함께 한다. 요청과 응답은 JSON 하나이고 전송할 때 gzip으로 압축한다.
+//    요청: {"token": 마지막으로 받은 토큰, "limit": 한 번에 받을 변경 수, "changes": [Record...]}
+//    응답: {"token": 다음 토큰, "more": 더 받을 변경이 있는지, "results": [{"id", "status", "version"}...], "changes": [Record...]}
+//    Record: {"id", "version", "deleted", "updatedAt", "title", "description", "priority"}. 지운 Note는 내용이 없다.
+// 2. 올리는 Record의 version은 로컬이 마지막으로 본 서버 버전이다. 서버의 현재 버전과 다르면 status가 "conflict"이고,
+//    서버는 자신의 현재 Record를 changes에 함께 보낸다.
+// 3. changes는 token 이후에 서버에서 바뀐 Record로, 이번 요청으로 바뀐 것도 들어 있다. 토큰은 서버가 정하는 값이고
+//    클라이언트는 받은 그대로 다음 요청에 돌려준다.
+final class NoteSyncProtocol {
+    static final String STATUS_APPLIED = "applied";
+    static final String STATUS_CONFLICT = "conflict";
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+    private NoteSyncProtocol() {
+    }
+
+    static final class Record {
+        final String syncId;
+        // 올릴 때는 기준 버전, 받을 때는 서버의 버전.
+        final int version;
+        final boolean deleted;
+        final long updatedAt;
+        final String title;
+        final String description;
+        final int priority;
+        // 로컬에서 읽은 Record의 note_sync.revision. 전송하지 않는다.
+        final int revision;
+
+        Record(String syncId, int version, boolean deleted, long updatedAt, String title, String description,
+               int priority, int revision) {
+            this.syncId = syncId;
+            this.version = version;
+            this.deleted = deleted;
+            this.updatedAt = updatedAt;
+            this.title = title;
+            this.description = description;
+            this.priority = priority;
+            this.revision = revision;
+        }
+
+        Note toNote() {
+            return new Note(syncId, updatedAt, title, description, priority);
+        }
+    }
+
+    static final class Request {
+        final long token;
+        final int limit;
+        final List<Record> changes;
+
+        Request(long token, int limit, List<Record> changes) {
+            this.token = token;
+            this.limit = limit;
+            this.changes = changes;
+        }
+    }
+
+    static final class Result {
+        final String syncId;
+        final boolean applied;
+        // 서버의 현재 버전.
+        final int version;
+
+        Result(String syncId, boolean applied, int version) {
+            this.syncId = syncId;
+            this.applied = applied;
+            this.version = version;
+        }
+    }
+
+    static final class Response {
+        final long token;
+        final boolean more;
+        final List<Result> results;
+        final List<Record> changes;
+
+        Response(long token, boolean more, List<Result> results, List<Record> changes) {
+            this.token = token;
+            this.more = more;
+            this.results = results;
+            this.changes = changes;
+        }
+    }
+
+    // out은 닫지 않는다.
+    static void writeRequest(OutputStream out, Request request) throws IOException {
+        JsonWriter json = newWriter(out);
+        json.beginObject();
+        json.name("token").value(request.token);
+        json.name("limit").value(request.limit);
+        writeRecords(json, "changes", request.changes);
+        json.endObject();
+        json.flush();
+    }
+
+    static Request readRequest(InputStream in) throws IOException {
+        JsonReader json = newReader(in);
+        long token = 0;
+        int limit = 0;
+        List<Record> changes = Collections.emptyList();
+        json.beginObject();
+        while (json.hasNext()) {
+            String name = json.nextName();
+            if (name.equals("token")) {
+                token = json.nextLong();
+            } else if (name.equals("limit")) {
+                limit = json.nextInt();
+            } else if (name.equals("changes")) {
+                changes = readRecords(json);
+            } else {
+                json.skipValue();
+            }
+        }
+        json.endObject();
+        return new Request(token, limit, changes);
+    }
+
+    static void writeResponse(OutputStream out, Response response) throws IOException {
+        JsonWriter json = newWriter(out);
+        json.beginObject();
+        json.name("token").value(response.token);
+        json.name("more").value(response.more);
+        json.name("results").beginArray();
+        for (Result result : response.results) {
+            json.beginObject();
+            json.name("id").value(result.syncId);
+            json.name("status").value(result.applied ? STATUS_APPLIED : STATUS_CONFLICT);
+            json.name("version").value(result.version);
+            json.endObject();
+        }
+        json.endArray();
+        writeRecords(json, "changes", response.changes);
+        json.endObject();
+        json.flush();
+    }
+
+    static Response readResponse(InputStream in) throws IOException {
+        JsonReader json = newReader(in);
+        long token = 0;
+        boolean more = false;
+        List<Result> results = new ArrayList<>();
+        List<Record> changes = Collections.emptyList();
+        json.beginObject();
+        while (json.hasNext()) {
+            String name = json.nextName();
+            if (name.equals("token")) {
+                token = json.nextLong();
+            } else if (name.equals("more")) {
+                more = json.nextBoolean();
+            } else if (name.equals("results")) {
+                json.beginArray();
+                while (json.hasNext()) {
+                    results.add(readResult(json));
+                }
+                json.endArray();
+            } else if (name.equals("changes")) {
+                changes = readRecords(json);
+            } else {
+                json.skipValue();
+            }
+        }
+        json.endObject();
+        return new Response(token, more, results, changes);
+    }
+
+    private static Result readResult(JsonReader json) throws IOException {
+        String syncId = null;
+        String status = null;
+        int version = 0;
+        json.beginObject();
+        while (json.hasNext()) {
+            String name = json.nextName();
+            if (name.equals("id")) {
+                syncId = json.nextString();
+            } else if (name.equals("status")) {
+                status = json.nextString();
+            } else if (name.equals("version")) {
+                version = json.nextInt();
+            } else {
+                json.skipValue();
+            }
+        }
+        json.endObject();
+        if (syncId == null || status == null) {
+            throw new IOException("Sync result without id or status");
+        }
+        return new Result(syncId, status.equals(STATUS_APPLIED), version);
+    }
+
+    private static void writeRecords(JsonWriter json, String name, List<Record> records) throws IOException {
+        json.name(name).beginArray();
+        for (Record record : records) {
+            json.beginObject();
+            json.name("id").value(record.syncId);
+            json.name("version").value(record.version);
+            json.name("updatedAt").value(record.updatedAt);
+            if (record.deleted) {
+                json.name("deleted").value(true);
+            } else {
+                json.name("title").value(record.title);
+                json.name("description").value(record.description);
+                json.name("priority").value(record.priority);
+            }
+            json.endObject();
+        }
+        json.endArray();
+    }
+
+    private static List<Record> readRecords(JsonReader json) throws IOException {
+        List<Record> records = new ArrayList<>();
+        json.beginArray();
+        while (json.hasNext()) {
+            String syncId = null;
+            int version = 0;
+            boolean deleted = false;
+            long updatedAt = 0;
+            String title = null;
+            String description = null;
+            int priority = 0;
+            json.beginObject();
+            while (json.hasNext()) {
+                String name = json.nextName();
+                if (json.peek() == JsonToken.NULL) {
+                    json.nextNull();
+                } else if (name.equals("id")) {
+                    syncId = json.nextString();
+                } else if (name.equals("version")) {
+                    version = json.nextInt();
+                } else if (name.equals("deleted")) {
+                    deleted = json.nextBoolean();
+                } else if (name.equals("updatedAt")) {
+                    updatedAt = json.nextLong();
+                } else if (name.equals("title")) {
+                    title = json.nextString();
+                } else if (name.equals("description")) {
+                    description = json.nextString();
+                } else if (name.equals("priority")) {
+                    priority = json.nextInt();
+                } else {
+                    json.skipValue();
+                }
+            }
+            json.endObject();
+            if (syncId == null) {
+                throw new IOException("Sync record without id");
+            }
+            records.add(new Record(syncId, version, deleted, updatedAt, title, description, priority, 0));
+        }
+        json.endArray();
+        return records;
+    }
+
+    private static JsonWriter newWriter(OutputStream out) {
+        return new JsonWriter(new OutputStreamWriter(out, UTF_8));
+    }
+
+    private static JsonReader newReader(InputStream in) {
+        return new JsonReader(new InputStreamReader(in, UTF_8));
+    }
+}
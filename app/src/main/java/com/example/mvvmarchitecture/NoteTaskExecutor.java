@@ -0,0 +1,91 @@
+package com.example.mvvmarchitecture;
+
+import androidx.annotation.NonNull;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicLong;
+
+// *우선순위 쓰기 실행기*
+// 1. 쓰기 작업을 Priority 순서로, 같은 Priority 안에서는 제출한 순서대로 하나씩 실행한다.
+// 2. 사용자가 기다리는 편집(INTERACTIVE)은 가져오기나 전체 삭제 같은 긴 작업(BULK)보다 먼저 실행된다.
+//    긴 작업은 한 덩어리씩 나눠 제출해야 그 사이에 편집이 끼어들 수 있다.
+// 3. 실제로 어떻게 실행할지는 enqueue가 정한다. 앱은 PriorityTaskExecutor(단일 스레드)를,
+//    테스트는 원하는 때에 하나씩 실행하는 구현을 끼워 넣는다.
+// 4. Priority 없이 execute(Runnable)로 들어온 작업(Room 내부 등)은 NORMAL로 실행한다.
+abstract class NoteTaskExecutor implements Executor {
+    enum Priority {
+        INTERACTIVE,
+        NORMAL,
+        BULK
+    }
+
+    private final AtomicLong sequence = new AtomicLong();
+
+    // task를 순서대로 실행할 큐에 넣는다. 꺼낼 때는 Task의 자연 순서(compareTo)를 따라야 한다.
+    abstract void enqueue(Task task);
+
+    @Override
+    public void execute(@NonNull Runnable command) {
+        execute(Priority.NORMAL, command);
+    }
+
+    void execute(Priority priority, Runnable command) {
+        enqueue(new Task(priority, sequence.getAndIncrement(), command));
+    }
+
+    // callable의 결과나 예외를 NoteFuture로 돌려준다. 시작하기 전에 취소되면 실행하지 않는다.
+    <T> NoteFuture<T> submit(Priority priority, final Callable<T> callable) {
+        final NoteFuture<T> future = new NoteFuture<>();
+        execute(priority, new Runnable() {
+            @Override
+            public void run() {
+                if (future.isDone()) {
+                    return;
+                }
+                try {
+                    future.set(callable.call());
+                } catch (Exception e) {
+                    future.setException(e);
+                }
+            }
+        });
+        return future;
+    }
+
+    // Executor만 받는 곳(LivePagedListBuilder 등)에 특정 Priority로 넘길 때 쓴다.
+    Executor at(final Priority priority) {
+        return new Executor() {
+            @Override
+            public void execute(@NonNull Runnable command) {
+                NoteTaskExecutor.this.execute(priority, command);
+            }
+        };
+    }
+
+    static final class Task implements Runnable, Comparable<Task> {
+        final Priority priority;
+        private final long sequence;
+        private final Runnable command;
+
+        Task(Priority priority, long sequence, Runnable command) {
+            this.priority = priority;
+            this.sequence = sequence;
+            this.command = command;
+        }
+
+        @Override
+        public void run() {
+            command.run();
+        }
+
+        @Override
+        public int compareTo(@NonNull Task other) {
+            int byPriority = priority.compareTo(other.priority);
+            if (byPriority != 0) {
+                return byPriority;
+            }
+            return sequence < other.sequence ? -1 : (sequence == other.sequence ? 0 : 1);
+        }
+    }
+}
@@ -0,0 +1,447 @@
+package com.example.mvvmarchitecture;
+
+import android.database.Cursor;
+import android.util.JsonReader;
+import android.util.JsonToken;
+
+import androidx.annotation.Nullable;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+// *스트리밍 내보내기/가져오기*
+// 1. 내보내기는 id 순서로 chunkSize개씩 Cursor를 열어 한 행씩 바로 써 내려간다. Note 객체를 만들지 않는다.
+//    note_table을 다 쓴 뒤 보관된 Note(note_archive)를 같은 방식으로 이어 쓴다.
+// 2. 가져오기는 입력을 한 레코드씩 읽고 chunkSize개가 모이면 insertAll 트랜잭션 하나로 커밋한다.
+//    행마다 트랜잭션(fsync)을 하던 것이 chunk마다 한 번으로 줄고, 메모리에는 chunk 하나만 남는다.
+// 3. 형식은 JSON Lines(한 줄에 Note 하나)와 헤더가 있는 CSV(RFC 4180)를 지원한다.
+// 4. 가져온 Note는 새 id를 받는다. 내보낸 파일의 id 컬럼은 참고용이다.
+public final class NoteTransfer {
+    static final int DEFAULT_CHUNK_SIZE = 1000;
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+    private static final int BUFFER_SIZE = 64 * 1024;
+    private static final String[] CSV_HEADER = {"id", "title", "description", "priority"};
+
+    public enum Format {
+        JSON_LINES,
+        CSV
+    }
+
+    // 작업 스레드에서 chunk가 끝날 때마다 호출된다. 지금까지 처리한 Note 개수를 넘겨준다.
+    public interface ProgressListener {
+        void onProgress(long count);
+    }
+
+    private final NoteDao noteDao;
+    private final int chunkSize;
+
+    NoteTransfer(NoteDao noteDao) {
+        this(noteDao, DEFAULT_CHUNK_SIZE);
+    }
+
+    NoteTransfer(NoteDao noteDao, int chunkSize) {
+        this.noteDao = noteDao;
+        this.chunkSize = chunkSize;
+    }
+
+    // 모든 Note를 out에 쓰고 개수를 반환한다. out은 닫지 않는다.
+    public long exportNotes(OutputStream out, Format format, @Nullable ProgressListener listener) throws IOException {
+        Writer writer = new BufferedWriter(new OutputStreamWriter(out, UTF_8), BUFFER_SIZE);
+        if (format == Format.CSV) {
+            writeCsvRecord(writer, CSV_HEADER);
+        }
+        String[] fields = new String[CSV_HEADER.length];
+        long count = exportTable(writer, format, fields, false, 0, listener);
+        count = exportTable(writer, format, fields, true, count, listener);
+        writer.flush();
+        return count;
+    }
+
+    // 한 테이블을 id 순서로 끝까지 쓰고, count에 쓴 행 수를 더해 반환한다.
+    private long exportTable(Writer writer, Format format, String[] fields, boolean archive, long count,
+                             @Nullable ProgressListener listener) throws IOException {
+        int afterId = 0;
+        while (true) {
+            // 커서 하나로 전체를 훑으면 CursorWindow를 다시 채울 때마다 처음부터 다시 건너뛴다.
+            // id를 기준으로 구간을 나눠 열면 각 구간은 인덱스(PRIMARY KEY)에서 바로 시작한다.
+            Cursor cursor = archive
+                    ? noteDao.exportArchiveCursor(afterId, chunkSize) : noteDao.exportCursor(afterId, chunkSize);
+            int rows = 0;
+            try {
+                while (cursor.moveToNext()) {
+                    afterId = cursor.getInt(0);
+                    String description = NoteCompression.decode(cursor.getString(2), cursor.getBlob(4), cursor.getInt(5));
+                    if (format == Format.CSV) {
+                        fields[0] = String.valueOf(afterId);
+                        fields[1] = cursor.getString(1);
+                        fields[2] = description;
+                        fields[3] = String.valueOf(cursor.getInt(3));
+                        writeCsvRecord(writer, fields);
+                    } else {
+                        writeJsonLine(writer, afterId, cursor.getString(1), description, cursor.getInt(3));
+                    }
+                    rows++;
+                }
+            } finally {
+                cursor.close();
+            }
+            count += rows;
+            if (listener != null && rows > 0) {
+                listener.onProgress(count);
+            }
+            if (rows < chunkSize) {
+                return count;
+            }
+        }
+    }
+
+    // in에서 Note를 읽어 넣고 개수를 반환한다. format이 null이면 첫 글자로 형식을 정한다. in은 닫지 않는다.
+    // 중간에 형식 오류가 나면 이미 커밋한 chunk는 남고 IOException을 던진다.
+    public long importNotes(InputStream in, @Nullable Format format, @Nullable ProgressListener listener) throws IOException {
+        Import task = beginImport(in, format, listener);
+        while (task.step()) {
+            // 한 번에 chunk 하나씩 커밋한다.
+        }
+        return task.count();
+    }
+
+    // importNotes를 chunk 단위로 나눠 실행한다. 호출하는 쪽이 step() 사이에 다른 작업을 끼워 넣거나 멈출 수 있다.
+    Import beginImport(InputStream in, @Nullable Format format, @Nullable ProgressListener listener) throws IOException {
+        BufferedInputStream buffered = new BufferedInputStream(in, BUFFER_SIZE);
+        if (format == null) {
+            format = detectFormat(buffered);
+        }
+        Reader reader = new BufferedReader(new InputStreamReader(buffered, UTF_8), BUFFER_SIZE);
+        NoteSource source = format == Format.CSV ? new CsvNoteSource(reader) : new JsonLinesNoteSource(reader);
+        return new Import(source, listener);
+    }
+
+    // JSON Lines는 '{'로 시작하고, 그 밖에는 CSV 헤더로 본다.
+    static Format detectFormat(BufferedInputStream in) throws IOException {
+        in.mark(BUFFER_SIZE);
+        try {
+            int c;
+            do {
+                c = in.read();
+            } while (c == ' ' || c == '\t' || c == '\r' || c == '\n');
+            return c == '{' ? Format.JSON_LINES : Format.CSV;
+        } finally {
+            in.reset();
+        }
+    }
+
+    // 입력에서 Note를 하나씩 읽는다.
+    private interface NoteSource {
+        // 입력이 끝났으면 null을 반환한다.
+        Note next() throws IOException;
+    }
+
+    private static final class JsonLinesNoteSource implements NoteSource {
+        private final JsonReader json;
+        private long records;
+
+        JsonLinesNoteSource(Reader reader) {
+            json = new JsonReader(reader);
+            // 최상위 값이 여러 개(줄마다 하나) 오는 것을 허용한다.
+            json.setLenient(true);
+        }
+
+        @Override
+        public Note next() throws IOException {
+            if (json.peek() == JsonToken.END_DOCUMENT) {
+                return null;
+            }
+            records++;
+            String title = null;
+            String description = null;
+            Integer priority = null;
+            json.beginObject();
+            while (json.hasNext()) {
+                String name = json.nextName();
+                if (json.peek() == JsonToken.NULL) {
+                    json.nextNull();
+                } else if (name.equals("title")) {
+                    title = json.nextString();
+                } else if (name.equals("description")) {
+                    description = json.nextString();
+                } else if (name.equals("priority")) {
+                    priority = json.nextInt();
+                } else {
+                    json.skipValue();
+                }
+            }
+            json.endObject();
+            if (priority == null) {
+                throw missingPriority(records);
+            }
+            return new Note(title, description, priority);
+        }
+    }
+
+    private static final class CsvNoteSource implements NoteSource {
+        private final CsvReader csv;
+        private boolean headerRead;
+        private Integer titleColumn;
+        private Integer descriptionColumn;
+        private Integer priorityColumn;
+        private long records;
+
+        CsvNoteSource(Reader reader) {
+            csv = new CsvReader(reader);
+        }
+
+        @Override
+        public Note next() throws IOException {
+            if (!headerRead && !readHeader()) {
+                return null;
+            }
+            List<String> record;
+            while ((record = csv.readRecord()) != null) {
+                if (record.size() == 1 && record.get(0).isEmpty()) {
+                    // 빈 줄
+                    continue;
+                }
+                records++;
+                String title = field(record, titleColumn);
+                String description = descriptionColumn != null ? field(record, descriptionColumn) : null;
+                String priority = field(record, priorityColumn);
+                if (priority == null) {
+                    throw missingPriority(records);
+                }
+                try {
+                    return new Note(title, description, Integer.parseInt(priority.trim()));
+                } catch (NumberFormatException e) {
+                    throw new IOException("Invalid priority at record " + records + ": " + priority, e);
+                }
+            }
+            return null;
+        }
+
+        // 헤더가 없는 빈 입력이면 false를 반환한다.
+        private boolean readHeader() throws IOException {
+            headerRead = true;
+            List<String> header = csv.readRecord();
+            if (header == null) {
+                return false;
+            }
+            Map<String, Integer> columns = new HashMap<>();
+            for (int i = 0; i < header.size(); i++) {
+                columns.put(header.get(i).trim(), i);
+            }
+            titleColumn = columns.get("title");
+            descriptionColumn = columns.get("description");
+            priorityColumn = columns.get("priority");
+            if (titleColumn == null || priorityColumn == null) {
+                throw new IOException("CSV header must contain title and priority columns: " + header);
+            }
+            return true;
+        }
+    }
+
+    // priority가 없는 레코드는 0(범위 밖의 값)으로 넣지 않고 가져오기를 멈춘다. 이미 커밋한 chunk는 남는다.
+    private static IOException missingPriority(long record) {
+        return new IOException("Missing priority at record " + record);
+    }
+
+    private static String field(List<String> record, int column) {
+        return column < record.size() ? record.get(column) : null;
+    }
+
+    // 가져오는 Note를 chunkSize개씩 모아 insertAll(트랜잭션 하나)로 커밋한다.
+    final class Import {
+        private final NoteSource source;
+        private final ProgressListener listener;
+        private final List<Note> chunk = new ArrayList<>(chunkSize);
+        private long committed;
+        private boolean done;
+
+        private Import(NoteSource source, ProgressListener listener) {
+            this.source = source;
+            this.listener = listener;
+        }
+
+        // chunk 하나를 읽어 커밋한다. 더 읽을 것이 남았으면 true를 반환한다.
+        // 형식 오류가 나면 읽던 chunk는 버리고 IOException을 던진다. 이미 커밋한 chunk는 남는다.
+        boolean step() throws IOException {
+            if (done) {
+                return false;
+            }
+            Note note;
+            while (chunk.size() < chunkSize && (note = source.next()) != null) {
+                chunk.add(note);
+            }
+            done = chunk.size() < chunkSize;
+            if (!chunk.isEmpty()) {
+                noteDao.insertAll(chunk);
+                committed += chunk.size();
+                chunk.clear();
+                if (listener != null) {
+                    listener.onProgress(committed);
+                }
+            }
+            return !done;
+        }
+
+        long count() {
+            return committed;
+        }
+    }
+
+    private static void writeJsonLine(Writer writer, int id, String title, String description, int priority) throws IOException {
+        writer.write("{\"id\":");
+        writer.write(String.valueOf(id));
+        writer.write(",\"title\":");
+        writeJsonString(writer, title);
+        writer.write(",\"description\":");
+        writeJsonString(writer, description);
+        writer.write(",\"priority\":");
+        writer.write(String.valueOf(priority));
+        writer.write("}\n");
+    }
+
+    private static void writeJsonString(Writer writer, String value) throws IOException {
+        if (value == null) {
+            writer.write("null");
+            return;
+        }
+        writer.write('"');
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            switch (c) {
+                case '"':
+                    writer.write("\\\"");
+                    break;
+                case '\\':
+                    writer.write("\\\\");
+                    break;
+                case '\n':
+                    writer.write("\\n");
+                    break;
+                case '\r':
+                    writer.write("\\r");
+                    break;
+                case '\t':
+                    writer.write("\\t");
+                    break;
+                default:
+                    if (c < 0x20) {
+                        writer.write(String.format(Locale.ROOT, "\\u%04x", (int) c));
+                    } else {
+                        writer.write(c);
+                    }
+            }
+        }
+        writer.write('"');
+    }
+
+    // 쉼표, 따옴표, 줄바꿈이 들어간 필드만 따옴표로 감싸고 안의 따옴표는 두 번 쓴다.
+    private static void writeCsvRecord(Writer writer, String[] fields) throws IOException {
+        for (int i = 0; i < fields.length; i++) {
+            if (i > 0) {
+                writer.write(',');
+            }
+            String field = fields[i];
+            if (field == null) {
+                continue;
+            }
+            boolean quote = false;
+            for (int j = 0; j < field.length() && !quote; j++) {
+                char c = field.charAt(j);
+                quote = c == ',' || c == '"' || c == '\n' || c == '\r';
+            }
+            if (quote) {
+                writer.write('"');
+                writer.write(field.replace("\"", "\"\""));
+                writer.write('"');
+            } else {
+                writer.write(field);
+            }
+        }
+        writer.write('\n');
+    }
+
+    // 따옴표 안의 줄바꿈까지 처리하는 최소한의 스트리밍 CSV 파서.
+    static final class CsvReader {
+        private final Reader reader;
+        private final StringBuilder field = new StringBuilder();
+        private int pushedBack = -2;
+
+        CsvReader(Reader reader) {
+            this.reader = reader;
+        }
+
+        // 레코드 하나를 읽는다. 입력이 끝났으면 null을 반환한다.
+        List<String> readRecord() throws IOException {
+            int c = read();
+            if (c == -1) {
+                return null;
+            }
+            List<String> record = new ArrayList<>();
+            field.setLength(0);
+            boolean quoted = false;
+            while (true) {
+                if (quoted) {
+                    if (c == -1) {
+                        throw new IOException("Unterminated quoted CSV field");
+                    } else if (c == '"') {
+                        int next = read();
+                        if (next == '"') {
+                            field.append('"');
+                        } else {
+                            quoted = false;
+                            c = next;
+                            continue;
+                        }
+                    } else {
+                        field.append((char) c);
+                    }
+                } else if (c == '"' && field.length() == 0) {
+                    quoted = true;
+                } else if (c == ',') {
+                    record.add(field.toString());
+                    field.setLength(0);
+                } else if (c == '\n' || c == -1) {
+                    break;
+                } else if (c == '\r') {
+                    int next = read();
+                    if (next != '\n') {
+                        unread(next);
+                    }
+                    break;
+                } else {
+                    field.append((char) c);
+                }
+                c = read();
+            }
+            record.add(field.toString());
+            return record;
+        }
+
+        private int read() throws IOException {
+            if (pushedBack != -2) {
+                int c = pushedBack;
+                pushedBack = -2;
+                return c;
+            }
+            return reader.read();
+        }
+
+        private void unread(int c) {
+            pushedBack = c;
+        }
+    }
+}
@@ -1,24 +1,80 @@
 package com.example.mvvmarchitecture;
 
 import android.app.Application;
+import android.os.Handler;
+import android.os.Looper;
+import android.text.TextUtils;
 
 import androidx.annotation.NonNull;
+import androidx.arch.core.util.Function;
 import androidx.lifecycle.AndroidViewModel;
 import androidx.lifecycle.LiveData;
+import androidx.lifecycle.MediatorLiveData;
+import androidx.lifecycle.MutableLiveData;
+import androidx.lifecycle.Observer;
+import androidx.lifecycle.Transformations;
+import androidx.paging.PagedList;
 
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
 import java.util.List;
 
 // ViewModel은 UI 컨트롤러와 리포지토리 사이의 게이트웨이 역할을 한다.
 // Activity/Fragment 대한 데이터를 저장하고 처리하며, 구성 변경에 구애받지 않으므로, 예를 들어 장치가 회전할 때 가변 상태를 잃지 않는다.
 // AndroidViewModel을 확장하면 애플리케이션 Context에 대한 handle을 얻을 수 있으며, 이를 통해 RoomDatabase를 인스턴스화한다.
 public class NoteViewModel extends AndroidViewModel {
+    // 마지막 입력 후 이 시간 동안 입력이 없을 때만 검색한다.
+    private static final long SEARCH_DEBOUNCE_MS = 300;
+
     private NoteRepository repository;
-    private LiveData<List<Note>> allNotes;
+    private LiveData<PagedList<NoteListItem>> pagedNotes;
+    // 이 ViewModel의 목록만 읽는 Factory. 다른 화면의 ViewModel이 필터를 바꾸거나 되돌리지 못한다.
+    private NoteKeysetDataSource.Factory pagedNotesFactory;
+    private LiveData<List<NotePriorityCount>> priorityCounts;
+    // 목록에 적용 중인 priority 필터. 회전해도 유지된다.
+    private final MutableLiveData<NotePriorityRange> priorityRange = new MutableLiveData<>();
+
+    private final Handler handler = new Handler(Looper.getMainLooper());
+    private final MutableLiveData<String> searchQuery = new MutableLiveData<>();
+    private final LiveData<NoteColumns> searchResults;
+    // 보관된 Note까지 검색할지. 메인 스레드에서만 바꾼다.
+    private boolean searchArchive;
+    private Runnable pendingSearch;
+    // 마지막으로 입력된 검색어. debounce 중이라 아직 searchQuery에 넘기지 않은 것일 수 있다.
+    private String latestQuery;
+    // 내보내기/가져오기 중 처리한 개수(작업이 없으면 null)와 끝났을 때 한 번 보여줄 메시지.
+    private final MutableLiveData<Long> transferProgress = new MutableLiveData<>();
+    private final MutableLiveData<String> transferResult = new MutableLiveData<>();
+    // 편집 화면에서만 쓴다. openEditor 전에는 null이다.
+    private LiveData<NoteEditor> editor;
 
     public NoteViewModel(@NonNull Application application) {
         super(application);
-        repository = new NoteRepository(application);
-        allNotes = repository.getAllNotes();
+        repository = NoteRepository.getInstance(application);
+        pagedNotesFactory = repository.newPagedNotesFactory();
+        pagedNotes = repository.getPagedNotes(pagedNotesFactory);
+        priorityCounts = repository.getPriorityCounts();
+        // 새 Factory는 전체 구간에서 시작하므로 값만 맞춘다.
+        priorityRange.setValue(NotePriorityRange.ALL);
+        // switchMap은 새 검색어가 오면 이전 검색의 LiveData 관찰을 끊는다.
+        // 그 전이라도 검색어나 범위가 이미 바뀌었다면(debounce 중) 이전 검색의 결과는 내보내지 않는다.
+        searchResults = Transformations.switchMap(searchQuery, new Function<String, LiveData<NoteColumns>>() {
+            @Override
+            public LiveData<NoteColumns> apply(final String query) {
+                final boolean archive = searchArchive;
+                final MediatorLiveData<NoteColumns> current = new MediatorLiveData<>();
+                current.addSource(repository.search(query, archive), new Observer<NoteColumns>() {
+                    @Override
+                    public void onChanged(NoteColumns columns) {
+                        if (TextUtils.equals(query, latestQuery) && archive == searchArchive) {
+                            current.setValue(columns);
+                        }
+                    }
+                });
+                return current;
+            }
+        });
     }
     public void insert(Note note) {
         repository.insert(note);
@@ -29,11 +85,238 @@ public class NoteViewModel extends AndroidViewModel {
     public void delete(Note note) {
         repository.delete(note);
     }
+    public void deleteById(int id) {
+        repository.deleteById(id);
+    }
+    // 목록에서 고른 Note들. 각각 트랜잭션 하나로 커밋된다.
+    // 결과는 커밋된 뒤 내보내기/가져오기와 같은 메시지로 알린다.
+    public void deleteByIds(final List<Integer> ids) {
+        repository.deleteByIds(ids).addCallback(new NoteFuture.Callback<Void>() {
+            @Override
+            public void onSuccess(Void result) {
+                transferResult.postValue(ids.size() + " notes deleted");
+            }
+
+            @Override
+            public void onFailure(Throwable error) {
+                transferResult.postValue("Could not delete " + ids.size() + " notes: " + error.getMessage());
+            }
+        });
+    }
+    public void updatePriority(List<Integer> ids, int priority) {
+        repository.updatePriority(ids, priority);
+    }
     public void deleteAllNotes() {
         repository.deleteAllNotes();
     }
 
-    public LiveData<List<Note>> getAllNotes() {
-        return allNotes;
+    public void prefetchNote(int id) {
+        repository.prefetchNote(id);
+    }
+
+    public LiveData<Note> getNote(int id) {
+        return repository.getNote(id);
+    }
+
+    // 편집 화면이 회전해도 다시 읽지 않도록 처음 연 NoteEditor를 들고 있는다.
+    public LiveData<NoteEditor> openEditor(int id, int defaultPriority) {
+        if (editor == null) {
+            editor = repository.openEditor(id, defaultPriority);
+        }
+        return editor;
+    }
+
+    // 입력이 멈췄을 때 편집 화면이 부른다. 마지막 초안과 내용이 같으면 아무것도 쓰지 않는다.
+    public void autosaveDraft(String title, String description, int priority) {
+        NoteEditor state = editor == null ? null : editor.getValue();
+        if (state == null) {
+            return;
+        }
+        switch (state.updateDraft(title, description, priority, System.currentTimeMillis())) {
+            case SAVE:
+                repository.saveDraft(state.getDraft());
+                break;
+            case DISCARD:
+                repository.discardDraft(state.getNoteId());
+                break;
+            default:
+                break;
+        }
+    }
+
+    // 편집 화면을 저장하지 않고 닫을 때 부른다.
+    public void discardDraft() {
+        NoteEditor state = editor == null ? null : editor.getValue();
+        if (state != null && state.clearDraft()) {
+            repository.discardDraft(state.getNoteId());
+        }
+    }
+
+    // 바뀐 컬럼만 저장하고 초안을 지운다. 기존 Note에서 바뀐 것이 없으면 쓰지 않고 false를 반환한다.
+    // NoteEditor를 아직 읽지 못했으면 모든 컬럼을 쓴다.
+    public boolean saveEditor(int id, String title, String description, int priority) {
+        NoteEditor state = editor == null ? null : editor.getValue();
+        Note note = new Note(title, description, priority);
+        if (id == NoteDraft.NEW_NOTE_ID) {
+            insert(note);
+        } else {
+            int changed = state == null ? Note.FIELD_ALL : state.getChangedFields(title, description, priority);
+            if (changed == 0) {
+                discardDraft();
+                return false;
+            }
+            note.setId(id);
+            note.setChangedFields(changed);
+            update(note);
+        }
+        if (state == null || state.clearDraft()) {
+            repository.discardDraft(id);
+        }
+        return true;
+    }
+
+    public LiveData<PagedList<NoteListItem>> getPagedNotes() {
+        return pagedNotes;
+    }
+
+    public void setPriorityRange(NotePriorityRange range) {
+        priorityRange.setValue(range);
+        pagedNotesFactory.setPriorityRange(range);
+    }
+
+    public LiveData<NotePriorityRange> getPriorityRange() {
+        return priorityRange;
+    }
+
+    public LiveData<List<NotePriorityCount>> getPriorityCounts() {
+        return priorityCounts;
+    }
+
+    // 목록에 먼저 보여준 변경이 커밋에 실패하면 되돌린 변경 개수를 전달한다.
+    public LiveData<Integer> getWriteErrors() {
+        return repository.getWriteErrors();
+    }
+
+    // 검색어 입력마다 바로 질의하지 않고 SEARCH_DEBOUNCE_MS 동안 입력이 멈추면 검색한다.
+    // debounce를 기다리는 이전 검색어는 질의하지 않는다. 이미 실행 중인 질의는 끝까지 돌지만,
+    // 그 결과는 검색어가 바뀐 순간부터 getSearchResults()로 나가지 않는다.
+    public void setSearchQuery(final String query) {
+        latestQuery = query;
+        if (pendingSearch != null) {
+            handler.removeCallbacks(pendingSearch);
+        }
+        pendingSearch = new Runnable() {
+            @Override
+            public void run() {
+                pendingSearch = null;
+                searchQuery.setValue(query);
+            }
+        };
+        handler.postDelayed(pendingSearch, SEARCH_DEBOUNCE_MS);
+    }
+
+    // 지금 검색어로 바로 다시 검색한다.
+    public void setSearchArchive(boolean searchArchive) {
+        if (this.searchArchive == searchArchive) {
+            return;
+        }
+        this.searchArchive = searchArchive;
+        if (searchQuery.getValue() != null) {
+            searchQuery.setValue(searchQuery.getValue());
+        }
+    }
+
+    public boolean isSearchArchive() {
+        return searchArchive;
+    }
+
+    public LiveData<NoteColumns> getSearchResults() {
+        return searchResults;
+    }
+
+    public void exportNotes(OutputStream out, NoteTransfer.Format format) {
+        transferProgress.setValue(0L);
+        repository.exportNotes(out, format, new TransferStatusCallback("Export", "Exported"));
+    }
+
+    public boolean isSyncEnabled() {
+        return repository.isSyncEnabled();
+    }
+
+    // 결과는 내보내기/가져오기와 같은 메시지로 알린다.
+    public void sync() {
+        repository.sync().addCallback(new NoteFuture.Callback<NoteSyncEngine.Result>() {
+            @Override
+            public void onSuccess(NoteSyncEngine.Result result) {
+                transferResult.postValue("Synced " + result.getChanges() + " changes");
+            }
+
+            @Override
+            public void onFailure(Throwable error) {
+                transferResult.postValue("Sync failed: " + error.getMessage());
+            }
+        });
+    }
+
+    // 형식은 파일의 첫 글자로 알아낸다.
+    public void importNotes(InputStream in) {
+        transferProgress.setValue(0L);
+        repository.importNotes(in, null, new TransferStatusCallback("Import", "Imported"));
+    }
+
+    // 디버그 메뉴용. 기본 분포로 count개의 Note를 더 넣는다.
+    public void generateNotes(int count) {
+        transferProgress.setValue(0L);
+        repository.generateNotes(new NoteDataset.Builder(count).seed(System.nanoTime()).build(),
+                new TransferStatusCallback("Generate", "Generated"));
+    }
+
+    public LiveData<Long> getTransferProgress() {
+        return transferProgress;
+    }
+
+    public LiveData<String> getTransferResult() {
+        return transferResult;
+    }
+
+    // 화면이 메시지를 보여준 뒤 호출해 회전 후 다시 보여주지 않게 한다.
+    public void consumeTransferResult() {
+        transferResult.setValue(null);
+    }
+
+    // 작업 스레드에서 불리므로 postValue로 전달한다.
+    private class TransferStatusCallback implements NoteRepository.TransferCallback {
+        private final String action;
+        private final String doneVerb;
+
+        private TransferStatusCallback(String action, String doneVerb) {
+            this.action = action;
+            this.doneVerb = doneVerb;
+        }
+
+        @Override
+        public void onProgress(long count) {
+            transferProgress.postValue(count);
+        }
+
+        @Override
+        public void onComplete(long count) {
+            transferProgress.postValue(null);
+            transferResult.postValue(doneVerb + " " + count + " notes");
+        }
+
+        @Override
+        public void onError(IOException e) {
+            transferProgress.postValue(null);
+            transferResult.postValue(action + " failed: " + e.getMessage());
+        }
+    }
+
+    @Override
+    protected void onCleared() {
+        super.onCleared();
+        if (pendingSearch != null) {
+            handler.removeCallbacks(pendingSearch);
+        }
     }
 }
\ No newline at end of file
@@ -0,0 +1,269 @@
+package com.example.mvvmarchitecture;
+
+import android.os.Handler;
+import android.os.Looper;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+// *쓰기 합치기(Write Coalescing)*
+// 1. insert/update/delete 요청을 바로 실행하지 않고 큐에 모아둔다.
+// 2. 같은 id에 대한 update가 여러 번 오면 마지막 것만 남기고(바뀐 컬럼은 합친다), 삭제될 Note의 update는 버린다.
+// 3. 큐가 maxBatchSize만큼 차거나 FLUSH_DELAY_MS가 지나면 NoteDao.applyBatch로 한 번에 커밋한다.
+//    행마다 fsync, LiveData 재조회를 하던 것이 배치마다 한 번으로 줄어든다.
+// 4. deleteAll은 PURGE_CHUNK_SIZE개씩 나눠 지우고, 덩어리 사이에 쓰기 스레드를 다른 배치에 양보한다.
+//    지우는 동안 커밋된 배치는 지우기가 끝난 뒤에 순서대로 알린다(NoteOverlay가 그때까지 목록을 숨긴다).
+// 5. 배치는 INTERACTIVE, 지우기 덩어리는 BULK로 제출하므로 지우는 도중에도 편집은 바로 커밋된다.
+// 6. 요청마다 NoteFuture를 돌려준다. 그 요청이 담긴 배치를 listener에 알린 뒤에 끝난다.
+//    다른 요청에 덮어써지거나 deleteAll에 버려진 요청은 덮어쓴 요청과 함께 끝난다.
+class NoteWriteQueue {
+    // 쓰기 스레드에서 배치마다 한 번 호출된다. 실패하면 그 배치는 롤백되어 DB에 아무것도 남지 않는다.
+    interface BatchListener {
+        void onBatchCommitted(Batch batch);
+
+        void onBatchFailed(Batch batch, RuntimeException error);
+    }
+
+    static final int MAX_BATCH_SIZE = 100;
+    static final long FLUSH_DELAY_MS = 100;
+    static final int PURGE_CHUNK_SIZE = 500;
+
+    private final NoteDao noteDao;
+    // NoteDatabase의 단일 쓰기 스레드. 배치는 제출된 순서대로 하나씩 커밋된다.
+    private final NoteTaskExecutor writeExecutor;
+    private final int maxBatchSize;
+    private final BatchListener listener;
+    private final Handler handler = new Handler(Looper.getMainLooper());
+    private final Runnable flushRunnable = new Runnable() {
+        @Override
+        public void run() {
+            flush();
+        }
+    };
+
+    // 아래 필드는 모두 lock(this)으로 보호한다.
+    private boolean deleteAll;
+    private List<Note> inserts = new ArrayList<>();
+    private Map<Integer, Note> updates = new LinkedHashMap<>();
+    private Set<Integer> deletes = new LinkedHashSet<>();
+    private List<NoteFuture<Void>> futures = new ArrayList<>();
+    private boolean flushScheduled;
+
+    // 아래 필드는 쓰기 스레드에서만 접근한다.
+    private int activePurges;
+    private final List<Batch> deferredBatches = new ArrayList<>();
+
+    NoteWriteQueue(NoteDao noteDao, NoteTaskExecutor writeExecutor, BatchListener listener) {
+        this(noteDao, writeExecutor, MAX_BATCH_SIZE, listener);
+    }
+
+    // 벤치마크처럼 직접 drain()을 호출하는 경우 크기 기준 flush를 끌 수 있도록 배치 크기를 받는다.
+    // flush()를 쓰지 않으면 listener는 null이어도 된다.
+    NoteWriteQueue(NoteDao noteDao, NoteTaskExecutor writeExecutor, int maxBatchSize, BatchListener listener) {
+        this.noteDao = noteDao;
+        this.writeExecutor = writeExecutor;
+        this.maxBatchSize = maxBatchSize;
+        this.listener = listener;
+    }
+
+    synchronized NoteFuture<Void> insert(Note note) {
+        inserts.add(note);
+        return scheduleFlush();
+    }
+
+    synchronized NoteFuture<Void> update(Note note) {
+        if (!deletes.contains(note.getId())) {
+            // 같은 id의 이전 update는 덮어쓴다. 새 Note가 모든 컬럼의 최신 값을 들고 있으므로,
+            // 이전 update가 바꾸려던 컬럼도 새 Note의 값으로 함께 쓴다.
+            Note previous = updates.put(note.getId(), note);
+            if (previous != null) {
+                note.setChangedFields(note.getChangedFields() | previous.getChangedFields());
+            }
+        }
+        return scheduleFlush();
+    }
+
+    synchronized NoteFuture<Void> delete(int id) {
+        updates.remove(id);
+        deletes.add(id);
+        return scheduleFlush();
+    }
+
+    // 목록에서 여러 Note를 골라 지울 때. 모두 한 배치에 들어가 deleteByIds 몇 문장, 트랜잭션 하나로 커밋된다.
+    synchronized NoteFuture<Void> delete(Collection<Integer> ids) {
+        for (Integer id : ids) {
+            updates.remove(id);
+        }
+        deletes.addAll(ids);
+        return scheduleFlush();
+    }
+
+    synchronized NoteFuture<Void> deleteAll() {
+        // 앞서 쌓인 변경은 어차피 모두 지워지므로 버리고, 이후 요청만 deleteAll 뒤에 반영한다.
+        deleteAll = true;
+        inserts.clear();
+        updates.clear();
+        deletes.clear();
+        return scheduleFlush();
+    }
+
+    synchronized int size() {
+        return inserts.size() + updates.size() + deletes.size() + (deleteAll ? 1 : 0);
+    }
+
+    private NoteFuture<Void> scheduleFlush() {
+        NoteFuture<Void> future = new NoteFuture<>();
+        futures.add(future);
+        NoteMetrics.get().recordValue(NoteMetrics.WRITE_QUEUE_DEPTH, size());
+        if (size() >= maxBatchSize) {
+            handler.removeCallbacks(flushRunnable);
+            flushScheduled = false;
+            flush();
+        } else if (!flushScheduled) {
+            flushScheduled = true;
+            handler.postDelayed(flushRunnable, FLUSH_DELAY_MS);
+        }
+        return future;
+    }
+
+    // 지금까지 모인 변경을 Batch로 떼어내 백그라운드에서 커밋한다.
+    synchronized void flush() {
+        flushScheduled = false;
+        final Batch batch = drain();
+        if (batch != null) {
+            NoteMetrics.get().recordValue(NoteMetrics.WRITE_BATCH_SIZE, batch.size());
+            writeExecutor.execute(NoteTaskExecutor.Priority.INTERACTIVE, new Runnable() {
+                @Override
+                public void run() {
+                    commit(batch);
+                }
+            });
+        }
+    }
+
+    // 쓰기 스레드에서 실행된다.
+    private void commit(Batch batch) {
+        long start = System.nanoTime();
+        try {
+            if (batch.deleteAll) {
+                int maxId = noteDao.beginDeleteAll(batch.inserts, batch.updates, batch.deleteIds);
+                activePurges++;
+                writeExecutor.execute(NoteTaskExecutor.Priority.BULK, new PurgeRunnable(batch, maxId));
+                return;
+            }
+            noteDao.applyBatch(false, batch.inserts, batch.updates, batch.deleteIds);
+        } catch (RuntimeException e) {
+            // 쓰기 스레드가 죽지 않도록 여기서 받고, 화면에는 listener가 알린다.
+            failed(batch, e);
+            return;
+        }
+        NoteMetrics.recordSince(NoteMetrics.DAO_PREFIX + "applyBatch", start);
+        if (activePurges > 0) {
+            deferredBatches.add(batch);
+        } else {
+            committed(batch);
+        }
+    }
+
+    // maxId 이하의 행을 한 덩어리씩 지우고, 남았으면 자신을 쓰기 큐 뒤에 다시 넣는다.
+    private class PurgeRunnable implements Runnable {
+        private final Batch batch;
+        private final int maxId;
+
+        private PurgeRunnable(Batch batch, int maxId) {
+            this.batch = batch;
+            this.maxId = maxId;
+        }
+
+        @Override
+        public void run() {
+            int deleted;
+            try {
+                long start = System.nanoTime();
+                deleted = noteDao.purgeChunk(maxId, PURGE_CHUNK_SIZE);
+                NoteMetrics.recordSince(NoteMetrics.DAO_PREFIX + "purgeChunk", start);
+            } catch (RuntimeException e) {
+                // 이미 지운 덩어리는 남는다. 목록은 남은 행을 다시 보여준다.
+                finish();
+                failed(batch, e);
+                notifyDeferred();
+                return;
+            }
+            if (deleted > 0) {
+                writeExecutor.execute(NoteTaskExecutor.Priority.BULK, this);
+                return;
+            }
+            finish();
+            committed(batch);
+            notifyDeferred();
+        }
+
+        private void finish() {
+            activePurges--;
+        }
+    }
+
+    private void notifyDeferred() {
+        if (activePurges > 0) {
+            return;
+        }
+        for (Batch deferred : deferredBatches) {
+            committed(deferred);
+        }
+        deferredBatches.clear();
+    }
+
+    private void committed(Batch batch) {
+        listener.onBatchCommitted(batch);
+        for (NoteFuture<Void> future : batch.futures) {
+            future.set(null);
+        }
+    }
+
+    private void failed(Batch batch, RuntimeException error) {
+        listener.onBatchFailed(batch, error);
+        for (NoteFuture<Void> future : batch.futures) {
+            future.setException(error);
+        }
+    }
+
+    // 모인 변경을 Batch 하나로 꺼내고 큐를 비운다. 비어 있으면 null을 반환한다.
+    synchronized Batch drain() {
+        if (size() == 0) {
+            return null;
+        }
+        Batch batch = new Batch(deleteAll, inserts, new ArrayList<>(updates.values()), new ArrayList<>(deletes));
+        batch.futures.addAll(futures);
+        futures = new ArrayList<>();
+        deleteAll = false;
+        inserts = new ArrayList<>();
+        updates = new LinkedHashMap<>();
+        deletes = new LinkedHashSet<>();
+        return batch;
+    }
+
+    static class Batch {
+        final boolean deleteAll;
+        final List<Note> inserts;
+        final List<Note> updates;
+        final List<Integer> deleteIds;
+        // 이 배치로 끝나는 요청들. drain()이 채운다.
+        final List<NoteFuture<Void>> futures = new ArrayList<>();
+
+        Batch(boolean deleteAll, List<Note> inserts, List<Note> updates, List<Integer> deleteIds) {
+            this.deleteAll = deleteAll;
+            this.inserts = inserts;
+            this.updates = updates;
+            this.deleteIds = deleteIds;
+        }
+
+        int size() {
+            return inserts.size() + updates.size() + deleteIds.size() + (deleteAll ? 1 : 0);
+        }
+    }
+}
@@ -0,0 +1,34 @@
+package com.example.mvvmarchitecture;
+
+import androidx.annotation.NonNull;
+
+import java.util.concurrent.PriorityBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+// NoteTaskExecutor를 스레드 하나와 우선순위 큐로 실행한다.
+// 스레드가 하나뿐이므로 쓰기끼리 잠금을 두고 다투지 않고, 큐에서는 늘 가장 급한 작업부터 꺼낸다.
+final class PriorityTaskExecutor extends NoteTaskExecutor {
+    private final ThreadPoolExecutor worker;
+
+    PriorityTaskExecutor(final String name) {
+        worker = new ThreadPoolExecutor(1, 1, 0, TimeUnit.MILLISECONDS,
+                new PriorityBlockingQueue<Runnable>(), new ThreadFactory() {
+                    private final AtomicInteger count = new AtomicInteger();
+
+                    @Override
+                    public Thread newThread(@NonNull Runnable runnable) {
+                        return new Thread(runnable, name + "-" + count.incrementAndGet());
+                    }
+                });
+        // 첫 작업이 큐를 거치지 않고 바로 새 스레드로 넘어가지 않도록 스레드를 미리 띄워 둔다.
+        worker.prestartAllCoreThreads();
+    }
+
+    @Override
+    void enqueue(Task task) {
+        worker.execute(task);
+    }
+}
@@ -0,0 +1,204 @@
+package com.example.mvvmarchitecture;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.PrintWriter;
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Properties;
+
+import static org.junit.Assert.fail;
+
+/**
+ * JVM 벤치마크용 측정 도구.
+ * 처리량(ops/s)과 연산당 할당 바이트를 재고, 저장된 기준값보다 나빠지면 테스트를 실패시킨다.
+ *
+ * 시스템 프로퍼티(app/build.gradle의 testOptions에서 넘겨준다)
+ * benchmark.baseline       기준값 파일(app/benchmark-baseline.properties). 파일이나 결과의 기준값이 없으면 실패한다.
+ * benchmark.updateBaseline true면 비교하지 않고 기준값을 덮어쓴다(-PupdateBaseline).
+ * benchmark.tolerance      허용하는 악화 비율. 기본 0.30(30%).
+ * benchmark.report         결과 표를 남길 디렉터리.
+ */
+final class BenchmarkHarness {
+    private static final int WARMUP_ITERATIONS = 1;
+    private static final int MEASURED_ITERATIONS = 3;
+    private static final String UPDATE_COMMAND = "./gradlew testDebugUnitTest -Pbenchmark -PupdateBaseline";
+
+    private final String suite;
+    private final List<Result> results = new ArrayList<>();
+    // 처리량이 아닌 측정값(예: 데이터베이스 크기). 표 아래에 그대로 출력하고 기준값과는 비교하지 않는다.
+    private final List<String> notes = new ArrayList<>();
+
+    BenchmarkHarness(String suite) {
+        this.suite = suite;
+    }
+
+    static final class Result {
+        final String name;
+        final double opsPerSecond;
+        final double bytesPerOp;
+
+        Result(String name, double opsPerSecond, double bytesPerOp) {
+            this.name = name;
+            this.opsPerSecond = opsPerSecond;
+            this.bytesPerOp = bytesPerOp;
+        }
+    }
+
+    // setUp은 매 반복 전에 시간 측정 없이 실행하고, body는 operations번의 연산을 수행해야 한다.
+    // 반복 중 가장 좋은 값을 기록해 GC나 JIT로 인한 튐을 줄인다.
+    Result measure(String name, int operations, Runnable setUp, Runnable body) {
+        double bestOpsPerSecond = 0;
+        double bestBytesPerOp = Double.MAX_VALUE;
+        for (int i = 0; i < WARMUP_ITERATIONS + MEASURED_ITERATIONS; i++) {
+            setUp.run();
+            long bytesBefore = allocatedBytes();
+            long start = System.nanoTime();
+            body.run();
+            long elapsed = System.nanoTime() - start;
+            long bytes = allocatedBytes() - bytesBefore;
+            if (i < WARMUP_ITERATIONS) {
+                continue;
+            }
+            bestOpsPerSecond = Math.max(bestOpsPerSecond, operations * 1e9 / Math.max(elapsed, 1));
+            bestBytesPerOp = Math.min(bestBytesPerOp, (double) bytes / operations);
+        }
+        Result result = new Result(name, bestOpsPerSecond, bestBytesPerOp);
+        results.add(result);
+        return result;
+    }
+
+    void note(String line) {
+        notes.add(line);
+    }
+
+    // 결과 표를 출력/저장하고 기준값과 비교한다.
+    void reportAndCheckBaseline() throws IOException {
+        String table = formatTable();
+        System.out.println(table);
+        writeReport(table);
+
+        File baselineFile = new File(System.getProperty("benchmark.baseline", "benchmark-baseline.properties"));
+        boolean update = Boolean.parseBoolean(System.getProperty("benchmark.updateBaseline", "false"));
+        if (update) {
+            writeBaseline(baselineFile);
+            System.out.println("Benchmark baseline written to " + baselineFile);
+            return;
+        }
+        // 기준값 없이 통과하면 회귀를 잡지 못하므로, 새로 기록하는 것은 -PupdateBaseline으로만 한다.
+        if (!baselineFile.exists()) {
+            fail("No benchmark baseline at " + baselineFile + "; record one with " + UPDATE_COMMAND);
+        }
+
+        double tolerance = Double.parseDouble(System.getProperty("benchmark.tolerance", "0.30"));
+        Properties baseline = new Properties();
+        InputStream in = new FileInputStream(baselineFile);
+        try {
+            baseline.load(in);
+        } finally {
+            in.close();
+        }
+
+        List<String> missing = new ArrayList<>();
+        List<String> regressions = new ArrayList<>();
+        for (Result result : results) {
+            String ops = baseline.getProperty(key(result, "opsPerSecond"));
+            String bytes = baseline.getProperty(key(result, "bytesPerOp"));
+            if (ops == null || bytes == null) {
+                missing.add(key(result, "*"));
+                continue;
+            }
+            if (result.opsPerSecond < Double.parseDouble(ops) * (1 - tolerance)) {
+                regressions.add(String.format(Locale.ROOT, "%s throughput %.0f ops/s < baseline %s",
+                        result.name, result.opsPerSecond, ops));
+            }
+            if (result.bytesPerOp > Double.parseDouble(bytes) * (1 + tolerance)) {
+                regressions.add(String.format(Locale.ROOT, "%s allocation %.0f B/op > baseline %s",
+                        result.name, result.bytesPerOp, bytes));
+            }
+        }
+        if (!missing.isEmpty()) {
+            fail("No baseline in " + baselineFile + " for:\n" + join(missing) + "Record them with " + UPDATE_COMMAND);
+        }
+        if (!regressions.isEmpty()) {
+            fail("Performance regression against " + baselineFile + ":\n" + join(regressions));
+        }
+    }
+
+    private String formatTable() {
+        StringBuilder builder = new StringBuilder();
+        builder.append(String.format(Locale.ROOT, "%-32s %14s %14s%n", suite, "ops/s", "B/op"));
+        for (Result result : results) {
+            builder.append(String.format(Locale.ROOT, "%-32s %14.0f %14.0f%n",
+                    result.name, result.opsPerSecond, result.bytesPerOp));
+        }
+        for (String note : notes) {
+            builder.append(note).append(String.format(Locale.ROOT, "%n"));
+        }
+        return builder.toString();
+    }
+
+    private void writeReport(String table) throws IOException {
+        File dir = new File(System.getProperty("benchmark.report", "build/reports/benchmarks"));
+        if (!dir.isDirectory() && !dir.mkdirs()) {
+            return;
+        }
+        PrintWriter writer = new PrintWriter(new FileWriter(new File(dir, suite + ".txt")));
+        try {
+            writer.print(table);
+        } finally {
+            writer.close();
+        }
+    }
+
+    // 이미 있는 다른 스위트의 기준값은 그대로 두고 이 스위트의 값만 바꾼다.
+    private void writeBaseline(File file) throws IOException {
+        Properties baseline = new Properties();
+        if (file.exists()) {
+            InputStream in = new FileInputStream(file);
+            try {
+                baseline.load(in);
+            } finally {
+                in.close();
+            }
+        }
+        for (Result result : results) {
+            baseline.setProperty(key(result, "opsPerSecond"), String.format(Locale.ROOT, "%.0f", result.opsPerSecond));
+            baseline.setProperty(key(result, "bytesPerOp"), String.format(Locale.ROOT, "%.0f", result.bytesPerOp));
+        }
+        OutputStream out = new FileOutputStream(file);
+        try {
+            baseline.store(out, "Data layer benchmark baseline. Refresh with " + UPDATE_COMMAND);
+        } finally {
+            out.close();
+        }
+    }
+
+    private String key(Result result, String metric) {
+        return suite + "." + result.name + "." + metric;
+    }
+
+    private static String join(List<String> lines) {
+        StringBuilder builder = new StringBuilder();
+        for (String line : lines) {
+            builder.append("  ").append(line).append('\n');
+        }
+        return builder.toString();
+    }
+
+    // HotSpot 계열 JVM에서만 스레드별 할당량을 알 수 있다. 지원하지 않으면 0으로 기록한다.
+    private static long allocatedBytes() {
+        java.lang.management.ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+        if (bean instanceof com.sun.management.ThreadMXBean) {
+            return ((com.sun.management.ThreadMXBean) bean).getThreadAllocatedBytes(Thread.currentThread().getId());
+        }
+        return 0;
+    }
+}
@@ -0,0 +1,45 @@
+package com.example.mvvmarchitecture;
+
+import java.util.PriorityQueue;
+
+// 제출된 작업을 쌓아 두었다가 테스트가 원할 때 하나씩 실행한다.
+// 꺼내는 순서는 PriorityTaskExecutor와 같다(Priority 순, 같은 Priority 안에서는 제출 순).
+class DeterministicTaskExecutor extends NoteTaskExecutor {
+    private final PriorityQueue<Task> tasks = new PriorityQueue<>();
+
+    @Override
+    synchronized void enqueue(Task task) {
+        tasks.add(task);
+    }
+
+    // 가장 급한 작업 하나를 이 스레드에서 실행한다. 실행할 작업이 없으면 false.
+    boolean runNext() {
+        Task task;
+        synchronized (this) {
+            task = tasks.poll();
+        }
+        if (task == null) {
+            return false;
+        }
+        task.run();
+        return true;
+    }
+
+    // 실행하는 동안 새로 제출된 작업까지 큐가 빌 때까지 실행하고, 실행한 개수를 반환한다.
+    int runAll() {
+        int count = 0;
+        while (runNext()) {
+            count++;
+        }
+        return count;
+    }
+
+    synchronized Priority peekPriority() {
+        Task next = tasks.peek();
+        return next != null ? next.priority : null;
+    }
+
+    synchronized int size() {
+        return tasks.size();
+    }
+}
@@ -0,0 +1,146 @@
+package com.example.mvvmarchitecture;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.MalformedURLException;
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+// NoteSyncProtocol을 따르는 프로세스 안의 HTTP 서버. 동기화 테스트에서 실제 서버 대신 쓴다.
+// 토큰은 서버가 변경마다 하나씩 올리는 순번이다.
+class FakeSyncServer {
+    private final HttpServer server;
+    // 아래 필드는 모두 lock(this)으로 보호한다.
+    private final Map<String, Entry> records = new HashMap<>();
+    private long sequence;
+    private int requests;
+
+    FakeSyncServer() throws IOException {
+        server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 0);
+        server.createContext("/sync", new HttpHandler() {
+            @Override
+            public void handle(HttpExchange exchange) throws IOException {
+                serve(exchange);
+            }
+        });
+        server.start();
+    }
+
+    URL getEndpoint() {
+        try {
+            return new URL("http://127.0.0.1:" + server.getAddress().getPort() + "/sync");
+        } catch (MalformedURLException e) {
+            throw new AssertionError(e);
+        }
+    }
+
+    void stop() {
+        server.stop(0);
+    }
+
+    synchronized int getRequests() {
+        return requests;
+    }
+
+    synchronized NoteSyncProtocol.Record get(String syncId) {
+        Entry entry = records.get(syncId);
+        return entry != null ? entry.record : null;
+    }
+
+    private void serve(HttpExchange exchange) throws IOException {
+        InputStream in = exchange.getRequestBody();
+        if ("gzip".equalsIgnoreCase(exchange.getRequestHeaders().getFirst("Content-Encoding"))) {
+            in = new GZIPInputStream(in);
+        }
+        NoteSyncProtocol.Response response = handle(NoteSyncProtocol.readRequest(in));
+        in.close();
+
+        ByteArrayOutputStream body = new ByteArrayOutputStream();
+        GZIPOutputStream gzip = new GZIPOutputStream(body);
+        NoteSyncProtocol.writeResponse(gzip, response);
+        gzip.finish();
+        exchange.getResponseHeaders().set("Content-Type", "application/json; charset=utf-8");
+        exchange.getResponseHeaders().set("Content-Encoding", "gzip");
+        exchange.sendResponseHeaders(200, body.size());
+        OutputStream out = exchange.getResponseBody();
+        body.writeTo(out);
+        out.close();
+    }
+
+    synchronized NoteSyncProtocol.Response handle(NoteSyncProtocol.Request request) {
+        requests++;
+        List<NoteSyncProtocol.Result> results = new ArrayList<>();
+        Set<String> conflicts = new LinkedHashSet<>();
+        for (NoteSyncProtocol.Record change : request.changes) {
+            Entry current = records.get(change.syncId);
+            int currentVersion = current != null ? current.record.version : 0;
+            if (change.version != currentVersion) {
+                results.add(new NoteSyncProtocol.Result(change.syncId, false, currentVersion));
+                conflicts.add(change.syncId);
+                continue;
+            }
+            NoteSyncProtocol.Record stored = new NoteSyncProtocol.Record(change.syncId, currentVersion + 1, change.deleted,
+                    change.updatedAt, change.title, change.description, change.priority, 0);
+            records.put(change.syncId, new Entry(stored, ++sequence));
+            results.add(new NoteSyncProtocol.Result(change.syncId, true, stored.version));
+        }
+
+        List<Entry> since = new ArrayList<>();
+        for (Entry entry : records.values()) {
+            if (entry.sequence > request.token) {
+                since.add(entry);
+            }
+        }
+        Collections.sort(since, new Comparator<Entry>() {
+            @Override
+            public int compare(Entry a, Entry b) {
+                return a.sequence < b.sequence ? -1 : (a.sequence == b.sequence ? 0 : 1);
+            }
+        });
+        boolean more = since.size() > request.limit;
+        if (more) {
+            since = since.subList(0, request.limit);
+        }
+        long token = more ? since.get(since.size() - 1).sequence : sequence;
+        List<NoteSyncProtocol.Record> changes = new ArrayList<>();
+        for (Entry entry : since) {
+            changes.add(entry.record);
+            conflicts.remove(entry.record.syncId);
+        }
+        // 충돌한 Record는 토큰과 상관없이 현재 값을 함께 보낸다.
+        for (String syncId : conflicts) {
+            Entry current = records.get(syncId);
+            if (current != null) {
+                changes.add(current.record);
+            }
+        }
+        return new NoteSyncProtocol.Response(token, more, results, changes);
+    }
+
+    private static final class Entry {
+        final NoteSyncProtocol.Record record;
+        final long sequence;
+
+        Entry(NoteSyncProtocol.Record record, long sequence) {
+            this.record = record;
+            this.sequence = sequence;
+        }
+    }
+}
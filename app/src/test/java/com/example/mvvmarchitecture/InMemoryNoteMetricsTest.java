@@ -0,0 +1,73 @@
+package com.example.mvvmarchitecture;
+
+import org.junit.After;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public class InMemoryNoteMetricsTest {
+
+    @After
+    public void tearDown() {
+        NoteMetrics.install(null);
+    }
+
+    @Test
+    public void histogramTracksCountMeanAndMax() {
+        InMemoryNoteMetrics metrics = new InMemoryNoteMetrics();
+        for (int value = 1; value <= 100; value++) {
+            metrics.recordValue(NoteMetrics.WRITE_QUEUE_DEPTH, value);
+        }
+
+        InMemoryNoteMetrics.Histogram histogram = metrics.getHistogram(NoteMetrics.WRITE_QUEUE_DEPTH);
+        assertEquals(100, histogram.getCount());
+        assertEquals(50.5, histogram.getMean(), 0.001);
+        assertEquals(100, histogram.getMax());
+        // 백분위수는 2의 거듭제곱 구간 상한으로 근사하므로 실제 값 이상, 두 배 미만이다.
+        long p50 = histogram.getPercentile(50);
+        assertTrue(p50 >= 50 && p50 < 100);
+        assertEquals(100, histogram.getPercentile(99));
+    }
+
+    @Test
+    public void recordSinceGoesToInstalledMetrics() {
+        InMemoryNoteMetrics metrics = new InMemoryNoteMetrics();
+        NoteMetrics.install(metrics);
+
+        NoteMetrics.recordSince(NoteMetrics.DAO_PREFIX + "getById", System.nanoTime());
+
+        assertEquals(1, metrics.getHistogram(NoteMetrics.DAO_PREFIX + "getById").getCount());
+        assertTrue(metrics.dump().startsWith("dao.getById  n=1"));
+    }
+
+    @Test
+    public void dumpFormatsOnlyDurationsAsMilliseconds() {
+        InMemoryNoteMetrics metrics = new InMemoryNoteMetrics();
+        // 이름 목록 없이 기록한 방법으로 구분한다.
+        metrics.recordDuration("custom.duration", 2000000);
+        metrics.recordValue("custom.value", 1500);
+
+        String dump = metrics.dump();
+        assertTrue(dump.contains("custom.duration  n=1 mean=2.00ms"));
+        assertTrue(dump.contains("custom.value  n=1 mean=1500 "));
+        assertEquals(1500, metrics.getHistogram("custom.value").getMax());
+    }
+
+    @Test
+    public void installNullRestoresNoOp() {
+        NoteMetrics.install(new InMemoryNoteMetrics());
+        NoteMetrics.install(null);
+        assertSame(NoteMetrics.NO_OP, NoteMetrics.get());
+    }
+
+    @Test
+    public void resetClearsHistograms() {
+        InMemoryNoteMetrics metrics = new InMemoryNoteMetrics();
+        metrics.recordDuration(NoteMetrics.BIND, 1000);
+        metrics.reset();
+        assertEquals(0, metrics.getHistogram(NoteMetrics.BIND).getCount());
+        assertEquals("", metrics.dump());
+    }
+}
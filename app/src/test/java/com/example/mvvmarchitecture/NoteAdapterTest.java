@@ -0,0 +1,56 @@
+package com.example.mvvmarchitecture;
+
+import android.app.Application;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+
+import java.util.Arrays;
+import java.util.Collections;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+@RunWith(RobolectricTestRunner.class)
+@Config(sdk = 28, application = Application.class)
+public class NoteAdapterTest {
+    @Test
+    public void payloadNamesOnlyChangedFields() {
+        NoteListItem old = new NoteListItem(1, "title", 3, "preview");
+        assertEquals(NoteAdapter.CHANGED_PRIORITY,
+                NoteAdapter.DIFF_CALLBACK.getChangePayload(old, new NoteListItem(1, "title", 4, "preview")));
+        assertEquals(NoteAdapter.CHANGED_TITLE | NoteAdapter.CHANGED_PREVIEW,
+                NoteAdapter.DIFF_CALLBACK.getChangePayload(old, new NoteListItem(1, "new", 3, "new preview")));
+    }
+
+    @Test
+    public void columnDiffComparesColumnsWithoutBuildingItems() {
+        NoteColumns old = new NoteColumns.Builder(2)
+                .add(1, "title", 3, "preview")
+                .add(2, "other", 1, "")
+                .build();
+        NoteColumns updated = new NoteColumns.Builder(2)
+                .add(1, "title", 4, "preview")
+                .add(2, "renamed", 1, "body")
+                .build();
+        NoteAdapter.ColumnDiff diff = new NoteAdapter.ColumnDiff(old, updated);
+
+        assertTrue(diff.areItemsTheSame(0, 0));
+        assertFalse(diff.areItemsTheSame(0, 1));
+        assertTrue(new NoteAdapter.ColumnDiff(old, old).areContentsTheSame(1, 1));
+        assertEquals(NoteAdapter.CHANGED_PRIORITY, diff.getChangePayload(0, 0));
+        assertEquals(NoteAdapter.CHANGED_TITLE | NoteAdapter.CHANGED_PREVIEW, diff.getChangePayload(1, 1));
+    }
+
+    @Test
+    public void payloadsAreMergedAndMissingPayloadBindsEverything() {
+        assertEquals(NoteAdapter.CHANGED_ALL, NoteAdapter.changes(Collections.emptyList()));
+        assertEquals(NoteAdapter.CHANGED_TITLE | NoteAdapter.CHANGED_PRIORITY, NoteAdapter.changes(
+                Arrays.<Object>asList(NoteAdapter.CHANGED_TITLE, NoteAdapter.CHANGED_PRIORITY)));
+        // 알 수 없는 payload(예: ItemAnimator가 넣은 값)가 섞이면 전체를 다시 바인딩한다.
+        assertEquals(NoteAdapter.CHANGED_ALL, NoteAdapter.changes(Arrays.<Object>asList(NoteAdapter.CHANGED_TITLE, "other")));
+    }
+}
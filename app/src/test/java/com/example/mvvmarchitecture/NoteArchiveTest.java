@@ -0,0 +1,247 @@
+package com.example.mvvmarchitecture;
+
+import android.app.Application;
+import android.content.Context;
+import android.database.Cursor;
+
+import androidx.room.Room;
+import androidx.sqlite.db.SupportSQLiteDatabase;
+import androidx.sqlite.db.SupportSQLiteOpenHelper;
+import androidx.sqlite.db.framework.FrameworkSQLiteOpenHelperFactory;
+import androidx.test.core.app.ApplicationProvider;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+
+import java.util.Arrays;
+import java.util.Collections;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+
+@RunWith(RobolectricTestRunner.class)
+@Config(sdk = 28, application = Application.class)
+public class NoteArchiveTest {
+    private static final long NOW = 1000000;
+    private static final NoteArchivePolicy POLICY = new NoteArchivePolicy(2, 1000);
+    private static final String V5_DB_NAME = "archive-v5-test.db";
+
+    private NoteDatabase database;
+    private NoteDao noteDao;
+
+    @Before
+    public void setUp() {
+        Context context = ApplicationProvider.getApplicationContext();
+        database = Room.inMemoryDatabaseBuilder(context, NoteDatabase.class)
+                .addCallback(NoteDatabase.CALLBACK)
+                .allowMainThreadQueries()
+                .build();
+        noteDao = database.noteDao();
+        // 1: 오래되고 priority가 낮다. 2: 오래됐지만 priority가 높다. 3: priority는 낮지만 최근에 고쳤다.
+        noteDao.insert(new Note("old-1", 1, "Groceries", "milk and eggs", 1));
+        noteDao.insert(new Note("old-2", 1, "Report", "finish the report", 7));
+        noteDao.insert(new Note("new-1", NOW, "Laundry", "whites and darks", 1));
+        execSQL("UPDATE note_sync SET dirty = 0");
+    }
+
+    @After
+    public void tearDown() {
+        database.close();
+    }
+
+    @Test
+    public void movesOnlyNotesMatchingThePolicy() {
+        assertEquals(1, archive());
+        assertEquals(0, archive());
+
+        assertEquals(2, noteDao.getAllNotesNow().size());
+        assertNull(noteDao.getById(1));
+        assertEquals(1, noteDao.getArchivedCount());
+        // priority별 개수와 목록은 note_table만 센다.
+        assertEquals("[7=1, 1=1]", counts());
+        // 옮긴 것은 지운 것이 아니므로 올릴 변경이 없다.
+        assertEquals(0, count("SELECT count(*) FROM note_sync WHERE dirty = 1"));
+
+        Note archived = noteDao.findById(1);
+        assertNotNull(archived);
+        assertEquals("old-1", archived.getSyncId());
+        assertEquals("milk and eggs", archived.getDescription());
+    }
+
+    @Test
+    public void notesWithUnsyncedChangesStayHot() {
+        execSQL("UPDATE note_sync SET dirty = 1 WHERE sync_id = 'old-1'");
+        assertEquals(0, archive());
+        assertEquals(0, noteDao.getArchivedCount());
+    }
+
+    @Test
+    public void withoutSyncDirtyNotesAreArchived() {
+        // 동기화하지 않으면 트리거가 세운 dirty가 내려가지 않는다.
+        execSQL("UPDATE note_sync SET dirty = 1");
+        assertEquals(1, archive(false));
+        assertEquals(1, noteDao.getArchivedCount());
+        assertNull(noteDao.getById(1));
+        assertEquals(0, count("SELECT count(*) FROM note_sync WHERE deleted = 1"));
+    }
+
+    @Test
+    public void notesFromBeforeUpdatedAtAreNotArchived() {
+        Context context = ApplicationProvider.getApplicationContext();
+        context.deleteDatabase(V5_DB_NAME);
+        // 버전 5 스키마(app/schemas/.../5.json)로 만들고 Note 하나를 넣는다.
+        SupportSQLiteOpenHelper v5 = new FrameworkSQLiteOpenHelperFactory().create(
+                SupportSQLiteOpenHelper.Configuration.builder(context)
+                        .name(V5_DB_NAME)
+                        .callback(new SupportSQLiteOpenHelper.Callback(5) {
+                            @Override
+                            public void onCreate(SupportSQLiteDatabase db) {
+                                db.execSQL("CREATE TABLE `note_table` (`id` INTEGER PRIMARY KEY AUTOINCREMENT NOT NULL, " +
+                                        "`title` TEXT, `description` TEXT, `priority` INTEGER NOT NULL, " +
+                                        "`description_blob` BLOB, `description_format` INTEGER NOT NULL DEFAULT 0)");
+                                db.execSQL("CREATE INDEX `index_note_table_priority_id` ON `note_table` (`priority`, `id`)");
+                                db.execSQL("CREATE VIRTUAL TABLE `note_fts` USING FTS4(`title` TEXT, `description` TEXT, " +
+                                        "content=`note_table`)");
+                                db.execSQL("CREATE TABLE `note_priority_count` (`priority` INTEGER NOT NULL, " +
+                                        "`note_count` INTEGER NOT NULL, PRIMARY KEY(`priority`))");
+                                NoteMigrations.createPriorityCountTriggers(db);
+                            }
+
+                            @Override
+                            public void onUpgrade(SupportSQLiteDatabase db, int oldVersion, int newVersion) {
+                            }
+                        })
+                        .build());
+        v5.getWritableDatabase().execSQL(
+                "INSERT INTO note_table (title, description, priority) VALUES ('Groceries', 'milk and eggs', 1)");
+        v5.close();
+
+        NoteDatabase migrated = Room.databaseBuilder(context, NoteDatabase.class, V5_DB_NAME)
+                .addMigrations(NoteMigrations.ALL)
+                .addCallback(NoteDatabase.CALLBACK)
+                .allowMainThreadQueries()
+                .build();
+        try {
+            // 마이그레이션이 updated_at을 0으로 채웠다. 언제 고쳤는지 모르므로 동기화 여부와 상관없이 남긴다.
+            NoteDao migratedDao = migrated.noteDao();
+            assertEquals(0, migratedDao.archiveChunk(POLICY.getMaxPriority(), POLICY.getUpdatedBefore(NOW), NOW, 10, false));
+            assertEquals("Groceries", migratedDao.getById(1).getTitle());
+            assertEquals(0, migratedDao.getArchivedCount());
+        } finally {
+            migrated.close();
+            context.deleteDatabase(V5_DB_NAME);
+        }
+    }
+
+    @Test
+    public void searchIncludesArchiveOnlyOnDemand() {
+        archive();
+        assertEquals(0, noteDao.searchNow("milk").size());
+
+        Cursor cursor = noteDao.searchWithArchiveCursor("milk OR whites");
+        try {
+            NoteColumns notes = NoteColumns.read(cursor);
+            assertEquals(2, notes.size());
+            assertEquals("milk and eggs", notes.getPreview(notes.getId(0) == 1 ? 0 : 1));
+        } finally {
+            cursor.close();
+        }
+    }
+
+    @Test
+    public void editingAnArchivedNoteRestoresIt() {
+        archive();
+        Note edit = new Note("Shopping", "ignored", 1);
+        edit.setId(1);
+        edit.setChangedFields(Note.FIELD_TITLE);
+        noteDao.update(edit);
+
+        assertEquals(0, noteDao.getArchivedCount());
+        Note stored = noteDao.getById(1);
+        assertEquals("Shopping", stored.getTitle());
+        assertEquals("milk and eggs", stored.getDescription());
+        assertEquals("old-1", stored.getSyncId());
+        assertEquals(1, noteDao.searchNow("shopping").size());
+        assertEquals("[7=1, 1=2]", counts());
+        // 되돌리면서 tombstone을 남기지 않고, 고친 내용만 올린다.
+        assertEquals(0, count("SELECT count(*) FROM note_sync WHERE deleted = 1"));
+        assertEquals(1, count("SELECT count(*) FROM note_sync WHERE sync_id = 'old-1' AND dirty = 1"));
+
+        // 바뀐 것이 없으면 되돌리지 않는다.
+        noteDao.insert(new Note("old-3", 1, "Receipts", "", 0));
+        assertEquals(1, archive());
+        Note unchanged = new Note("ignored", "ignored", 1);
+        unchanged.setId(4);
+        unchanged.setChangedFields(0);
+        noteDao.update(unchanged);
+        assertEquals(1, noteDao.getArchivedCount());
+    }
+
+    @Test
+    public void bulkPriorityChangeRestoresArchivedNotes() {
+        archive();
+        noteDao.updatePriorityByIds(Arrays.asList(1, 2), 5, NOW);
+
+        assertEquals(0, noteDao.getArchivedCount());
+        assertEquals("milk and eggs", noteDao.getById(1).getDescription());
+        assertEquals("[5=2, 1=1]", counts());
+        assertEquals(0, count("SELECT count(*) FROM note_sync WHERE deleted = 1"));
+    }
+
+    @Test
+    public void deletingArchivedNotesLeavesTombstones() {
+        archive();
+        noteDao.deleteByIds(Collections.singletonList(1));
+        assertNull(noteDao.findById(1));
+        assertEquals(1, count("SELECT count(*) FROM note_sync WHERE sync_id = 'old-1' AND deleted = 1 AND dirty = 1"));
+
+        noteDao.insert(new Note("old-3", 1, "Receipts", "", 0));
+        archive();
+        assertEquals(1, noteDao.getArchivedCount());
+        // deleteAll은 가장 큰 id를 두 테이블에서 찾고 note_table부터 나눠 지운다.
+        int maxId = noteDao.getMaxId();
+        assertEquals(4, maxId);
+        while (noteDao.purgeChunk(maxId, 1) == 1) {
+            // 한 행씩 지운다.
+        }
+        assertEquals(0, noteDao.getAllNotesNow().size());
+        assertEquals(0, noteDao.getArchivedCount());
+    }
+
+    private int archive() {
+        return archive(true);
+    }
+
+    private int archive(boolean syncEnabled) {
+        return noteDao.archiveChunk(POLICY.getMaxPriority(), POLICY.getUpdatedBefore(NOW), NOW, 10, syncEnabled);
+    }
+
+    private void execSQL(String sql) {
+        database.getOpenHelper().getWritableDatabase().execSQL(sql);
+    }
+
+    private String counts() {
+        StringBuilder builder = new StringBuilder("[");
+        for (NotePriorityCount count : noteDao.getPriorityCountsNow()) {
+            if (builder.length() > 1) {
+                builder.append(", ");
+            }
+            builder.append(count.getPriority()).append('=').append(count.getCount());
+        }
+        return builder.append(']').toString();
+    }
+
+    private int count(String sql) {
+        Cursor cursor = database.query(sql, null);
+        try {
+            return cursor.moveToFirst() ? cursor.getInt(0) : 0;
+        } finally {
+            cursor.close();
+        }
+    }
+}
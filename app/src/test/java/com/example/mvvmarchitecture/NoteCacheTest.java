@@ -0,0 +1,120 @@
+package com.example.mvvmarchitecture;
+
+import android.app.Application;
+import android.content.Context;
+
+import androidx.lifecycle.LiveData;
+import androidx.room.Room;
+import androidx.test.core.app.ApplicationProvider;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+import org.robolectric.shadows.ShadowLooper;
+
+import java.util.Collections;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+
+@RunWith(RobolectricTestRunner.class)
+@Config(sdk = 28, application = Application.class)
+public class NoteCacheTest {
+    // 읽기와 쓰기의 실행 순서를 테스트가 정한다.
+    private final DeterministicTaskExecutor reads = new DeterministicTaskExecutor();
+    private final DeterministicTaskExecutor writes = new DeterministicTaskExecutor();
+    private NoteDatabase database;
+    private NoteRepository repository;
+
+    @Before
+    public void setUp() {
+        Context context = ApplicationProvider.getApplicationContext();
+        database = Room.inMemoryDatabaseBuilder(context, NoteDatabase.class)
+                .addCallback(NoteDatabase.CALLBACK)
+                .allowMainThreadQueries()
+                .build();
+        database.noteDao().insert(new Note("Groceries", "milk and eggs", 2));
+        repository = new NoteRepository(database, reads, writes);
+        // 생성자가 읽기 스레드에 넣은 InvalidationTracker 등록을 먼저 끝낸다.
+        reads.runAll();
+    }
+
+    @After
+    public void tearDown() {
+        database.close();
+    }
+
+    @Test
+    public void finishedLoadsAreCached() {
+        LiveData<Note> loading = repository.getNote(1);
+        assertEquals(1, reads.runAll());
+        ShadowLooper.idleMainLooper();
+        assertEquals("Groceries", loading.getValue().getTitle());
+
+        // 두 번째 요청은 읽지 않고 캐시에서 바로 준다.
+        LiveData<Note> cached = repository.getNote(1);
+        assertEquals(0, reads.size());
+        assertEquals("Groceries", cached.getValue().getTitle());
+    }
+
+    @Test
+    public void noteDeletedWhileLoadingIsNotCached() {
+        LiveData<Note> loading = repository.getNote(1);
+        repository.deleteById(1);
+        // 삭제가 커밋되기 전에 읽기가 끝나 지워질 Note를 읽는다.
+        reads.runAll();
+        commitWrites();
+
+        LiveData<Note> reopened = repository.getNote(1);
+        assertNotSame(loading, reopened);
+        assertEquals(1, reads.runAll());
+        ShadowLooper.idleMainLooper();
+        assertNull(reopened.getValue());
+    }
+
+    @Test
+    public void noteChangedWhileLoadingIsReadAgain() {
+        repository.getNote(1);
+        repository.updatePriority(Collections.singletonList(1), 9);
+        reads.runAll();
+        commitWrites();
+
+        LiveData<Note> reopened = repository.getNote(1);
+        assertEquals(1, reads.runAll());
+        ShadowLooper.idleMainLooper();
+        assertEquals(9, reopened.getValue().getPriority());
+    }
+
+    @Test
+    public void updatedNoteIsReadBackInsteadOfCached() {
+        LiveData<Note> loading = repository.getNote(1);
+        reads.runAll();
+        ShadowLooper.idleMainLooper();
+        String syncId = loading.getValue().getSyncId();
+
+        Note edited = new Note("Groceries", "milk, eggs and bread", 2);
+        edited.setId(1);
+        repository.update(edited);
+        // 커밋 전에 읽은 내용은 커밋되면 버린다.
+        repository.getNote(1);
+        reads.runAll();
+        commitWrites();
+
+        LiveData<Note> reopened = repository.getNote(1);
+        assertEquals(1, reads.runAll());
+        ShadowLooper.idleMainLooper();
+        assertNotSame(edited, reopened.getValue());
+        assertEquals("milk, eggs and bread", reopened.getValue().getDescription());
+        assertEquals(syncId, reopened.getValue().getSyncId());
+    }
+
+    // 쓰기 큐의 지연 flush를 실행하고 쓰기 스레드의 작업을 모두 실행한다.
+    private void commitWrites() {
+        ShadowLooper.runUiThreadTasksIncludingDelayedTasks();
+        writes.runAll();
+    }
+}
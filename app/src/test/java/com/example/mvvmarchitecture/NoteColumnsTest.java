@@ -0,0 +1,81 @@
+package com.example.mvvmarchitecture;
+
+import android.app.Application;
+import android.database.MatrixCursor;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+@RunWith(RobolectricTestRunner.class)
+@Config(sdk = 28, application = Application.class)
+public class NoteColumnsTest {
+    @Test
+    public void readsListColumnsFromCursor() {
+        MatrixCursor cursor = new MatrixCursor(new String[]{"id", "title", "priority", "preview"});
+        cursor.addRow(new Object[]{7, "Groceries", 2, "milk and eggs"});
+        cursor.addRow(new Object[]{3, "Laundry", 5, null});
+        cursor.addRow(new Object[]{9, "", 1, "body"});
+
+        NoteColumns notes = NoteColumns.read(cursor);
+        assertEquals(3, notes.size());
+        assertEquals(7, notes.getId(0));
+        assertEquals(5, notes.getPriority(1));
+        assertEquals("Laundry", notes.getTitle(1));
+        // null은 빈 문자열로 저장한다.
+        assertEquals("", notes.getPreview(1));
+        assertEquals("", notes.getTitle(2));
+        assertEquals("body", notes.getPreview(2));
+
+        NoteListItem item = notes.get(0);
+        assertEquals(7, item.getId());
+        assertEquals("Groceries", item.getTitle());
+        assertEquals(2, item.getPriority());
+        assertEquals("milk and eggs", item.getPreview());
+    }
+
+    @Test
+    public void comparesTextAcrossSnapshots() {
+        NoteColumns first = new NoteColumns.Builder(0)
+                .add(1, "ab", 1, "c")
+                .add(2, "abc", 1, "")
+                .build();
+        // capacity보다 많이 넣어도 배열을 늘려서 담는다.
+        NoteColumns second = new NoteColumns.Builder(1)
+                .add(2, "abc", 1, "")
+                .add(1, "a", 1, "bc")
+                .add(3, "ab", 1, "c")
+                .build();
+
+        assertEquals(3, second.size());
+        assertTrue(first.sameTitle(1, second, 0));
+        assertTrue(first.samePreview(1, second, 0));
+        // 이어 붙인 글자가 같아도 경계가 다르면 다른 값이다.
+        assertFalse(first.sameTitle(0, second, 1));
+        assertFalse(first.samePreview(0, second, 1));
+        assertTrue(first.sameTitle(0, second, 2));
+        assertTrue(first.samePreview(0, second, 2));
+    }
+
+    @Test
+    public void rejectsPositionsOutsideTheSnapshot() {
+        NoteColumns notes = new NoteColumns.Builder(4).add(1, "a", 1, "b").build();
+        try {
+            notes.getId(1);
+            fail("position 1 is outside a one-row snapshot");
+        } catch (IndexOutOfBoundsException expected) {
+        }
+        try {
+            notes.add(new NoteListItem(2, "c", 1, "d"));
+            fail("snapshots are shared and must not be modified");
+        } catch (UnsupportedOperationException expected) {
+        }
+        assertTrue(NoteColumns.EMPTY.isEmpty());
+    }
+}
@@ -0,0 +1,189 @@
+package com.example.mvvmarchitecture;
+
+import android.app.Application;
+import android.content.Context;
+import android.database.Cursor;
+
+import androidx.room.Room;
+import androidx.test.core.app.ApplicationProvider;
+
+import org.junit.After;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Random;
+
+import static org.junit.Assert.assertTrue;
+
+/**
+ * description 압축(NoteCompression) 유무에 따른 데이터베이스 크기와 쓰기/읽기 시간을 비교한다.
+ * 파일 크기를 재야 하므로 메모리 대신 파일 데이터베이스를 쓴다.
+ *
+ * ./gradlew testDebugUnitTest -Pbenchmark [-PbenchmarkSizes=1000,10000]
+ */
+@RunWith(RobolectricTestRunner.class)
+@Config(sdk = 28, application = Application.class)
+public class NoteCompressionBenchmark {
+    private static final String DB_NAME = "compression-benchmark.db";
+    private static final int PAGE_SIZE = 50;
+    private static final int OPENS = 200;
+    // 열 개 중 세 개는 긴 Note(8~32 KB), 나머지는 짧은 Note.
+    private static final int LONG_NOTE_PERCENT = 30;
+    // 실제 메모처럼 반복되는 단어로 채운다. 무작위 바이트는 압축되지 않아 현실과 다르다.
+    private static final String[] WORDS = {"meeting", "follow", "up", "with", "the", "team", "about", "release",
+            "notes", "draft", "review", "budget", "and", "schedule", "next", "week", "ideas", "todo"};
+
+    private final Context context = ApplicationProvider.getApplicationContext();
+    private NoteDatabase database;
+    private NoteDao noteDao;
+
+    @After
+    public void tearDown() {
+        closeDatabase();
+    }
+
+    @Test
+    public void compression() throws Exception {
+        BenchmarkHarness harness = new BenchmarkHarness("NoteCompression");
+        for (int size : tableSizes()) {
+            long plainBytes = benchmark(harness, "plain", Integer.MAX_VALUE, size);
+            long compressedBytes = benchmark(harness, "deflate", NoteCompression.DEFAULT_THRESHOLD, size);
+            harness.note(String.format(Locale.ROOT, "db size %d notes: plain %d KiB, deflate %d KiB (%.0f%%)",
+                    size, plainBytes / 1024, compressedBytes / 1024, 100.0 * compressedBytes / plainBytes));
+            assertTrue("compressed database is not smaller", compressedBytes < plainBytes);
+        }
+        harness.reportAndCheckBaseline();
+    }
+
+    // 한 가지 설정으로 쓰기/목록/열기를 재고, 마지막 상태의 데이터베이스 크기를 반환한다.
+    private long benchmark(BenchmarkHarness harness, String mode, int threshold, final int size) {
+        openDatabase(threshold);
+        final List<Note> notes = randomNotes(size);
+        harness.measure("insert.bulk." + mode + "." + size, size, new Runnable() {
+            @Override
+            public void run() {
+                noteDao.deleteAllNotes();
+            }
+        }, new Runnable() {
+            @Override
+            public void run() {
+                // 같은 Note 객체를 다시 넣으면 이미 압축된 값을 쓰므로 매번 새로 만든다.
+                noteDao.insertAll(copy(notes));
+            }
+        });
+
+        Runnable nothing = new Runnable() {
+            @Override
+            public void run() {
+            }
+        };
+        final int pages = Math.max(1, size / PAGE_SIZE);
+        harness.measure("list.keysetPage." + mode + "." + size, pages, nothing, new Runnable() {
+            @Override
+            public void run() {
+                List<NoteListItem> page = noteDao.getFirstNotes(PAGE_SIZE);
+                for (int i = 1; i < pages && !page.isEmpty(); i++) {
+                    NoteListItem last = page.get(page.size() - 1);
+                    page = noteDao.getNotesAfter(last.getPriority(), last.getId(), PAGE_SIZE);
+                }
+            }
+        });
+
+        final List<Integer> ids = new ArrayList<>();
+        for (NoteListItem item : noteDao.getFirstNotes(OPENS)) {
+            ids.add(item.getId());
+        }
+        harness.measure("open.getById." + mode + "." + size, ids.size(), nothing, new Runnable() {
+            @Override
+            public void run() {
+                for (int id : ids) {
+                    noteDao.getById(id).getDescription();
+                }
+            }
+        });
+
+        long bytes = databaseBytes();
+        closeDatabase();
+        return bytes;
+    }
+
+    private void openDatabase(int compressionThreshold) {
+        context.deleteDatabase(DB_NAME);
+        database = Room.databaseBuilder(context, NoteDatabase.class, DB_NAME)
+                .addCallback(NoteDatabase.configCallback(new NoteDatabaseConfig(true, 1, compressionThreshold)))
+                .allowMainThreadQueries()
+                .build();
+        noteDao = database.noteDao();
+    }
+
+    private void closeDatabase() {
+        if (database != null) {
+            database.close();
+            database = null;
+            context.deleteDatabase(DB_NAME);
+        }
+    }
+
+    // WAL에 남은 페이지까지 옮긴 뒤 빈 페이지를 뺀 크기.
+    private long databaseBytes() {
+        long[] values = new long[3];
+        String[] pragmas = {"PRAGMA wal_checkpoint(TRUNCATE)", "PRAGMA page_size", "PRAGMA page_count"};
+        for (int i = 0; i < pragmas.length; i++) {
+            Cursor cursor = database.query(pragmas[i], null);
+            try {
+                values[i] = cursor.moveToFirst() ? cursor.getLong(0) : 0;
+            } finally {
+                cursor.close();
+            }
+        }
+        Cursor cursor = database.query("PRAGMA freelist_count", null);
+        try {
+            long free = cursor.moveToFirst() ? cursor.getLong(0) : 0;
+            return values[1] * (values[2] - free);
+        } finally {
+            cursor.close();
+        }
+    }
+
+    private static List<Note> copy(List<Note> notes) {
+        List<Note> copies = new ArrayList<>(notes.size());
+        for (Note note : notes) {
+            copies.add(new Note(note.getTitle(), note.getDescription(), note.getPriority()));
+        }
+        return copies;
+    }
+
+    // 같은 시드로 만들어 두 설정이 같은 내용을 저장하게 한다.
+    private static List<Note> randomNotes(int count) {
+        Random random = new Random(42);
+        List<Note> notes = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            int length = random.nextInt(100) < LONG_NOTE_PERCENT
+                    ? 8 * 1024 + random.nextInt(24 * 1024) : 50 + random.nextInt(300);
+            notes.add(new Note("Title " + i, text(random, length), 1 + random.nextInt(10)));
+        }
+        return notes;
+    }
+
+    private static String text(Random random, int length) {
+        StringBuilder builder = new StringBuilder(length + 16);
+        while (builder.length() < length) {
+            builder.append(WORDS[random.nextInt(WORDS.length)]).append(random.nextInt(8) == 0 ? ".\n" : " ");
+        }
+        return builder.substring(0, length);
+    }
+
+    private static int[] tableSizes() {
+        String[] parts = System.getProperty("benchmark.sizes", "1000,10000").split(",");
+        int[] sizes = new int[parts.length];
+        for (int i = 0; i < parts.length; i++) {
+            sizes[i] = Integer.parseInt(parts[i].trim());
+        }
+        return sizes;
+    }
+}
@@ -0,0 +1,181 @@
+package com.example.mvvmarchitecture;
+
+import android.app.Application;
+import android.content.Context;
+import android.database.Cursor;
+
+import androidx.room.Room;
+import androidx.test.core.app.ApplicationProvider;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+@RunWith(RobolectricTestRunner.class)
+@Config(sdk = 28, application = Application.class)
+public class NoteCompressionTest {
+    private NoteDatabase database;
+    private NoteDao noteDao;
+
+    @Before
+    public void setUp() {
+        Context context = ApplicationProvider.getApplicationContext();
+        database = Room.inMemoryDatabaseBuilder(context, NoteDatabase.class)
+                .allowMainThreadQueries()
+                .build();
+        noteDao = database.noteDao();
+    }
+
+    @After
+    public void tearDown() {
+        database.close();
+    }
+
+    @Test
+    public void longDescriptionIsStoredCompressedAndReadBack() {
+        String description = longText("opening", 20000);
+        noteDao.insert(new Note("long", description, 1));
+
+        Cursor cursor = database.query("SELECT description, length(description_blob), description_format FROM note_table", null);
+        try {
+            cursor.moveToFirst();
+            // description 컬럼에는 앞부분과 그 뒤의 단어 목록만 남는다.
+            String stored = cursor.getString(0);
+            assertTrue(stored.startsWith(description.substring(0, NoteCompression.INDEXED_PREFIX_LENGTH)));
+            assertTrue(stored.length() < description.length() / 4);
+            assertTrue(cursor.getInt(1) < description.length() / 4);
+            assertEquals(NoteCompression.FORMAT_DEFLATE, cursor.getInt(2));
+        } finally {
+            cursor.close();
+        }
+
+        NoteListItem item = noteDao.getFirstNotes(1).get(0);
+        assertEquals(description.substring(0, NoteDao.PREVIEW_LENGTH), item.getPreview());
+        assertEquals(description, noteDao.getById(item.getId()).getDescription());
+        assertEquals(1, noteDao.searchNow(NoteSearchQuery.toFtsQuery("opening")).size());
+    }
+
+    @Test
+    public void wordsAfterTheIndexedPrefixAreSearchable() {
+        String description = longText("opening", 20000) + " needle";
+        noteDao.insert(new Note("long", description, 1));
+
+        assertEquals(1, noteDao.searchNow(NoteSearchQuery.toFtsQuery("needle")).size());
+        assertEquals(1, noteDao.searchLikeNow("%needle%").size());
+        NoteListItem item = noteDao.getFirstNotes(1).get(0);
+        assertEquals(description, noteDao.getById(item.getId()).getDescription());
+    }
+
+    @Test
+    public void wordCutByThePrefixIsIndexedWhole() {
+        StringBuilder builder = new StringBuilder();
+        while (builder.length() < NoteCompression.INDEXED_PREFIX_LENGTH - 3) {
+            builder.append("x ");
+        }
+        String text = builder.append("boundary").toString();
+        assertTrue(text.length() > NoteCompression.INDEXED_PREFIX_LENGTH);
+
+        String indexed = NoteCompression.indexedText(text);
+        assertTrue(indexed.endsWith(" boundary"));
+        // 같은 단어는 대소문자가 달라도 한 번만 넣는다.
+        assertEquals(text.substring(0, NoteCompression.INDEXED_PREFIX_LENGTH) + " boundary",
+                NoteCompression.indexedText(text + " X BOUNDARY boundary"));
+    }
+
+    @Test
+    public void shortAndPlainRowsStayReadable() {
+        noteDao.insert(new Note("short", "short text", 1));
+        // 압축 기능 전에 저장된 행과 같은 모양.
+        database.getOpenHelper().getWritableDatabase().execSQL(
+                "INSERT INTO note_table (title, description, priority) VALUES ('old', '" + longText("legacy", 8000) + "', 2)");
+
+        Cursor cursor = database.query("SELECT description_blob FROM note_table WHERE title = 'short'", null);
+        try {
+            cursor.moveToFirst();
+            assertTrue(cursor.isNull(0));
+        } finally {
+            cursor.close();
+        }
+        NoteListItem old = noteDao.getFirstNotes(1).get(0);
+        assertEquals(longText("legacy", 8000), noteDao.getById(old.getId()).getDescription());
+    }
+
+    @Test
+    public void updateRecompressesAndExportDecodes() throws IOException {
+        noteDao.insert(new Note("t", "short", 1));
+        int id = noteDao.getFirstNotes(1).get(0).getId();
+        Note edited = new Note("t", longText("edited", 10000), 1);
+        edited.setId(id);
+        noteDao.update(edited);
+        assertEquals(longText("edited", 10000), noteDao.getById(id).getDescription());
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        new NoteTransfer(noteDao).exportNotes(out, NoteTransfer.Format.JSON_LINES, null);
+        assertTrue(out.toString("UTF-8").contains(longText("edited", 10000)));
+    }
+
+    @Test
+    public void thresholdIsPerDatabase() {
+        Context context = ApplicationProvider.getApplicationContext();
+        NoteDatabase plain = Room.inMemoryDatabaseBuilder(context, NoteDatabase.class)
+                .addCallback(NoteDatabase.configCallback(new NoteDatabaseConfig(true, 1, Integer.MAX_VALUE)))
+                .allowMainThreadQueries()
+                .build();
+        try {
+            Note note = new Note("t", longText("plain", 20000), 1);
+            plain.noteDao().insert(note);
+            assertEquals(NoteCompression.FORMAT_PLAIN, note.getDescriptionFormat());
+            assertNull(note.getDescriptionBlob());
+
+            // 다른 데이터베이스는 자기 기준대로 압축한다.
+            Note compressed = new Note("t", longText("plain", 20000), 1);
+            noteDao.insert(compressed);
+            assertEquals(NoteCompression.FORMAT_DEFLATE, compressed.getDescriptionFormat());
+        } finally {
+            plain.close();
+        }
+    }
+
+    @Test
+    public void proseThatOnlyShrinksWithoutTheWordListStaysPlain() {
+        // 단어가 거의 겹치지 않는 글. blob만 보면 작아지지만 단어 목록까지 더하면 원문보다 커진다.
+        Random random = new Random(16);
+        StringBuilder builder = new StringBuilder();
+        while (builder.length() < NoteCompression.DEFAULT_THRESHOLD * 2) {
+            builder.append(builder.length() == 0 ? "" : " ");
+            int length = 3 + random.nextInt(6);
+            for (int i = 0; i < length; i++) {
+                builder.append((char) ('a' + random.nextInt(26)));
+            }
+        }
+        String description = builder.toString();
+        assertNotNull(NoteCompression.deflate(description, ""));
+
+        Note note = new Note("entropy", description, 1);
+        noteDao.insert(note);
+        assertEquals(NoteCompression.FORMAT_PLAIN, note.getDescriptionFormat());
+        assertNull(note.getDescriptionBlob());
+        assertEquals(description, noteDao.getById(noteDao.getFirstNotes(1).get(0).getId()).getDescription());
+    }
+
+    private static String longText(String firstWord, int length) {
+        StringBuilder builder = new StringBuilder(firstWord);
+        int i = 0;
+        while (builder.length() < length) {
+            builder.append(" line ").append(i++ % 50).append(" of a long note");
+        }
+        return builder.substring(0, length);
+    }
+}
@@ -0,0 +1,306 @@
+package com.example.mvvmarchitecture;
+
+import android.app.Application;
+import android.content.Context;
+
+import androidx.room.Room;
+import androidx.test.core.app.ApplicationProvider;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * NoteDao, NoteWriteQueue 경로의 JVM 벤치마크.
+ * Robolectric의 SQLite 위에서 테이블 크기별로 단건/묶음 쓰기와 목록 쿼리를 측정한다.
+ *
+ * ./gradlew testDebugUnitTest -Pbenchmark [-PbenchmarkSizes=1000,10000,100000] [-PupdateBaseline]
+ */
+// NoteApplication이 시작하면서 앱 데이터베이스를 여는 일이 측정에 섞이지 않도록 기본 Application을 쓴다.
+@RunWith(RobolectricTestRunner.class)
+@Config(sdk = 28, application = Application.class)
+public class NoteDataLayerBenchmark {
+    private static final int OPERATIONS = 500;
+    private static final int PAGE_SIZE = 50;
+
+    private NoteDatabase database;
+    private NoteDao noteDao;
+    private final Random random = new Random(42);
+
+    @Before
+    public void setUp() {
+        Context context = ApplicationProvider.getApplicationContext();
+        database = Room.inMemoryDatabaseBuilder(context, NoteDatabase.class)
+                .allowMainThreadQueries()
+                .build();
+        noteDao = database.noteDao();
+    }
+
+    @After
+    public void tearDown() {
+        database.close();
+    }
+
+    @Test
+    public void dataLayer() throws Exception {
+        BenchmarkHarness harness = new BenchmarkHarness("NoteDataLayer");
+        for (int size : tableSizes()) {
+            benchmarkInserts(harness, size);
+            benchmarkUpdates(harness, size);
+            benchmarkDeletes(harness, size);
+            benchmarkQueries(harness, size);
+            benchmarkTransfer(harness, size);
+            benchmarkGenerate(harness, size);
+        }
+        harness.reportAndCheckBaseline();
+    }
+
+    private void benchmarkInserts(BenchmarkHarness harness, final int size) {
+        Runnable reset = resetTo(size);
+        harness.measure("insert.single." + size, OPERATIONS, reset, new Runnable() {
+            @Override
+            public void run() {
+                for (int i = 0; i < OPERATIONS; i++) {
+                    noteDao.insert(randomNote());
+                }
+            }
+        });
+        harness.measure("insert.bulk." + size, OPERATIONS, reset, new Runnable() {
+            @Override
+            public void run() {
+                noteDao.insertAll(randomNotes(OPERATIONS));
+            }
+        });
+    }
+
+    private void benchmarkUpdates(BenchmarkHarness harness, final int size) {
+        final List<Note> targets = new ArrayList<>();
+        Runnable reset = new Runnable() {
+            @Override
+            public void run() {
+                resetTo(size).run();
+                targets.clear();
+                for (Note note : noteDao.getByIds(firstIds(OPERATIONS))) {
+                    Note changed = new Note(note.getTitle() + "!", note.getDescription(), note.getPriority());
+                    changed.setId(note.getId());
+                    targets.add(changed);
+                }
+            }
+        };
+        harness.measure("update.single." + size, OPERATIONS, reset, new Runnable() {
+            @Override
+            public void run() {
+                for (Note note : targets) {
+                    noteDao.update(note);
+                }
+            }
+        });
+        harness.measure("update.bulk." + size, OPERATIONS, reset, new Runnable() {
+            @Override
+            public void run() {
+                noteDao.updateAll(targets);
+            }
+        });
+        // Repository 경로: 같은 Note를 여러 번 고쳐도 NoteWriteQueue가 한 번의 update로 합친다.
+        final int editsPerNote = 5;
+        harness.measure("update.coalesced." + size, OPERATIONS * editsPerNote, reset, new Runnable() {
+            @Override
+            public void run() {
+                NoteWriteQueue queue = new NoteWriteQueue(noteDao, new DeterministicTaskExecutor(), Integer.MAX_VALUE, null);
+                for (int edit = 0; edit < editsPerNote; edit++) {
+                    for (Note note : targets) {
+                        queue.update(note);
+                    }
+                }
+                NoteWriteQueue.Batch batch = queue.drain();
+                noteDao.applyBatch(batch.deleteAll, batch.inserts, batch.updates, batch.deleteIds);
+            }
+        });
+    }
+
+    private void benchmarkDeletes(BenchmarkHarness harness, final int size) {
+        final List<Note> targets = new ArrayList<>();
+        final List<Integer> targetIds = new ArrayList<>();
+        Runnable reset = new Runnable() {
+            @Override
+            public void run() {
+                resetTo(size).run();
+                targetIds.clear();
+                targetIds.addAll(firstIds(OPERATIONS));
+                targets.clear();
+                targets.addAll(noteDao.getByIds(targetIds));
+            }
+        };
+        harness.measure("delete.single." + size, OPERATIONS, reset, new Runnable() {
+            @Override
+            public void run() {
+                for (Note note : targets) {
+                    noteDao.delete(note);
+                }
+            }
+        });
+        harness.measure("delete.bulk." + size, OPERATIONS, reset, new Runnable() {
+            @Override
+            public void run() {
+                noteDao.deleteByIds(targetIds);
+            }
+        });
+        // deleteAllNotes는 지운 행 수를 연산 수로 본다.
+        harness.measure("delete.all." + size, size, resetTo(size), new Runnable() {
+            @Override
+            public void run() {
+                noteDao.deleteAllNotes();
+            }
+        });
+    }
+
+    private void benchmarkQueries(BenchmarkHarness harness, final int size) {
+        Runnable nothing = new Runnable() {
+            @Override
+            public void run() {
+            }
+        };
+        resetTo(size).run();
+        harness.measure("list.firstPage." + size, 100, nothing, new Runnable() {
+            @Override
+            public void run() {
+                for (int i = 0; i < 100; i++) {
+                    noteDao.getFirstNotes(PAGE_SIZE);
+                }
+            }
+        });
+        // 목록 끝까지 keyset으로 넘기며 페이지 하나당 비용을 잰다.
+        final int pages = Math.max(1, size / PAGE_SIZE);
+        harness.measure("list.keysetPage." + size, pages, nothing, new Runnable() {
+            @Override
+            public void run() {
+                List<NoteListItem> page = noteDao.getFirstNotes(PAGE_SIZE);
+                for (int i = 1; i < pages && !page.isEmpty(); i++) {
+                    NoteListItem last = page.get(page.size() - 1);
+                    page = noteDao.getNotesAfter(last.getPriority(), last.getId(), PAGE_SIZE);
+                }
+            }
+        });
+        // 전체 목록 쿼리(getAllNotes와 같은 정렬)는 읽은 행 수를 연산 수로 본다.
+        harness.measure("list.all." + size, size, nothing, new Runnable() {
+            @Override
+            public void run() {
+                noteDao.getFirstNotes(size);
+            }
+        });
+    }
+
+    // 내보내기/가져오기는 옮긴 Note 개수를 연산 수로 본다.
+    private void benchmarkTransfer(BenchmarkHarness harness, final int size) {
+        final NoteTransfer transfer = new NoteTransfer(noteDao);
+        resetTo(size).run();
+        final ByteArrayOutputStream exported = new ByteArrayOutputStream();
+        harness.measure("transfer.export." + size, size, new Runnable() {
+            @Override
+            public void run() {
+                exported.reset();
+            }
+        }, new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    transfer.exportNotes(exported, NoteTransfer.Format.JSON_LINES, null);
+                } catch (IOException e) {
+                    throw new AssertionError(e);
+                }
+            }
+        });
+        final byte[] input = exported.toByteArray();
+        Runnable clear = new Runnable() {
+            @Override
+            public void run() {
+                noteDao.deleteAllNotes();
+            }
+        };
+        harness.measure("transfer.import." + size, size, clear, new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    transfer.importNotes(new ByteArrayInputStream(input), NoteTransfer.Format.JSON_LINES, null);
+                } catch (IOException e) {
+                    throw new AssertionError(e);
+                }
+            }
+        });
+    }
+
+    // NoteDataset의 컴파일된 INSERT 경로는 넣은 행 수를 연산 수로 본다.
+    private void benchmarkGenerate(BenchmarkHarness harness, int size) {
+        final NoteDataset dataset = dataset(size, 7);
+        harness.measure("dataset.generate." + size, size, new Runnable() {
+            @Override
+            public void run() {
+                noteDao.deleteAllNotes();
+            }
+        }, new Runnable() {
+            @Override
+            public void run() {
+                dataset.generate(database);
+            }
+        });
+    }
+
+    private List<Integer> firstIds(int count) {
+        List<Integer> ids = new ArrayList<>(count);
+        for (NoteListItem item : noteDao.getFirstNotes(count)) {
+            ids.add(item.getId());
+        }
+        return ids;
+    }
+
+    private Runnable resetTo(final int size) {
+        return new Runnable() {
+            @Override
+            public void run() {
+                noteDao.deleteAllNotes();
+                dataset(size, 42).generate(database);
+            }
+        };
+    }
+
+    // randomNote()와 비슷한 길이의 짧은 Note로 채운다.
+    private static NoteDataset dataset(int size, long seed) {
+        return new NoteDataset.Builder(size)
+                .seed(seed)
+                .titleLength(NoteDataset.uniform(7, 13))
+                .descriptionLength(NoteDataset.uniform(24, 34))
+                .build();
+    }
+
+    private List<Note> randomNotes(int count) {
+        List<Note> notes = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            notes.add(randomNote());
+        }
+        return notes;
+    }
+
+    private Note randomNote() {
+        int n = random.nextInt(1_000_000);
+        return new Note("Title " + n, "Description " + n + " for benchmark", 1 + random.nextInt(10));
+    }
+
+    private static int[] tableSizes() {
+        String[] parts = System.getProperty("benchmark.sizes", "1000,10000").split(",");
+        int[] sizes = new int[parts.length];
+        for (int i = 0; i < parts.length; i++) {
+            sizes[i] = Integer.parseInt(parts[i].trim());
+        }
+        return sizes;
+    }
+}
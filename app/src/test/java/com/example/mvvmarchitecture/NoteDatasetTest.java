@@ -0,0 +1,136 @@
+package com.example.mvvmarchitecture;
+
+import android.app.Application;
+import android.content.Context;
+import android.database.Cursor;
+
+import androidx.room.Room;
+import androidx.test.core.app.ApplicationProvider;
+
+import org.junit.After;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertTrue;
+
+@RunWith(RobolectricTestRunner.class)
+@Config(sdk = 28, application = Application.class)
+public class NoteDatasetTest {
+    private final Context context = ApplicationProvider.getApplicationContext();
+    private final List<NoteDatabase> databases = new ArrayList<>();
+
+    @After
+    public void tearDown() {
+        for (NoteDatabase database : databases) {
+            database.close();
+        }
+    }
+
+    @Test
+    public void sameSeedProducesSameNotesRegardlessOfTransactionSize() {
+        NoteDatabase first = newDatabase();
+        NoteDatabase second = newDatabase();
+        NoteDatabase other = newDatabase();
+
+        final List<Long> progress = new ArrayList<>();
+        NoteDataset.Generation generation = new NoteDataset.Builder(20).seed(7).transactionSize(8).build()
+                .begin(first, new NoteTransfer.ProgressListener() {
+                    @Override
+                    public void onProgress(long count) {
+                        progress.add(count);
+                    }
+                });
+        while (generation.step()) {
+            // 트랜잭션 하나씩 넣는다.
+        }
+        assertEquals(20, generation.count());
+        assertEquals(Arrays.asList(8L, 16L, 20L), progress);
+
+        assertEquals(20, new NoteDataset.Builder(20).seed(7).build().generate(second));
+        new NoteDataset.Builder(20).seed(8).build().generate(other);
+
+        assertEquals(rows(first), rows(second));
+        assertNotEquals(rows(first), rows(other));
+    }
+
+    @Test
+    public void followsPriorityWeightsAndLengthDistributions() {
+        NoteDatabase database = newDatabase();
+        NoteDataset dataset = new NoteDataset.Builder(2000)
+                .priorityWeights(5, 0, 3, 0, 1)
+                .titleLength(NoteDataset.fixed(12))
+                .descriptionLength(NoteDataset.mixed(10, NoteDataset.fixed(5000), NoteDataset.uniform(1, 20)))
+                .build();
+        dataset.generate(database);
+
+        // 가중치가 0인 priority 5, 7은 나오지 않고, 6과 8은 대략 3:1이다.
+        List<NotePriorityCount> counts = database.noteDao().getPriorityCountsNow();
+        assertEquals(2, counts.size());
+        assertEquals(8, counts.get(0).getPriority());
+        assertEquals(6, counts.get(1).getPriority());
+        assertEquals(2000, counts.get(0).getCount() + counts.get(1).getCount());
+        assertTrue(counts.toString(), counts.get(1).getCount() > 1350 && counts.get(1).getCount() < 1650);
+
+        int compressed = 0;
+        Cursor cursor = database.query("SELECT title, description, description_blob, description_format FROM note_table", null);
+        try {
+            while (cursor.moveToNext()) {
+                assertEquals(12, cursor.getString(0).length());
+                int length = NoteCompression.decode(cursor.getString(1), cursor.getBlob(2), cursor.getInt(3)).length();
+                if (length == 5000) {
+                    compressed++;
+                } else {
+                    assertTrue(String.valueOf(length), length >= 1 && length <= 20);
+                }
+            }
+        } finally {
+            cursor.close();
+        }
+        assertTrue(String.valueOf(compressed), compressed > 140 && compressed < 260);
+        assertEquals(compressed, count(database, "SELECT COUNT(*) FROM note_table WHERE description_format = "
+                + NoteCompression.FORMAT_DEFLATE));
+
+        // 트리거가 행마다 실행되어 검색 색인과 동기화 상태도 채워진다.
+        assertEquals(2000, count(database, "SELECT COUNT(*) FROM note_fts"));
+        assertEquals(2000, count(database, "SELECT COUNT(*) FROM note_sync WHERE dirty = 1"));
+    }
+
+    private NoteDatabase newDatabase() {
+        NoteDatabase database = Room.inMemoryDatabaseBuilder(context, NoteDatabase.class)
+                .addCallback(NoteDatabase.CALLBACK)
+                .allowMainThreadQueries()
+                .build();
+        databases.add(database);
+        return database;
+    }
+
+    private static List<String> rows(NoteDatabase database) {
+        List<String> rows = new ArrayList<>();
+        Cursor cursor = database.query("SELECT title, description, priority, sync_id FROM note_table ORDER BY id", null);
+        try {
+            while (cursor.moveToNext()) {
+                rows.add(cursor.getString(0) + "|" + cursor.getString(1) + "|" + cursor.getInt(2) + "|" + cursor.getString(3));
+            }
+        } finally {
+            cursor.close();
+        }
+        return rows;
+    }
+
+    private static int count(NoteDatabase database, String sql) {
+        Cursor cursor = database.query(sql, null);
+        try {
+            return cursor.moveToFirst() ? cursor.getInt(0) : 0;
+        } finally {
+            cursor.close();
+        }
+    }
+}
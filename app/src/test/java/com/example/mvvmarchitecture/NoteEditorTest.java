@@ -0,0 +1,68 @@
+package com.example.mvvmarchitecture;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class NoteEditorTest {
+    @Test
+    public void reportsOnlyChangedFields() {
+        NoteEditor editor = new NoteEditor(note(4, "title", "body", 3), null, 1);
+
+        assertEquals(0, editor.getChangedFields("title", "body", 3));
+        assertEquals(Note.FIELD_PRIORITY, editor.getChangedFields("title", "body", 7));
+        assertEquals(Note.FIELD_TITLE | Note.FIELD_DESCRIPTION, editor.getChangedFields("new", "new body", 3));
+    }
+
+    @Test
+    public void savesDraftOnlyWhenContentDiffersFromLastDraft() {
+        NoteEditor editor = new NoteEditor(note(4, "title", "body", 3), null, 1);
+
+        // 내용이 그대로면 쓰지 않는다.
+        assertEquals(NoteEditor.DraftAction.NONE, editor.updateDraft("title", "body", 3, 10));
+
+        assertEquals(NoteEditor.DraftAction.SAVE, editor.updateDraft("title", "body!", 3, 20));
+        assertEquals(4, editor.getDraft().getNoteId());
+        assertEquals(20, editor.getDraft().getSavedAt());
+        assertEquals(NoteEditor.DraftAction.NONE, editor.updateDraft("title", "body!", 3, 30));
+        assertEquals(NoteEditor.DraftAction.SAVE, editor.updateDraft("title", "body!", 5, 40));
+
+        // 원래 내용으로 되돌리면 초안을 지운다. 한 번만 지운다.
+        assertEquals(NoteEditor.DraftAction.DISCARD, editor.updateDraft("title", "body", 3, 50));
+        assertEquals(NoteEditor.DraftAction.NONE, editor.updateDraft("title", "body", 3, 60));
+        assertFalse(editor.clearDraft());
+    }
+
+    @Test
+    public void restoresDraftButComparesAgainstStoredNote() {
+        NoteDraft draft = new NoteDraft(4, "title", "unsaved body", 3, 10);
+        NoteEditor editor = new NoteEditor(note(4, "title", "body", 3), draft, 1);
+
+        assertTrue(editor.isDraftRestored());
+        assertEquals("unsaved body", editor.getDescription());
+        assertEquals(Note.FIELD_DESCRIPTION, editor.getChangedFields("title", "unsaved body", 3));
+        // 복원한 내용을 그대로 다시 채워도 같은 초안을 또 쓰지 않는다.
+        assertEquals(NoteEditor.DraftAction.NONE, editor.updateDraft("title", "unsaved body", 3, 20));
+        assertTrue(editor.clearDraft());
+    }
+
+    @Test
+    public void newNoteStartsEmptyWithDefaultPriority() {
+        NoteEditor editor = new NoteEditor(null, null, 1);
+
+        assertTrue(editor.isNewNote());
+        assertEquals(NoteDraft.NEW_NOTE_ID, editor.getNoteId());
+        assertEquals("", editor.getTitle());
+        assertEquals(1, editor.getPriority());
+        assertEquals(NoteEditor.DraftAction.SAVE, editor.updateDraft("a", "", 1, 10));
+        assertEquals(NoteDraft.NEW_NOTE_ID, editor.getDraft().getNoteId());
+    }
+
+    private static Note note(int id, String title, String description, int priority) {
+        Note note = new Note(title, description, priority);
+        note.setId(id);
+        return note;
+    }
+}
@@ -0,0 +1,81 @@
+package com.example.mvvmarchitecture;
+
+import android.app.Application;
+import android.content.Context;
+import android.view.ContextThemeWrapper;
+import android.view.View;
+import android.widget.FrameLayout;
+
+import androidx.test.core.app.ApplicationProvider;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+
+@RunWith(RobolectricTestRunner.class)
+@Config(sdk = 28, application = Application.class)
+public class NoteItemViewsTest {
+    private Context context;
+    private InMemoryNoteMetrics metrics;
+
+    @Before
+    public void setUp() {
+        context = new ContextThemeWrapper(ApplicationProvider.getApplicationContext(), R.style.AppTheme);
+        metrics = new InMemoryNoteMetrics();
+        NoteMetrics.install(metrics);
+    }
+
+    @After
+    public void tearDown() {
+        NoteMetrics.install(null);
+    }
+
+    @Test
+    public void prefetchedViewsAreHandedOutBeforeInflating() {
+        FrameLayout parent = new FrameLayout(context);
+        NoteItemViews itemViews = new NoteItemViews();
+        // 실제 inflate는 다른 스레드에서 끝나므로, 요청 없이 parent만 정하고 완료 콜백을 직접 부른다.
+        itemViews.prefetch(parent, 0);
+        View first = new View(context);
+        View second = new View(context);
+        itemViews.onInflateFinished(first, R.layout.note_item, parent);
+        itemViews.onInflateFinished(second, R.layout.note_item, parent);
+        // 이미 두 개가 있으므로 더 요청하지 않는다.
+        itemViews.prefetch(parent, 2);
+        assertEquals(2, itemViews.size());
+
+        assertSame(first, itemViews.obtain(parent));
+        assertSame(second, itemViews.obtain(parent));
+        assertEquals(0, metrics.getHistogram(NoteMetrics.ITEM_INFLATE).getCount());
+
+        // 다 쓰면 메인 스레드에서 직접 inflate하고 그 시간을 남긴다.
+        View inflated = itemViews.obtain(parent);
+        assertEquals(R.id.text_view_title, inflated.findViewById(R.id.text_view_title).getId());
+        assertEquals(1, metrics.getHistogram(NoteMetrics.ITEM_INFLATE).getCount());
+    }
+
+    @Test
+    public void viewsAreOnlyHandedToTheParentTheyWereInflatedFor() {
+        FrameLayout parent = new FrameLayout(context);
+        FrameLayout other = new FrameLayout(context);
+        NoteItemViews itemViews = new NoteItemViews();
+        itemViews.prefetch(parent, 0);
+        View view = new View(context);
+        itemViews.onInflateFinished(view, R.layout.note_item, parent);
+
+        assertNotSame(view, itemViews.obtain(other));
+        assertEquals(1, itemViews.size());
+
+        // 다른 parent로 바꾸면 전에 만든 뷰와 아직 오지 않은 뷰는 버린다.
+        itemViews.prefetch(other, 0);
+        itemViews.onInflateFinished(new View(context), R.layout.note_item, parent);
+        assertEquals(0, itemViews.size());
+    }
+}
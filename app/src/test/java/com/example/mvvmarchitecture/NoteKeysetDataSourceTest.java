@@ -0,0 +1,213 @@
+package com.example.mvvmarchitecture;
+
+import android.app.Application;
+import android.content.Context;
+
+import androidx.annotation.NonNull;
+import androidx.paging.ItemKeyedDataSource;
+import androidx.room.Room;
+import androidx.test.core.app.ApplicationProvider;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executor;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+@RunWith(RobolectricTestRunner.class)
+@Config(sdk = 28, application = Application.class)
+public class NoteKeysetDataSourceTest {
+    private static final Executor DIRECT = new Executor() {
+        @Override
+        public void execute(Runnable command) {
+            command.run();
+        }
+    };
+    // 같은 priority가 여러 페이지에 걸치도록 페이지보다 긴 묶음을 만든다.
+    private static final int[] PRIORITIES = {2, 5, 2, 2, 5, 1, 2, 2, 5, 2, 1, 2, 5, 2, 2, 1, 2, 5, 2, 2, 2};
+    private static final int PAGE_SIZE = 4;
+
+    private NoteDatabase database;
+    private NoteDao noteDao;
+    private NoteOverlay overlay;
+    private NoteKeysetDataSource.Factory factory;
+    // getAllNotesNow는 목록과 같은 (priority DESC, id DESC) 순서다.
+    private List<Integer> expected;
+
+    @Before
+    public void setUp() {
+        Context context = ApplicationProvider.getApplicationContext();
+        // 무효화 알림이 쓰기가 끝나는 즉시 이 스레드에서 오도록 query executor를 직접 실행으로 둔다.
+        database = Room.inMemoryDatabaseBuilder(context, NoteDatabase.class)
+                .addCallback(NoteDatabase.CALLBACK)
+                .allowMainThreadQueries()
+                .setQueryExecutor(DIRECT)
+                .build();
+        noteDao = database.noteDao();
+        List<Note> notes = new ArrayList<>();
+        for (int i = 0; i < PRIORITIES.length; i++) {
+            notes.add(new Note("note " + i, "", PRIORITIES[i]));
+        }
+        noteDao.insertAll(notes);
+        expected = new ArrayList<>();
+        for (Note note : noteDao.getAllNotesNow()) {
+            expected.add(note.getId());
+        }
+        overlay = new NoteOverlay();
+        factory = new NoteKeysetDataSource.Factory(database, overlay);
+    }
+
+    @After
+    public void tearDown() {
+        database.close();
+    }
+
+    @Test
+    public void pagesForwardAcrossTiesWithoutSkippingOrRepeating() {
+        ItemKeyedDataSource<NoteListItem, NoteListItem> dataSource = create();
+        List<NoteListItem> loaded = loadInitial(dataSource, null, PAGE_SIZE);
+        assertEquals(PAGE_SIZE, loaded.size());
+        List<NoteListItem> page;
+        do {
+            page = loadAfter(dataSource, loaded.get(loaded.size() - 1));
+            loaded.addAll(page);
+        } while (!page.isEmpty());
+
+        assertEquals(expected, ids(loaded));
+    }
+
+    @Test
+    public void pagesBothWaysAroundAKey() {
+        ItemKeyedDataSource<NoteListItem, NoteListItem> dataSource = create();
+        // 무효화 뒤처럼 가운데의 Note를 key로 다시 읽는다. key 앞 절반, key 자신, 그 뒤 순서다.
+        NoteListItem key = item(13);
+        List<NoteListItem> loaded = loadInitial(dataSource, key, 6);
+        assertEquals(expected.subList(10, 16), ids(loaded));
+
+        List<NoteListItem> page;
+        do {
+            page = loadBefore(dataSource, loaded.get(0));
+            loaded.addAll(0, page);
+        } while (!page.isEmpty());
+        do {
+            page = loadAfter(dataSource, loaded.get(loaded.size() - 1));
+            loaded.addAll(page);
+        } while (!page.isEmpty());
+
+        assertEquals(expected, ids(loaded));
+    }
+
+    @Test
+    public void pagesWithinThePriorityFilter() {
+        ItemKeyedDataSource<NoteListItem, NoteListItem> first = create();
+        factory.setPriorityRange(new NotePriorityRange(2, 2));
+        assertTrue(first.isInvalid());
+
+        ItemKeyedDataSource<NoteListItem, NoteListItem> dataSource = create();
+        List<NoteListItem> loaded = loadInitial(dataSource, null, PAGE_SIZE);
+        List<NoteListItem> page;
+        do {
+            page = loadAfter(dataSource, loaded.get(loaded.size() - 1));
+            loaded.addAll(page);
+        } while (!page.isEmpty());
+
+        List<Integer> twos = new ArrayList<>();
+        for (Note note : noteDao.getAllNotesNow()) {
+            if (note.getPriority() == 2) {
+                twos.add(note.getId());
+            }
+        }
+        assertEquals(twos, ids(loaded));
+    }
+
+    @Test
+    public void writesAndOverlayChangesInvalidate() {
+        ItemKeyedDataSource<NoteListItem, NoteListItem> dataSource = create();
+        loadInitial(dataSource, null, PAGE_SIZE);
+        assertFalse(dataSource.isInvalid());
+        noteDao.insert(new Note("new", "", 3));
+        assertTrue(dataSource.isInvalid());
+
+        dataSource = create();
+        assertFalse(dataSource.isInvalid());
+        overlay.delete(expected.get(0));
+        assertTrue(dataSource.isInvalid());
+
+        // 새 DataSource는 지울 Note를 빼고 읽는다.
+        dataSource = create();
+        List<NoteListItem> loaded = loadInitial(dataSource, null, PAGE_SIZE);
+        assertEquals(expected.get(1), Integer.valueOf(loaded.get(0).getId()));
+    }
+
+    @SuppressWarnings("unchecked")
+    private ItemKeyedDataSource<NoteListItem, NoteListItem> create() {
+        return (ItemKeyedDataSource<NoteListItem, NoteListItem>) factory.create();
+    }
+
+    private NoteListItem item(int position) {
+        for (NoteListItem item : noteDao.getFirstNotes(expected.size())) {
+            if (item.getId() == expected.get(position)) {
+                return item;
+            }
+        }
+        throw new AssertionError("no note at " + position);
+    }
+
+    private static List<Integer> ids(List<NoteListItem> items) {
+        List<Integer> ids = new ArrayList<>(items.size());
+        for (NoteListItem item : items) {
+            ids.add(item.getId());
+        }
+        return ids;
+    }
+
+    private static List<NoteListItem> loadInitial(ItemKeyedDataSource<NoteListItem, NoteListItem> dataSource,
+                                                  NoteListItem key, int size) {
+        final List<NoteListItem> result = new ArrayList<>();
+        dataSource.loadInitial(new ItemKeyedDataSource.LoadInitialParams<NoteListItem>(key, size, false),
+                new ItemKeyedDataSource.LoadInitialCallback<NoteListItem>() {
+                    @Override
+                    public void onResult(@NonNull List<NoteListItem> data, int position, int totalCount) {
+                        result.addAll(data);
+                    }
+
+                    @Override
+                    public void onResult(@NonNull List<NoteListItem> data) {
+                        result.addAll(data);
+                    }
+                });
+        return result;
+    }
+
+    private static List<NoteListItem> loadAfter(ItemKeyedDataSource<NoteListItem, NoteListItem> dataSource,
+                                                NoteListItem key) {
+        Collector collector = new Collector();
+        dataSource.loadAfter(new ItemKeyedDataSource.LoadParams<NoteListItem>(key, PAGE_SIZE), collector);
+        return collector.data;
+    }
+
+    private static List<NoteListItem> loadBefore(ItemKeyedDataSource<NoteListItem, NoteListItem> dataSource,
+                                                 NoteListItem key) {
+        Collector collector = new Collector();
+        dataSource.loadBefore(new ItemKeyedDataSource.LoadParams<NoteListItem>(key, PAGE_SIZE), collector);
+        return collector.data;
+    }
+
+    private static class Collector extends ItemKeyedDataSource.LoadCallback<NoteListItem> {
+        private final List<NoteListItem> data = new ArrayList<>();
+
+        @Override
+        public void onResult(@NonNull List<NoteListItem> result) {
+            data.addAll(result);
+        }
+    }
+}
@@ -0,0 +1,109 @@
+package com.example.mvvmarchitecture;
+
+import android.app.Application;
+import android.content.Context;
+
+import androidx.room.Room;
+import androidx.sqlite.db.SupportSQLiteDatabase;
+import androidx.test.core.app.ApplicationProvider;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+@RunWith(RobolectricTestRunner.class)
+@Config(sdk = 28, application = Application.class)
+public class NoteMaintenanceTest {
+    private static final String DB_NAME = "maintenance_test.db";
+
+    private Context context;
+    private NoteDatabase database;
+    private NoteDao noteDao;
+    private final DeterministicTaskExecutor executor = new DeterministicTaskExecutor();
+
+    @Before
+    public void setUp() {
+        context = ApplicationProvider.getApplicationContext();
+        context.deleteDatabase(DB_NAME);
+        database = Room.databaseBuilder(context, NoteDatabase.class, DB_NAME)
+                .allowMainThreadQueries()
+                .build();
+        noteDao = database.noteDao();
+    }
+
+    @After
+    public void tearDown() {
+        database.close();
+        context.deleteDatabase(DB_NAME);
+    }
+
+    @Test
+    public void deleteAllPurgesInChunksAndKeepsLaterInserts() {
+        noteDao.insertAll(notes(NoteWriteQueue.PURGE_CHUNK_SIZE * 2 + 10));
+        final List<String> events = new ArrayList<>();
+        NoteWriteQueue queue = new NoteWriteQueue(noteDao, executor, new NoteWriteQueue.BatchListener() {
+            @Override
+            public void onBatchCommitted(NoteWriteQueue.Batch batch) {
+                events.add(batch.deleteAll ? "deleteAll" : "insert " + batch.inserts.size());
+            }
+
+            @Override
+            public void onBatchFailed(NoteWriteQueue.Batch batch, RuntimeException error) {
+                events.add("failed");
+            }
+        });
+
+        queue.deleteAll();
+        queue.flush();
+        executor.runNext();
+        // 지울 범위만 정했고 아직 한 행도 지우지 않았다.
+        queue.insert(new Note("after", "d", 1));
+        queue.flush();
+
+        // 편집 배치는 남은 지우기 덩어리보다 먼저 커밋된다.
+        assertEquals(NoteTaskExecutor.Priority.INTERACTIVE, executor.peekPriority());
+        executor.runNext();
+        assertEquals(NoteWriteQueue.PURGE_CHUNK_SIZE * 2 + 11, noteDao.getMaxId());
+        executor.runAll();
+
+        List<NoteListItem> remaining = noteDao.getFirstNotes(100);
+        assertEquals(1, remaining.size());
+        assertEquals("after", remaining.get(0).getTitle());
+        // 지우는 사이에 커밋된 insert는 deleteAll이 끝난 뒤에 알린다.
+        assertEquals("[deleteAll, insert 1]", events.toString());
+    }
+
+    @Test
+    public void optimizeSwitchesToIncrementalVacuumAndReclaimsPages() {
+        SupportSQLiteDatabase db = database.getOpenHelper().getWritableDatabase();
+        NoteMaintenance.optimize(db);
+        assertEquals(NoteMaintenance.AUTO_VACUUM_INCREMENTAL, NoteMaintenance.readStats(db).autoVacuum);
+
+        noteDao.insertAll(notes(2000));
+        noteDao.deleteAllNotes();
+        NoteMaintenance.Stats before = NoteMaintenance.readStats(db);
+        assertTrue(before.toString(), before.getFreeRatio() > NoteMaintenance.MAX_FREE_RATIO);
+
+        NoteMaintenance.incrementalVacuum(db, Integer.MAX_VALUE);
+        NoteMaintenance.Stats after = NoteMaintenance.readStats(db);
+        assertEquals(0, after.freePages);
+        assertTrue(after.pageCount < before.pageCount);
+    }
+
+    private static List<Note> notes(int count) {
+        List<Note> notes = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            notes.add(new Note("title " + i, "description " + i, 1 + i % 10));
+        }
+        return notes;
+    }
+}
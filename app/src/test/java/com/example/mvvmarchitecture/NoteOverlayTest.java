@@ -0,0 +1,145 @@
+package com.example.mvvmarchitecture;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public class NoteOverlayTest {
+    private final NoteOverlay overlay = new NoteOverlay();
+
+    @Test
+    public void emptyOverlayReturnsRowsAsIs() {
+        List<NoteListItem> rows = rows(item(3, 5), item(2, 1));
+        assertSame(rows, overlay.apply(rows, null, false, null, false));
+    }
+
+    @Test
+    public void insertAppearsAtTopOfItsPriorityWithTemporaryId() {
+        overlay.insert(new Note("new", "d", 2));
+        List<NoteListItem> result = overlay.apply(rows(item(3, 5), item(2, 9), item(1, 1)), null, false, null, false);
+        assertEquals("[5, -1, 9, 1]", ids(result));
+    }
+
+    @Test
+    public void laterInsertsComeFirst() {
+        overlay.insert(new Note("a", "d", 1));
+        overlay.insert(new Note("b", "d", 1));
+        assertEquals("[-2, -1, 4]", ids(overlay.apply(rows(item(1, 4)), null, false, null, false)));
+    }
+
+    @Test
+    public void deleteHidesRowAndUpdateMovesIt() {
+        overlay.delete(9);
+        Note updated = new Note("moved", "d", 5);
+        updated.setId(1);
+        overlay.update(updated);
+
+        List<NoteListItem> result = overlay.apply(rows(item(3, 5), item(2, 9), item(1, 1)), null, false, null, false);
+        assertEquals("[1, 5]", ids(result));
+        assertEquals("moved", result.get(0).getTitle());
+    }
+
+    @Test
+    public void changesAreOnlyAddedToThePageThatCoversThem() {
+        overlay.insert(new Note("new", "d", 2));
+        // 첫 페이지는 (3, 5)에서 끝나고, 두 번째 페이지는 그 뒤부터 시작한다.
+        List<NoteListItem> first = overlay.apply(rows(item(4, 7), item(3, 5)), null, false, item(3, 5), true);
+        List<NoteListItem> second = overlay.apply(rows(item(2, 9), item(1, 1)), item(3, 5), false, null, false);
+        assertEquals("[7, 5]", ids(first));
+        assertEquals("[-1, 9, 1]", ids(second));
+    }
+
+    @Test
+    public void resolveRemovesCommittedChangesOnly() {
+        Note inserted = new Note("new", "d", 2);
+        overlay.insert(inserted);
+        Note firstEdit = new Note("edit 1", "d", 1);
+        firstEdit.setId(1);
+        Note secondEdit = new Note("edit 2", "d", 1);
+        secondEdit.setId(1);
+        overlay.update(firstEdit);
+        overlay.update(secondEdit);
+
+        // 첫 번째 수정만 담긴 배치가 커밋되어도 두 번째 수정은 남아 있어야 한다.
+        overlay.resolve(new NoteWriteQueue.Batch(false, Collections.singletonList(inserted),
+                Collections.singletonList(firstEdit), Collections.<Integer>emptyList()));
+        List<NoteListItem> result = overlay.apply(rows(item(1, 1)), null, false, null, false);
+        assertEquals("[1]", ids(result));
+        assertEquals("edit 2", result.get(0).getTitle());
+
+        overlay.resolve(new NoteWriteQueue.Batch(false, Collections.<Note>emptyList(),
+                Collections.singletonList(secondEdit), Collections.<Integer>emptyList()));
+        assertTrue(overlay.isEmpty());
+    }
+
+    @Test
+    public void deleteAllHidesRowsUntilCommitted() {
+        overlay.deleteAll();
+        overlay.insert(new Note("after", "d", 1));
+        assertTrue(overlay.hidesAllRows());
+        assertEquals("[-1]", ids(overlay.apply(rows(item(3, 5)), null, false, null, false)));
+
+        overlay.resolve(new NoteWriteQueue.Batch(true, Collections.<Note>emptyList(),
+                Collections.<Note>emptyList(), Collections.<Integer>emptyList()));
+        assertFalse(overlay.hidesAllRows());
+    }
+
+    @Test
+    public void priorityChangeMovesRowsUntilResolved() {
+        Object first = new Object();
+        Object second = new Object();
+        overlay.updatePriority(Arrays.asList(1, 9), 4, first);
+        overlay.updatePriority(Collections.singletonList(9), 5, second);
+
+        // 두 번째 페이지에서 읽힌 행도 새 priority의 자리인 첫 페이지로 옮겨 간다.
+        assertEquals("[]", ids(overlay.apply(rows(item(2, 9), item(1, 1)), item(3, 5), false, null, false)));
+        List<NoteListItem> top = overlay.apply(rows(item(3, 5)), null, false, item(3, 5), true);
+        assertEquals("[9, 1, 5]", ids(top));
+        assertEquals(5, top.get(0).getPriority());
+
+        // 먼저 끝난 요청은 나중 요청이 바꾼 id를 건드리지 않는다.
+        overlay.resolvePriority(Arrays.asList(1, 9), first);
+        assertEquals("[9, 5]", ids(overlay.apply(rows(item(3, 5)), null, false, item(3, 5), true)));
+        overlay.resolvePriority(Collections.singletonList(9), second);
+        assertTrue(overlay.isEmpty());
+    }
+
+    @Test
+    public void listenersAreNotifiedOnEveryChange() {
+        final int[] calls = new int[1];
+        overlay.addListener(new NoteOverlay.Listener() {
+            @Override
+            public void onOverlayChanged() {
+                calls[0]++;
+            }
+        });
+        overlay.insert(new Note("a", "d", 1));
+        overlay.delete(3);
+        overlay.deleteAll();
+        assertEquals(3, calls[0]);
+    }
+
+    private static NoteListItem item(int priority, int id) {
+        return new NoteListItem(id, "t" + id, priority, "p");
+    }
+
+    private static List<NoteListItem> rows(NoteListItem... items) {
+        return new ArrayList<>(Arrays.asList(items));
+    }
+
+    private static String ids(List<NoteListItem> items) {
+        List<Integer> ids = new ArrayList<>();
+        for (NoteListItem item : items) {
+            ids.add(item.getId());
+        }
+        return ids.toString();
+    }
+}
@@ -0,0 +1,180 @@
+package com.example.mvvmarchitecture;
+
+import android.app.Application;
+import android.content.Context;
+import android.database.Cursor;
+
+import androidx.room.Room;
+import androidx.test.core.app.ApplicationProvider;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+@RunWith(RobolectricTestRunner.class)
+@Config(sdk = 28, application = Application.class)
+public class NotePartialUpdateTest {
+    private NoteDatabase database;
+    private NoteDao noteDao;
+
+    @Before
+    public void setUp() {
+        Context context = ApplicationProvider.getApplicationContext();
+        database = Room.inMemoryDatabaseBuilder(context, NoteDatabase.class)
+                .addCallback(NoteDatabase.CALLBACK)
+                .allowMainThreadQueries()
+                .build();
+        noteDao = database.noteDao();
+        noteDao.insert(new Note("Groceries", "milk and eggs", 2));
+    }
+
+    @After
+    public void tearDown() {
+        database.close();
+    }
+
+    @Test
+    public void writesOnlyTheMarkedColumns() {
+        // Note에는 다른 내용이 들어 있어도 표시한 컬럼만 바뀐다.
+        Note edit = new Note("ignored title", "ignored description", 9);
+        edit.setId(1);
+        edit.setChangedFields(Note.FIELD_PRIORITY);
+        noteDao.update(edit);
+
+        Note stored = noteDao.getById(1);
+        assertEquals("Groceries", stored.getTitle());
+        assertEquals("milk and eggs", stored.getDescription());
+        assertEquals(9, stored.getPriority());
+        assertEquals(edit.getUpdatedAt(), stored.getUpdatedAt());
+        assertEquals("[9=1]", counts());
+        // priority만 바뀌었으므로 sync_id도 그대로다.
+        assertEquals(1, count("SELECT COUNT(*) FROM note_sync WHERE note_id = 1 AND revision = 2"));
+
+        Note retitled = new Note("Shopping", "ignored description", 1);
+        retitled.setId(1);
+        retitled.setChangedFields(Note.FIELD_TITLE);
+        noteDao.updateAll(Collections.singletonList(retitled));
+        stored = noteDao.getById(1);
+        assertEquals("Shopping", stored.getTitle());
+        assertEquals("milk and eggs", stored.getDescription());
+        assertEquals(9, stored.getPriority());
+        assertEquals(1, noteDao.searchNow("shopping").size());
+        assertEquals(0, noteDao.searchNow("groceries").size());
+
+        // 압축할 만큼 긴 내용도 description 컬럼들만 바꾼다.
+        char[] chars = new char[NoteCompression.DEFAULT_THRESHOLD + 100];
+        Arrays.fill(chars, 'x');
+        String longText = new String(chars);
+        Note described = new Note("ignored", longText, 1);
+        described.setId(1);
+        described.setChangedFields(Note.FIELD_DESCRIPTION);
+        noteDao.update(described);
+        stored = noteDao.getById(1);
+        assertEquals("Shopping", stored.getTitle());
+        assertEquals(longText, stored.getDescription());
+        assertEquals(9, stored.getPriority());
+    }
+
+    @Test
+    public void unchangedNoteIsNotWritten() {
+        Note edit = new Note("ignored", "ignored", 5);
+        edit.setId(1);
+        edit.setChangedFields(0);
+        noteDao.update(edit);
+
+        assertEquals("Groceries", noteDao.getById(1).getTitle());
+        assertEquals(1, count("SELECT COUNT(*) FROM note_sync WHERE note_id = 1 AND revision = 1"));
+    }
+
+    @Test
+    public void coalescedUpdatesWriteTheUnionOfChangedColumns() {
+        NoteWriteQueue queue = new NoteWriteQueue(noteDao, new DeterministicTaskExecutor(), Integer.MAX_VALUE, null);
+        Note first = new Note("Shopping", "milk and eggs", 2);
+        first.setId(1);
+        first.setChangedFields(Note.FIELD_TITLE);
+        Note second = new Note("Shopping", "milk and eggs", 7);
+        second.setId(1);
+        second.setChangedFields(Note.FIELD_PRIORITY);
+        queue.update(first);
+        queue.update(second);
+
+        NoteWriteQueue.Batch batch = queue.drain();
+        List<Note> updates = batch.updates;
+        assertEquals(1, updates.size());
+        assertEquals(Note.FIELD_TITLE | Note.FIELD_PRIORITY, updates.get(0).getChangedFields());
+        noteDao.applyBatch(batch.deleteAll, batch.inserts, batch.updates, batch.deleteIds);
+
+        Note stored = noteDao.getById(1);
+        assertEquals("Shopping", stored.getTitle());
+        assertEquals(7, stored.getPriority());
+        assertEquals("[7=1]", counts());
+    }
+
+    @Test
+    public void bulkChangesAreSetBasedAndChunked() {
+        // 바인딩 변수 한도(999)를 넘게 골라도 한 번의 호출로 바뀐다.
+        List<Note> notes = new ArrayList<>();
+        List<Integer> ids = new ArrayList<>();
+        for (int i = 0; i < 1200; i++) {
+            notes.add(new Note("note " + i, "", 1));
+            ids.add(i + 2);
+        }
+        noteDao.insertAll(notes);
+        noteDao.updatePriorityByIds(ids, 4, 42);
+        assertEquals("[4=1200, 2=1]", counts());
+        assertEquals(1200, count("SELECT COUNT(*) FROM note_table WHERE updated_at = 42"));
+        assertEquals(1200, count("SELECT COUNT(*) FROM note_sync WHERE dirty = 1 AND revision = 2"));
+
+        // 고른 Note를 지우면 큐에서 배치 하나가 된다.
+        NoteWriteQueue queue = new NoteWriteQueue(noteDao, new DeterministicTaskExecutor(), Integer.MAX_VALUE, null);
+        queue.delete(ids);
+        NoteWriteQueue.Batch batch = queue.drain();
+        assertEquals(1200, batch.deleteIds.size());
+        noteDao.applyBatch(batch.deleteAll, batch.inserts, batch.updates, batch.deleteIds);
+        assertEquals("[2=1]", counts());
+        assertEquals(1200, count("SELECT COUNT(*) FROM note_sync WHERE deleted = 1"));
+    }
+
+    @Test
+    public void draftsAreStoredPerNote() {
+        noteDao.saveDraft(new NoteDraft(NoteDraft.NEW_NOTE_ID, "new", "", 1, 10));
+        noteDao.saveDraft(new NoteDraft(1, "Groceries", "milk", 2, 20));
+        noteDao.saveDraft(new NoteDraft(1, "Groceries", "milk and bread", 2, 30));
+
+        assertEquals("milk and bread", noteDao.getDraft(1).getDescription());
+        assertEquals("new", noteDao.getDraft(NoteDraft.NEW_NOTE_ID).getTitle());
+        noteDao.deleteDraft(1);
+        assertNull(noteDao.getDraft(1));
+    }
+
+    private String counts() {
+        StringBuilder builder = new StringBuilder("[");
+        for (NotePriorityCount count : noteDao.getPriorityCountsNow()) {
+            if (builder.length() > 1) {
+                builder.append(", ");
+            }
+            builder.append(count.getPriority()).append('=').append(count.getCount());
+        }
+        return builder.append(']').toString();
+    }
+
+    private int count(String sql) {
+        Cursor cursor = database.query(sql, null);
+        try {
+            return cursor.moveToFirst() ? cursor.getInt(0) : 0;
+        } finally {
+            cursor.close();
+        }
+    }
+}
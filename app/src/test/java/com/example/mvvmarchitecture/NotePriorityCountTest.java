@@ -0,0 +1,99 @@
+package com.example.mvvmarchitecture;
+
+import android.app.Application;
+import android.content.Context;
+
+import androidx.room.Room;
+import androidx.test.core.app.ApplicationProvider;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+@RunWith(RobolectricTestRunner.class)
+@Config(sdk = 28, application = Application.class)
+public class NotePriorityCountTest {
+    private NoteDatabase database;
+    private NoteDao noteDao;
+
+    @Before
+    public void setUp() {
+        Context context = ApplicationProvider.getApplicationContext();
+        database = Room.inMemoryDatabaseBuilder(context, NoteDatabase.class)
+                .addCallback(NoteDatabase.CALLBACK)
+                .allowMainThreadQueries()
+                .build();
+        noteDao = database.noteDao();
+    }
+
+    @After
+    public void tearDown() {
+        database.close();
+    }
+
+    @Test
+    public void triggersKeepCountsInSyncWithBatches() {
+        noteDao.insertAll(Arrays.asList(new Note("a", "d", 1), new Note("b", "d", 1), new Note("c", "d", 4)));
+        assertEquals("[4=1, 1=2]", counts());
+
+        Note moved = new Note("a", "d", 4);
+        moved.setId(1);
+        noteDao.applyBatch(false, Collections.singletonList(new Note("e", "d", 9)),
+                Collections.singletonList(moved), Collections.singletonList(2));
+        assertEquals("[9=1, 4=2]", counts());
+
+        // 제목만 바뀌면 개수는 그대로다.
+        Note renamed = new Note("renamed", "d", 4);
+        renamed.setId(1);
+        noteDao.update(renamed);
+        assertEquals("[9=1, 4=2]", counts());
+
+        noteDao.purgeChunk(noteDao.getMaxId(), 100);
+        assertEquals("[]", counts());
+    }
+
+    @Test
+    public void keysetQueriesStayInsidePriorityRange() {
+        List<Note> notes = new ArrayList<>();
+        for (int i = 0; i < 50; i++) {
+            notes.add(new Note("t" + i, "d", 1 + i % 10));
+        }
+        noteDao.insertAll(notes);
+        NotePriorityRange range = new NotePriorityRange(3, 5);
+
+        List<NoteListItem> all = new ArrayList<>();
+        List<NoteListItem> page = noteDao.getFirstNotes(range.getMin(), range.getMax(), 4);
+        while (!page.isEmpty()) {
+            all.addAll(page);
+            NoteListItem last = page.get(page.size() - 1);
+            page = noteDao.getNotesAfter(range.getMin(), range.getMax(), last.getPriority(), last.getId(), 4);
+        }
+
+        assertEquals(NotePriorityCount.sum(noteDao.getPriorityCountsNow(), range), all.size());
+        assertEquals(15, all.size());
+        for (NoteListItem item : all) {
+            assertTrue(item.toString(), range.contains(item.getPriority()));
+        }
+        assertEquals(5, all.get(0).getPriority());
+        assertEquals(3, all.get(all.size() - 1).getPriority());
+    }
+
+    private String counts() {
+        List<String> counts = new ArrayList<>();
+        for (NotePriorityCount count : noteDao.getPriorityCountsNow()) {
+            counts.add(count.getPriority() + "=" + count.getCount());
+        }
+        return counts.toString();
+    }
+}
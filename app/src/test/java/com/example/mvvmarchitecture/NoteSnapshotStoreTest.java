@@ -0,0 +1,219 @@
+package com.example.mvvmarchitecture;
+
+import android.app.Application;
+import android.content.Context;
+
+import androidx.lifecycle.LiveData;
+import androidx.lifecycle.Observer;
+import androidx.room.Room;
+import androidx.test.core.app.ApplicationProvider;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+import org.robolectric.shadows.ShadowLooper;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Executor;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.fail;
+
+@RunWith(RobolectricTestRunner.class)
+@Config(sdk = 28, application = Application.class)
+public class NoteSnapshotStoreTest {
+    private static final Executor DIRECT = new Executor() {
+        @Override
+        public void execute(Runnable command) {
+            command.run();
+        }
+    };
+
+    private NoteDatabase database;
+    private NoteDao noteDao;
+    // 스냅샷 쿼리는 테스트가 runAll()을 부를 때까지 쌓아 둔다.
+    private final List<Runnable> pending = new ArrayList<>();
+    private NoteSnapshotStore store;
+    private int loads;
+
+    @Before
+    public void setUp() {
+        Context context = ApplicationProvider.getApplicationContext();
+        // 무효화 알림이 쓰기가 끝나는 즉시 이 스레드에서 오도록 query executor를 직접 실행으로 둔다.
+        database = Room.inMemoryDatabaseBuilder(context, NoteDatabase.class)
+                .addCallback(NoteDatabase.CALLBACK)
+                .allowMainThreadQueries()
+                .setQueryExecutor(DIRECT)
+                .build();
+        noteDao = database.noteDao();
+        noteDao.insert(new Note("Groceries", "milk and eggs", 2));
+        store = new NoteSnapshotStore(database.getInvalidationTracker(), new Executor() {
+            @Override
+            public void execute(Runnable command) {
+                pending.add(command);
+            }
+        });
+    }
+
+    @After
+    public void tearDown() {
+        database.close();
+    }
+
+    @Test
+    public void observersOfTheSameKeyShareOneQueryAndSnapshot() {
+        LiveData<List<NotePriorityCount>> first = counts();
+        LiveData<List<NotePriorityCount>> second = counts();
+        assertSame(first, second);
+
+        Recorder<NotePriorityCount> a = new Recorder<>();
+        Recorder<NotePriorityCount> b = new Recorder<>();
+        first.observeForever(a);
+        second.observeForever(b);
+        runAll();
+        assertEquals(1, loads);
+        assertSame(a.last, b.last);
+        assertEquals(2, a.last.get(0).getPriority());
+
+        // 쓰기 한 번에 관찰자 수와 상관없이 한 번만 다시 읽는다.
+        noteDao.insert(new Note("Laundry", "", 5));
+        runAll();
+        assertEquals(2, loads);
+        assertSame(a.last, b.last);
+        assertEquals(2, a.last.size());
+
+        try {
+            a.last.clear();
+            fail("snapshots are shared and must not be modified");
+        } catch (UnsupportedOperationException expected) {
+        }
+    }
+
+    @Test
+    public void invalidationsWhileWaitingAreCoalesced() {
+        Recorder<NotePriorityCount> recorder = new Recorder<>();
+        counts().observeForever(recorder);
+        runAll();
+
+        noteDao.insert(new Note("a", "", 1));
+        noteDao.insert(new Note("b", "", 3));
+        noteDao.insert(new Note("c", "", 4));
+        runAll();
+        assertEquals(2, loads);
+        assertEquals(4, recorder.last.size());
+    }
+
+    @Test
+    public void lastObserverLeavingTearsTheQueryDown() {
+        LiveData<List<NotePriorityCount>> counts = counts();
+        Recorder<NotePriorityCount> a = new Recorder<>();
+        Recorder<NotePriorityCount> b = new Recorder<>();
+        counts.observeForever(a);
+        counts.observeForever(b);
+        runAll();
+
+        counts.removeObserver(a);
+        assertEquals(1, store.size());
+        counts.removeObserver(b);
+        assertEquals(0, store.size());
+        // 등록 해제도 executor에서 한다.
+        assertEquals(1, pending.size());
+        runAll();
+
+        // 관찰자가 없으면 쓰기가 일어나도 다시 읽지 않는다.
+        noteDao.insert(new Note("Laundry", "", 5));
+        assertEquals(0, pending.size());
+        assertEquals(1, loads);
+
+        // 다시 관찰하면 그동안의 변경을 읽는다.
+        counts.observeForever(a);
+        runAll();
+        assertEquals(2, loads);
+        assertEquals(2, a.last.size());
+        assertSame(counts, counts());
+    }
+
+    @Test
+    public void lateUnregisterDoesNotUndoTheNextRegister() {
+        LiveData<List<NotePriorityCount>> counts = counts();
+        Recorder<NotePriorityCount> recorder = new Recorder<>();
+        counts.observeForever(recorder);
+        runAll();
+        counts.removeObserver(recorder);
+        counts.observeForever(recorder);
+
+        // 여러 스레드의 executor에서처럼 해제가 다음 등록보다 늦게 실행된다.
+        while (!pending.isEmpty()) {
+            pending.remove(pending.size() - 1).run();
+        }
+        ShadowLooper.runUiThreadTasksIncludingDelayedTasks();
+        int loadsBefore = loads;
+
+        noteDao.insert(new Note("Laundry", "", 5));
+        runAll();
+        assertEquals(loadsBefore + 1, loads);
+        assertEquals(2, recorder.last.size());
+    }
+
+    @Test
+    public void queriesAreTimedByTheKeyBeforeTheColon() {
+        InMemoryNoteMetrics metrics = new InMemoryNoteMetrics();
+        NoteMetrics.install(metrics);
+        try {
+            // 검색어가 달라도 같은 지표에 모인다.
+            for (String ftsQuery : new String[]{"milk*", "eggs*"}) {
+                store.get("search:" + ftsQuery, new String[]{"note_table", "note_fts"},
+                        new NoteSnapshotStore.Query<Integer>() {
+                            @Override
+                            public Integer load() {
+                                return noteDao.getAllNotesNow().size();
+                            }
+                        }).observeForever(new Observer<Integer>() {
+                            @Override
+                            public void onChanged(Integer value) {
+                            }
+                        });
+            }
+            counts().observeForever(new Recorder<NotePriorityCount>());
+            runAll();
+
+            assertEquals(2, metrics.getHistogram(NoteMetrics.SNAPSHOT_PREFIX + "search").getCount());
+            assertEquals(1, metrics.getHistogram(NoteMetrics.SNAPSHOT_PREFIX + "priorityCounts").getCount());
+        } finally {
+            NoteMetrics.install(null);
+        }
+    }
+
+    private LiveData<List<NotePriorityCount>> counts() {
+        return store.get("priorityCounts", new String[]{"note_priority_count"},
+                new NoteSnapshotStore.Query<List<NotePriorityCount>>() {
+                    @Override
+                    public List<NotePriorityCount> load() {
+                        loads++;
+                        return Collections.unmodifiableList(noteDao.getPriorityCountsNow());
+                    }
+                });
+    }
+
+    private void runAll() {
+        while (!pending.isEmpty()) {
+            pending.remove(0).run();
+        }
+        ShadowLooper.runUiThreadTasksIncludingDelayedTasks();
+    }
+
+    private static class Recorder<T> implements Observer<List<T>> {
+        private List<T> last;
+
+        @Override
+        public void onChanged(List<T> value) {
+            last = value;
+        }
+    }
+}
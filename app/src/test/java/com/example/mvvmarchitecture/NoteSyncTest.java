@@ -0,0 +1,198 @@
+package com.example.mvvmarchitecture;
+
+import android.app.Application;
+import android.content.Context;
+
+import androidx.room.Room;
+import androidx.test.core.app.ApplicationProvider;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+import org.robolectric.shadows.ShadowLooper;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+@RunWith(RobolectricTestRunner.class)
+@Config(sdk = 28, application = Application.class)
+public class NoteSyncTest {
+    private FakeSyncServer server;
+    private Device deviceA;
+    private Device deviceB;
+
+    @Before
+    public void setUp() throws IOException {
+        server = new FakeSyncServer();
+        deviceA = new Device("a");
+        deviceB = new Device("b");
+    }
+
+    @After
+    public void tearDown() {
+        deviceA.close();
+        deviceB.close();
+        server.stop();
+    }
+
+    @Test
+    public void onlyChangedNotesAreSentAfterFirstSync() throws IOException {
+        List<Note> notes = new ArrayList<>();
+        for (int i = 0; i < 500; i++) {
+            notes.add(new Note("title " + i, "description " + i, 1 + i % 10));
+        }
+        deviceA.noteDao.insertAll(notes);
+
+        NoteSyncEngine.Result first = deviceA.sync();
+        assertEquals(500, first.pushed);
+        assertEquals(3, first.rounds);
+
+        Note edit = new Note("edited", "description 7", 1);
+        edit.setId(deviceA.noteDao.getFirstNotes(1).get(0).getId());
+        deviceA.noteDao.update(edit);
+        NoteSyncEngine.Result second = deviceA.sync();
+        assertEquals(1, second.pushed);
+        // 자신이 올린 변경은 다시 반영하지 않는다.
+        assertEquals(0, second.pulled);
+        assertTrue(second.toString(), second.bytesSent * 20 < first.bytesSent);
+
+        NoteSyncEngine.Result pulled = deviceB.sync();
+        assertEquals(500, pulled.pulled);
+        assertEquals(0, pulled.pushed);
+        assertEquals("edited", deviceB.title(deviceA.noteDao.getById(edit.getId()).getSyncId()));
+
+        // 받은 Note는 다시 올리지 않는다.
+        assertEquals(0, deviceB.sync().getChanges());
+    }
+
+    @Test
+    public void concurrentEditsConvergeToTheLaterChange() throws IOException {
+        deviceA.noteDao.insert(new Note("original", "d", 1));
+        deviceA.sync();
+        deviceB.sync();
+        String syncId = deviceA.noteDao.getById(1).getSyncId();
+
+        deviceA.edit(syncId, 1000, "from a");
+        deviceB.edit(syncId, 2000, "from b");
+        deviceA.sync();
+        NoteSyncEngine.Result resolved = deviceB.sync();
+        assertEquals(1, resolved.conflicts);
+        deviceA.sync();
+
+        assertEquals("from b", deviceA.title(syncId));
+        assertEquals("from b", deviceB.title(syncId));
+        assertEquals("from b", server.get(syncId).title);
+        assertFalse(deviceA.syncDao.getState(syncId).isDirty());
+        assertFalse(deviceB.syncDao.getState(syncId).isDirty());
+    }
+
+    @Test
+    public void deletesPropagateAndTombstonesAreDropped() throws IOException {
+        deviceA.noteDao.insert(new Note("doomed", "d", 1));
+        deviceA.sync();
+        deviceB.sync();
+        String syncId = deviceA.noteDao.getById(1).getSyncId();
+
+        deviceA.noteDao.deleteByIds(Collections.singletonList(1));
+        assertTrue(deviceA.syncDao.getState(syncId).isDeleted());
+        assertEquals(1, deviceA.sync().pushed);
+        assertNull(deviceA.syncDao.getState(syncId));
+
+        assertEquals(1, deviceB.sync().pulled);
+        assertNull(deviceB.syncDao.getNoteId(syncId));
+        assertNull(deviceB.syncDao.getState(syncId));
+        assertTrue(server.get(syncId).deleted);
+    }
+
+    @Test
+    public void deleteAllWithoutSyncLeavesNoTombstones() {
+        deviceA.noteDao.insert(new Note("kept", "d", 1));
+        deviceA.noteDao.insert(new Note("doomed", "d", 1));
+        String first = deviceA.noteDao.getById(1).getSyncId();
+        String second = deviceA.noteDao.getById(2).getSyncId();
+        deviceA.noteDao.deleteByIds(Collections.singletonList(2));
+        assertTrue(deviceA.syncDao.getState(second).isDeleted());
+
+        DeterministicTaskExecutor writes = new DeterministicTaskExecutor();
+        // 테스트용 생성자는 동기화 엔진을 붙이지 않는다.
+        NoteRepository repository = new NoteRepository(deviceA.database, writes, writes);
+        assertFalse(repository.isSyncEnabled());
+        repository.deleteAllNotes();
+        ShadowLooper.runUiThreadTasksIncludingDelayedTasks();
+        writes.runAll();
+
+        // 모두 지우며 남긴 tombstone과 그 전에 남아 있던 tombstone을 함께 지운다.
+        assertEquals(0, deviceA.noteDao.getAllNotesNow().size());
+        assertNull(deviceA.syncDao.getState(first));
+        assertNull(deviceA.syncDao.getState(second));
+    }
+
+    @Test
+    public void conflictRuleIsTheSameOnBothSides() {
+        NoteSyncProtocol.Record a = record(1000, false, "a");
+        NoteSyncProtocol.Record b = record(1000, false, "b");
+        NoteSyncProtocol.Record deleted = record(1000, true, null);
+        NoteSyncProtocol.Record later = record(2000, false, "a");
+
+        // 어느 쪽에서 계산해도 같은 쪽이 이긴다.
+        assertTrue(NoteSyncEngine.remoteWins(a, b));
+        assertFalse(NoteSyncEngine.remoteWins(b, a));
+        assertTrue(NoteSyncEngine.remoteWins(b, deleted));
+        assertFalse(NoteSyncEngine.remoteWins(deleted, b));
+        assertTrue(NoteSyncEngine.remoteWins(deleted, later));
+        assertFalse(NoteSyncEngine.remoteWins(later, deleted));
+    }
+
+    private static NoteSyncProtocol.Record record(long updatedAt, boolean deleted, String title) {
+        return new NoteSyncProtocol.Record("id", 1, deleted, updatedAt, title, deleted ? null : "d", 1, 0);
+    }
+
+    // 기기 하나: 인메모리 데이터베이스, 쓰기 스레드, 토큰을 저장할 SharedPreferences.
+    private class Device {
+        final NoteDatabase database;
+        final NoteDao noteDao;
+        final NoteSyncDao syncDao;
+        final NoteSyncEngine engine;
+
+        Device(String name) {
+            Context context = ApplicationProvider.getApplicationContext();
+            database = Room.inMemoryDatabaseBuilder(context, NoteDatabase.class)
+                    .addCallback(NoteDatabase.CALLBACK)
+                    .allowMainThreadQueries()
+                    .build();
+            noteDao = database.noteDao();
+            syncDao = database.noteSyncDao();
+            engine = new NoteSyncEngine(database, new PriorityTaskExecutor("sync-test-" + name),
+                    new NoteSyncClient(server.getEndpoint()),
+                    context.getSharedPreferences("sync-test-" + name, Context.MODE_PRIVATE));
+        }
+
+        NoteSyncEngine.Result sync() throws IOException {
+            return engine.sync();
+        }
+
+        void edit(String syncId, long updatedAt, String title) {
+            Note note = new Note(syncId, updatedAt, title, "d", 1);
+            note.setId(syncDao.getNoteId(syncId));
+            noteDao.update(note);
+        }
+
+        String title(String syncId) {
+            return noteDao.getById(syncDao.getNoteId(syncId)).getTitle();
+        }
+
+        void close() {
+            database.close();
+        }
+    }
+}
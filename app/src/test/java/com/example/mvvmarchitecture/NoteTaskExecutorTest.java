@@ -0,0 +1,201 @@
+package com.example.mvvmarchitecture;
+
+import android.app.Application;
+import android.content.Context;
+
+import androidx.room.Room;
+import androidx.test.core.app.ApplicationProvider;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+import org.robolectric.shadows.ShadowLooper;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+@RunWith(RobolectricTestRunner.class)
+@Config(sdk = 28, application = Application.class)
+public class NoteTaskExecutorTest {
+    private static final Executor DIRECT = new Executor() {
+        @Override
+        public void execute(Runnable command) {
+            command.run();
+        }
+    };
+
+    private final DeterministicTaskExecutor executor = new DeterministicTaskExecutor();
+    private NoteDatabase database;
+    private NoteDao noteDao;
+
+    @Before
+    public void setUp() {
+        Context context = ApplicationProvider.getApplicationContext();
+        database = Room.inMemoryDatabaseBuilder(context, NoteDatabase.class)
+                .addCallback(NoteDatabase.CALLBACK)
+                .allowMainThreadQueries()
+                .build();
+        noteDao = database.noteDao();
+    }
+
+    @After
+    public void tearDown() {
+        database.close();
+    }
+
+    @Test
+    public void runsByPriorityThenSubmissionOrder() {
+        final List<String> order = new ArrayList<>();
+        executor.execute(NoteTaskExecutor.Priority.BULK, record(order, "bulk 1"));
+        executor.execute(record(order, "normal"));
+        executor.execute(NoteTaskExecutor.Priority.INTERACTIVE, record(order, "edit 1"));
+        executor.execute(NoteTaskExecutor.Priority.BULK, record(order, "bulk 2"));
+        executor.at(NoteTaskExecutor.Priority.INTERACTIVE).execute(record(order, "edit 2"));
+
+        assertEquals(5, executor.runAll());
+        assertEquals("[edit 1, edit 2, normal, bulk 1, bulk 2]", order.toString());
+    }
+
+    @Test
+    public void submitReportsResultFailureAndCancellation() throws Exception {
+        NoteFuture<Integer> success = executor.submit(NoteTaskExecutor.Priority.NORMAL, new Callable<Integer>() {
+            @Override
+            public Integer call() {
+                return 42;
+            }
+        });
+        NoteFuture<Integer> failure = executor.submit(NoteTaskExecutor.Priority.NORMAL, new Callable<Integer>() {
+            @Override
+            public Integer call() {
+                throw new IllegalStateException("boom");
+            }
+        });
+        final boolean[] ran = new boolean[1];
+        NoteFuture<Integer> cancelled = executor.submit(NoteTaskExecutor.Priority.NORMAL, new Callable<Integer>() {
+            @Override
+            public Integer call() {
+                ran[0] = true;
+                return 0;
+            }
+        });
+        final List<String> callbacks = new ArrayList<>();
+        cancelled.addCallback(new NoteFuture.Callback<Integer>() {
+            @Override
+            public void onSuccess(Integer result) {
+                callbacks.add("success");
+            }
+
+            @Override
+            public void onFailure(Throwable error) {
+                callbacks.add(error.getClass().getSimpleName());
+            }
+        });
+        assertFalse(success.isDone());
+        assertTrue(cancelled.cancel(false));
+        executor.runAll();
+
+        assertEquals(Integer.valueOf(42), success.get(0, TimeUnit.MILLISECONDS));
+        try {
+            failure.get();
+            fail();
+        } catch (ExecutionException e) {
+            assertEquals("boom", e.getCause().getMessage());
+        }
+        try {
+            cancelled.get();
+            fail();
+        } catch (CancellationException expected) {
+        }
+        assertFalse(ran[0]);
+        assertEquals("[CancellationException]", callbacks.toString());
+    }
+
+    @Test
+    public void editIsCommittedBetweenImportChunks() throws Exception {
+        NoteRepository repository = new NoteRepository(database, DIRECT, executor);
+        NoteFuture<Long> imported = repository.importNotes(jsonLines(NoteTransfer.DEFAULT_CHUNK_SIZE * 2 + 500), null,
+                new NoOpTransferCallback());
+
+        executor.runNext();
+        assertEquals(NoteTransfer.DEFAULT_CHUNK_SIZE, count());
+
+        NoteFuture<Void> edit = repository.insert(new Note("edit", "d", 5));
+        ShadowLooper.runUiThreadTasksIncludingDelayedTasks();
+        // 가져오기가 남아 있어도 편집이 먼저 커밋된다.
+        executor.runNext();
+        assertTrue(edit.isDone());
+        assertEquals(NoteTransfer.DEFAULT_CHUNK_SIZE + 1, count());
+        assertFalse(imported.isDone());
+
+        executor.runAll();
+        assertEquals(Long.valueOf(NoteTransfer.DEFAULT_CHUNK_SIZE * 2 + 500), imported.get());
+        assertEquals(NoteTransfer.DEFAULT_CHUNK_SIZE * 2 + 501, count());
+    }
+
+    @Test
+    public void cancelledImportStopsBeforeNextChunk() {
+        NoteRepository repository = new NoteRepository(database, DIRECT, executor);
+        NoteFuture<Long> imported = repository.importNotes(jsonLines(NoteTransfer.DEFAULT_CHUNK_SIZE * 3), null,
+                new NoOpTransferCallback());
+
+        executor.runNext();
+        imported.cancel(false);
+        executor.runAll();
+
+        assertTrue(imported.isCancelled());
+        assertEquals(NoteTransfer.DEFAULT_CHUNK_SIZE, count());
+    }
+
+    private int count() {
+        return NotePriorityCount.sum(noteDao.getPriorityCountsNow(), NotePriorityRange.ALL);
+    }
+
+    private static Runnable record(final List<String> order, final String name) {
+        return new Runnable() {
+            @Override
+            public void run() {
+                order.add(name);
+            }
+        };
+    }
+
+    private static InputStream jsonLines(int count) {
+        StringBuilder input = new StringBuilder();
+        for (int i = 0; i < count; i++) {
+            input.append("{\"title\":\"t").append(i).append("\",\"description\":\"d\",\"priority\":").append(1 + i % 10).append("}\n");
+        }
+        return new ByteArrayInputStream(input.toString().getBytes(Charset.forName("UTF-8")));
+    }
+
+    private static class NoOpTransferCallback implements NoteRepository.TransferCallback {
+        @Override
+        public void onProgress(long count) {
+        }
+
+        @Override
+        public void onComplete(long count) {
+        }
+
+        @Override
+        public void onError(IOException e) {
+            throw new AssertionError(e);
+        }
+    }
+}
@@ -0,0 +1,174 @@
+package com.example.mvvmarchitecture;
+
+import android.app.Application;
+import android.content.Context;
+
+import androidx.room.Room;
+import androidx.test.core.app.ApplicationProvider;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+@RunWith(RobolectricTestRunner.class)
+@Config(sdk = 28, application = Application.class)
+public class NoteTransferTest {
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+    private static final int CHUNK_SIZE = 10;
+
+    private NoteDatabase database;
+    private NoteDao noteDao;
+    private NoteTransfer transfer;
+
+    @Before
+    public void setUp() {
+        Context context = ApplicationProvider.getApplicationContext();
+        database = Room.inMemoryDatabaseBuilder(context, NoteDatabase.class)
+                .allowMainThreadQueries()
+                .build();
+        noteDao = database.noteDao();
+        transfer = new NoteTransfer(noteDao, CHUNK_SIZE);
+    }
+
+    @After
+    public void tearDown() {
+        database.close();
+    }
+
+    @Test
+    public void jsonLinesRoundTrip() throws IOException {
+        roundTrip(NoteTransfer.Format.JSON_LINES);
+    }
+
+    @Test
+    public void csvRoundTrip() throws IOException {
+        roundTrip(NoteTransfer.Format.CSV);
+    }
+
+    @Test
+    public void importCommitsInChunksAndReportsProgress() throws IOException {
+        StringBuilder input = new StringBuilder();
+        for (int i = 0; i < 25; i++) {
+            input.append("{\"title\":\"t").append(i).append("\",\"description\":\"d\",\"priority\":1}\n");
+        }
+        final List<Long> progress = new ArrayList<>();
+        long count = transfer.importNotes(stream(input.toString()), null, new NoteTransfer.ProgressListener() {
+            @Override
+            public void onProgress(long count) {
+                progress.add(count);
+            }
+        });
+
+        assertEquals(25, count);
+        assertEquals("[10, 20, 25]", progress.toString());
+        assertEquals(25, noteDao.getFirstNotes(100).size());
+    }
+
+    @Test
+    public void formatIsDetectedFromFirstCharacter() throws IOException {
+        String csv = "title,priority\r\nfrom csv,3\r\n\r\n";
+        assertEquals(1, transfer.importNotes(stream(csv), null, null));
+        NoteListItem item = noteDao.getFirstNotes(1).get(0);
+        assertEquals("from csv", item.getTitle());
+        assertEquals(3, item.getPriority());
+    }
+
+    @Test
+    public void malformedCsvKeepsCommittedChunks() {
+        StringBuilder csv = new StringBuilder("title,description,priority\n");
+        for (int i = 0; i < CHUNK_SIZE; i++) {
+            csv.append("t,d,1\n");
+        }
+        csv.append("t,d,high\n");
+        try {
+            transfer.importNotes(stream(csv.toString()), NoteTransfer.Format.CSV, null);
+            fail("expected IOException");
+        } catch (IOException expected) {
+            assertTrue(expected.getMessage().contains("high"));
+        }
+        assertEquals(CHUNK_SIZE, noteDao.getFirstNotes(100).size());
+    }
+
+    @Test
+    public void recordsWithoutPriorityAreRejected() {
+        String[] inputs = {
+                "{\"title\":\"kept\",\"priority\":2}\n{\"title\":\"no priority\"}\n",
+                "{\"title\":\"kept\",\"priority\":2}\n{\"title\":\"null priority\",\"priority\":null}\n",
+                "title,priority\nkept,2\nshort record\n"};
+        for (String input : inputs) {
+            noteDao.deleteAllNotes();
+            try {
+                transfer.importNotes(stream(input), null, null);
+                fail("expected IOException for " + input);
+            } catch (IOException expected) {
+                assertTrue(expected.getMessage().contains("Missing priority at record 2"));
+            }
+            // 0으로 채워 넣지 않는다. 같은 chunk의 앞 레코드도 커밋되지 않는다.
+            assertEquals(0, noteDao.getFirstNotes(100).size());
+        }
+    }
+
+    private void roundTrip(NoteTransfer.Format format) throws IOException {
+        List<Note> notes = new ArrayList<>();
+        notes.add(new Note("plain", "text", 1));
+        notes.add(new Note("comma, \"quote\"", "line1\nline2\r\nline3", 2));
+        notes.add(new Note("유니코드 ☃", "tab\there \\ backslash \u0001", 3));
+        notes.add(new Note("no description", null, 4));
+        for (int i = 0; i < 30; i++) {
+            notes.add(new Note("bulk " + i, "description " + i, 1 + i % 10));
+        }
+        noteDao.insertAll(notes);
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        assertEquals(notes.size(), transfer.exportNotes(out, format, null));
+
+        noteDao.deleteAllNotes();
+        assertEquals(notes.size(), transfer.importNotes(new ByteArrayInputStream(out.toByteArray()), format, null));
+
+        List<Note> imported = new ArrayList<>();
+        List<Integer> ids = new ArrayList<>();
+        for (NoteListItem item : noteDao.getFirstNotes(100)) {
+            ids.add(item.getId());
+        }
+        imported.addAll(noteDao.getByIds(ids));
+        assertEquals(notes.size(), imported.size());
+        for (Note expected : notes) {
+            assertTrue(format + " lost " + expected.getTitle(), contains(imported, expected, format));
+        }
+    }
+
+    // CSV는 null과 빈 문자열을 구분하지 않는다.
+    private static boolean contains(List<Note> notes, Note expected, NoteTransfer.Format format) {
+        String expectedDescription = expected.getDescription();
+        if (expectedDescription == null && format == NoteTransfer.Format.CSV) {
+            expectedDescription = "";
+        }
+        for (Note note : notes) {
+            if (note.getTitle().equals(expected.getTitle())
+                    && note.getPriority() == expected.getPriority()
+                    && (expectedDescription == null ? note.getDescription() == null
+                    : expectedDescription.equals(note.getDescription()))) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static ByteArrayInputStream stream(String text) {
+        return new ByteArrayInputStream(text.getBytes(UTF_8));
+    }
+}
@@ -0,0 +1,167 @@
+package com.example.mvvmarchitecture;
+
+import android.app.Application;
+import android.content.Context;
+
+import androidx.room.Room;
+import androidx.test.core.app.ApplicationProvider;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+import org.robolectric.shadows.ShadowLooper;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+@RunWith(RobolectricTestRunner.class)
+@Config(sdk = 28, application = Application.class)
+public class NoteWriteQueueTest {
+    private NoteDatabase database;
+    private NoteDao noteDao;
+    private DeterministicTaskExecutor writeExecutor;
+    private final List<NoteWriteQueue.Batch> committed = new ArrayList<>();
+    private NoteWriteQueue queue;
+
+    @Before
+    public void setUp() {
+        Context context = ApplicationProvider.getApplicationContext();
+        database = Room.inMemoryDatabaseBuilder(context, NoteDatabase.class)
+                .addCallback(NoteDatabase.CALLBACK)
+                .allowMainThreadQueries()
+                .build();
+        noteDao = database.noteDao();
+        writeExecutor = new DeterministicTaskExecutor();
+        queue = new NoteWriteQueue(noteDao, writeExecutor, new NoteWriteQueue.BatchListener() {
+            @Override
+            public void onBatchCommitted(NoteWriteQueue.Batch batch) {
+                committed.add(batch);
+            }
+
+            @Override
+            public void onBatchFailed(NoteWriteQueue.Batch batch, RuntimeException error) {
+                throw new AssertionError(error);
+            }
+        });
+    }
+
+    @After
+    public void tearDown() {
+        database.close();
+    }
+
+    @Test
+    public void updatesOfDeletedNotesAreDropped() {
+        queue.update(edit(1, "before delete"));
+        queue.delete(1);
+        queue.update(edit(1, "after delete"));
+        queue.update(edit(2, "kept"));
+
+        NoteWriteQueue.Batch batch = queue.drain();
+        assertEquals(Collections.singletonList(1), batch.deleteIds);
+        assertEquals(1, batch.updates.size());
+        assertEquals(2, batch.updates.get(0).getId());
+        assertNull(queue.drain());
+    }
+
+    @Test
+    public void deleteAllDiscardsEarlierChangesOnly() {
+        queue.insert(new Note("discarded", "", 1));
+        queue.update(edit(1, "discarded"));
+        queue.delete(2);
+        queue.deleteAll();
+        Note later = new Note("later", "", 1);
+        queue.insert(later);
+
+        NoteWriteQueue.Batch batch = queue.drain();
+        assertTrue(batch.deleteAll);
+        assertEquals(0, batch.updates.size());
+        assertEquals(0, batch.deleteIds.size());
+        assertEquals(1, batch.inserts.size());
+        assertSame(later, batch.inserts.get(0));
+        // 버려진 요청도 배치와 함께 끝나도록 같은 배치에 담긴다.
+        assertEquals(5, batch.futures.size());
+    }
+
+    @Test
+    public void flushesWhenFullWithoutWaiting() {
+        for (int i = 0; i < NoteWriteQueue.MAX_BATCH_SIZE - 1; i++) {
+            queue.insert(new Note("note " + i, "", 1));
+        }
+        assertEquals(0, writeExecutor.size());
+        NoteFuture<Void> last = queue.insert(new Note("last", "", 1));
+        assertEquals(1, writeExecutor.size());
+        assertEquals(0, queue.size());
+
+        writeExecutor.runAll();
+        assertTrue(last.isDone());
+        assertEquals(1, committed.size());
+        assertEquals(NoteWriteQueue.MAX_BATCH_SIZE, committed.get(0).size());
+        assertEquals(NoteWriteQueue.MAX_BATCH_SIZE, noteDao.getAllNotesNow().size());
+    }
+
+    @Test
+    public void flushesAfterTheDelay() {
+        NoteFuture<Void> first = queue.insert(new Note("first", "", 1));
+        ShadowLooper.idleMainLooper(NoteWriteQueue.FLUSH_DELAY_MS / 2, TimeUnit.MILLISECONDS);
+        // 기다리는 동안 들어온 요청은 같은 배치에 들어간다. 타이머는 다시 걸지 않는다.
+        NoteFuture<Void> second = queue.insert(new Note("second", "", 1));
+        ShadowLooper.idleMainLooper(NoteWriteQueue.FLUSH_DELAY_MS / 2 - 1, TimeUnit.MILLISECONDS);
+        assertEquals(0, writeExecutor.size());
+
+        ShadowLooper.idleMainLooper(1, TimeUnit.MILLISECONDS);
+        assertEquals(1, writeExecutor.size());
+        writeExecutor.runAll();
+        assertTrue(first.isDone());
+        assertTrue(second.isDone());
+        assertEquals(1, committed.size());
+        assertEquals(2, committed.get(0).size());
+    }
+
+    @Test
+    public void applyBatchDeletesThenUpdatesThenInserts() {
+        List<Note> existing = new ArrayList<>();
+        for (int i = 0; i < 1200; i++) {
+            existing.add(new Note("note " + i, "", 1));
+        }
+        noteDao.insertAll(existing);
+        List<Integer> deleteIds = new ArrayList<>();
+        for (int id = 1; id <= 1200; id++) {
+            deleteIds.add(id);
+        }
+        // 지운 id로 다시 넣는 Note와, 아직 없는 행을 가리키는 update.
+        Note reinserted = new Note("reinserted", "", 3);
+        reinserted.setId(1);
+        Note inserted = new Note("inserted", "", 3);
+        inserted.setId(2000);
+
+        List<Note> inserts = new ArrayList<>();
+        inserts.add(reinserted);
+        inserts.add(inserted);
+
+        noteDao.applyBatch(false, inserts, Collections.singletonList(edit(2000, "updated")), deleteIds);
+
+        // 바인딩 변수 한도(999)를 넘는 삭제도 나눠서 모두 지운다. 지운 뒤에 넣었으므로 id 1이 남는다.
+        assertEquals(2, noteDao.getAllNotesNow().size());
+        assertEquals("reinserted", noteDao.getById(1).getTitle());
+        // update가 insert보다 먼저 실행되므로 아직 없던 행은 바뀌지 않는다.
+        assertEquals("inserted", noteDao.getById(2000).getTitle());
+    }
+
+    private static Note edit(int id, String title) {
+        Note note = new Note(title, "", 1);
+        note.setId(id);
+        note.setChangedFields(Note.FIELD_TITLE);
+        return note;
+    }
+}